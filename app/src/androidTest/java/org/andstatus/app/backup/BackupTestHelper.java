@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.backup;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lets tests of other packages make a backup
+ * @author yvolk@yurivolkov.com
+ */
+public class BackupTestHelper {
+
+    private BackupTestHelper() {
+        // Empty
+    }
+
+    /** @return the data folder of the new backup */
+    public static File backup(File backupFolder) throws IOException {
+        MyBackupManager backupManager = new MyBackupManager(null);
+        backupManager.prepareForBackup(backupFolder);
+        backupManager.backup();
+        assertTrue("Descriptor file created: " + backupManager.getDescriptorFile().getAbsolutePath(),
+                backupManager.getDescriptorFile().exists());
+        return backupManager.getDataFolder();
+    }
+}
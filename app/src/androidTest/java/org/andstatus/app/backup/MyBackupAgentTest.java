@@ -13,6 +13,8 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.DemoData;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
@@ -26,9 +28,12 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -49,10 +54,27 @@ public class MyBackupAgentTest {
         assertEquals("Compare Persistent accounts with copy", MyContextHolder.get().persistentAccounts(), accountsBefore);
         compareOneAccount(MyContextHolder.get().persistentAccounts(), accountsBefore, DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
         
-        File outputFolder = MyContextHolder.get().context().getCacheDir();
+        File outputFolder = new File(MyContextHolder.get().context().getCacheDir(), "backupTest");
+        final String downloadedFile1 = "backupTest1.txt";
+        newDownloadedFile(downloadedFile1);
+        File dataFolder1 = testBackup(outputFolder);
+        assertEquals("Full backup " + dataFolder1.getName(), "", readDescriptor(dataFolder1).getPreviousBackup());
+
+        DbUtils.waitMs(this, 2000);
+        final String downloadedFile2 = "backupTest2.txt";
+        newDownloadedFile(downloadedFile2);
         File dataFolder = testBackup(outputFolder);
+        assertEquals("Incremental backup " + dataFolder.getName(), dataFolder1.getName(),
+                readDescriptor(dataFolder).getPreviousBackup());
+        assertTrue("Downloaded file 2 backed up", new File(dataFolder, MyBackupAgent.DOWNLOADS_KEY_PREFIX
+                + downloadedFile2 + MyBackupDataOutput.HEADER_FILE_SUFFIX).exists());
+        assertTrue("Downloaded file 1 is in the previous backup only", !new File(dataFolder,
+                MyBackupAgent.DOWNLOADS_KEY_PREFIX + downloadedFile1 + MyBackupDataOutput.HEADER_FILE_SUFFIX).exists());
+
         deleteApplicationData();
         testRestore(dataFolder);
+        assertTrue("Downloaded file 1 restored from the previous backup", getDownloadedFile(downloadedFile1).exists());
+        assertTrue("Downloaded file 2 restored", getDownloadedFile(downloadedFile2).exists());
 
         TestSuite.forget();
         TestSuite.initialize(this);
@@ -62,7 +84,30 @@ public class MyBackupAgentTest {
         assertEquals("Persistent accounts", accountsBefore, MyContextHolder.get().persistentAccounts());
         compareOneAccount(accountsBefore, MyContextHolder.get().persistentAccounts(), DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
 
+        assertTrue(getDownloadedFile(downloadedFile1).delete());
+        assertTrue(getDownloadedFile(downloadedFile2).delete());
         deleteBackup(dataFolder);
+        deleteBackup(dataFolder1);
+    }
+
+    private File getDownloadedFile(String filename) {
+        return new File(MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS), filename);
+    }
+
+    private void newDownloadedFile(String filename) throws IOException {
+        File file = getDownloadedFile(filename);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(("Content of " + filename).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private MyBackupDescriptor readDescriptor(File dataFolder) throws IOException {
+        MyBackupManager backupManager = new MyBackupManager(null);
+        backupManager.prepareForRestore(dataFolder);
+        return backupManager.getNewDescriptor();
     }
 
     private void compareOneAccount(PersistentAccounts accountsExpected, PersistentAccounts accountsActual, String accountName) throws JSONException {
@@ -86,11 +131,15 @@ public class MyBackupAgentTest {
         assertEquals("Databases backed up", 1, backupManager.getBackupAgent().getDatabasesBackedUp());
         assertEquals("Accounts backed up", backupManager.getBackupAgent().getAccountsBackedUp(), MyContextHolder.get()
                 .persistentAccounts().size());
+        assertTrue("Downloads backed up", backupManager.getBackupAgent().getDownloadsBackedUp() > 0);
         
         assertTrue("Descriptor file was filled: " + backupManager.getDescriptorFile().getAbsolutePath(), backupManager.getDescriptorFile().length() > 10);
         JSONObject jso = FileUtils.getJSONObject(backupManager.getDescriptorFile());
         assertEquals(MyBackupDescriptor.BACKUP_SCHEMA_VERSION, jso.getInt(MyBackupDescriptor.KEY_BACKUP_SCHEMA_VERSION));
         assertTrue(jso.getLong(MyBackupDescriptor.KEY_CREATED_DATE) > System.currentTimeMillis() - 1000000);
+        JSONObject checksums = jso.getJSONObject(MyBackupDescriptor.KEY_CHECKSUMS);
+        assertTrue("Checksum of the database " + checksums,
+                checksums.has(MyBackupAgent.DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME));
 
         MyBackupDescriptor backupDescriptor = backupManager.getBackupAgent().getBackupDescriptor();
         assertEquals(MyBackupDescriptor.BACKUP_SCHEMA_VERSION, backupDescriptor.getBackupSchemaVersion());
@@ -109,6 +158,45 @@ public class MyBackupAgentTest {
         return backupManager.getDataFolder();
     }
 
+    @Test
+    public void testDataFileRoundTrip() throws IOException {
+        File dataFolder = new File(MyContextHolder.get().context().getCacheDir(), "backupDataTest");
+        byte[] data = new byte[3 * MyBackupDataOutput.BUFFER_SIZE + 1234];
+        for (int ind = 0; ind < data.length; ind++) {
+            data[ind] = (byte) (ind % 97);
+        }
+        for (boolean compressed : new boolean[]{false, true}) {
+            if (dataFolder.exists()) {
+                deleteBackup(dataFolder);
+            }
+            assertTrue(dataFolder.mkdirs());
+            MyBackupDataOutput output = new MyBackupDataOutput(dataFolder, compressed);
+            output.writeEntityHeader("test_key", data.length, ".dat");
+            int half = data.length / 2;
+            output.writeEntityData(data, half);
+            output.writeEntityData(Arrays.copyOfRange(data, half, data.length), data.length - half);
+            File dataFile = new File(dataFolder, "test_key" + MyBackupDataOutput.DATA_FILE_SUFFIX + ".dat");
+            assertEquals("Compressed: " + compressed, compressed, dataFile.length() < data.length);
+
+            MyBackupDataInput input = new MyBackupDataInput(dataFolder);
+            assertTrue(input.readNextHeader());
+            assertEquals("test_key", input.getKey());
+            assertEquals(data.length, input.getDataSize());
+            byte[] restored = new byte[data.length];
+            int offset = 0;
+            while (offset < restored.length) {
+                int bytesRead = input.readEntityData(restored, offset, Math.min(100000, restored.length - offset));
+                if (bytesRead <= 0) {
+                    break;
+                }
+                offset += bytesRead;
+            }
+            assertEquals("Compressed: " + compressed, data.length, offset);
+            assertArrayEquals("Compressed: " + compressed, data, restored);
+        }
+        deleteBackup(dataFolder);
+    }
+
     private void deleteApplicationData() throws IOException {
         MyServiceManager.setServiceUnavailable();
         deleteAccounts();
@@ -153,6 +241,7 @@ public class MyBackupAgentTest {
         backupManager.restore();
         assertEquals("Shared preferences restored", 1, backupManager.getBackupAgent().sharedPreferencesRestored);
         assertEquals("Databases restored", 1, backupManager.getBackupAgent().databasesRestored);
+        assertTrue("Downloads restored", backupManager.getBackupAgent().downloadsRestored > 0);
     }
 
     private void deleteBackup(File dataFolder) {
@@ -123,6 +123,11 @@ public class MyContextForTest implements MyContext {
         return myContext.preferencesChangeTime();
     }
 
+    @Override
+    public void refreshPreferences(@NonNull PreferenceImpact impact, long preferencesChangeTime) {
+        myContext.refreshPreferences(impact, preferencesChangeTime);
+    }
+
     @Override
     public DatabaseHolder getMyDatabase() {
         return myContext.getMyDatabase();
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PreferenceImpactTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testClassification() {
+        assertEquals(PreferenceImpact.UI, PreferenceImpact.of(MyPreferences.KEY_SHOW_ORIGIN));
+        assertEquals(PreferenceImpact.UI, PreferenceImpact.of(MyPreferences.KEY_THEME_SIZE));
+        assertEquals(PreferenceImpact.FILTER,
+                PreferenceImpact.of(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS));
+        assertEquals(PreferenceImpact.SYNC, PreferenceImpact.of(MyPreferences.KEY_SYNC_FREQUENCY_SECONDS));
+        assertEquals(PreferenceImpact.SYNC, PreferenceImpact.of(MyPreferences.KEY_NOTIFICATION_RINGTONE));
+        assertEquals(PreferenceImpact.LOGGING, PreferenceImpact.of(MyPreferences.KEY_MIN_LOG_LEVEL));
+        assertEquals(PreferenceImpact.CONNECTION,
+                PreferenceImpact.of(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST));
+        assertEquals(PreferenceImpact.STORAGE, PreferenceImpact.of(MyPreferences.KEY_USE_EXTERNAL_STORAGE));
+        assertEquals(PreferenceImpact.ACCOUNTS, PreferenceImpact.of("some_unknown_preference"));
+        assertFalse(PreferenceImpact.SYNC.isReinitializationNeeded());
+        assertTrue(PreferenceImpact.STORAGE.isReinitializationNeeded());
+        assertTrue(PreferenceImpact.ACCOUNTS.isReinitializationNeeded());
+    }
+
+    @Test
+    public void testIncrementalRefresh() throws InterruptedException {
+        MyContext myContext = MyContextHolder.get();
+        long changeTimeBefore = myContext.preferencesChangeTime();
+        Thread.sleep(2);
+        MyPreferences.onPreferenceChanged(MyPreferences.KEY_SHOW_ORIGIN);
+        Thread.sleep(2);
+        MyPreferences.onPreferenceChanged(MyPreferences.KEY_CONNECTION_TIMEOUT_SECONDS);
+        assertTrue(MyContextHolder.isConfigChanged());
+        assertEquals(PreferenceImpact.CONNECTION, PreferenceImpact.ofChangesSince(changeTimeBefore));
+
+        MyContextHolder.setExpiredIfConfigChanged();
+        assertFalse("Context shouldn't be reinitialized " + myContext, myContext.isExpired());
+        assertSame(myContext, MyContextHolder.get());
+        assertEquals(MyPreferences.getPreferencesChangeTime(), myContext.preferencesChangeTime());
+        assertFalse(MyContextHolder.isConfigChanged());
+    }
+}
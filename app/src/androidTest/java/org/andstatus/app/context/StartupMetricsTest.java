@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import org.andstatus.app.context.StartupMetrics.Phase;
+import org.andstatus.app.timeline.PersistentTimelines;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StartupMetricsTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testPhasesRecorded() {
+        for (Phase phase : new Phase[]{Phase.PREFERENCES, Phase.DATABASE, Phase.ORIGINS, Phase.ACCOUNTS,
+                Phase.CONTEXT}) {
+            assertTrue(phase + " " + StartupMetrics.getInfo(), StartupMetrics.getDurationMs(phase) >= 0);
+            assertTrue(phase + " " + StartupMetrics.getInfo(),
+                    StartupMetrics.getEndedAtMs(phase) >= StartupMetrics.getDurationMs(phase));
+        }
+        assertTrue(StartupMetrics.getInfo(),
+                StartupMetrics.getDurationMs(Phase.CONTEXT) >= StartupMetrics.getDurationMs(Phase.DATABASE)
+                        + StartupMetrics.getDurationMs(Phase.ACCOUNTS));
+        JSONObject jso = StartupMetrics.toJson();
+        assertTrue(jso.toString(), jso.optJSONObject(Phase.DATABASE.name()).optLong("durationMs", -1) >= 0);
+    }
+
+    @Test
+    public void testTimelinesLoadedLazily() {
+        MyContext myContext = MyContextHolder.get();
+        int size = myContext.persistentTimelines().values().size();
+        assertTrue("Timelines loaded", size > 0);
+        assertTrue(StartupMetrics.getInfo(), StartupMetrics.getDurationMs(Phase.TIMELINES) >= 0);
+
+        PersistentTimelines timelines = PersistentTimelines.newEmpty(myContext).initializeLazily();
+        assertEquals(size, timelines.values().size());
+        assertEquals(myContext.persistentTimelines().getDefault(), timelines.getDefault());
+    }
+}
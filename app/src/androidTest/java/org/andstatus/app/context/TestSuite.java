@@ -21,6 +21,7 @@ import android.app.Instrumentation;
 import android.app.KeyguardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Bundle;
 import android.support.test.InstrumentationRegistry;
 import android.view.ViewGroup;
 import android.widget.ListView;
@@ -53,7 +54,9 @@ public class TestSuite {
     private static volatile boolean initialized = false;
     private static volatile Context context;
     private static volatile String dataPath;
-    
+    /** Instrumentation argument, which enables long running tests on large data: "-e largeData true" */
+    public static final String ARGUMENT_LARGE_DATA = "largeData";
+
     public static Context initializeWithData(Object testCase) {
         initialize(testCase);
         ensureDataAdded();
@@ -179,6 +182,12 @@ public class TestSuite {
         getMyContextForTest().setHttpConnectionMockInstance(httpConnectionMockInstance);
     }
 
+    /** Long running tests on large data are skipped by default, see {@link #ARGUMENT_LARGE_DATA} */
+    public static boolean isLargeDataTestEnabled() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        return arguments != null && Boolean.parseBoolean(arguments.getString(ARGUMENT_LARGE_DATA));
+    }
+
     private static volatile boolean dataAdded = false;
     public static void onDataDeleted() {
         dataAdded = false;
@@ -18,6 +18,7 @@ package org.andstatus.app.data;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.net.Uri;
 import android.support.test.InstrumentationRegistry;
 
@@ -41,12 +42,13 @@ import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.TriState;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -143,11 +145,19 @@ public class DataUpdaterTest {
                 cursor != null && cursor.getCount() > 0);
         cursor.close();
 
-        Set<Long> friendsIds = MyQuery.getFriendsIds(ma.getUserId());
+        LongSet friendsIds = MyQuery.getFriendsIds(ma.getUserId());
         MyContextHolder.get().persistentAccounts().initialize();
-        for (long id : friendsIds) {
+        for (long id : friendsIds.toArray()) {
             assertTrue("isFriend: " + id, MyContextHolder.get().persistentAccounts().isMeOrMyFriend(id));
         }
+
+        FriendshipValues.setNotFollowed(ma.getUserId(), somebody.userId);
+        assertTrue(MyQuery.getMyFollowersOf(somebody.userId).isEmpty());
+        assertFalse("Not a friend anymore: " + somebody,
+                MyContextHolder.get().persistentAccounts().isMeOrMyFriend(somebody.userId));
+        FriendshipValues.setFollowed(ma.getUserId(), somebody.userId);
+        assertTrue("A friend again: " + somebody,
+                MyContextHolder.get().persistentAccounts().isMeOrMyFriend(somebody.userId));
     }
 
     @Test
@@ -388,6 +398,59 @@ public class DataUpdaterTest {
         AttachmentDownloaderTest.loadAndAssertStatusForRow(dd2.getDownloadId(), DownloadStatus.LOADED, false);
     }
 
+    @Test
+    public void testSentMessageLoadedByTimelineSyncConcurrently() throws InterruptedException {
+        MyAccount ma = MyContextHolder.get().persistentAccounts().getFirstSucceeded();
+        final MbUser accountUser = ma.toPartialUser();
+        for (int iteration = 0; iteration < 10; iteration++) {
+            MbMessage unsent = newMessage(accountUser, "", DownloadStatus.SENDING,
+                    "Unsent message " + iteration + " " + DemoData.TESTRUN_UID);
+            final long unsentMsgId = new DataUpdater(ma).onActivity(unsent.update(accountUser));
+            assertTrue("Unsent message added", unsentMsgId != 0);
+
+            final String oid = "sentMsgOid" + iteration + DemoData.TESTRUN_UID;
+            final MbActivity loaded = newMessage(accountUser, oid, DownloadStatus.LOADED, unsent.getBody())
+                    .update(accountUser);
+            final MbActivity sent = newMessage(accountUser, oid, DownloadStatus.LOADED, unsent.getBody())
+                    .update(accountUser);
+            final DataUpdater syncUpdater = new DataUpdater(ma);
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread timelineSync = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        syncUpdater.onActivity(loaded);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            timelineSync.start();
+            DataUpdater sendUpdater = new DataUpdater(ma);
+            start.countDown();
+            long sentMsgId = sendUpdater.onSentActivity(sent, unsentMsgId);
+            timelineSync.join();
+
+            assertEquals("Sent message keeps its id, iteration " + iteration, unsentMsgId, sentMsgId);
+            assertEquals("Found by oid, iteration " + iteration, unsentMsgId,
+                    MyQuery.oidToId(OidEnum.MSG_OID, accountUser.originId, oid));
+            assertEquals("Single row with the oid, iteration " + iteration, 1,
+                    DatabaseUtils.longForQuery(MyContextHolder.get().getDatabase(),
+                            "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME
+                                    + " WHERE " + MsgTable.ORIGIN_ID + "=" + accountUser.originId
+                                    + " AND " + MsgTable.MSG_OID + "='" + oid + "'", null));
+        }
+    }
+
+    private MbMessage newMessage(MbUser accountUser, String oid, DownloadStatus status, String body) {
+        MbMessage message = MbMessage.fromOriginAndOid(accountUser.originId, accountUser.oid, oid, status);
+        message.setAuthor(MbUser.fromOriginAndUserOid(accountUser.originId, accountUser.oid));
+        message.setUpdatedDate(System.currentTimeMillis());
+        message.setBody(body);
+        return message;
+    }
+
     @Test
     public void testUserNameChanged() {
         MyAccount ma = TestSuite.getMyContextForTest().persistentAccounts().fromAccountName(DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+
+import org.andstatus.app.LoadableListActivity;
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.backup.BackupTestHelper;
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.DatabaseHolder;
+import org.andstatus.app.msg.ConversationLoader;
+import org.andstatus.app.msg.ConversationLoaderFactory;
+import org.andstatus.app.msg.ConversationViewItem;
+import org.andstatus.app.msg.TimelineListParameters;
+import org.andstatus.app.msg.TimelineLoader;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.FileUtils;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times typical operations on a large synthetic dataset, see {@link DemoLargeDataInserter}.
+ * The report is logged and written to the logs folder as JSON, so results can be compared across versions.
+ * The test is skipped by default, it runs with the "-e largeData true" instrumentation argument.
+ * Sizes may be changed by instrumentation arguments, e.g. "-e largeDataMessages 200000".
+ * The database is restored after the test, so other tests don't see the large data
+ * @author yvolk@yurivolkov.com
+ */
+public class LargeDataPerformanceTest implements LoadableListActivity.ProgressPublisher {
+    private static final String TAG = LargeDataPerformanceTest.class.getSimpleName();
+    private static final String ARGUMENT_PREFIX = TestSuite.ARGUMENT_LARGE_DATA;
+    private MyContext myContext;
+    private File databaseFile = null;
+    private File savedDatabaseFile = null;
+    private final JSONObject results = new JSONObject();
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Enabled by the instrumentation argument: -e " + ARGUMENT_PREFIX + " true",
+                TestSuite.isLargeDataTestEnabled());
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+        databaseFile = MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME);
+        File file = new File(databaseFile.getParentFile(), ARGUMENT_PREFIX + "-" + DatabaseHolder.DATABASE_NAME);
+        DatabaseHolder.snapshot(myContext.getDatabase(), databaseFile, file);
+        savedDatabaseFile = file;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (savedDatabaseFile == null) {
+            return;
+        }
+        // Files of the generated downloads are outside of the database
+        DemoLargeDataInserter.delete(myContext);
+        // Together with its Write-Ahead Log, which shouldn't be applied to the restored file
+        SQLiteDatabase.deleteDatabase(databaseFile);
+        FileUtils.copyFile(savedDatabaseFile, databaseFile);
+        SQLiteDatabase.deleteDatabase(savedDatabaseFile);
+        savedDatabaseFile = null;
+        TestSuite.forget();
+        // The data pruner evicts media of the demo data also, so the demo data will be added anew
+        TestSuite.onDataDeleted();
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testLargeDataPerformance() throws IOException, JSONException {
+        DemoLargeDataInserter inserter = new DemoLargeDataInserter(myContext)
+                .setSeed(getArgument("Seed", 1))
+                .setOrigins(getArgument("Origins", 3))
+                .setAccounts(getArgument("Accounts", 3))
+                .setUsers(getArgument("Users", 2000))
+                .setFriendships(getArgument("Friendships", 600))
+                .setMessages(getArgument("Messages", 20000))
+                .setConversations(getArgument("Conversations", 4000))
+                .setDownloads(getArgument("Downloads", 500))
+                .setDays(getArgument("Days", 365));
+        long startTime = System.currentTimeMillis();
+        inserter.insert(ProgressLogger.getEmpty());
+        addResult("insert", startTime, inserter.getMessages());
+
+        long msgId = inserter.getConversationStartId();
+        assertTrue("Messages inserted", msgId != 0);
+        MyAccount ma = myContext.persistentAccounts().getFirstSucceededForOriginId(MyQuery.msgIdToOriginId(msgId));
+        assertTrue("Account for msgId=" + msgId, ma.isValid());
+
+        loadTimeline("timelineHome", Timeline.getTimeline(TimelineType.HOME, ma, 0, null));
+        loadTimeline("timelineEverything", Timeline.getTimeline(TimelineType.EVERYTHING, MyAccount.EMPTY, 0, null));
+        loadTimeline("search", Timeline.getTimeline(myContext, 0, TimelineType.SEARCH, ma, 0, ma.getOrigin(),
+                DemoLargeDataInserter.SEARCH_WORD));
+        loadConversation(ma, msgId);
+
+        startTime = System.currentTimeMillis();
+        new MyDataChecker(myContext, ProgressLogger.getEmpty()).fixData();
+        addResult("dataChecker", startTime, 0);
+
+        SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_DATE, 0);
+        DataPruner pruner = new DataPruner(myContext);
+        startTime = System.currentTimeMillis();
+        pruner.prune();
+        addResult("dataPruner", startTime, pruner.getDeleted());
+
+        File backupFolder = new File(myContext.context().getCacheDir(), "largeDataBackup");
+        startTime = System.currentTimeMillis();
+        File dataFolder = BackupTestHelper.backup(backupFolder);
+        addResult("backup", startTime, dataFolder.listFiles().length);
+        FileUtils.deleteFilesRecursively(backupFolder);
+
+        writeReport(inserter);
+    }
+
+    private void loadTimeline(String name, Timeline timeline) {
+        assertTrue(name + " " + timeline, timeline.isValid());
+        TimelineListParameters prev = new TimelineListParameters(myContext);
+        prev.setTimeline(timeline);
+        TimelineListParameters params = TimelineListParameters.clone(prev, WhichPage.CURRENT);
+        long startTime = System.currentTimeMillis();
+        TimelineLoader loader = new TimelineLoader(params, 0);
+        loader.load(this);
+        int rows = loader.size();
+        addResult(name, startTime, rows);
+        assertTrue(name + " loaded " + params.toSummary(), rows > 0);
+
+        params = TimelineListParameters.clone(loader.getParams(), WhichPage.OLDER);
+        startTime = System.currentTimeMillis();
+        loader = new TimelineLoader(params, 0);
+        loader.load(this);
+        addResult(name + "Older", startTime, loader.size());
+    }
+
+    private void loadConversation(MyAccount ma, long msgId) {
+        ConversationLoader<ConversationViewItem> loader = new ConversationLoaderFactory<ConversationViewItem>()
+                .getLoader(ConversationViewItem.class, myContext, ma, msgId, false);
+        long startTime = System.currentTimeMillis();
+        loader.load(this);
+        int rows = loader.getList().size();
+        addResult("conversation", startTime, rows);
+        assertTrue("Conversation loaded", rows > 0);
+    }
+
+    private void addResult(String name, long startTime, long rows) {
+        long elapsed = System.currentTimeMillis() - startTime;
+        MyLog.i(TAG, name + ": " + elapsed + "ms, " + rows + " rows");
+        try {
+            JSONObject jso = new JSONObject();
+            jso.put("durationMs", elapsed);
+            jso.put("rows", rows);
+            results.put(name, jso);
+        } catch (JSONException e) {
+            MyLog.e(TAG, name, e);
+        }
+    }
+
+    private void writeReport(DemoLargeDataInserter inserter) throws JSONException {
+        JSONObject report = new JSONObject();
+        report.put("version", MyContextHolder.getVersionText(myContext.context()));
+        report.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        report.put("sdk", Build.VERSION.SDK_INT);
+        report.put("createdDate", System.currentTimeMillis());
+        report.put("dataset", inserter.toJson());
+        report.put("results", results);
+        String filename = "performance_" + System.currentTimeMillis() + ".json";
+        MyLog.writeStringToFile(report.toString(2), filename);
+        MyLog.i(TAG, "Report " + filename + ": " + report.toString());
+    }
+
+    private static int getArgument(String name, int defaultValue) {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String value = arguments == null ? null : arguments.getString(ARGUMENT_PREFIX + name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            MyLog.w(TAG, "Wrong argument " + ARGUMENT_PREFIX + name + "='" + value + "'", e);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void publish(String progress) {
+        // Empty
+    }
+}
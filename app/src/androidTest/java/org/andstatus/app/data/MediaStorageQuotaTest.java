@@ -0,0 +1,79 @@
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.graphics.CacheName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MediaStorageQuotaTest {
+    private static final long MSG_ID = -556L;
+    private static final int FILE_SIZE = 1000;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DownloadData.deleteAllOfThisMsg(MyContextHolder.get().getDatabase(), MSG_ID);
+    }
+
+    @Test
+    public void testAccessTrackingAndEviction() throws IOException {
+        DownloadData dd = DownloadData.getSingleForMessage(MSG_ID, MyContentType.IMAGE,
+                Uri.parse("http://example.com/quota-test.png"));
+        dd.onNewDownload();
+        FileOutputStream out = new FileOutputStream(new DownloadFile(dd.getFilenameNew()).getFile());
+        try {
+            out.write(new byte[FILE_SIZE]);
+        } finally {
+            out.close();
+        }
+        dd.saveToDatabase();
+        assertEquals(DownloadStatus.LOADED, dd.getStatus());
+        final long downloadId = dd.getDownloadId();
+        assertEquals(FILE_SIZE, getLongColumn(DownloadTable.FILE_SIZE, downloadId));
+
+        MediaStorageQuota quota = new MediaStorageQuota(MyContextHolder.get());
+        long usedBefore = quota.getUsedBytes();
+        assertTrue("Used " + usedBefore, usedBefore >= FILE_SIZE);
+
+        setLastAccessedDate(downloadId, 1);
+        MediaStorageQuota.onImageAccessed(CacheName.ATTACHED_IMAGE, downloadId);
+        assertTrue(quota.flushAccessed() > 0);
+        assertTrue(getLongColumn(DownloadTable.LAST_ACCESSED_DATE, downloadId) > 1);
+
+        setLastAccessedDate(downloadId, 1);
+        assertEquals(1, quota.evict(1));
+        assertFalse(dd.getFile().exists());
+        assertEquals(usedBefore - FILE_SIZE, quota.getUsedBytes());
+        DownloadData dd2 = DownloadData.fromId(downloadId);
+        assertEquals(DownloadStatus.ABSENT, dd2.getStatus());
+        assertEquals(dd.getUri(), dd2.getUri());
+    }
+
+    private void setLastAccessedDate(long downloadId, long date) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        db.execSQL("UPDATE " + DownloadTable.TABLE_NAME + " SET " + DownloadTable.LAST_ACCESSED_DATE + "=" + date
+                + " WHERE " + DownloadTable._ID + "=" + downloadId);
+    }
+
+    private long getLongColumn(String columnName, long downloadId) {
+        return MyQuery.sqlToLong(null, "", "SELECT " + columnName + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable._ID + "=" + downloadId);
+    }
+}
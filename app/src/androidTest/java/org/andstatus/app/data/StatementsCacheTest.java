@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.MsgTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StatementsCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testStatementIsReused() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        String sql = "SELECT " + MsgTable.MSG_OID + " FROM " + MsgTable.TABLE_NAME + " WHERE " + MsgTable._ID + "=?";
+        SQLiteStatement statement1 = StatementsCache.get(db, sql, 1L);
+        SQLiteStatement statement2 = StatementsCache.get(db, sql, 2L);
+        assertSame(statement1, statement2);
+    }
+
+    @Test
+    public void testBoundArguments() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        long originId = DemoData.getConversationMyAccount().getOriginId();
+        String oid = "statementsCache'Test\"oid";
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(MsgTable.ORIGIN_ID, originId);
+            values.put(MsgTable.MSG_OID, oid);
+            values.put(MsgTable.BODY, "It's a body with 'quotes'");
+            values.put(MsgTable.INS_DATE, System.currentTimeMillis());
+            long msgId = StatementsCache.insert(db, MsgTable.TABLE_NAME, values);
+            assertTrue("Inserted " + values, msgId > 0);
+
+            assertEquals(msgId, MyQuery.oidToId(OidEnum.MSG_OID, originId, oid));
+            assertEquals(oid, MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0));
+            assertEquals(0, MyQuery.oidToId(OidEnum.MSG_OID, originId, oid + "'"));
+
+            values = new ContentValues();
+            values.put(MsgTable.BODY, "Updated 'body'");
+            assertEquals(1, StatementsCache.update(db, MsgTable.TABLE_NAME, values, MsgTable._ID + "=?", msgId));
+            assertEquals("Updated 'body'", MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId));
+            assertEquals(originId, MyQuery.msgIdToLongColumnValue(MsgTable.ORIGIN_ID, msgId));
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.SelectionAndArgs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineSqlTest {
+    private static final List<String> MSG_TABLES = Arrays.asList(MsgTable.TABLE_NAME,
+            ProjectionMap.MSG_TABLE_ALIAS, MsgOfUserTable.TABLE_NAME, "mou");
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testNoFullScansOfMessages() {
+        MyAccount ma = DemoData.getConversationMyAccount();
+        assertNoFullScans(TimelineType.HOME, ma, MsgOfUserTable.SUBSCRIBED + " = ?", "1");
+        assertNoFullScans(TimelineType.MENTIONS, ma, MsgOfUserTable.MENTIONED + " = ?", "1");
+        assertNoFullScans(TimelineType.PUBLIC, ma, "", null);
+    }
+
+    private void assertNoFullScans(TimelineType timelineType, MyAccount ma, String selection, String arg) {
+        Timeline timeline = Timeline.getTimeline(timelineType, ma, 0, null);
+        assertTrue(TimelineSql.isFlattened(timelineType));
+
+        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
+        qb.setDistinct(true);
+        TimelineSql.setTablesForTimeline(qb, MatchedUri.getTimelineUri(timeline),
+                TimelineSql.getTimelineProjection());
+        SelectionAndArgs sa = new SelectionAndArgs();
+        if (arg != null) {
+            sa.addSelection(selection, arg);
+        }
+        // Keyset condition of an older page, the same as in TimelineListParameters
+        String sentDate = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE;
+        String msgId = ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID;
+        long now = System.currentTimeMillis();
+        sa.addSelection(sentDate + " <= ? AND (" + sentDate + " < ? OR " + msgId + " < ?)",
+                new String[]{String.valueOf(now), String.valueOf(now), "1000"});
+        String sql = qb.buildQuery(TimelineSql.getTimelineProjection(), sa.selection, null, null,
+                sentDate + " DESC, " + msgId + " DESC", "200");
+        assertFalse("Sub-select of messages in " + sql, sql.contains("(SELECT * FROM"));
+
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, sa.selectionArgs);
+        try {
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(cursor.getColumnCount() - 1);
+                plan.append(detail).append("\n");
+                if (detail.startsWith("SCAN") && !detail.contains("USING")) {
+                    for (String word : detail.split(" ")) {
+                        assertFalse("Full scan in " + timelineType + " timeline:\n" + plan + "\nSQL: " + sql,
+                                MSG_TABLES.contains(word));
+                    }
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        assertTrue("No query plan for " + sql, plan.length() > 0);
+    }
+}
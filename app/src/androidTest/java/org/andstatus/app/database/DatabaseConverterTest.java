@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.ContentFingerprint;
+import org.andstatus.app.util.MyLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Data conversion steps run on a separate database, so we don't touch the database of the application
+ */
+public class DatabaseConverterTest {
+    /** Enough to see, that the rows are converted in several batches */
+    private static final int ROWS_FOR_CORRECTNESS = DatabaseConverter.BATCH_SIZE * 2 + 3;
+    /** Used, if {@link TestSuite#isLargeDataTestEnabled()} */
+    private static final int ROWS_FOR_BENCHMARK = 200000;
+    private static final int ROWS_TO_INTERRUPT_AFTER = DatabaseConverter.BATCH_SIZE * 2 + 100;
+    private File dbFile;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+        dbFile = new File(MyContextHolder.get().context().getCacheDir(), "converterTest.sqlite");
+        SQLiteDatabase.deleteDatabase(dbFile);
+        db = SQLiteDatabase.openOrCreateDatabase(dbFile, null);
+        db.execSQL("CREATE TABLE msg (_id INTEGER PRIMARY KEY AUTOINCREMENT, body TEXT)");
+    }
+
+    @After
+    public void tearDown() {
+        DbUtils.closeSilently(db);
+        SQLiteDatabase.deleteDatabase(dbFile);
+    }
+
+    @Test
+    public void testBodyFingerprintBenchmark() {
+        final String method = "testBodyFingerprintBenchmark";
+        final int rowsTotal = TestSuite.isLargeDataTestEnabled() ? ROWS_FOR_BENCHMARK : ROWS_FOR_CORRECTNESS;
+        insertMessages(rowsTotal);
+
+        long startTime = System.currentTimeMillis();
+        int newVersion = executeInTransaction(new DatabaseConverter.Convert27());
+        long elapsed = System.currentTimeMillis() - startTime;
+        MyLog.i(method, "Converted " + rowsTotal + " rows in " + elapsed + "ms");
+
+        assertEquals(28, newVersion);
+        assertEquals("Rows with fingerprints", rowsTotal, countConverted());
+        assertEquals("Checkpoint deleted", 0, countCheckpoints());
+    }
+
+    @Test
+    public void testResumeInterruptedStep() {
+        final int rowsTotal = DatabaseConverter.BATCH_SIZE * 5 + 7;
+        insertMessages(rowsTotal);
+
+        InterruptedStep step1 = new InterruptedStep(ROWS_TO_INTERRUPT_AFTER);
+        db.beginTransaction();
+        int version = step1.execute(db, 27, new ProgressLogger(ProgressLogger.getEmptyCallback()));
+        // The application is killed: the last batch is not committed
+        db.endTransaction();
+        assertEquals("Step failed", 27, version);
+        assertFalse(step1.isResumed());
+        long committedRows = DatabaseConverter.BATCH_SIZE * (ROWS_TO_INTERRUPT_AFTER / DatabaseConverter.BATCH_SIZE);
+        assertEquals("Committed batches", committedRows, countConverted());
+        assertEquals("Checkpoint saved", 1, countCheckpoints());
+
+        InterruptedStep step2 = new InterruptedStep(rowsTotal);
+        assertEquals("Step resumed without changing the schema again", 28, executeInTransaction(step2));
+        assertTrue(step2.isResumed());
+        assertEquals("Only not committed rows were converted", rowsTotal - committedRows, step2.rowsConverted);
+        assertEquals("All rows converted", rowsTotal, countConverted());
+        assertEquals("Checkpoint deleted", 0, countCheckpoints());
+    }
+
+    /** Converts the same column as {@link DatabaseConverter.Convert27}, but fails after so many rows */
+    private static class InterruptedStep extends DatabaseConverter.OneStep {
+        final int rowsToFailAfter;
+        int rowsConverted = 0;
+
+        InterruptedStep(int rowsToFailAfter) {
+            versionTo = 28;
+            this.rowsToFailAfter = rowsToFailAfter;
+        }
+
+        @Override
+        protected void execute2() {
+            if (!isResumed()) {
+                sql = "ALTER TABLE msg ADD COLUMN body_fingerprint INTEGER NOT NULL DEFAULT 0";
+                DbUtils.execSQL(db, sql);
+            }
+            sql = "UPDATE msg SET body_fingerprint=? WHERE _id=?";
+            convertInBatches("msg", "body", "body IS NOT NULL", sql, new DatabaseConverter.RowConverter() {
+                @Override
+                public boolean bind(Cursor cursor, SQLiteStatement statement) {
+                    if (rowsConverted >= rowsToFailAfter) {
+                        throw new IllegalStateException("Interrupted after " + rowsConverted + " rows");
+                    }
+                    rowsConverted++;
+                    statement.bindLong(1, ContentFingerprint.fromBody(cursor.getString(1)));
+                    statement.bindLong(2, cursor.getLong(0));
+                    return true;
+                }
+            });
+        }
+    }
+
+    private int executeInTransaction(DatabaseConverter.OneStep step) {
+        db.beginTransaction();
+        try {
+            int version = step.execute(db, 27, new ProgressLogger(ProgressLogger.getEmptyCallback()));
+            db.setTransactionSuccessful();
+            return version;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void insertMessages(int count) {
+        SQLiteStatement statement = db.compileStatement("INSERT INTO msg (body) VALUES (?)");
+        db.beginTransaction();
+        try {
+            for (int ind = 0; ind < count; ind++) {
+                statement.bindString(1, "Message " + ind + " of a <b>large</b> timeline, see "
+                        + "<a href=\"https://example.com/notice/" + ind + "\">the link</a> and reply, please");
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            DbUtils.closeSilently(statement);
+        }
+    }
+
+    private long countConverted() {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM msg WHERE body_fingerprint<>0", null);
+    }
+
+    private long countCheckpoints() {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + DatabaseConverter.CHECKPOINT_TABLE, null);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseHolderTest {
+    private static final int ROWS_TO_INSERT = 5000;
+    private static final String OID_PREFIX = "walTestMsg";
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testReadingWhileWriting() throws InterruptedException {
+        final String method = "testReadingWhileWriting";
+        final SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        assertTrue("Write-Ahead Logging is enabled", db.isWriteAheadLoggingEnabled());
+        final long originId = DemoData.getConversationMyAccount().getOriginId();
+
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch queried = new CountDownLatch(1);
+        final AtomicBoolean writerEnded = new AtomicBoolean(false);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                db.beginTransaction();
+                try {
+                    long insDate = System.currentTimeMillis();
+                    for (int ind = 0; ind < ROWS_TO_INSERT; ind++) {
+                        ContentValues values = new ContentValues();
+                        values.put(MsgTable.ORIGIN_ID, originId);
+                        values.put(MsgTable.MSG_OID, OID_PREFIX + ind);
+                        values.put(MsgTable.BODY, "Message " + ind + " of a large sync");
+                        values.put(MsgTable.SENT_DATE, insDate + ind);
+                        values.put(MsgTable.INS_DATE, insDate);
+                        db.insert(MsgTable.TABLE_NAME, null, values);
+                    }
+                    MyLog.v(method, "Inserted " + ROWS_TO_INSERT + " rows, the transaction is in progress");
+                    inserted.countDown();
+                    queried.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    // Not successful: the rows are rolled back
+                    db.endTransaction();
+                    writerEnded.set(true);
+                }
+            }
+        });
+        writer.start();
+        assertTrue("Rows inserted", inserted.await(120, TimeUnit.SECONDS));
+
+        long startTime = System.currentTimeMillis();
+        int rowsRead = 0;
+        int uncommittedRows = -1;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + MsgTable._ID + ", " + MsgTable.BODY + ", " + MsgTable.SENT_DATE
+                    + " FROM " + MsgTable.TABLE_NAME
+                    + " ORDER BY " + MsgTable.SENT_DATE + " DESC LIMIT 200", null);
+            while (cursor.moveToNext()) {
+                rowsRead++;
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        try {
+            cursor = db.rawQuery("SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable.MSG_OID + " LIKE '" + OID_PREFIX + "%'", null);
+            if (cursor.moveToFirst()) {
+                uncommittedRows = cursor.getInt(0);
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        long readTime = System.currentTimeMillis() - startTime;
+        assertFalse("Read completed before the write transaction ended, in " + readTime + "ms",
+                writerEnded.get());
+        queried.countDown();
+        writer.join(60000);
+        assertTrue("Writer ended", writerEnded.get());
+
+        MyLog.v(method, "Read " + rowsRead + " rows in " + readTime + "ms");
+        assertTrue("Timeline rows read", rowsRead > 0);
+        assertEquals("Uncommitted rows are not visible to readers", 0, uncommittedRows);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ImageDownscalerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testDownscaling() throws IOException {
+        File file = new File(MyContextHolder.get().context().getCacheDir(), "downscalerTest.jpg");
+        final int width = ImageDownscaler.MAX_DIMENSION * 2 + 40;
+        final int height = 1000;
+        writeImage(file, width, height);
+        long lengthBefore = file.length();
+        try {
+            assertTrue(ImageDownscaler.downscale(file, 0));
+            BitmapFactory.Options bounds = getBounds(file);
+            assertEquals(width / 4, bounds.outWidth);
+            assertEquals(height / 4, bounds.outHeight);
+            assertTrue("Length " + file.length() + " < " + lengthBefore, file.length() < lengthBefore);
+
+            assertFalse("Small enough already", ImageDownscaler.downscale(file, 0));
+            assertFalse("Fits the limit already", ImageDownscaler.downscale(file, file.length()));
+
+            long uploadLimit = file.length() / 3;
+            assertTrue(ImageDownscaler.downscale(file, uploadLimit));
+            assertTrue("Length " + file.length() + " <= " + uploadLimit, file.length() <= uploadLimit);
+            assertTrue(getBounds(file).outWidth < ImageDownscaler.MAX_DIMENSION);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private static void writeImage(File file, int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        for (int x = 0; x < width; x += 7) {
+            for (int y = 0; y < height; y += 5) {
+                bitmap.setPixel(x, y, Color.rgb(x % 256, y % 256, (x * y) % 256));
+            }
+        }
+        FileOutputStream out = new FileOutputStream(file, false);
+        try {
+            assertTrue(bitmap.compress(Bitmap.CompressFormat.JPEG, 100, out));
+        } finally {
+            DbUtils.closeSilently(out);
+            bitmap.recycle();
+        }
+    }
+
+    private static BitmapFactory.Options getBounds(File file) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), bounds);
+        return bounds;
+    }
+}
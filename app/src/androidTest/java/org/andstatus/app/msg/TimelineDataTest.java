@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineDataTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testIndexAndCollapsing() {
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.whichPage = WhichPage.CURRENT;
+        List<TimelineViewItem> items = new ArrayList<>();
+        TimelineViewItem item1 = newItem(1, 30, "The first message of the test timeline");
+        items.add(item1);
+        TimelineViewItem item2 = newItem(2, 20, "Absolutely different body of the second message");
+        items.add(item2);
+        items.add(newItem(3, 10, item1.getBody()));
+        TimelineData data = new TimelineData(null, new TimelinePage(params, items));
+
+        data.collapseDuplicates(false, 0);
+        assertEquals(data.toString(), 3, data.size());
+        assertEquals(2, data.getPositionById(3));
+        assertEquals(3, data.getById(3).getMsgId());
+
+        data.collapseDuplicates(true, 0);
+        assertEquals("Not adjacent duplicate should be collapsed " + data, 2, data.size());
+        assertSame(item1, data.getItem(0));
+        assertSame(item2, data.getItem(1));
+        assertSame(TimelineViewItem.getEmpty(), data.getItem(2));
+        assertSame(item2, data.getById(2));
+        assertSame(TimelineViewItem.getEmpty(), data.getById(3));
+        assertEquals("Position of collapsed item", 0, data.getPositionById(3));
+        assertEquals(-1, data.getPositionById(4));
+    }
+
+    @Test
+    public void testIndexOfSeveralPages() {
+        TimelineListParameters params1 = new TimelineListParameters(MyContextHolder.get());
+        params1.whichPage = WhichPage.CURRENT;
+        params1.minSentDateLoaded = 20;
+        List<TimelineViewItem> items1 = new ArrayList<>();
+        TimelineViewItem item1 = newItem(1, 30, "The first message of the test timeline");
+        items1.add(item1);
+        items1.add(newItem(2, 20, "Absolutely different body of the second message"));
+        TimelineData data1 = new TimelineData(null, new TimelinePage(params1, items1));
+        data1.collapseDuplicates(true, 0);
+        assertEquals(data1.toString(), 2, data1.size());
+
+        TimelineListParameters params2 = TimelineListParameters.clone(params1, WhichPage.OLDER);
+        List<TimelineViewItem> items2 = new ArrayList<>();
+        TimelineViewItem item4 = newItem(4, 15, "One more message, which is not similar to others");
+        items2.add(item4);
+        items2.add(newItem(5, 10, "And the last message on the older page"));
+        items2.add(newItem(6, 5, item1.getBody()));
+        TimelineData data2 = new TimelineData(data1, new TimelinePage(params2, items2));
+        assertEquals("Duplicate on the older page should be collapsed " + data2, 4, data2.size());
+        assertSame(item4, data2.getById(4));
+        assertEquals(2, data2.getPositionById(4));
+        assertEquals(3, data2.getPositionById(5));
+        assertEquals("Collapsed into the item on the first page", 0, data2.getPositionById(6));
+        assertEquals(1, data2.getPositionById(2));
+
+        data2.collapseDuplicates(false, 0);
+        assertEquals(data2.toString(), 5, data2.size());
+        assertEquals(4, data2.getPositionById(6));
+        assertEquals(6, data2.getById(6).getMsgId());
+    }
+
+    private TimelineViewItem newItem(long msgId, long sentDate, String body) {
+        TimelineViewItem item = new TimelineViewItem();
+        item.setMsgId(msgId);
+        item.sentDate = sentDate;
+        item.setBody(body);
+        return item;
+    }
+}
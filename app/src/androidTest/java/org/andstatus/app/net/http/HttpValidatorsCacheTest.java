@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpValidatorsCacheTest {
+
+    @Test
+    public void testConditionalRequest() throws ConnectionException {
+        final String url = "https://example.com/api/statuses/home_timeline.json?since_id=123";
+        final String key = "testAccount " + url;
+        HttpValidatorsCache.forget();
+
+        HttpReadResult result1 = new HttpReadResult(url);
+        HttpValidatorsCache.applyTo(key, result1);
+        assertFalse(result1.toString(), result1.isConditional());
+        result1.setStatusCode(200);
+        result1.setValidators("\"abc\"", null);
+        result1.parseAndThrow();
+        HttpValidatorsCache.onResponse(key, result1);
+        HttpReadResult resultBeforeCommit = new HttpReadResult(url);
+        HttpValidatorsCache.applyTo(key, resultBeforeCommit);
+        assertFalse("The response is not processed yet", resultBeforeCommit.isConditional());
+        HttpValidatorsCache.commit();
+
+        HttpReadResult result2 = new HttpReadResult(url);
+        HttpValidatorsCache.applyTo(key, result2);
+        assertTrue(result2.toString(), result2.isConditional());
+        assertEquals("\"abc\"", result2.ifNoneMatch);
+        assertEquals("", result2.ifModifiedSince);
+        result2.setStatusCode(304);
+        try {
+            result2.parseAndThrow();
+            fail("Not modified response should be reported: " + result2);
+        } catch (ConnectionException e) {
+            assertEquals(StatusCode.NOT_MODIFIED, e.getStatusCode());
+        }
+
+        HttpReadResult result3 = new HttpReadResult(url);
+        result3.setStatusCode(200);
+        HttpValidatorsCache.onResponse(key, result3);
+        HttpValidatorsCache.commit();
+        HttpReadResult result4 = new HttpReadResult(url);
+        HttpValidatorsCache.applyTo(key, result4);
+        assertFalse("Response without validators", result4.isConditional());
+    }
+
+    @Test
+    public void testNotProcessedResponse() {
+        final String url = "https://example.com/api/statuses/mentions_timeline.json";
+        final String key = "testAccount " + url;
+        HttpValidatorsCache.forget();
+
+        HttpReadResult result1 = new HttpReadResult(url);
+        result1.setStatusCode(200);
+        result1.setValidators("\"def\"", "Tue, 11 Jul 2017 12:00:00 GMT");
+        HttpValidatorsCache.onResponse(key, result1);
+        // Processing of the response failed
+        HttpValidatorsCache.rollback();
+        HttpValidatorsCache.commit();
+
+        HttpReadResult result2 = new HttpReadResult(url);
+        HttpValidatorsCache.applyTo(key, result2);
+        assertFalse("The response should be downloaded again: " + result2, result2.isConditional());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.msebera.android.httpclient.client.HttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MyHttpClientFactoryTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testClientIsSharedPerSslMode() {
+        HttpClient secure = MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE);
+        assertSame(secure, MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE));
+        HttpClient insecure = MyHttpClientFactory.getHttpClient(SslModeEnum.INSECURE);
+        assertNotSame(secure, insecure);
+        assertSame(insecure, HttpConnectionApacheCommon.getHttpClient(SslModeEnum.INSECURE));
+
+        MyHttpClientFactory.forget();
+        assertNotSame(secure, MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE));
+    }
+
+    @Test
+    public void testClientIsReplacedWithoutShutdown() {
+        HttpClient secure = MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE);
+        MyHttpClientFactory.onConnectionPreferencesChanged();
+        HttpClient secure2 = MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE);
+        assertNotSame(secure, secure2);
+        assertSame(secure2, MyHttpClientFactory.getHttpClient(SslModeEnum.SECURE));
+    }
+
+    @Test
+    public void testMaxConnectionsPerHostIsPositive() {
+        try {
+            SharedPreferencesUtil.putString(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST, "0");
+            assertEquals(1, MyPreferences.getMaxConnectionsPerHost());
+            SharedPreferencesUtil.putString(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST, "-5");
+            assertEquals(1, MyPreferences.getMaxConnectionsPerHost());
+            SharedPreferencesUtil.putString(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST, "7");
+            assertEquals(7, MyPreferences.getMaxConnectionsPerHost());
+        } finally {
+            SharedPreferencesUtil.removeKey(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST);
+        }
+    }
+
+    @Test
+    public void testStats() {
+        HttpConnectionStats.forget();
+        assertEquals(0, HttpConnectionStats.getReuseRate(), 0.001);
+        HttpConnectionStats.onRequest();
+        HttpConnectionStats.onConnectionOpened();
+        HttpConnectionStats.onHandshake(100);
+        for (int i = 0; i < 3; i++) {
+            HttpConnectionStats.onRequest();
+        }
+        assertEquals(0.75, HttpConnectionStats.getReuseRate(), 0.001);
+        assertEquals(100, HttpConnectionStats.getAverageHandshakeTimeMs());
+    }
+}
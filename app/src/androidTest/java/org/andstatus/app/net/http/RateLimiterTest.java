@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+    private static final String HOST = "ratelimit.example.com";
+    private static final String URL = "https://" + HOST + "/api/statuses/home_timeline.json";
+    private static final String ACCOUNT = "testuser-ratelimit";
+
+    @Before
+    public void setUp() {
+        RateLimiter.forget();
+    }
+
+    @Test
+    public void testHeaders() throws ConnectionException {
+        long now = System.currentTimeMillis();
+        HttpReadResult result = new HttpReadResult(URL);
+        result.onHeader("X-Rate-Limit-Limit", "15");
+        result.onHeader("x-ratelimit-remaining", "3");
+        result.onHeader("X-RateLimit-Reset", Long.toString(now / 1000 + 600));
+        result.onHeader(null, "HTTP/1.1 200 OK");
+        assertEquals(15, result.rateLimitLimit);
+        assertEquals(3, result.rateLimitRemaining);
+        assertTrue(result.rateLimitResetAt > now + 590000 && result.rateLimitResetAt <= now + 600000);
+
+        result.onHeader("Retry-After", "120");
+        assertTrue(result.retryAfterAt >= now + 120000 && result.retryAfterAt < now + 130000);
+
+        assertEquals(1499774400000L, RateLimiter.parseDate("2017-07-11T12:00:00.000Z", now));
+        assertEquals(1499774400123L, RateLimiter.parseDate("2017-07-11T12:00:00.123456Z", now));
+        assertEquals(1499774400500L, RateLimiter.parseDate("2017-07-11T12:00:00.5Z", now));
+        assertEquals(1499774400123L, RateLimiter.parseDate("2017-07-11T14:00:00.123+02:00", now));
+        assertEquals(1499774400000L, RateLimiter.parseDate("Tue, 11 Jul 2017 12:00:00 GMT", now));
+        assertEquals(0, RateLimiter.parseDate("not a date", now));
+    }
+
+    @Test
+    public void testBudget() throws ConnectionException, MalformedURLException {
+        RateLimiter limiter = ofEndpoint(URL);
+        assertEquals(0, limiter.getDelayMs());
+        assertFalse(RateLimiter.getKnown().contains(limiter));
+
+        HttpReadResult result = new HttpReadResult(URL);
+        result.setStatusCode(200);
+        result.onHeader("X-RateLimit-Limit", "15");
+        result.onHeader("X-RateLimit-Remaining", "2");
+        result.onHeader("X-RateLimit-Reset", "600");
+        limiter.onResponse(result);
+        assertTrue(RateLimiter.getKnown().contains(limiter));
+        assertTrue(limiter.getBudget(), limiter.getBudget().contains("2/15"));
+
+        limiter.beforeRequest(URL);
+        assertEquals(0, limiter.getDelayMs());
+        limiter.beforeRequest(URL);
+        long delay = limiter.getDelayMs();
+        assertTrue("Delay " + delay + "; " + limiter, delay > RateLimiter.MAX_WAIT_MS);
+        try {
+            limiter.beforeRequest(URL);
+            fail("Exhausted budget should delay requests: " + limiter);
+        } catch (ConnectionException e) {
+            assertEquals(StatusCode.TOO_MANY_REQUESTS, e.getStatusCode());
+            assertFalse("Should be a soft error: " + e, e.isHardError());
+        }
+
+        assertEquals("Other endpoints should have their own budgets", 0,
+                ofEndpoint("https://" + HOST + "/api/statuses/mentions_timeline.json").getDelayMs());
+        assertEquals("Other accounts should have their own budgets", 0,
+                RateLimiter.ofEndpoint(new java.net.URL("https://" + HOST), "other-" + ACCOUNT, URL).getDelayMs());
+        assertEquals("The host shouldn't be blocked", 0, RateLimiter.of(HOST).getDelayMs());
+        assertSame("Query belongs to the same endpoint", limiter, ofEndpoint(URL + "?since_id=12345"));
+        assertSame("Ids in the path belong to the same endpoint",
+                ofEndpoint("https://" + HOST + "/api/statuses/show/123.json"),
+                ofEndpoint("https://" + HOST + "/api/statuses/show/456.json"));
+    }
+
+    private static RateLimiter ofEndpoint(String url) throws MalformedURLException {
+        return RateLimiter.ofEndpoint(new java.net.URL("https://" + HOST), ACCOUNT, url);
+    }
+
+    @Test
+    public void testTooManyRequests() throws ConnectionException, MalformedURLException {
+        RateLimiter host = RateLimiter.of(HOST);
+        RateLimiter limiter = ofEndpoint(URL);
+        HttpReadResult result = new HttpReadResult(URL);
+        result.setStatusCode(429);
+        assertEquals(StatusCode.TOO_MANY_REQUESTS, result.getStatusCode());
+        host.onResponse(result);
+        limiter.onResponse(result);
+        long delay = limiter.getDelayMs();
+        assertTrue("Delay " + delay + "; " + limiter,
+                delay > RateLimiter.MAX_WAIT_MS && delay <= RateLimiter.DEFAULT_BLOCK_MS);
+        assertEquals("Without Retry-After only the endpoint is blocked", 0, host.getDelayMs());
+
+        RateLimiter other = RateLimiter.of("other." + HOST);
+        assertEquals(0, other.getDelayMs());
+
+        HttpReadResult result2 = new HttpReadResult(URL);
+        result2.setStatusCode(429);
+        result2.onHeader("Retry-After", "3");
+        RateLimiter.forget();
+        host = RateLimiter.of(HOST);
+        host.onResponse(result2);
+        delay = host.getDelayMs();
+        assertTrue("Delay " + delay + "; " + host, delay > 0 && delay <= 3000);
+        host.beforeRequest(URL);
+    }
+}
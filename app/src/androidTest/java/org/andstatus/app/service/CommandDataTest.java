@@ -97,6 +97,41 @@ public class CommandDataTest {
         assertEquals(commandData.getResult().getMessage(), commandData2.getResult().getMessage());
     }
 
+    @Test
+    public void testJournal() {
+        CommandQueue queues = new CommandQueue();
+        queues.clear();
+        CommandData commandData = CommandData.newCommand(CommandEnum.GET_STATUS);
+        CommandData duplicate = CommandData.newCommand(CommandEnum.GET_STATUS);
+        assertTrue(queues.addToQueue(QueueType.TEST, commandData));
+        assertTrue(queues.addToQueue(QueueType.TEST, duplicate));
+        assertEquals(1, queues.get(QueueType.TEST).size());
+        assertTrue(queues.find(QueueType.TEST, duplicate) == commandData);
+        queues.flushJournal();
+        assertEquals(1, new CommandQueue().load(QueueType.TEST));
+
+        assertEquals(commandData, queues.poll(QueueType.TEST));
+        assertFalse(queues.contains(QueueType.TEST, duplicate));
+        assertEquals("Polled command is kept until its execution ends",
+                1, new CommandQueue().load(QueueType.TEST));
+        queues.delete(commandData);
+        queues.flushJournal();
+        assertEquals(0, new CommandQueue().load(QueueType.TEST));
+    }
+
+    @Test
+    public void testJournalFlushedForForegroundCommand() {
+        CommandQueue queues = new CommandQueue();
+        queues.clear();
+        CommandData background = CommandData.newCommand(CommandEnum.GET_STATUS);
+        assertTrue(queues.addToQueue(QueueType.TEST, background));
+        assertEquals("Background command is pending", 0, new CommandQueue().load(QueueType.TEST));
+        CommandData foreground = CommandData.newCommand(CommandEnum.GET_TIMELINE).setInForeground(true);
+        assertTrue(queues.addToQueue(QueueType.TEST, foreground));
+        assertEquals("Both commands are written at once", 2, new CommandQueue().load(QueueType.TEST));
+        queues.clear();
+    }
+
     @Test
     public void testEquals() {
         CommandData data1 = CommandData.newSearch(SearchObjects.MESSAGES, MyContextHolder.get(), null, "andstatus");
@@ -114,6 +149,19 @@ public class CommandDataTest {
         assertEquals(data1, data3);
     }
 
+    @Test
+    public void testRateLimitedRetriesAreLimited() {
+        CommandData commandData = CommandData.newCommand(CommandEnum.GET_TIMELINE);
+        commandData.getResult().resetRetries(commandData.getCommand());
+        assertEquals("No retries for a timeline", 0, commandData.getResult().getRetriesLeft());
+        for (int attempt = 1; attempt < CommandResult.MAX_RATE_LIMITED_ATTEMPTS; attempt++) {
+            commandData.getResult().onRateLimited("Delayed, attempt " + attempt);
+            assertTrue("Retry after attempt " + attempt, commandData.getResult().shouldWeRetry());
+        }
+        commandData.getResult().onRateLimited("Delayed, the last attempt");
+        assertFalse(commandData.getResult().toString(), commandData.getResult().shouldWeRetry());
+    }
+
     @Test
     public void testPriority() {
         Queue<CommandData> queue = new PriorityBlockingQueue<>(100);
@@ -131,6 +179,39 @@ public class CommandDataTest {
         assertEquals(CommandEnum.GET_TIMELINE, queue.poll().getCommand());
     }
 
+    @Test
+    public void testPollSending() {
+        CommandQueue queues = new CommandQueue();
+        queues.clear();
+        CommandData getTimeline = CommandData.newCommand(CommandEnum.GET_TIMELINE);
+        CommandData updateStatus = CommandData.newUpdateStatus(null, 2);
+        assertTrue(queues.addToQueue(QueueType.TEST, getTimeline));
+        assertFalse(queues.isSendingNext(QueueType.TEST));
+        assertEquals(null, queues.pollSending(QueueType.TEST));
+        assertTrue(queues.addToQueue(QueueType.TEST, updateStatus));
+        assertTrue(queues.isSendingNext(QueueType.TEST));
+        assertEquals(updateStatus, queues.pollSending(QueueType.TEST));
+        assertEquals(null, queues.pollSending(QueueType.TEST));
+        assertEquals(getTimeline, queues.poll(QueueType.TEST));
+        queues.delete(getTimeline);
+        queues.delete(updateStatus);
+        queues.flushJournal();
+    }
+
+    @Test
+    public void testCopy() {
+        CommandData commandData = CommandData.newUpdateStatus(DemoData.getConversationMyAccount(), 1);
+        commandData.getResult().setProgress("Uploading 10%");
+        CommandData copy = commandData.copy(MyContextHolder.get());
+        assertEquals(commandData.getCommand(), copy.getCommand());
+        assertEquals(commandData.itemId, copy.itemId);
+        assertEquals("Uploading 10%", copy.getResult().getProgress());
+        commandData.getResult().setProgress("Uploading 50%");
+        commandData.getResult().incrementNumIoExceptions();
+        assertEquals("Copy is not changed", "Uploading 10%", copy.getResult().getProgress());
+        assertFalse("Copy is not changed", copy.getResult().hasError());
+    }
+
     @Test
     public void testSummary() {
         followUnfollowSummary(CommandEnum.FOLLOW_USER);
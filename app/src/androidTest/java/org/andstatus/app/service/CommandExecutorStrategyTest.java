@@ -29,6 +29,8 @@ import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.http.HttpConnectionMock;
 import org.andstatus.app.origin.DiscoveredOrigins;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.origin.OriginProbe;
 import org.andstatus.app.origin.OriginType;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.RawResourceUtils;
@@ -177,6 +179,11 @@ public class CommandExecutorStrategyTest {
         assertFalse(commandData.getResult().hasError());
         assertTrue(commandData.getResult().getDownloadedCount() > 0);
         assertFalse(DiscoveredOrigins.get().isEmpty());
+        for (Origin origin : DiscoveredOrigins.get()) {
+            OriginProbe probe = DiscoveredOrigins.getProbe(origin);
+            assertTrue("Not probed " + origin, probe != OriginProbe.EMPTY);
+            assertFalse("The mock doesn't return config " + probe, probe.isAvailable());
+        }
     }
     
     @After
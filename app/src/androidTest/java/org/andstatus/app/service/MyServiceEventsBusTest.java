@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MyServiceEventsBusTest implements MyServiceEventsListener {
+    private final List<MyServiceEvent> events = new CopyOnWriteArrayList<>();
+    private final List<String> progress = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Override
+    public void onReceive(CommandData commandData, MyServiceEvent myServiceEvent) {
+        events.add(myServiceEvent);
+        if (myServiceEvent == MyServiceEvent.PROGRESS_EXECUTING_COMMAND) {
+            progress.add(commandData.getResult().getProgress());
+        }
+    }
+
+    @Test
+    public void testProgressIsCoalesced() throws InterruptedException {
+        MyServiceEventsReceiver receiver = new MyServiceEventsReceiver(this);
+        receiver.registerReceiver();
+        try {
+            CommandData commandData = CommandData.newCommand(CommandEnum.GET_FOLLOWERS);
+            MyServiceEventsBus.post(commandData, MyServiceEvent.BEFORE_EXECUTING_COMMAND);
+            for (int i = 1; i <= 1000; i++) {
+                commandData.getResult().setProgress("user " + i);
+                MyServiceEventsBus.post(commandData, MyServiceEvent.PROGRESS_EXECUTING_COMMAND);
+            }
+            Thread.sleep(1000);
+            MyServiceEventsBus.post(commandData, MyServiceEvent.AFTER_EXECUTING_COMMAND);
+            for (int i = 0; i < 20 && !events.contains(MyServiceEvent.AFTER_EXECUTING_COMMAND); i++) {
+                Thread.sleep(100);
+            }
+        } finally {
+            receiver.unregisterReceiver();
+        }
+        assertEquals(events.toString(), MyServiceEvent.BEFORE_EXECUTING_COMMAND, events.get(0));
+        assertEquals(events.toString(), MyServiceEvent.AFTER_EXECUTING_COMMAND, events.get(events.size() - 1));
+        assertTrue("Progress events: " + progress, progress.size() >= 1 && progress.size() <= 2);
+        assertEquals("user 1000", progress.get(progress.size() - 1));
+    }
+}
@@ -58,8 +58,8 @@ public class MyServiceTestHelper implements MyServiceEventsListener {
             }
             connectionInstanceId = httpConnectionMock.getInstanceId();
 
-            serviceConnector = new MyServiceEventsReceiver(myContext, this);
-            serviceConnector.registerReceiver(myContext.context());
+            serviceConnector = new MyServiceEventsReceiver(this);
+            serviceConnector.registerReceiver();
 
             dropQueues();
             httpConnectionMock.clearPostedData();
@@ -173,7 +173,7 @@ public class MyServiceTestHelper implements MyServiceEventsListener {
         dropQueues();
         SharedPreferencesUtil.putBoolean(MyPreferences.KEY_SYNC_WHILE_USING_APPLICATION, true);
         if (serviceConnector != null) {
-            serviceConnector.unregisterReceiver(myContext.context());
+            serviceConnector.unregisterReceiver();
         }
         TestSuite.setHttpConnectionMockClass(null);
         TestSuite.setHttpConnectionMockInstance(null);
@@ -12,6 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -85,6 +86,32 @@ public class TimelineSyncTrackerTest {
         }
     }
 
+    @Test
+    public void testAdaptiveSyncInterval() {
+        MyAccount ma = DemoData.getMyAccount(DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        Timeline timeline = Timeline.getTimeline(MyContextHolder.get(), 0, TimelineType.SEARCH, ma, 0, null,
+                "adaptiveSyncInterval");
+        final long minIntervalMs = TimeUnit.SECONDS.toMillis(ma.getEffectiveSyncFrequencySeconds());
+        assertEquals(minIntervalMs, timeline.getSyncIntervalMs());
+
+        timeline.setSyncSucceededDate(System.currentTimeMillis() - minIntervalMs);
+        timeline.adaptSyncInterval(0);
+        assertEquals("Backoff after an empty sync", 2 * minIntervalMs, timeline.getSyncIntervalMs());
+        for (int i = 0; i < 10; i++) {
+            timeline.adaptSyncInterval(0);
+        }
+        assertEquals("Max interval", Math.max(minIntervalMs, Math.min(
+                minIntervalMs * Timeline.MAX_SYNC_INTERVAL_FACTOR, Timeline.MAX_SYNC_INTERVAL_MS)),
+                timeline.getSyncIntervalMs());
+        assertTrue("Not time to sync yet " + timeline, !timeline.isTimeToAutoSync());
+
+        for (int i = 0; i < 10; i++) {
+            timeline.adaptSyncInterval(1000);
+        }
+        assertEquals("Busy timeline", minIntervalMs, timeline.getSyncIntervalMs());
+        assertTrue("Time to sync " + timeline, timeline.isTimeToAutoSync());
+    }
+
     @NonNull
     private Timeline getTimeline(MyContext myContext, TimelineType timelineType, MyAccount ma) {
         return Timeline.getTimeline(myContext, 0, timelineType, ma, 0, null, "");
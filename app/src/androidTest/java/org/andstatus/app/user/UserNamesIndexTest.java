@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UserNamesIndexTest {
+    private static final long ORIGIN_ID = 1234567L;
+
+    @Test
+    public void testPrefixSearchAndRanking() {
+        UserNamesIndex.forget();
+        UserNamesIndex index = UserNamesIndex.get(ORIGIN_ID);
+        index.update(1, "john", "john@example.com");
+        index.update(2, "Johnny", "johnny@example.org");
+        index.update(3, "joan", "joan@example.com");
+        index.update(4, "peter", "johnpeter@example.com");
+
+        List<Long> found = index.find("John", 10);
+        assertEquals("Each user once: " + found, 3, found.size());
+        assertEquals(Arrays.asList(1L, 2L, 4L), found);
+
+        UserNamesIndex.onInteraction(ORIGIN_ID, 4, UserNamesIndex.FOLLOW_WEIGHT);
+        UserNamesIndex.onInteraction(ORIGIN_ID, 2, UserNamesIndex.REPLY_WEIGHT);
+        assertEquals(Arrays.asList(4L, 2L, 3L), index.find("jo", 3));
+        assertEquals(Arrays.asList(4L), index.find("jo", 1));
+
+        UserNamesIndex.onUserUpdated(ORIGIN_ID, 1, "bill", "");
+        found = index.find("john", 10);
+        assertTrue("Old name is still found by the WebFinger ID: " + found, found.contains(1L));
+        assertEquals(Arrays.asList(1L), index.find("bil", 10));
+        assertTrue(index.find("x", 10).isEmpty());
+        UserNamesIndex.forget();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContentFingerprintTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testFromBody() {
+        assertEquals(ContentFingerprint.EMPTY, ContentFingerprint.fromBody(null));
+        assertEquals(ContentFingerprint.EMPTY, ContentFingerprint.fromBody("Hi"));
+
+        String body = "Fingerprints of messages help to find duplicates in a timeline";
+        long fingerprint = ContentFingerprint.fromBody(body);
+        assertNotEquals(ContentFingerprint.EMPTY, fingerprint);
+        assertEquals("Markup doesn't matter", fingerprint,
+                ContentFingerprint.fromBody("<p dir=\"ltr\">" + body + "</p>"));
+        assertTrue(ContentFingerprint.areSimilar(fingerprint, fingerprint));
+
+        long other = ContentFingerprint.fromBody("Absolutely different message about the weather today");
+        assertFalse("distance:" + ContentFingerprint.distance(fingerprint, other),
+                ContentFingerprint.areSimilar(fingerprint, other));
+        assertFalse(ContentFingerprint.areSimilar(ContentFingerprint.EMPTY, ContentFingerprint.EMPTY));
+    }
+
+    @Test
+    public void testBands() {
+        long fingerprint = 0x123456789abcdef0L;
+        long similar = fingerprint ^ (1L << 3) ^ (1L << 20) ^ (1L << 40);
+        assertEquals(3, ContentFingerprint.distance(fingerprint, similar));
+        assertTrue(ContentFingerprint.areSimilar(fingerprint, similar));
+        int equalBands = 0;
+        for (int band = 0; band < ContentFingerprint.BANDS_COUNT; band++) {
+            if (ContentFingerprint.bandKey(fingerprint, band) == ContentFingerprint.bandKey(similar, band)) {
+                equalBands++;
+            }
+        }
+        assertEquals(1, equalBands);
+        assertNotEquals(ContentFingerprint.bandKey(0, 0), ContentFingerprint.bandKey(0, 1));
+    }
+}
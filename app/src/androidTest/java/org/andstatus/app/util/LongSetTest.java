@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongSetTest {
+
+    @Test
+    public void testLongSet() {
+        LongSet set = LongSet.of(0, 5, 5, -3);
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-3));
+        assertFalse(set.contains(4));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertEquals(2, set.toArray().length);
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testSameAsBoxedCollections() {
+        Random random = new Random(17);
+        LongSet set = new LongSet();
+        Set<Long> expectedSet = new HashSet<>();
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expectedMap = new HashMap<>();
+        for (int ind = 0; ind < 50000; ind++) {
+            long key = random.nextInt(3000) - 10;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expectedSet.add(key), set.add(key));
+                    long value = random.nextLong();
+                    expectedMap.put(key, value);
+                    map.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expectedSet.remove(key), set.remove(key));
+                    assertEquals(expectedMap.remove(key) != null, map.remove(key));
+                    break;
+                default:
+                    assertEquals(expectedSet.contains(key), set.contains(key));
+                    Long expected = expectedMap.get(key);
+                    assertEquals(expected == null ? -1 : expected, map.get(key, -1));
+                    break;
+            }
+            assertEquals(expectedSet.size(), set.size());
+            assertEquals(expectedMap.size(), map.size());
+        }
+        for (long key : set.toArray()) {
+            assertTrue(expectedSet.contains(key));
+        }
+        for (long key : map.keys()) {
+            assertTrue(expectedMap.containsKey(key));
+        }
+    }
+
+    @Test
+    public void testCounts() {
+        LongLongMap map = new LongLongMap();
+        assertEquals(1, map.addTo(7, 1));
+        assertEquals(2, map.addTo(7, 1));
+        assertEquals(0, map.addTo(7, -2));
+        assertFalse(map.containsKey(7));
+        assertTrue(map.isEmpty());
+    }
+}
@@ -92,6 +92,10 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
      * Id of current list item, which is sort of a "center" of the list view
      */
     protected long centralItemId = 0;
+    /** Position of the list, saved before its data is changed, see {@link #saveListPosition()} */
+    private boolean listPositionSaved = false;
+    private long itemIdOfSavedPosition = 0;
+    private int yOfSavedPosition = 0;
     protected MySearchView searchView = null;
 
     @Override
@@ -117,7 +121,7 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
         if (myContext.isReady()) {
             MyServiceManager.setServiceAvailable();
         }
-        myServiceReceiver = new MyServiceEventsReceiver(myContext, this);
+        myServiceReceiver = new MyServiceEventsReceiver(this);
 
         mParsedUri = ParsedUri.fromIntent(getIntent());
         setCurrentMyAccount(getParsedUri().getAccountUserId(), getParsedUri().getOriginId());
@@ -323,8 +327,9 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
 
     public void onLoadFinished(boolean keepCurrentPosition) {
         if (keepCurrentPosition) {
-            updateList(TriState.UNKNOWN, 0, true);
+            updateList(TriState.UNKNOWN, 0, !isListAdapterUpdated());
         } else {
+            listPositionSaved = false;
             setListAdapter(newListAdapter());
         }
         updateTitle("");
@@ -338,14 +343,12 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
         final String method = "updateList";
         MyBaseAdapter adapter = getListAdapter();
         ListView list = getListView();
-        // For a finer position restore see http://stackoverflow.com/questions/3014089/maintain-save-restore-scroll-position-when-returning-to-a-listview?rq=1
-        long itemIdOfListPosition = centralItemId;
-        int y = 0;
-        if (list.getChildCount() > 0 && adapter != null) {
-            int firstVisiblePosition = list.getFirstVisiblePosition() + list.getHeaderViewsCount();
-            itemIdOfListPosition = adapter.getItemId(firstVisiblePosition);
-            y = getYOfPosition(list, adapter, firstVisiblePosition);
+        if (!listPositionSaved) {
+            saveListPosition();
         }
+        long itemIdOfListPosition = listPositionSaved ? itemIdOfSavedPosition : centralItemId;
+        int y = listPositionSaved ? yOfSavedPosition : 0;
+        listPositionSaved = false;
 
         if (!TriState.UNKNOWN.equals(collapseDuplicates)) {
             getListData().collapseDuplicates(collapseDuplicates.toBoolean(true), itemId);
@@ -373,6 +376,24 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
         }
     }
 
+    /**
+     * Saves the item at the top of the list and its offset, to be restored by
+     * {@link #updateList(TriState, long, boolean)}. Should be called before the data of the adapter is changed,
+     * because after that the same position may hold another item
+     */
+    protected void saveListPosition() {
+        // For a finer position restore see http://stackoverflow.com/questions/3014089/maintain-save-restore-scroll-position-when-returning-to-a-listview?rq=1
+        MyBaseAdapter adapter = getListAdapter();
+        ListView list = getListView();
+        listPositionSaved = false;
+        if (list.getChildCount() > 0 && adapter != null) {
+            int firstVisiblePosition = list.getFirstVisiblePosition() + list.getHeaderViewsCount();
+            itemIdOfSavedPosition = adapter.getItemId(firstVisiblePosition);
+            yOfSavedPosition = getYOfPosition(list, adapter, firstVisiblePosition);
+            listPositionSaved = true;
+        }
+    }
+
     protected void verboseListPositionLog(String method, String description) {
         if (MyLog.isVerboseEnabled()) {
             int firstVisiblePosition = getListView().getFirstVisiblePosition();
@@ -400,6 +421,11 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
 
     protected abstract MyBaseAdapter newListAdapter();
 
+    /** @return true if the current list adapter already shows the loaded data, so it may be reused */
+    protected boolean isListAdapterUpdated() {
+        return false;
+    }
+
     @Override
     public MyBaseAdapter getListAdapter() {
         return (MyBaseAdapter) super.getListAdapter();
@@ -438,7 +464,7 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
         super.onResume();
         MyLog.v(this, method + (mFinishing ? ", finishing" : "") );
         if (!mFinishing && !MyContextHolder.initializeThenRestartMe(this)) {
-            myServiceReceiver.registerReceiver(this);
+            myServiceReceiver.registerReceiver();
             myContext.setInForeground(true);
             if (getListData().size() == 0 && !isLoading()) {
                 showList(WhichPage.ANY);
@@ -457,7 +483,7 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
     @Override
     protected void onPause() {
         super.onPause();
-        myServiceReceiver.unregisterReceiver(this);
+        myServiceReceiver.unregisterReceiver();
         MyContextHolder.get().setInForeground(false);
     }
     
@@ -582,7 +608,7 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
     public void onDestroy() {
         MyLog.v(this, "onDestroy");
         if (myServiceReceiver != null) {
-            myServiceReceiver.unregisterReceiver(this);
+            myServiceReceiver.unregisterReceiver();
         }
         super.onDestroy();
     }
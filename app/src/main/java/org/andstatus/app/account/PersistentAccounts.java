@@ -16,10 +16,13 @@ import org.andstatus.app.backup.MyBackupDescriptor;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.SelectedUserIds;
 import org.andstatus.app.database.FriendshipTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.CollectionsUtil;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.LongLongMap;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.Permissions;
 import org.json.JSONArray;
@@ -43,7 +46,9 @@ public class PersistentAccounts {
     private final MyContext myContext;
     private final List<MyAccount> mAccounts = new CopyOnWriteArrayList<>();
     private int distinctOriginsCount = 0;
-    private volatile Set<Long> myFriends = null;
+    /** Number of my accounts, following each friend, by userId of the friend. Null if not loaded yet */
+    private LongLongMap myFriends = null;
+    private final Object myFriendsLock = new Object();
 
     private PersistentAccounts(MyContext myContext) {
         this.myContext = myContext;
@@ -69,7 +74,9 @@ public class PersistentAccounts {
     }
     
     public PersistentAccounts initialize() {
-        myFriends = null;
+        synchronized (myFriendsLock) {
+            myFriends = null;
+        }
         android.accounts.Account[] aa = getAccounts(myContext.context());
         List<MyAccount> myAccounts = new ArrayList<>();
         for (android.accounts.Account account : aa) {
@@ -411,7 +418,7 @@ public class PersistentAccounts {
         long restoredCount = 0;
         final String method = "onRestore";
         MyLog.i(this, method + "; started, " + I18n.formatBytes(data.getDataSize()));
-        byte[] bytes = new byte[data.getDataSize()];
+        byte[] bytes = new byte[(int) data.getDataSize()];
         int bytesRead = data.readEntityData(bytes, 0, bytes.length);
         try {
             JSONArray jsa = new JSONArray(new String(bytes, 0, bytesRead, "UTF-8"));
@@ -476,29 +483,58 @@ public class PersistentAccounts {
     }
 
     private boolean isMyFriend(long userId) {
-        if (myFriends == null) {
-            initializeMyFriends();
+        synchronized (myFriendsLock) {
+            if (myFriends == null) {
+                myFriends = loadMyFriends();
+            }
+            return myFriends.get(userId, 0) > 0;
+        }
+    }
+
+    /**
+     * Keeps friends of my accounts up to date without reloading them
+     * @param followed the new state, which differs from the previous one
+     */
+    public void onFriendshipChanged(long userId, long friendId, boolean followed) {
+        if (!isAccountUserId(userId)) {
+            return;
+        }
+        synchronized (myFriendsLock) {
+            if (myFriends != null && (followed || myFriends.containsKey(friendId))) {
+                myFriends.addTo(friendId, followed ? 1 : -1);
+            }
         }
-        return myFriends.contains(userId);
     }
 
-    private void initializeMyFriends() {
-        Set<Long> friends = new HashSet<>();
-        String sql = "SELECT DISTINCT " + FriendshipTable.FRIEND_ID + " FROM " + FriendshipTable.TABLE_NAME
-                + " WHERE " + FriendshipTable.FOLLOWED + "=1";
+    @NonNull
+    private LongLongMap loadMyFriends() {
+        LongLongMap friends = new LongLongMap();
+        LongSet userIds = new LongSet(mAccounts.size());
+        for (MyAccount ma : mAccounts) {
+            userIds.add(ma.getUserId());
+        }
+        SelectedUserIds accountUserIds = new SelectedUserIds(userIds);
+        if (accountUserIds.size() == 0) {
+            return friends;
+        }
+        String sql = "SELECT " + FriendshipTable.FRIEND_ID + ", COUNT(*)"
+                + " FROM " + FriendshipTable.TABLE_NAME
+                + " WHERE " + FriendshipTable.FOLLOWED + "=1"
+                + " AND " + FriendshipTable.USER_ID + accountUserIds.getSql()
+                + " GROUP BY " + FriendshipTable.FRIEND_ID;
         SQLiteDatabase db = myContext.getDatabase();
         Cursor cursor = null;
         try {
             cursor = db.rawQuery(sql, null);
             while (cursor.moveToNext()) {
-                friends.add(cursor.getLong(0));
+                friends.put(cursor.getLong(0), cursor.getLong(1));
             }
         } catch (Exception e) {
             MyLog.i(this, "SQL:'" + sql + "'", e);
         } finally {
             DbUtils.closeSilently(cursor);
         }
-        myFriends = friends;
+        return friends;
     }
 
     public void reorderAccounts(List<MyAccount> reorderedItems) {
@@ -20,9 +20,9 @@ import android.app.backup.BackupAgent;
 import android.app.backup.BackupDataInput;
 import android.app.backup.BackupDataOutput;
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 import android.os.ParcelFileDescriptor;
 
-import org.andstatus.app.R;
 import org.andstatus.app.account.PersistentAccounts;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
@@ -33,20 +33,23 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyDataChecker;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.service.MyServiceManager;
-import org.andstatus.app.service.MyServiceState;
-import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Date;
+import java.util.zip.CRC32;
 
 public class MyBackupAgent extends BackupAgent {
     public static final String DATABASE_KEY = "database";
     public static final String SHARED_PREFERENCES_KEY = "shared_preferences";
+    /** Prefix of keys of downloaded media files, followed by a file name */
+    static final String DOWNLOADS_KEY_PREFIX = "downloads_";
 
     private MyBackupDescriptor backupDescriptor = null;
 
@@ -60,6 +63,8 @@ public class MyBackupAgent extends BackupAgent {
     long suggestionsRestored = 0;
     private long sharedPreferencesBackedUp = 0;
     long sharedPreferencesRestored = 0;
+    private long downloadsBackedUp = 0;
+    long downloadsRestored = 0;
 
     public MyBackupAgent() {
     }
@@ -91,7 +96,6 @@ public class MyBackupAgent extends BackupAgent {
     public void onBackup(MyBackupDescriptor oldDescriptor, MyBackupDataOutput data,
             MyBackupDescriptor newDescriptor) throws IOException {
         final String method = "onBackup";
-        // Ignore oldDescriptor for now...
         MyLog.i(this, method + " started"
                 + (data != null && data.getDataFolder() != null ? ", folder='"
                         + data.getDataFolder().getAbsolutePath() + "'" : "")
@@ -99,6 +103,9 @@ public class MyBackupAgent extends BackupAgent {
                         : "no old state"));
         MyContextHolder.initialize(this, this);
         backupDescriptor = newDescriptor;
+        if (data != null) {
+            backupDescriptor.setCompressed(data.isCompressed());
+        }
         try {
             if (data == null) {
                 throw new FileNotFoundException("No BackupDataOutput");
@@ -107,83 +114,103 @@ public class MyBackupAgent extends BackupAgent {
             } else if (MyContextHolder.get().persistentAccounts().isEmpty()) {
                 throw new FileNotFoundException("Nothing to backup - No accounts yet");
             } else {
-                boolean isServiceAvailableStored = checkAndSetServiceUnavailable();
-                doBackup(data);
+                doBackup(data, oldDescriptor);
                 backupDescriptor.save();
                 MyLog.v(this, method + "; newState: " + backupDescriptor.toString());
-                if (isServiceAvailableStored) {
-                    MyServiceManager.setServiceAvailable();
-                }
             }
         } finally {
             MyLog.i(this, method + " ended, " + (backupDescriptor.saved() ? "success" : "failure"));
         }
     }
 
-    boolean checkAndSetServiceUnavailable() throws IOException {
-        boolean isServiceAvailableStored = MyServiceManager.isServiceAvailable();
-        MyServiceManager.setServiceUnavailable();
-        MyServiceManager.stopService();
-        for (int ind=0; ; ind++) {
-            if (MyServiceManager.getServiceState() == MyServiceState.STOPPED) {
-                break;
-            }
-            if (ind > 5) {
-                throw new FileNotFoundException(getString(R.string.system_is_busy_try_later));
-            }
-            DbUtils.waitMs("checkAndSetServiceUnavailable", 5000);
-        }
-        return isServiceAvailableStored;
-    }
-
-    private void doBackup(MyBackupDataOutput data) throws IOException {
+    /** MyService continues to work: the database is backed up from its snapshot */
+    private void doBackup(MyBackupDataOutput data, MyBackupDescriptor oldDescriptor) throws IOException {
         sharedPreferencesBackedUp = backupFile(data,
                 SHARED_PREFERENCES_KEY,
-                SharedPreferencesUtil.defaultSharedPreferencesPath(MyContextHolder.get().context()));
-        databasesBackedUp = backupFile(data,
-                DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME,
-                MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
+                SharedPreferencesUtil.defaultSharedPreferencesPath(MyContextHolder.get().context()), true);
+        File databaseFile = MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME);
+        File snapshotFile = new File(databaseFile.getParentFile(), "snapshot-" + DatabaseHolder.DATABASE_NAME);
+        try {
+            DatabaseHolder.snapshot(MyContextHolder.get().getDatabase(), databaseFile, snapshotFile);
+            databasesBackedUp = backupFile(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME, snapshotFile, true);
+        } finally {
+            SQLiteDatabase.deleteDatabase(snapshotFile);
+        }
         accountsBackedUp = MyContextHolder.get().persistentAccounts().onBackup(data, backupDescriptor);
+        if (data.getDataFolder() != null) {
+            downloadsBackedUp = backupDownloads(data, oldDescriptor);
+        }
+    }
+
+    /**
+     * Only media files, modified after the previous backup, are backed up, so the backup is incremental,
+     * if there was a previous one. Android backup doesn't have a room for media files
+     */
+    private long backupDownloads(MyBackupDataOutput data, MyBackupDescriptor oldDescriptor) throws IOException {
+        long tillDate = System.currentTimeMillis();
+        long sinceDate = oldDescriptor.saved() ? oldDescriptor.getDownloadsTillDate() : 0;
+        long backedUpCount = 0;
+        File[] files = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && file.lastModified() >= sinceDate) {
+                    backedUpCount += backupFile(data, DOWNLOADS_KEY_PREFIX + file.getName(), file, false);
+                }
+            }
+        }
+        backupDescriptor.setDownloadsTillDate(tillDate);
+        backupDescriptor.getLogger().logProgress("Backed up " + backedUpCount + " downloaded files"
+                + (sinceDate == 0 ? "" : ", modified since " + new Date(sinceDate)));
+        return backedUpCount;
     }
     
-    private long backupFile(MyBackupDataOutput data, String key, File dataFile) throws IOException {
-        final int chunkSize = 10000;
+    /** The file is read through one open stream in large chunks, its checksum is stored in the descriptor */
+    private long backupFile(MyBackupDataOutput data, String key, File dataFile, boolean logProgress)
+            throws IOException {
         long backedUpCount = 0;
         if (dataFile.exists()) {
-            long fileLength = dataFile.length();
-            if ( fileLength > Integer.MAX_VALUE) {
-                throw new FileNotFoundException("File '" 
-                        + dataFile.getName() + "' is too large for backup: " + fileLength + " bytes" );
-            } 
-            int bytesToWrite = (int) fileLength;
+            long bytesToWrite = dataFile.length();
             data.writeEntityHeader(key, bytesToWrite, MyBackupDataOutput.getDataFileExtension(dataFile));
-            int bytesWritten = 0;
-            while (bytesWritten < bytesToWrite) {
-                byte[] bytes = FileUtils.getBytes(dataFile, bytesWritten, chunkSize);
-                if (bytes.length <= 0) {
-                    break;
+            long bytesWritten = 0;
+            CRC32 checksum = new CRC32();
+            FileInputStream input = new FileInputStream(dataFile);
+            try {
+                byte[] bytes = new byte[MyBackupDataOutput.BUFFER_SIZE];
+                while (bytesWritten < bytesToWrite) {
+                    int bytesRead = input.read(bytes, 0,
+                            (int) Math.min(bytes.length, bytesToWrite - bytesWritten));
+                    if (bytesRead <= 0) {
+                        break;
+                    }
+                    checksum.update(bytes, 0, bytesRead);
+                    data.writeEntityData(bytes, bytesRead);
+                    bytesWritten += bytesRead;
                 }
-                bytesWritten += bytes.length;
-                data.writeEntityData(bytes, bytes.length);
+            } finally {
+                DbUtils.closeSilently(input, dataFile.getName());
             }
             if (bytesWritten != bytesToWrite) {
                 throw new FileNotFoundException("Couldn't backup "
                         + filePartiallyWritten(key, dataFile, bytesToWrite, bytesWritten));
             }
+            backupDescriptor.setChecksum(key, checksum.getValue());
             backedUpCount++;
-            backupDescriptor.getLogger().logProgress(
-                    "Backed up " + fileWritten(key, dataFile, bytesWritten));
+            if (logProgress) {
+                backupDescriptor.getLogger().logProgress("Backed up " + fileWritten(key, dataFile, bytesWritten));
+            } else {
+                MyLog.v(this, "Backed up " + fileWritten(key, dataFile, bytesWritten));
+            }
         } else {
             MyLog.v(this, "File doesn't exist key='" + key + "', path='" + dataFile.getAbsolutePath());
         }
         return backedUpCount;
     }
 
-    private String fileWritten(String key, File dataFile, int bytesWritten) {
+    private String fileWritten(String key, File dataFile, long bytesWritten) {
         return filePartiallyWritten(key, dataFile, bytesWritten, bytesWritten);
     }
     
-    private String filePartiallyWritten(String key, File dataFile, int bytesToWrite, int bytesWritten) {
+    private String filePartiallyWritten(String key, File dataFile, long bytesToWrite, long bytesWritten) {
         if ( bytesWritten == bytesToWrite) {
             return "file:'" + dataFile.getName()
                     + "', key:'" + key + "', length:"
@@ -258,8 +285,10 @@ public class MyBackupAgent extends BackupAgent {
     private void doRestore(MyBackupDataInput data) throws IOException {
         restoreSharedPreferences(data);
         assertNextHeader(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME);
-        databasesRestored += restoreFile(data,
-                    MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
+        File databaseFile = MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME);
+        // Together with its Write-Ahead Log, which shouldn't be applied to the restored file
+        SQLiteDatabase.deleteDatabase(databaseFile);
+        databasesRestored += restoreFile(data, databaseFile);
         MyContextHolder.release();
         MyContextHolder.setOnRestore(true);
         MyContextHolder.initialize(this, this);
@@ -273,6 +302,33 @@ public class MyBackupAgent extends BackupAgent {
         MyContextHolder.release();
         MyContextHolder.setOnRestore(false);
         MyContextHolder.initialize(this, this);
+        restoreDownloads(data);
+    }
+
+    /** Media files of the previous backups are restored separately, if this backup is incremental */
+    void onRestoreDownloads(MyBackupDataInput data, MyBackupDescriptor descriptor) throws IOException {
+        backupDescriptor = descriptor;
+        restoreDownloads(data);
+    }
+
+    /** Files, which exist already, are skipped */
+    private void restoreDownloads(MyBackupDataInput data) throws IOException {
+        File downloadsDir = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+        long restoredCount = 0;
+        while (data.readNextHeader()) {
+            previousKey = data.getKey();
+            File file = previousKey.startsWith(DOWNLOADS_KEY_PREFIX) && downloadsDir != null
+                    ? new File(downloadsDir, previousKey.substring(DOWNLOADS_KEY_PREFIX.length())) : null;
+            if (file == null || file.exists()) {
+                data.skipEntityData();
+            } else {
+                restoredCount += restoreFile(data, file, false);
+            }
+        }
+        downloadsRestored += restoredCount;
+        if (restoredCount > 0) {
+            backupDescriptor.getLogger().logProgress("Restored " + restoredCount + " downloaded files");
+        }
     }
 
     private void restoreSharedPreferences(MyBackupDataInput data) throws IOException {
@@ -320,25 +376,30 @@ public class MyBackupAgent extends BackupAgent {
         return false;
     }
     
-    /** Returns count of restores files */
+    /** Returns count of restores files. The checksum is verified, if it is known */
     public long restoreFile(MyBackupDataInput data, File dataFile) throws IOException {
+        return restoreFile(data, dataFile, true);
+    }
+
+    private long restoreFile(MyBackupDataInput data, File dataFile, boolean logProgress) throws IOException {
         if (dataFile.exists() && !dataFile.delete()) {
             throw new FileNotFoundException("Couldn't delete old file before restore '"
                     + dataFile.getName() + "'");
         }
         final String method = "restoreFile";
         MyLog.i(this, method + " started, " + fileWritten(data.getKey(), dataFile, data.getDataSize()));
-        final int chunkSize = 10000;
-        int bytesToWrite = data.getDataSize();
-        int bytesWritten = 0;
+        long bytesToWrite = data.getDataSize();
+        long bytesWritten = 0;
+        CRC32 checksum = new CRC32();
         FileOutputStream output = new FileOutputStream(dataFile, false);
         try {
+            byte[] bytes = new byte[MyBackupDataOutput.BUFFER_SIZE];
             while (bytesToWrite > bytesWritten) {
-                byte[] bytes = new byte[chunkSize];
                 int bytesRead = data.readEntityData(bytes, 0, bytes.length);
-                if (bytesRead == 0) {
+                if (bytesRead <= 0) {
                     break;
                 }
+                checksum.update(bytes, 0, bytesRead);
                 output.write(bytes, 0, bytesRead);
                 bytesWritten += bytesRead;
             }
@@ -349,8 +410,15 @@ public class MyBackupAgent extends BackupAgent {
         } finally {
             output.close();
         }
-        backupDescriptor.getLogger().logProgress("Restored "
-                + filePartiallyWritten(data.getKey(), dataFile, bytesToWrite, bytesWritten));
+        long checksumExpected = backupDescriptor.getChecksum(data.getKey());
+        if (checksumExpected != MyBackupDescriptor.CHECKSUM_UNKNOWN && checksumExpected != checksum.getValue()) {
+            throw new FileNotFoundException("Checksum mismatch, the backup is corrupted: "
+                    + fileWritten(data.getKey(), dataFile, bytesWritten));
+        }
+        if (logProgress) {
+            backupDescriptor.getLogger().logProgress("Restored "
+                    + filePartiallyWritten(data.getKey(), dataFile, bytesToWrite, bytesWritten));
+        }
         return 1;
     }
 
@@ -370,6 +438,10 @@ public class MyBackupAgent extends BackupAgent {
         return sharedPreferencesBackedUp;
     }
 
+    long getDownloadsBackedUp() {
+        return downloadsBackedUp;
+    }
+
     long getSuggestionsBackedUp() {
         return suggestionsBackedUp;
     }
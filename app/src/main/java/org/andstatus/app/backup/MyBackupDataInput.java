@@ -19,16 +19,20 @@ package org.andstatus.app.backup;
 import android.app.backup.BackupDataInput;
 
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
 
 public class MyBackupDataInput {
     private MyContext myContext;
@@ -38,32 +42,37 @@ public class MyBackupDataInput {
     private Set<BackupHeader> headers = new TreeSet<BackupHeader>();
     private Iterator<BackupHeader> keysIterator;
     private boolean mHeaderReady = false;
-    private int dataOffset = 0;
+    private long dataOffset = 0;
     private BackupHeader header = BackupHeader.getEmpty();
+    /** The data file of the current entity is kept open, till all its data is read */
+    private InputStream dataStream = null;
     
     static class BackupHeader implements Comparable<BackupHeader> {
         String key;
         long ordinalNumber;
-        int dataSize;
+        long dataSize;
         String fileExtension;
+        boolean compressed;
 
-        BackupHeader(String key, long ordinalNumber, int dataSize, String fileExtension) {
+        BackupHeader(String key, long ordinalNumber, long dataSize, String fileExtension, boolean compressed) {
             this.key = key;
             this.ordinalNumber = ordinalNumber;
             this.dataSize = dataSize;
             this.fileExtension = fileExtension;
+            this.compressed = compressed;
         }
 
         static BackupHeader getEmpty() {
-            return new BackupHeader("", 0, 0, "");
+            return new BackupHeader("", 0, 0, "", false);
         }
         
         static BackupHeader fromJson(JSONObject jso) {
             return new BackupHeader(
             jso.optString(MyBackupDataOutput.KEY_KEYNAME, ""),
             jso.optLong(MyBackupDataOutput.KEY_ORDINAL_NUMBER, 0),
-            jso.optInt(MyBackupDataOutput.KEY_DATA_SIZE, 0),
-            jso.optString(MyBackupDataOutput.KEY_FILE_EXTENSION, MyBackupDataOutput.DATA_FILE_EXTENSION_DEFAULT));
+            jso.optLong(MyBackupDataOutput.KEY_DATA_SIZE, 0),
+            jso.optString(MyBackupDataOutput.KEY_FILE_EXTENSION, MyBackupDataOutput.DATA_FILE_EXTENSION_DEFAULT),
+            jso.optBoolean(MyBackupDataOutput.KEY_COMPRESSED, false));
         }
 
         @Override
@@ -76,7 +85,7 @@ public class MyBackupDataInput {
         public int hashCode() {
             final int prime = 31;
             int result = 1;
-            result = prime * result + dataSize;
+            result = prime * result + (int) (dataSize ^ (dataSize >>> 32));
             result = prime * result + ((fileExtension == null) ? 0 : fileExtension.hashCode());
             result = prime * result + ((key == null) ? 0 : key.hashCode());
             result = prime * result + (int) (ordinalNumber ^ (ordinalNumber >>> 32));
@@ -118,7 +127,7 @@ public class MyBackupDataInput {
         @Override
         public String toString() {
             return "BackupHeader [key=" + key + ", ordinalNumber=" + ordinalNumber + ", dataSize="
-                    + dataSize + "]";
+                    + dataSize + (compressed ? ", compressed" : "") + "]";
         }
     }
     
@@ -151,6 +160,7 @@ public class MyBackupDataInput {
     }
 
     private boolean readNextHeader2() throws IOException {
+        closeDataFile();
         mHeaderReady = false;
         dataOffset = 0;
         if (keysIterator.hasNext()) {
@@ -181,8 +191,9 @@ public class MyBackupDataInput {
         }
     }
 
-    /** {@link BackupDataInput#getDataSize()}  */
-    public int getDataSize() {
+    /** {@link BackupDataInput#getDataSize()}
+     * @return Size of uncompressed data. Only the backup in a folder may have sizes over 2 GB */
+    public long getDataSize() {
         if (backupDataInput != null) {
             return backupDataInput.getDataSize();
         } else {
@@ -190,7 +201,7 @@ public class MyBackupDataInput {
         }
     }
 
-    private int getDataSize2() {
+    private long getDataSize2() {
         if (mHeaderReady) {
             return header.dataSize;
         } else {
@@ -208,25 +219,41 @@ public class MyBackupDataInput {
     }
 
     private int readEntityData2(byte[] data, int offset, int size) throws IOException {
-        final long chunkSize = 50000;
         int bytesRead = 0;
-        if (size > chunkSize) {
-            throw new FileNotFoundException("Size to read is too large: " + size);
-        } else if (size < 1 || dataOffset >= header.dataSize) {
+        if (size < 1 || dataOffset >= header.dataSize) {
             // skip
         } else if (mHeaderReady) {
-            File dataFile = new File(dataFolder, header.key + MyBackupDataOutput.DATA_FILE_SUFFIX + header.fileExtension);
-            byte[] readData = FileUtils.getBytes(dataFile, dataOffset, size);
-            bytesRead = readData.length;
-            System.arraycopy(readData, 0, data, offset, bytesRead);
+            if (dataStream == null) {
+                File dataFile = new File(dataFolder, header.key + MyBackupDataOutput.DATA_FILE_SUFFIX
+                        + header.fileExtension);
+                InputStream in = new FileInputStream(dataFile);
+                dataStream = header.compressed ? new GZIPInputStream(in, MyBackupDataOutput.BUFFER_SIZE) : in;
+            }
+            int sizeToRead = (int) Math.min(size, header.dataSize - dataOffset);
+            while (bytesRead < sizeToRead) {
+                int count = dataStream.read(data, offset + bytesRead, sizeToRead - bytesRead);
+                if (count < 0) {
+                    break;
+                }
+                bytesRead += count;
+            }
         } else {
             throw new IllegalStateException("Entity header not read");
         }
         MyLog.v(this, "key=" + header.key + ", offset=" + dataOffset + ", bytes read=" + bytesRead);
         dataOffset += bytesRead;
+        if (dataOffset >= header.dataSize || bytesRead < size) {
+            closeDataFile();
+        }
         return bytesRead;
     }
 
+    private void closeDataFile() {
+        InputStream in = dataStream;
+        dataStream = null;
+        DbUtils.closeSilently(in, header.key);
+    }
+
     /** {@link BackupDataInput#skipEntityData()}  */
     public void skipEntityData() throws IOException {
         if (backupDataInput != null) {
@@ -237,6 +264,7 @@ public class MyBackupDataInput {
     }
 
     private void skipEntityData2() {
+        closeDataFile();
         if (mHeaderReady) {
             mHeaderReady = false;
         } else {
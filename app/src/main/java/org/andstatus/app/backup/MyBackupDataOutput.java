@@ -23,12 +23,12 @@ import org.andstatus.app.util.MyLog;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /** Allowing to instantiate and to mock BackupDataOutput class */
 public class MyBackupDataOutput {
@@ -39,11 +39,16 @@ public class MyBackupDataOutput {
     static final String KEY_DATA_SIZE = "data_size";
     static final String KEY_ORDINAL_NUMBER = "ordinal_number";
     static final String KEY_FILE_EXTENSION = "file_extension";
+    static final String KEY_COMPRESSED = "compressed";
+    /** Size of chunks, in which large files are copied */
+    static final int BUFFER_SIZE = 256 * 1024;
     private File dataFolder;
     private BackupDataOutput backupDataOutput;
-    private int sizeToWrite = 0;
-    private int sizeWritten = 0;
+    private boolean compressed = false;
+    private long sizeToWrite = 0;
+    private long sizeWritten = 0;
     private File dataFile = null;
+    private OutputStream dataStream = null;
     private int headerOrdinalNumber = 0;
 
     public MyBackupDataOutput(BackupDataOutput backupDataOutput) {
@@ -51,21 +56,33 @@ public class MyBackupDataOutput {
     }
     
     public MyBackupDataOutput(File dataFolder) {
+        this(dataFolder, false);
+    }
+
+    /** @param compressed If true, data files are written in GZIP format */
+    public MyBackupDataOutput(File dataFolder, boolean compressed) {
         this.dataFolder = dataFolder;
+        this.compressed = compressed;
     }
 
-    /** {@link BackupDataOutput#writeEntityHeader(String, int)} */
-    public int writeEntityHeader(String key, int dataSize, String fileExtension) throws IOException {
+    /** {@link BackupDataOutput#writeEntityHeader(String, int)}
+     * @param dataSize Size of uncompressed data. Only the backup to a folder supports sizes over 2 GB */
+    public int writeEntityHeader(String key, long dataSize, String fileExtension) throws IOException {
         headerOrdinalNumber++;
         if (backupDataOutput != null) {
-            return backupDataOutput.writeEntityHeader(key, dataSize);
+            if (dataSize > Integer.MAX_VALUE) {
+                throw new FileNotFoundException("Data of '" + key + "' is too large for Android backup: "
+                        + dataSize + " bytes");
+            }
+            return backupDataOutput.writeEntityHeader(key, (int) dataSize);
         } else {
             return writeEntityHeader2(key, dataSize, fileExtension);
         }
     }
 
-    private int writeEntityHeader2(String key, int dataSize, String fileExtension) throws IOException {
+    private int writeEntityHeader2(String key, long dataSize, String fileExtension) throws IOException {
         MyLog.v(this, "Writing header for '" + key + "', size=" + dataSize);
+        closeDataFile();
         sizeToWrite = dataSize;
         sizeWritten = 0;
         writeHeaderFile(key, dataSize, fileExtension);
@@ -73,7 +90,7 @@ public class MyBackupDataOutput {
         return key.length();
     }
 
-    private void writeHeaderFile(String key, int dataSize, String fileExtension) throws IOException {
+    private void writeHeaderFile(String key, long dataSize, String fileExtension) throws IOException {
         File headerFile = new File(dataFolder, key + HEADER_FILE_SUFFIX);
         createFileIfNeeded(dataSize, headerFile);
         JSONObject jso = new JSONObject();
@@ -82,14 +99,15 @@ public class MyBackupDataOutput {
             jso.put(KEY_ORDINAL_NUMBER, headerOrdinalNumber);
             jso.put(KEY_DATA_SIZE, dataSize);
             jso.put(KEY_FILE_EXTENSION, fileExtension);
+            jso.put(KEY_COMPRESSED, compressed);
             byte[] bytes = jso.toString(2).getBytes("UTF-8");
-            appendBytesToFile(headerFile, bytes, bytes.length);
+            writeBytesToFile(headerFile, bytes);
         } catch (JSONException e) {
             throw new IOException(e);
         }
     }
 
-    private void createFileIfNeeded(int dataSize, File file) throws IOException {
+    private void createFileIfNeeded(long dataSize, File file) throws IOException {
         if (file.exists() && !file.delete()) {
             throw new FileNotFoundException("Couldn't delete " + file.getAbsolutePath());
         }
@@ -98,9 +116,14 @@ public class MyBackupDataOutput {
         }
     }
     
-    private void createDataFile(String key, int dataSize, String fileExtension) throws IOException {
+    private void createDataFile(String key, long dataSize, String fileExtension) throws IOException {
         dataFile = new File(dataFolder, key + DATA_FILE_SUFFIX + fileExtension);
         createFileIfNeeded(dataSize, dataFile);
+        if (dataSize > 0) {
+            // The file is kept open till all its data is written
+            OutputStream out = new FileOutputStream(dataFile, false);
+            dataStream = compressed ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        }
     }
 
     /** {@link BackupDataOutput#writeEntityData(byte[], int)} */
@@ -113,41 +136,48 @@ public class MyBackupDataOutput {
     }
 
     private int writeEntityData2(byte[] data, int size) throws IOException {
-        if (!dataFile.exists()) {
-            throw new FileNotFoundException("Output file doesn't exist " + dataFile.getAbsolutePath());
+        if (dataStream == null) {
+            throw new FileNotFoundException("Output file is not open "
+                    + (dataFile == null ? "" : dataFile.getAbsolutePath()));
         }
         if (size < 0) {
             throw new FileNotFoundException("Wrong number of bytes to write: " + size);
         }
-        appendBytesToFile(dataFile, data, size);
+        if (sizeWritten + size > sizeToWrite) {
+            closeDataFile();
+            throw new FileNotFoundException("Data is longer than expected: written=" + (sizeWritten + size)
+                    + ", expected=" + sizeToWrite );
+        }
+        dataStream.write(data, 0, size);
         sizeWritten += size;
-        if (sizeWritten >= sizeToWrite) {
-            try {
-                if (sizeWritten > sizeToWrite) {
-                    throw new FileNotFoundException("Data is longer than expected: written=" + sizeWritten 
-                            + ", expected=" + sizeToWrite );
-                }
-            } finally {
-                dataFile = null;
-                sizeWritten = 0;
-            }
+        if (sizeWritten == sizeToWrite) {
+            closeDataFile();
         }
         return size;
     }
 
-    private int appendBytesToFile(File file, byte[] data, int size) throws IOException {
-        MyLog.v(this, "Appending data to file='" + file.getName() + "', size=" + size);
+    private void closeDataFile() throws IOException {
+        OutputStream out = dataStream;
+        dataStream = null;
+        dataFile = null;
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private void writeBytesToFile(File file, byte[] data) throws IOException {
+        MyLog.v(this, "Writing data to file='" + file.getName() + "', size=" + data.length);
         FileOutputStream fileOutputStream = null;
-        OutputStream out = null;
         try {
-            fileOutputStream = new FileOutputStream(file, true);
-            out = new BufferedOutputStream(fileOutputStream);
-            out.write(data, 0, size);
+            fileOutputStream = new FileOutputStream(file, false);
+            fileOutputStream.write(data);
         } finally {
-            DbUtils.closeSilently(out, file.getAbsolutePath());
             DbUtils.closeSilently(fileOutputStream, file.getAbsolutePath());
         }
-        return 0;
+    }
+
+    boolean isCompressed() {
+        return compressed;
     }
 
     File getDataFolder() {
@@ -20,6 +20,7 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.ParcelFileDescriptor;
+import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
@@ -37,21 +38,38 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class MyBackupDescriptor {
     private static final Object TAG = MyBackupDescriptor.class;
 
     static final int BACKUP_SCHEMA_VERSION_UNKNOWN = -1;
     /** Depends, in particular, on @{@link DatabaseCreator#DATABASE_VERSION}
+     * v.11 2017-07-22 app.v.36 database schema changed
+     * v.10 2017-07-20 app.v.36 data sizes may exceed 2 GB, optional compression, checksums of data,
+     *      online snapshot of the database, incremental backup of downloaded media files
+     * v.9 2017-07-18 app.v.36 database schema changed
+     * v.8 2017-07-16 app.v.36 database schema changed
+     * v.7 2017-07-10 app.v.36 database schema changed
      * v.6 2016-11-27 app.v.31 database schema changed
      * v.5 2016-05-22 app.v.27 database schema changed
      * v.4 2016-02-28 app.v.23 database schema changed
      */
-    static final int BACKUP_SCHEMA_VERSION = 6;
+    static final int BACKUP_SCHEMA_VERSION = 11;
     static final String KEY_ACCOUNTS_COUNT = "accounts_count";
     static final String KEY_CREATED_DATE = "created_date";
     static final String KEY_BACKUP_SCHEMA_VERSION = "backup_schema_version";
     static final String KEY_APPLICATION_VERSION_CODE = "app_version_code";
+    static final String KEY_COMPRESSED = "compressed";
+    /** CRC32 of uncompressed data of each backup key */
+    static final String KEY_CHECKSUMS = "checksums";
+    static final long CHECKSUM_UNKNOWN = -1;
+    /** Downloaded media files, modified before this date, are in this backup or in its previous backups */
+    static final String KEY_DOWNLOADS_TILL_DATE = "downloads_till_date";
+    /** Name of the data folder of the previous backup, if this backup is incremental */
+    static final String KEY_PREVIOUS_BACKUP = "previous_backup";
     
     private int backupSchemaVersion = BACKUP_SCHEMA_VERSION_UNKNOWN;
     private int applicationVersionCode = 0;
@@ -60,6 +78,10 @@ public class MyBackupDescriptor {
     private FileDescriptor fileDescriptor = null;
 
     private long accountsCount = 0;
+    private boolean compressed = false;
+    private final Map<String, Long> checksums = new TreeMap<>();
+    private long downloadsTillDate = 0;
+    private String previousBackup = "";
 
     private final ProgressLogger progressLogger;
     
@@ -80,6 +102,18 @@ public class MyBackupDescriptor {
             myBackupDescriptor.createdDate = jso.optLong(KEY_CREATED_DATE, myBackupDescriptor.createdDate);
             myBackupDescriptor.applicationVersionCode = jso.optInt(KEY_APPLICATION_VERSION_CODE, myBackupDescriptor.applicationVersionCode);
             myBackupDescriptor.accountsCount = jso.optLong(KEY_ACCOUNTS_COUNT, myBackupDescriptor.accountsCount);
+            myBackupDescriptor.compressed = jso.optBoolean(KEY_COMPRESSED, myBackupDescriptor.compressed);
+            myBackupDescriptor.downloadsTillDate = jso.optLong(KEY_DOWNLOADS_TILL_DATE,
+                    myBackupDescriptor.downloadsTillDate);
+            myBackupDescriptor.previousBackup = jso.optString(KEY_PREVIOUS_BACKUP, myBackupDescriptor.previousBackup);
+            JSONObject jsoChecksums = jso.optJSONObject(KEY_CHECKSUMS);
+            if (jsoChecksums != null) {
+                Iterator<String> keys = jsoChecksums.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    myBackupDescriptor.checksums.put(key, jsoChecksums.optLong(key, CHECKSUM_UNKNOWN));
+                }
+            }
             if (myBackupDescriptor.backupSchemaVersion != BACKUP_SCHEMA_VERSION) {
                 try {
                     MyLog.w(TAG, "Bad backup descriptor: " + jso.toString(2) );
@@ -137,6 +171,14 @@ public class MyBackupDescriptor {
             jso.put(KEY_CREATED_DATE, createdDateNew);
             jso.put(KEY_APPLICATION_VERSION_CODE, applicationVersionCode);
             jso.put(KEY_ACCOUNTS_COUNT, accountsCount);
+            jso.put(KEY_COMPRESSED, compressed);
+            JSONObject jsoChecksums = new JSONObject();
+            for (Map.Entry<String, Long> entry : checksums.entrySet()) {
+                jsoChecksums.put(entry.getKey(), entry.getValue());
+            }
+            jso.put(KEY_CHECKSUMS, jsoChecksums);
+            jso.put(KEY_DOWNLOADS_TILL_DATE, downloadsTillDate);
+            jso.put(KEY_PREVIOUS_BACKUP, previousBackup);
             
             writeStringToFileDescriptor(jso.toString(), fileDescriptor, true);
             createdDate = createdDateNew;
@@ -171,6 +213,9 @@ public class MyBackupDescriptor {
                 + (fileDescriptor == null ? ", fileDescriptor:null" : "")
                 + ", versionCode:" + applicationVersionCode
                 + ", accountsCount:" + accountsCount
+                + (compressed ? ", compressed" : "")
+                + (TextUtils.isEmpty(previousBackup) ? "" : ", previousBackup:" + previousBackup)
+                + (checksums.isEmpty() ? "" : ", checksums:" + checksums)
                 + "}";
      }
 
@@ -187,6 +232,44 @@ public class MyBackupDescriptor {
         progressLogger.logProgress("Accounts backed up:" + accountsCount);
     }
 
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /** @return {@link #CHECKSUM_UNKNOWN} if the checksum wasn't recorded for the key */
+    long getChecksum(String key) {
+        Long checksum = checksums.get(key);
+        return checksum == null ? CHECKSUM_UNKNOWN : checksum;
+    }
+
+    void setChecksum(String key, long checksum) {
+        checksums.put(key, checksum);
+    }
+
+    long getDownloadsTillDate() {
+        return downloadsTillDate;
+    }
+
+    void setDownloadsTillDate(long downloadsTillDate) {
+        this.downloadsTillDate = downloadsTillDate;
+    }
+
+    boolean isIncremental() {
+        return !TextUtils.isEmpty(previousBackup);
+    }
+
+    String getPreviousBackup() {
+        return previousBackup;
+    }
+
+    void setPreviousBackup(String previousBackup) {
+        this.previousBackup = previousBackup;
+    }
+
     public ProgressLogger getLogger() {
         return progressLogger;
     }
@@ -39,12 +39,17 @@ import java.util.Arrays;
  * 1. Backup descriptor file
  * 2. Folder with: 
  *      For each backup "key": header file and data file  
+ * A backup is incremental, if there is a previous backup in the same parent folder:
+ * it has only media files, downloaded after the previous backup
  * @author yvolk (Yuri Volkov), http://yurivolkov.com
  */
 class MyBackupManager {
     static final String DESCRIPTOR_FILE_NAME = "_descriptor.json";
     private File dataFolder = null;
     private MyBackupDescriptor newDescriptor = MyBackupDescriptor.getEmpty();    
+    private File previousDataFolder = null;
+    private MyBackupDescriptor previousDescriptor = MyBackupDescriptor.getEmpty();
+    private boolean compressed = false;
 
     private MyBackupAgent backupAgent;
     private final ProgressLogger progressLogger;
@@ -72,6 +77,7 @@ class MyBackupManager {
             throw new FileNotFoundException("Wrong folder, descriptor file already exists:'"
                     + dataFolderToDescriptorFile(backupFolder).getAbsolutePath() + "'");
         }
+        findPreviousBackup(backupFolder);
         final String backupFileNamePrefix = MyLog.currentDateTimeFormatted() + "-AndStatusBackup";
         File dataFolderToBe = new File(backupFolder, backupFileNamePrefix);
         if (dataFolderToBe.exists()) {
@@ -89,6 +95,28 @@ class MyBackupManager {
         }
     }
 
+    /** The latest backup of the current schema in the same parent folder */
+    private void findPreviousBackup(File backupFolder) throws IOException {
+        File[] folders = backupFolder.listFiles();
+        if (folders == null) {
+            return;
+        }
+        for (File folder : folders) {
+            if (isBackupFolder(folder)) {
+                MyBackupDescriptor descriptor = readDescriptor(folder, ProgressLogger.getEmpty());
+                if (descriptor.getBackupSchemaVersion() == MyBackupDescriptor.BACKUP_SCHEMA_VERSION
+                        && descriptor.saved()
+                        && descriptor.getCreatedDate() > previousDescriptor.getCreatedDate()) {
+                    previousDataFolder = folder;
+                    previousDescriptor = descriptor;
+                }
+            }
+        }
+        if (previousDataFolder != null) {
+            progressLogger.logProgress("Incremental backup after:'" + previousDataFolder.getName() + "'");
+        }
+    }
+
     File getDataFolder() {
         return dataFolder;
     }
@@ -114,12 +142,15 @@ class MyBackupManager {
         backupAgent = new MyBackupAgent();
         backupAgent.setContext(MyContextHolder.get().context());
         
-        MyBackupDataOutput dataOutput = new MyBackupDataOutput(dataFolder);
+        MyBackupDataOutput dataOutput = new MyBackupDataOutput(dataFolder, compressed);
         ParcelFileDescriptor newState = ParcelFileDescriptor.open(getDescriptorFile(),
                 ParcelFileDescriptor.MODE_READ_WRITE);
         try {
             newDescriptor = MyBackupDescriptor.fromEmptyParcelFileDescriptor(newState, progressLogger);
-            backupAgent.onBackup(MyBackupDescriptor.getEmpty(), dataOutput, newDescriptor);
+            if (previousDataFolder != null) {
+                newDescriptor.setPreviousBackup(previousDataFolder.getName());
+            }
+            backupAgent.onBackup(previousDescriptor, dataOutput, newDescriptor);
             progressLogger.logSuccess();
         } finally {
             newState.close();
@@ -154,17 +185,23 @@ class MyBackupManager {
             throw new FileNotFoundException("Descriptor file doesn't exist:'" + getDescriptorFile().getAbsolutePath() + "'");
         }
 
-        ParcelFileDescriptor newState = ParcelFileDescriptor.open(getDescriptorFile(),
+        newDescriptor = readDescriptor(dataFolder, progressLogger);
+        if (newDescriptor.getBackupSchemaVersion() != MyBackupDescriptor.BACKUP_SCHEMA_VERSION) {
+            throw new FileNotFoundException("Unsupported backup schema version: " + newDescriptor.getBackupSchemaVersion()
+                    + "; created with app version code:" + newDescriptor.getApplicationVersionCode()
+                    + "; data folder:'" + dataFolder.getAbsolutePath() + "'");
+        }
+    }
+
+    @NonNull
+    private static MyBackupDescriptor readDescriptor(File dataFolder, ProgressLogger progressLogger)
+            throws IOException {
+        ParcelFileDescriptor state = ParcelFileDescriptor.open(dataFolderToDescriptorFile(dataFolder),
                 ParcelFileDescriptor.MODE_READ_ONLY);
         try {
-            newDescriptor = MyBackupDescriptor.fromOldParcelFileDescriptor(newState, progressLogger);
-            if (newDescriptor.getBackupSchemaVersion() != MyBackupDescriptor.BACKUP_SCHEMA_VERSION) {
-                throw new FileNotFoundException("Unsupported backup schema version: " + newDescriptor.getBackupSchemaVersion()
-                        + "; created with app version code:" + newDescriptor.getApplicationVersionCode()
-                        + "; data folder:'" + dataFolder.getAbsolutePath() + "'");
-            }
+            return MyBackupDescriptor.fromOldParcelFileDescriptor(state, progressLogger);
         } finally {
-            newState.close();
+            state.close();
         }
     }
 
@@ -179,9 +216,35 @@ class MyBackupManager {
         backupAgent = new MyBackupAgent();
         backupAgent.setContext(MyContextHolder.get().context());
         backupAgent.onRestore(dataInput, newDescriptor.getApplicationVersionCode(), newDescriptor);
+        restorePreviousDownloads();
         progressLogger.logSuccess();
     }
 
+    /** Media files, which are absent in the chain of backups, will be downloaded again */
+    private void restorePreviousDownloads() throws IOException {
+        MyBackupDescriptor descriptor = newDescriptor;
+        while (descriptor.isIncremental()) {
+            File folder = new File(dataFolder.getParentFile(), descriptor.getPreviousBackup());
+            if (!isBackupFolder(folder)) {
+                progressLogger.logProgress("Previous backup not found:'" + folder.getAbsolutePath() + "'");
+                break;
+            }
+            MyBackupDescriptor previous = readDescriptor(folder, progressLogger);
+            if (previous.getCreatedDate() >= descriptor.getCreatedDate()) {
+                progressLogger.logProgress("Previous backup is not older:'" + folder.getAbsolutePath() + "'");
+                break;
+            }
+            progressLogger.logProgress("Restoring downloads from:'" + folder.getName() + "'");
+            descriptor = previous;
+            backupAgent.onRestoreDownloads(new MyBackupDataInput(folder), descriptor);
+        }
+    }
+
+    /** Data files of the new backup will be compressed: smaller, but slower to create */
+    void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     MyBackupDescriptor getNewDescriptor() {
         return newDescriptor;
     }
@@ -73,6 +73,7 @@ public class MyApplication extends Application {
 
     @Override
     protected void attachBaseContext(Context base) {
+        StartupMetrics.onProcessStarted();
         MyLog.v(this, "attachBaseContext started" + (isAcraProcess ? ". ACRA process" : ""));
         super.attachBaseContext(base);
         ACRA.init(this);
@@ -88,7 +89,9 @@ public class MyApplication extends Application {
         File dbAbsolutePath = getDatabasePath(name);
         if (dbAbsolutePath != null) {
             db = SQLiteDatabase.openDatabase(dbAbsolutePath.getPath(), factory,
-                    SQLiteDatabase.CREATE_IF_NECESSARY + SQLiteDatabase.OPEN_READWRITE );
+                    SQLiteDatabase.CREATE_IF_NECESSARY + SQLiteDatabase.OPEN_READWRITE
+                            + ((mode & MODE_ENABLE_WRITE_AHEAD_LOGGING) == 0
+                                ? 0 : SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING));
         }
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(this, "openOrCreateDatabase, name=" + name + ( db!=null ? " opened '"
@@ -43,6 +43,8 @@ public interface MyContext extends IdentifiableInstance {
     Context context();
     String initializedBy();
     long preferencesChangeTime();
+    /** Apply changes of preferences to this context without its reinitialization */
+    void refreshPreferences(@NonNull PreferenceImpact impact, long preferencesChangeTime);
     DatabaseHolder getMyDatabase();
     SQLiteDatabase getDatabase();
     @NonNull
@@ -152,10 +152,15 @@ public final class MyContextHolder {
                 if (get().initialized() && isConfigChanged()) {
                     long preferencesChangeTimeLast = MyPreferences.getPreferencesChangeTime() ;
                     if (get().preferencesChangeTime() != preferencesChangeTimeLast) {
+                        PreferenceImpact impact = PreferenceImpact.ofChangesSince(get().preferencesChangeTime());
                         MyLog.v(TAG, "Preferences changed "
                                 + RelativeTime.secondsAgo(preferencesChangeTimeLast)
-                                + " seconds ago, refreshing...");
-                        get().setExpired();
+                                + " seconds ago, impact: " + impact + ", refreshing...");
+                        if (impact.isReinitializationNeeded()) {
+                            get().setExpired();
+                        } else {
+                            get().refreshPreferences(impact, preferencesChangeTimeLast);
+                        }
                     }
                 }
             }
@@ -211,6 +216,8 @@ public final class MyContextHolder {
         builder.append("\n");
         builder.append(ImageCaches.getCacheInfo());
         builder.append("\n");
+        builder.append(StartupMetrics.getInfo());
+        builder.append("\n");
         builder.append(AsyncTaskLauncher.threadPoolInfo());
         return builder.toString();
     }
@@ -30,12 +30,16 @@ import net.jcip.annotations.ThreadSafe;
 
 import org.andstatus.app.ClassInApplicationPackage;
 import org.andstatus.app.account.PersistentAccounts;
+import org.andstatus.app.context.StartupMetrics.Phase;
 import org.andstatus.app.data.AssertionData;
 import org.andstatus.app.database.DatabaseConverterController;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.net.http.HttpConnection;
+import org.andstatus.app.net.http.MyHttpClientFactory;
 import org.andstatus.app.origin.PersistentOrigins;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.ConnectionState;
 import org.andstatus.app.timeline.PersistentTimelines;
 import org.andstatus.app.timeline.TimelineType;
@@ -105,8 +109,15 @@ public final class MyContextImpl implements MyContext {
         return myContext;
     }
 
+    /**
+     * Phases, which depend on each other, run in sequence: database, origins, accounts.
+     * Image caches don't depend on them and are initialized concurrently.
+     * Timelines are loaded in background after that, so the context is ready earlier:
+     * they are loaded on the first use, if not loaded yet, see {@link PersistentTimelines#initializeLazily()}
+     */
     private void initialize2() {
         final String method = "initialize2";
+        final long startedAt = System.currentTimeMillis();
         boolean createApplicationData = MyStorage.isApplicationDataCreated().not().toBoolean(false);
         if (createApplicationData) {
             MyLog.i(this, method + " Creating application data");
@@ -114,24 +125,59 @@ public final class MyContextImpl implements MyContext {
             tryToSetExternalStorageOnDataCreation();
         }
         mPreferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+        StartupMetrics.onPhaseEnded(Phase.PREFERENCES, startedAt);
+        initializeImageCachesInBackground();
+
+        long phaseStartedAt = System.currentTimeMillis();
         initializeDatabase(createApplicationData);
+        StartupMetrics.onPhaseEnded(Phase.DATABASE, phaseStartedAt);
 
         switch (mState) {
             case DATABASE_READY:
+                phaseStartedAt = System.currentTimeMillis();
                 mPersistentOrigins.initialize();
+                StartupMetrics.onPhaseEnded(Phase.ORIGINS, phaseStartedAt);
                 if (MyContextHolder.isOnRestore()) {
                     mState = MyContextState.RESTORING;
                 } else {
                     // Accounts are not restored yet
+                    phaseStartedAt = System.currentTimeMillis();
                     mPersistentAccounts.initialize();
-                    persistentTimelines.initialize();
-                    ImageCaches.initialize(context());
+                    StartupMetrics.onPhaseEnded(Phase.ACCOUNTS, phaseStartedAt);
+                    persistentTimelines.initializeLazily();
+                    loadTimelinesInBackground();
                     mState = MyContextState.READY;
                 }
                 break;
             default:
                 break;
         }
+        StartupMetrics.onPhaseEnded(Phase.CONTEXT, startedAt);
+    }
+
+    private void initializeImageCachesInBackground() {
+        final Context context = context();
+        AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, Void>(ImageCaches.class, MyAsyncTask.PoolEnum.LONG_UI) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        long startedAt = System.currentTimeMillis();
+                        ImageCaches.initialize(context);
+                        StartupMetrics.onPhaseEnded(Phase.IMAGE_CACHES, startedAt);
+                        return null;
+                    }
+                });
+    }
+
+    private void loadTimelinesInBackground() {
+        AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, Void>(PersistentTimelines.class, MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        persistentTimelines.ensureLoaded();
+                        return null;
+                    }
+                });
     }
 
     private void initializeDatabase(boolean createApplicationData) {
@@ -228,6 +274,25 @@ public final class MyContextImpl implements MyContext {
         return mPreferencesChangeTime;
     }
     
+    @Override
+    public void refreshPreferences(@NonNull PreferenceImpact impact, long preferencesChangeTime) {
+        MyLog.v(this, "refreshPreferences, impact: " + impact);
+        // Changes of UI and filters are applied by Activities, when they notice the new change time.
+        // The impact is the largest of the changes, so smaller impacts are applied also
+        switch (impact) {
+            case CONNECTION:
+                MyHttpClientFactory.onConnectionPreferencesChanged();
+                MyLog.forget();
+                break;
+            case LOGGING:
+                MyLog.forget();
+                break;
+            default:
+                break;
+        }
+        mPreferencesChangeTime = preferencesChangeTime;
+    }
+
     @Override
     public DatabaseHolder getMyDatabase() {
         return mDb;
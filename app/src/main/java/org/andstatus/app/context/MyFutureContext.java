@@ -22,10 +22,12 @@ import android.support.annotation.NonNull;
 
 import org.andstatus.app.FirstActivity;
 import org.andstatus.app.HelpActivity;
+import org.andstatus.app.net.http.MyHttpClientFactory;
 import org.andstatus.app.net.http.TlsSniSocketFactory;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.ExceptionsCounter;
 import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.user.UserNamesIndex;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
@@ -77,10 +79,12 @@ public class MyFutureContext extends MyAsyncTask<Void, Void, MyContext> {
 
     private void releaseGlobal() {
         TlsSniSocketFactory.forget();
+        MyHttpClientFactory.forget();
         AsyncTaskLauncher.forget();
         ExceptionsCounter.forget();
         MyLog.forget();
         SharedPreferencesUtil.forget();
+        UserNamesIndex.forget();
         MyLog.d(this, "releaseGlobal completed");
     }
 
@@ -21,6 +21,7 @@ import android.content.Context;
 
 import org.andstatus.app.R;
 import org.andstatus.app.msg.TapOnATimelineTitleBehaviour;
+import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 /**
@@ -80,6 +81,8 @@ public class MyPreferences {
     public static final String KEY_DONT_SYNCHRONIZE_OLD_MESSAGES = "dont_synchronize_old_messages";
     public static final String KEY_CONNECTION_TIMEOUT_SECONDS = "connection_timeout";
     private static final long CONNECTION_TIMEOUT_DEFAULT_SECONDS = 30;
+    public static final String KEY_MAX_CONNECTIONS_PER_HOST = "max_connections_per_host";
+    private static final long MAX_CONNECTIONS_PER_HOST_DEFAULT = 4;
 
     // ----------------------------------------------------------
     // Filters
@@ -105,6 +108,9 @@ public class MyPreferences {
     public static final String KEY_HISTORY_SIZE = "history_size";
     public static final String KEY_HISTORY_TIME = "history_time";
     public static final String KEY_ENABLE_ANDROID_BACKUP = "enable_android_backup";
+    /** Maximum size of downloaded media files (avatars and attachments) in megabytes, 0 - unlimited */
+    public static final String KEY_MEDIA_STORAGE_QUOTA_MB = "media_storage_quota_mb";
+    private static final long MEDIA_STORAGE_QUOTA_DEFAULT_MB = 500;
 
     // ----------------------------------------------------------
     // Information
@@ -135,6 +141,18 @@ public class MyPreferences {
         // Non instantiable
     }
 
+    /** @return 0 if the quota is not set */
+    public static long getMediaStorageQuotaMb() {
+        try {
+            long value = Long.parseLong(SharedPreferencesUtil.getString(KEY_MEDIA_STORAGE_QUOTA_MB,
+                    Long.toString(MEDIA_STORAGE_QUOTA_DEFAULT_MB)));
+            return value > 0 ? value : 0;
+        } catch (NumberFormatException e) {
+            MyLog.ignored(TAG, e);
+        }
+        return MEDIA_STORAGE_QUOTA_DEFAULT_MB;
+    }
+
     public static long getDontSynchronizeOldMessages() {
         return SharedPreferencesUtil.getLongStoredAsString(KEY_DONT_SYNCHRONIZE_OLD_MESSAGES, 0);
     }
@@ -145,6 +163,12 @@ public class MyPreferences {
                 KEY_CONNECTION_TIMEOUT_SECONDS, CONNECTION_TIMEOUT_DEFAULT_SECONDS));
     }
 
+    /** @return at least 1, because without connections requests would wait for them forever */
+    public static int getMaxConnectionsPerHost() {
+        return (int) Math.max(1, SharedPreferencesUtil.getLongStoredAsString(
+                KEY_MAX_CONNECTIONS_PER_HOST, MAX_CONNECTIONS_PER_HOST_DEFAULT));
+    }
+
     /**
      * @return the number of milliseconds between two sync ("fetch"...) actions.
      */
@@ -226,10 +250,22 @@ public class MyPreferences {
     /**
      *  Event: Preferences have changed right now
      *  Remember when last changes to the preferences were made
+     *  Their impact is unknown, so {@link MyContext} will be reinitialized
      */
     public static void onPreferencesChanged() {
+        onPreferencesChanged(PreferenceImpact.ACCOUNTS);
+    }
+
+    /** The preference with this key has changed right now */
+    public static void onPreferenceChanged(String key) {
+        onPreferencesChanged(PreferenceImpact.of(key));
+    }
+
+    private static void onPreferencesChanged(PreferenceImpact impact) {
         SharedPreferencesUtil.forget();
-        SharedPreferencesUtil.putLong(KEY_PREFERENCES_CHANGE_TIME, System.currentTimeMillis());
+        long changeTime = System.currentTimeMillis();
+        impact.onChanged(changeTime);
+        SharedPreferencesUtil.putLong(KEY_PREFERENCES_CHANGE_TIME, changeTime);
         Context context = MyContextHolder.get().context();
         if (context != null && SharedPreferencesUtil.getBoolean(KEY_ENABLE_ANDROID_BACKUP, false)) {
             new BackupManager(context).dataChanged();
@@ -43,8 +43,10 @@ import org.andstatus.app.account.ManageAccountsActivity;
 import org.andstatus.app.backup.BackupActivity;
 import org.andstatus.app.backup.RestoreActivity;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MediaStorageQuota;
 import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.msg.KeywordsFilter;
+import org.andstatus.app.net.http.HttpConnectionStats;
 import org.andstatus.app.origin.PersistentOriginList;
 import org.andstatus.app.service.QueueViewer;
 import org.andstatus.app.timeline.Timeline;
@@ -103,8 +105,10 @@ public class MySettingsFragment extends PreferenceFragment implements
         showFrequency();
         showDontSynchronizeOldMessages();
         showConnectionTimeout();
+        showMaxConnectionsPerHost();
         showHistorySize();
         showHistoryTime();
+        showMediaStorageQuota();
         showRingtone();
         showMinLogLevel();
         showUseExternalStorage();
@@ -150,6 +154,16 @@ public class MySettingsFragment extends PreferenceFragment implements
         }
     }
 
+    private void showMaxConnectionsPerHost() {
+        Preference preference = findPreference(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST);
+        if (preference != null) {
+            preference.setSummary(Integer.toString(MyPreferences.getMaxConnectionsPerHost())
+                    + "\n" + String.format(getText(R.string.connections_reuse_summary).toString(),
+                    Math.round(HttpConnectionStats.getReuseRate() * 100),
+                    HttpConnectionStats.getAverageHandshakeTimeMs()));
+        }
+    }
+
     private void showDontSynchronizeOldMessages() {
         long hours = MyPreferences.getDontSynchronizeOldMessages();
         Preference preference = findPreference(MyPreferences.KEY_DONT_SYNCHRONIZE_OLD_MESSAGES);
@@ -172,6 +186,17 @@ public class MySettingsFragment extends PreferenceFragment implements
                 R.string.summary_preference_history_time);
     }
     
+    private void showMediaStorageQuota() {
+        ListPreference preference = (ListPreference) findPreference(MyPreferences.KEY_MEDIA_STORAGE_QUOTA_MB);
+        if (preference != null) {
+            preference.setSummary(SharedPreferencesUtil.getSummaryForListPreference(getActivity(),
+                    preference.getValue(), R.array.media_storage_quota_values, R.array.media_storage_quota_entries,
+                    R.string.summary_preference_media_storage_quota)
+                    + "\n" + String.format(getText(R.string.media_storage_used).toString(),
+                    new MediaStorageQuota(MyContextHolder.get()).getUsageSummary()));
+        }
+    }
+
     protected void showMinLogLevel() {
         SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_MIN_LOG_LEVEL,
                 R.array.log_level_values, R.array.log_level_entries,
@@ -364,7 +389,7 @@ public class MySettingsFragment extends PreferenceFragment implements
         onSharedPreferenceChangedIsBusy = true;
         try {
             MyLog.logSharedPreferencesValue(this, key);
-            MyPreferences.onPreferencesChanged();
+            MyPreferences.onPreferenceChanged(key);
 
             switch (key) {
                 case MyPreferences.KEY_CUSTOM_LOCALE:
@@ -399,6 +424,9 @@ public class MySettingsFragment extends PreferenceFragment implements
                 case MyPreferences.KEY_CONNECTION_TIMEOUT_SECONDS:
                     showConnectionTimeout();
                     break;
+                case MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST:
+                    showMaxConnectionsPerHost();
+                    break;
                 case MyPreferences.KEY_NOTIFICATION_RINGTONE:
                     showRingtone();
                     break;
@@ -408,6 +436,9 @@ public class MySettingsFragment extends PreferenceFragment implements
                 case MyPreferences.KEY_HISTORY_TIME:
                     showHistoryTime();
                     break;
+                case MyPreferences.KEY_MEDIA_STORAGE_QUOTA_MB:
+                    showMediaStorageQuota();
+                    break;
                 case MyPreferences.KEY_MIN_LOG_LEVEL:
                     showMinLogLevel();
                     break;
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+/**
+ * What needs to be refreshed after a change of a preference. Impacts are ordered from the smallest.
+ * Only {@link #STORAGE} and {@link #ACCOUNTS} changes need full reinitialization of the {@link MyContext},
+ * other changes are applied to the live context, see {@link MyContext#refreshPreferences(PreferenceImpact, long)}
+ * @author yvolk@yurivolkov.com
+ */
+public enum PreferenceImpact {
+    /** Preferences, read on use by Activities, which are recreated */
+    UI,
+    /** Which messages are shown: timelines are reloaded */
+    FILTER,
+    /** Preferences of the service, read on use: synchronization, notifications and history */
+    SYNC,
+    /** Logging settings are re-read */
+    LOGGING,
+    /** New HTTP clients are created, see {@link org.andstatus.app.net.http.MyHttpClientFactory} */
+    CONNECTION,
+    STORAGE,
+    /** Accounts, origins and unknown preferences */
+    ACCOUNTS;
+
+    private static final String KEY_PREFIX = MyPreferences.KEY_PREFERENCES_CHANGE_TIME + "_";
+
+    @NonNull
+    public static PreferenceImpact of(String key) {
+        if (key == null) {
+            return ACCOUNTS;
+        }
+        switch (key) {
+            case MyPreferences.KEY_CUSTOM_LOCALE:
+            case MyPreferences.KEY_THEME_COLOR:
+            case MyPreferences.KEY_ACTION_BAR_BACKGROUND_COLOR:
+            case MyPreferences.KEY_ACTION_BAR_TEXT_COLOR:
+            case MyPreferences.KEY_BACKGROUND_COLOR:
+            case MyPreferences.KEY_THEME_SIZE:
+            case MyPreferences.KEY_ROUNDED_AVATARS:
+            case MyPreferences.KEY_DEFAULT_TIMELINE:
+            case MyPreferences.KEY_TAP_ON_A_TIMELINE_TITLE_BEHAVIOUR:
+            case MyPreferences.KEY_SHOW_AVATARS:
+            case MyPreferences.KEY_SHOW_ORIGIN:
+            case MyPreferences.KEY_MARK_REPLIES_IN_TIMELINE:
+            case MyPreferences.KEY_SHOW_BUTTONS_BELOW_MESSAGE:
+            case MyPreferences.KEY_OLD_MESSAGES_FIRST_IN_CONVERSATION:
+            case MyPreferences.KEY_REFRESH_TIMELINE_AUTOMATICALLY:
+            case MyPreferences.KEY_SHOW_THREADS_OF_CONVERSATION:
+            case MyPreferences.KEY_LONG_PRESS_TO_OPEN_CONTEXT_MENU:
+            case MyPreferences.KEY_ENTER_SENDS_MESSAGE:
+            case MyPreferences.KEY_ATTACH_IMAGES_TO_MY_MESSAGES:
+            case MyPreferences.KEY_MODERN_INTERFACE_TO_SELECT_AN_ATTACHMENT:
+            case MyPreferences.KEY_SYNC_INDICATOR_ON_TIMELINE:
+            case MyPreferences.KEY_DEBUGGING_INFO_IN_UI:
+                return UI;
+            case MyPreferences.KEY_USER_IN_TIMELINE:
+            case MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS:
+            case MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS:
+                return FILTER;
+            case MyPreferences.KEY_DOWNLOAD_AND_DISPLAY_ATTACHED_IMAGES:
+            case MyPreferences.KEY_DOWNLOAD_ATTACHMENTS_OVER_WIFI_ONLY:
+            case MyPreferences.KEY_SYNC_FREQUENCY_SECONDS:
+            case MyPreferences.KEY_SYNC_OVER_WIFI_ONLY:
+            case MyPreferences.KEY_SYNC_WHILE_USING_APPLICATION:
+            case MyPreferences.KEY_SYNC_AFTER_MESSAGE_WAS_SENT:
+            case MyPreferences.KEY_DONT_SYNCHRONIZE_OLD_MESSAGES:
+            case MyPreferences.KEY_NOTIFICATIONS_ENABLED:
+            case MyPreferences.KEY_NOTIFY_OF_DIRECT_MESSAGES:
+            case MyPreferences.KEY_NOTIFY_OF_MENTIONS:
+            case MyPreferences.KEY_NOTIFY_OF_HOME_TIMELINE:
+            case MyPreferences.KEY_NOTIFY_OF_COMMANDS_IN_THE_QUEUE:
+            case MyPreferences.KEY_NOTIFICATION_VIBRATION:
+            case MyPreferences.KEY_NOTIFICATION_ICON_ALTERNATIVE:
+            case MyPreferences.KEY_NOTIFICATION_RINGTONE:
+            case MyPreferences.KEY_HISTORY_SIZE:
+            case MyPreferences.KEY_HISTORY_TIME:
+            case MyPreferences.KEY_MEDIA_STORAGE_QUOTA_MB:
+            case MyPreferences.KEY_ENABLE_ANDROID_BACKUP:
+                return SYNC;
+            case MyPreferences.KEY_MIN_LOG_LEVEL:
+            case MyPreferences.KEY_SENDING_MESSAGES_LOG_ENABLED:
+            case MyPreferences.KEY_LOG_NETWORK_LEVEL_MESSAGES:
+            case MyPreferences.KEY_LOG_EVERYTHING_TO_FILE:
+                return LOGGING;
+            case MyPreferences.KEY_CONNECTION_TIMEOUT_SECONDS:
+            case MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST:
+                return CONNECTION;
+            case MyPreferences.KEY_USE_EXTERNAL_STORAGE:
+            case MyPreferences.KEY_USE_EXTERNAL_STORAGE_NEW:
+                return STORAGE;
+            default:
+                return ACCOUNTS;
+        }
+    }
+
+    public boolean isReinitializationNeeded() {
+        return this.compareTo(STORAGE) >= 0;
+    }
+
+    String getChangeTimeKey() {
+        return KEY_PREFIX + name().toLowerCase();
+    }
+
+    void onChanged(long changeTime) {
+        SharedPreferencesUtil.putLong(getChangeTimeKey(), changeTime);
+    }
+
+    /**
+     * @return The largest impact of the changes, made after that time.
+     * {@link #ACCOUNTS} if changes were made, but their impact is unknown
+     */
+    @NonNull
+    public static PreferenceImpact ofChangesSince(long changeTime) {
+        PreferenceImpact impact = null;
+        for (PreferenceImpact value : values()) {
+            if (SharedPreferencesUtil.getLong(value.getChangeTimeKey()) > changeTime) {
+                impact = value;
+            }
+        }
+        return impact == null ? ACCOUNTS : impact;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import org.andstatus.app.util.MyLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durations of the application startup phases, and how long after the process start each phase ended,
+ * so time to the first timeline frame may be tracked.
+ * Phases of the latest {@link MyContext} initialization are kept
+ * @author yvolk@yurivolkov.com
+ */
+public class StartupMetrics {
+    private static final String TAG = StartupMetrics.class.getSimpleName();
+
+    public enum Phase {
+        PREFERENCES,
+        DATABASE,
+        ORIGINS,
+        ACCOUNTS,
+        /** Loaded in background, after the context is ready */
+        TIMELINES,
+        /** Initialized in background, concurrently with other phases */
+        IMAGE_CACHES,
+        /** The whole initialization of {@link MyContext} */
+        CONTEXT,
+        /** Once per process */
+        FIRST_TIMELINE_FRAME
+    }
+
+    private static volatile long processStartedAt = System.currentTimeMillis();
+    private static final Map<Phase, Long> durations = new ConcurrentHashMap<>();
+    private static final Map<Phase, Long> endedAt = new ConcurrentHashMap<>();
+
+    private StartupMetrics() {
+        // Empty
+    }
+
+    static void onProcessStarted() {
+        processStartedAt = System.currentTimeMillis();
+        durations.clear();
+        endedAt.clear();
+    }
+
+    public static void onPhaseEnded(Phase phase, long startedAt) {
+        long now = System.currentTimeMillis();
+        durations.put(phase, now - startedAt);
+        endedAt.put(phase, now - processStartedAt);
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(TAG, phase + " took " + (now - startedAt) + "ms, ended at " + (now - processStartedAt) + "ms");
+        }
+    }
+
+    public static void onTimelineFrame() {
+        if (!endedAt.containsKey(Phase.FIRST_TIMELINE_FRAME)) {
+            onPhaseEnded(Phase.FIRST_TIMELINE_FRAME, processStartedAt);
+            MyLog.i(TAG, toJson().toString());
+        }
+    }
+
+    /** @return -1 if the phase hasn't ended yet */
+    public static long getDurationMs(Phase phase) {
+        Long duration = durations.get(phase);
+        return duration == null ? -1 : duration;
+    }
+
+    /** @return milliseconds since the process start, -1 if the phase hasn't ended yet */
+    public static long getEndedAtMs(Phase phase) {
+        Long ended = endedAt.get(phase);
+        return ended == null ? -1 : ended;
+    }
+
+    /** @return machine readable metrics: durations and ends of the ended phases */
+    public static JSONObject toJson() {
+        JSONObject jso = new JSONObject();
+        try {
+            for (Phase phase : Phase.values()) {
+                if (endedAt.containsKey(phase)) {
+                    JSONObject jsoPhase = new JSONObject();
+                    jsoPhase.put("durationMs", getDurationMs(phase));
+                    jsoPhase.put("endedAtMs", getEndedAtMs(phase));
+                    jso.put(phase.name(), jsoPhase);
+                }
+            }
+        } catch (JSONException e) {
+            MyLog.e(TAG, "toJson", e);
+        }
+        return jso;
+    }
+
+    public static String getInfo() {
+        StringBuilder builder = new StringBuilder("Startup: ");
+        for (Phase phase : Phase.values()) {
+            if (endedAt.containsKey(phase)) {
+                builder.append(phase + " " + getDurationMs(phase) + "ms (at " + getEndedAtMs(phase) + "ms); ");
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -147,6 +147,7 @@ public class DataPruner {
         if (mDeleted > 0) {
             pruneAttachments();
         }
+        new MediaStorageQuota(mMyContext).evictOverQuota();
         pruneLogs(MAX_DAYS_LOGS_TO_KEEP);
         setDataPrunedNow();
         if (MyLog.isVerboseEnabled()) {
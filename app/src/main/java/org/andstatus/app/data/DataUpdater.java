@@ -30,6 +30,7 @@ import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.msg.KeywordsFilter;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.HttpValidatorsCache;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
@@ -40,6 +41,8 @@ import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.user.UserNamesIndex;
+import org.andstatus.app.util.ContentFingerprint;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
@@ -58,6 +61,9 @@ import java.util.List;
 public class DataUpdater {
     private static final String TAG = DataUpdater.class.getSimpleName();
     static final String MSG_ASSERTION_KEY = "insertOrUpdateMsg";
+    /** Held while a message is looked up by its oid and stored, so the same message is not stored twice,
+     * e.g. by a timeline sync and by sending of this message */
+    private static final Object MSG_OID_LOCK = new Object();
     private final CommandExecutionContext execContext;
     private LatestUserMessages lum = new LatestUserMessages();
     private KeywordsFilter keywordsFilter = new KeywordsFilter(
@@ -111,7 +117,37 @@ public class DataUpdater {
         lum.save();
     }
 
+    /**
+     * Timelines are synced in parallel with sending, so the sent message may have been loaded already.
+     * The loaded copy is deleted, and the unsent message (which is shown in timelines) gets the oid instead
+     * @return id of the sent message
+     */
+    public long onSentActivity(MbActivity activity, long unsentMsgId) {
+        synchronized (MSG_OID_LOCK) {
+            deleteLoadedCopy(activity.getMessage(), unsentMsgId);
+            activity.getMessage().msgId = unsentMsgId;
+            return onActivity(activity);
+        }
+    }
+
+    private void deleteLoadedCopy(MbMessage message, long unsentMsgId) {
+        if (message == null || TextUtils.isEmpty(message.oid)) {
+            return;
+        }
+        long loadedMsgId = MyQuery.oidToId(OidEnum.MSG_OID, message.originId, message.oid);
+        if (loadedMsgId != 0 && loadedMsgId != unsentMsgId) {
+            MyLog.v(this, "Deleting the loaded copy " + loadedMsgId + " of the sent message " + unsentMsgId);
+            execContext.getContext().getContentResolver().delete(MatchedUri.getMsgUri(0, loadedMsgId), null, null);
+        }
+    }
+
     private long updateMessage(@NonNull MbActivity activity, boolean updateUsers) {
+        synchronized (MSG_OID_LOCK) {
+            return updateMessage2(activity, updateUsers);
+        }
+    }
+
+    private long updateMessage2(@NonNull MbActivity activity, boolean updateUsers) {
         final String funcName = "updateMessage";
         final MbMessage message = activity.getMessage();
         try {
@@ -163,8 +199,9 @@ public class DataUpdater {
 
             long updatedDateStored = 0;
             long sentDateStored = 0;
+            DownloadStatus statusStored = DownloadStatus.UNKNOWN;
             if (message.msgId != 0) {
-                DownloadStatus statusStored = DownloadStatus.load(
+                statusStored = DownloadStatus.load(
                         MyQuery.msgIdToLongColumnValue(MsgTable.MSG_STATUS, message.msgId));
                 sentDateStored = MyQuery.msgIdToLongColumnValue(MsgTable.SENT_DATE, message.msgId);
                 updatedDateStored = MyQuery.msgIdToLongColumnValue(MsgTable.UPDATED_DATE, message.msgId);
@@ -192,9 +229,12 @@ public class DataUpdater {
                 }
                 values.put(MsgTable.BODY, message.getBody());
                 values.put(MsgTable.BODY_TO_SEARCH, message.getBodyToSearch());
+                values.put(MsgTable.BODY_FINGERPRINT, ContentFingerprint.fromBody(message.getBody()));
             }
 
-            if (message.sentDate > sentDateStored) {
+            // The unsent message is shown with the local time, which is replaced by the time of the server
+            boolean isJustSent = statusStored == DownloadStatus.SENDING && message.getStatus() == DownloadStatus.LOADED;
+            if (message.sentDate > sentDateStored || (isJustSent && message.sentDate > 0)) {
                 // Remember the latest sent date in order to see the reblogged message 
                 // at the top of the sorted list 
                 values.put(MsgTable.SENT_DATE, message.sentDate);
@@ -272,6 +312,9 @@ public class DataUpdater {
             if (isFirstTimeLoaded || isDraftUpdated) {
                 saveAttachments(message);
             }
+            if (isFirstTimeLoaded) {
+                onInteractions(message, values, mentioned);
+            }
 
             if (!keywordsFilter.matchedAny(message.getBodyToSearch())) {
                 if (message.getUpdatedDate() > 0) {
@@ -303,6 +346,21 @@ public class DataUpdater {
         return message.msgId;
     }
 
+    /** Ranks of the users in the same way, as {@link UserNamesIndex} does on loading */
+    private void onInteractions(MbMessage message, ContentValues values, boolean mentioned) {
+        UserNamesIndex.onInteraction(message.originId, message.getAuthor().userId,
+                mentioned ? UserNamesIndex.MESSAGE_WEIGHT + UserNamesIndex.MENTION_WEIGHT
+                        : UserNamesIndex.MESSAGE_WEIGHT);
+        if (values.containsKey(MsgTable.IN_REPLY_TO_USER_ID)) {
+            UserNamesIndex.onInteraction(message.originId, values.getAsLong(MsgTable.IN_REPLY_TO_USER_ID),
+                    UserNamesIndex.REPLY_WEIGHT);
+        }
+        if (values.containsKey(MsgTable.RECIPIENT_ID)) {
+            UserNamesIndex.onInteraction(message.originId, values.getAsLong(MsgTable.RECIPIENT_ID),
+                    UserNamesIndex.REPLY_WEIGHT);
+        }
+    }
+
     private boolean isMentionedAndPutInReplyToMessage(MbActivity activity, MyAccount me, ContentValues values) {
         MbMessage message = activity.getMessage();
         Long inReplyToUserId = 0L;
@@ -497,6 +555,11 @@ public class DataUpdater {
                 execContext.getContext().getContentResolver().update(userUri, values, null, null);
             }
             mbUser.userId = userId;
+            UserNamesIndex.onUserUpdated(originId, userId, values.getAsString(UserTable.USERNAME),
+                    values.getAsString(UserTable.WEBFINGER_ID));
+            if (values.containsKey(FriendshipTable.FOLLOWED) && mbUser.followedByActor.toBoolean(false)) {
+                UserNamesIndex.onInteraction(originId, userId, UserNamesIndex.FOLLOW_WEIGHT);
+            }
             if (mbUser.hasLatestMessage()) {
                 updateMessage(mbUser.getLatestMessage().update(activity.accountUser), false);
             }
@@ -508,13 +571,24 @@ public class DataUpdater {
     }
 
     public void downloadOneMessageBy(String userOid) throws ConnectionException {
-        List<MbActivity> activities = execContext.getConnection().getTimeline(
-                TimelineType.USER.getConnectionApiRoutine(), TimelinePosition.EMPTY,
-                TimelinePosition.EMPTY, 1, userOid);
+        List<MbActivity> activities;
+        HttpValidatorsCache.rollback();
+        try {
+            activities = execContext.getConnection().getTimeline(
+                    TimelineType.USER.getConnectionApiRoutine(), TimelinePosition.EMPTY,
+                    TimelinePosition.EMPTY, 1, userOid);
+        } catch (ConnectionException e) {
+            if (e.getStatusCode() != ConnectionException.StatusCode.NOT_MODIFIED) {
+                throw e;
+            }
+            MyLog.v(this, "downloadOneMessageBy; already downloaded, userOid=" + userOid);
+            return;
+        }
         for (MbActivity item : activities) {
             onActivity(item, false);
         }
         saveLum();
+        HttpValidatorsCache.commit();
     }
 
 }
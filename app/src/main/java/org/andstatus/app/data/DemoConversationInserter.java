@@ -28,12 +28,12 @@ import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.origin.OriginType;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UrlUtils;
 
 import java.util.GregorianCalendar;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -195,7 +195,7 @@ public class DemoConversationInserter {
     }
 
     public static void assertIfUserIsMyFriend(MbUser user, boolean isFriend, MyAccount ma) {
-        Set<Long> friendsIds = MyQuery.getFriendsIds(ma.getUserId());
+        LongSet friendsIds = MyQuery.getFriendsIds(ma.getUserId());
         assertEquals("User " + user + " is a friend of " + ma, isFriend, friendsIds.contains(user.userId));
     }
 }
@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.database.FriendshipTable;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.util.ContentFingerprint;
+import org.andstatus.app.util.LongSet;
+import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.MyLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Adds a large synthetic dataset to the demo data, so we can measure performance at realistic sizes.
+ * The same seed and counts produce the same dataset. Rows are written directly to the database
+ * in batches, bypassing {@link DataUpdater}, which is too slow for hundreds of thousands of messages.
+ * Origins and accounts are taken from the demo data, because accounts live in the AccountManager
+ * @author yvolk@yurivolkov.com
+ */
+public class DemoLargeDataInserter {
+    private static final String TAG = DemoLargeDataInserter.class.getSimpleName();
+    /** Oids of the generated users and messages and names of the generated files start with this */
+    public static final String OID_PREFIX = "largeData";
+    /** A word, added to every hundredth message, so search finds a known number of messages */
+    public static final String SEARCH_WORD = "needleinahaystack";
+    private static final int ROWS_IN_TRANSACTION = 1000;
+    private static final int DOWNLOADED_FILE_SIZE = 4096;
+    private static final long PROGRESS_REPORT_PERIOD_SECONDS = 5;
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+            "timeline", "conversation", "reply", "android", "federated", "social", "network", "message",
+            "today", "weather", "coffee", "release", "version", "update", "photo", "music", "friends", "open",
+            "source", "privacy", "server", "instance", "follow", "public", "news", "morning", "evening", "travel",
+            "book", "movie", "code", "bug"};
+
+    private final MyContext myContext;
+    private long seed = 1;
+    private int origins = 3;
+    private int accounts = 3;
+    private int users = 2000;
+    private int friendships = 600;
+    private int messages = 20000;
+    private int conversations = 4000;
+    private int downloads = 500;
+    private int days = 365;
+
+    private Random random;
+    private SQLiteDatabase db;
+    private ProgressLogger logger;
+    private final List<Origin> originList = new ArrayList<>();
+    private final List<MyAccount> accountList = new ArrayList<>();
+    /** Ids of the generated users of each origin from the {@link #originList} */
+    private final List<long[]> userIds = new ArrayList<>();
+    /** Friends of each account from the {@link #accountList} */
+    private final List<LongSet> friendIds = new ArrayList<>();
+    private long[] messageIds = new long[0];
+    private int rowsInTransaction = 0;
+
+    public DemoLargeDataInserter(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    public DemoLargeDataInserter setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /** Maximum number of the demo origins to use */
+    public DemoLargeDataInserter setOrigins(int origins) {
+        this.origins = origins;
+        return this;
+    }
+
+    /** Maximum number of the demo accounts to use */
+    public DemoLargeDataInserter setAccounts(int accounts) {
+        this.accounts = accounts;
+        return this;
+    }
+
+    public DemoLargeDataInserter setUsers(int users) {
+        this.users = users;
+        return this;
+    }
+
+    /** Total number of users, followed by the accounts */
+    public DemoLargeDataInserter setFriendships(int friendships) {
+        this.friendships = friendships;
+        return this;
+    }
+
+    public DemoLargeDataInserter setMessages(int messages) {
+        this.messages = messages;
+        return this;
+    }
+
+    public DemoLargeDataInserter setConversations(int conversations) {
+        this.conversations = conversations;
+        return this;
+    }
+
+    /** Downloaded image attachments, each one has a small file */
+    public DemoLargeDataInserter setDownloads(int downloads) {
+        this.downloads = downloads;
+        return this;
+    }
+
+    /** Messages are sent during so many days before now */
+    public DemoLargeDataInserter setDays(int days) {
+        this.days = days;
+        return this;
+    }
+
+    public int getMessages() {
+        return messages;
+    }
+
+    /** @return id of the first message of the first generated conversation, 0 if nothing was generated */
+    public long getConversationStartId() {
+        return messageIds.length == 0 ? 0 : messageIds[0];
+    }
+
+    /** Replaces the previously generated data */
+    public void insert(ProgressLogger logger) {
+        final String method = "insert";
+        this.logger = logger;
+        random = new Random(seed);
+        db = myContext.getDatabase();
+        assertTrue("Database is available", db != null);
+        delete(myContext);
+        selectOriginsAndAccounts();
+        long startTime = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            insertUsers();
+            insertFriendships();
+            insertMessages();
+            insertDownloads();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        myContext.persistentAccounts().initialize();
+        MyLog.i(TAG, method + "; " + toJson() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void selectOriginsAndAccounts() {
+        originList.clear();
+        accountList.clear();
+        for (MyAccount ma : myContext.persistentAccounts().list()) {
+            if (accountList.size() >= accounts || !ma.isValidAndSucceeded()) {
+                continue;
+            }
+            if (!originList.contains(ma.getOrigin())) {
+                if (originList.size() >= origins) {
+                    continue;
+                }
+                originList.add(ma.getOrigin());
+            }
+            accountList.add(ma);
+        }
+        assertTrue("No demo accounts to add large data to", !accountList.isEmpty());
+        assertTrue("At least one user for each origin", users >= originList.size());
+    }
+
+    private void insertUsers() {
+        userIds.clear();
+        SQLiteStatement statement = db.compileStatement("INSERT INTO " + UserTable.TABLE_NAME + " ("
+                + UserTable.ORIGIN_ID + ", "
+                + UserTable.USER_OID + ", "
+                + UserTable.USERNAME + ", "
+                + UserTable.WEBFINGER_ID + ", "
+                + UserTable.REAL_NAME + ", "
+                + UserTable.PROFILE_URL + ", "
+                + UserTable.AVATAR_URL + ", "
+                + UserTable.INS_DATE
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        try {
+            int[] counts = new int[originList.size()];
+            for (int ind = 0; ind < users; ind++) {
+                counts[ind % originList.size()]++;
+            }
+            int userIndex = 0;
+            for (int originIndex = 0; originIndex < originList.size(); originIndex++) {
+                Origin origin = originList.get(originIndex);
+                String host = origin.getUrl() == null ? "example.com" : origin.getUrl().getHost();
+                long[] ids = new long[counts[originIndex]];
+                for (int ind = 0; ind < ids.length; ind++) {
+                    String username = OID_PREFIX + userIndex;
+                    statement.clearBindings();
+                    statement.bindLong(1, origin.getId());
+                    statement.bindString(2, OID_PREFIX + "_user_" + userIndex);
+                    statement.bindString(3, username);
+                    statement.bindString(4, username + "@" + host);
+                    statement.bindString(5, "Large " + WORDS[random.nextInt(WORDS.length)] + " " + userIndex);
+                    statement.bindString(6, "https://" + host + "/" + username);
+                    statement.bindString(7, "https://" + host + "/avatar/" + username + ".png");
+                    statement.bindLong(8, System.currentTimeMillis());
+                    ids[ind] = statement.executeInsert();
+                    userIndex++;
+                    onRowInserted("users", userIndex, users);
+                }
+                userIds.add(ids);
+            }
+        } finally {
+            DbUtils.closeSilently(statement);
+        }
+    }
+
+    private void insertFriendships() {
+        SQLiteStatement statement = db.compileStatement("INSERT OR IGNORE INTO " + FriendshipTable.TABLE_NAME + " ("
+                + FriendshipTable.USER_ID + ", "
+                + FriendshipTable.FRIEND_ID + ", "
+                + FriendshipTable.FOLLOWED
+                + ") VALUES (?, ?, 1)");
+        try {
+            friendIds.clear();
+            int inserted = 0;
+            for (MyAccount ma : accountList) {
+                long[] ids = userIds.get(originList.indexOf(ma.getOrigin()));
+                int count = Math.min(friendships / accountList.size(), ids.length);
+                LongSet friends = new LongSet(count);
+                while (friends.size() < count) {
+                    long friendId = ids[random.nextInt(ids.length)];
+                    if (friends.add(friendId)) {
+                        statement.bindLong(1, ma.getUserId());
+                        statement.bindLong(2, friendId);
+                        statement.executeInsert();
+                        inserted++;
+                        onRowInserted("friendships", inserted, friendships);
+                    }
+                }
+                friendIds.add(friends);
+            }
+        } finally {
+            DbUtils.closeSilently(statement);
+        }
+    }
+
+    private void insertMessages() {
+        SQLiteStatement msgStatement = db.compileStatement("INSERT INTO " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.ORIGIN_ID + ", "
+                + MsgTable.MSG_OID + ", "
+                + MsgTable.MSG_STATUS + ", "
+                + MsgTable.CONVERSATION_ID + ", "
+                + MsgTable.AUTHOR_ID + ", "
+                + MsgTable.ACTOR_ID + ", "
+                + MsgTable.BODY + ", "
+                + MsgTable.BODY_TO_SEARCH + ", "
+                + MsgTable.BODY_FINGERPRINT + ", "
+                + MsgTable.VIA + ", "
+                + MsgTable.IN_REPLY_TO_MSG_ID + ", "
+                + MsgTable.IN_REPLY_TO_USER_ID + ", "
+                + MsgTable.UPDATED_DATE + ", "
+                + MsgTable.SENT_DATE + ", "
+                + MsgTable.INS_DATE + ", "
+                + MsgTable.PUBLIC
+                + ") VALUES (?, ?, " + DownloadStatus.LOADED.save() + ", ?, ?, ?, ?, ?, ?, 'AndStatus', ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement rootStatement = db.compileStatement("UPDATE " + MsgTable.TABLE_NAME
+                + " SET " + MsgTable.CONVERSATION_ID + "=" + BaseColumns._ID + " WHERE " + BaseColumns._ID + "=?");
+        SQLiteStatement msgOfUserStatement = db.compileStatement("INSERT INTO " + MsgOfUserTable.TABLE_NAME + " ("
+                + MsgOfUserTable.USER_ID + ", "
+                + MsgOfUserTable.MSG_ID + ", "
+                + MsgOfUserTable.SUBSCRIBED + ", "
+                + MsgOfUserTable.FAVORITED + ", "
+                + MsgOfUserTable.REBLOGGED + ", "
+                + MsgOfUserTable.MENTIONED
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+        try {
+            messageIds = new long[messages];
+            int conversationsCount = Math.max(1, Math.min(conversations, messages));
+            long periodMs = TimeUnit.DAYS.toMillis(days);
+            long now = System.currentTimeMillis();
+            int msgIndex = 0;
+            for (int conversation = 0; conversation < conversationsCount; conversation++) {
+                int originIndex = conversation % originList.size();
+                long[] authors = userIds.get(originIndex);
+                int size = messages / conversationsCount + (conversation < messages % conversationsCount ? 1 : 0);
+                long[] ids = new long[size];
+                long[] authorIds = new long[size];
+                long sentDate = now - (long) (random.nextDouble() * periodMs);
+                for (int ind = 0; ind < size; ind++) {
+                    int inReplyTo = ind == 0 ? -1 : random.nextInt(ind);
+                    authorIds[ind] = authors[random.nextInt(authors.length)];
+                    String body = newBody(msgIndex);
+                    msgStatement.clearBindings();
+                    msgStatement.bindLong(1, originList.get(originIndex).getId());
+                    msgStatement.bindString(2, OID_PREFIX + "_msg_" + msgIndex);
+                    if (inReplyTo >= 0) {
+                        msgStatement.bindLong(3, ids[0]);
+                    }
+                    msgStatement.bindLong(4, authorIds[ind]);
+                    msgStatement.bindLong(5, authorIds[ind]);
+                    msgStatement.bindString(6, body);
+                    msgStatement.bindString(7, MyHtml.getBodyToSearch(body));
+                    msgStatement.bindLong(8, ContentFingerprint.fromBody(body));
+                    if (inReplyTo >= 0) {
+                        msgStatement.bindLong(9, ids[inReplyTo]);
+                        msgStatement.bindLong(10, authorIds[inReplyTo]);
+                    }
+                    msgStatement.bindLong(11, sentDate);
+                    msgStatement.bindLong(12, sentDate);
+                    msgStatement.bindLong(13, now);
+                    msgStatement.bindLong(14, random.nextInt(4) == 0 ? 0 : 1);
+                    ids[ind] = msgStatement.executeInsert();
+                    if (ind == 0) {
+                        rootStatement.bindLong(1, ids[0]);
+                        rootStatement.executeUpdateDelete();
+                    }
+                    insertMsgOfUsers(msgOfUserStatement, originIndex, ids[ind], authorIds[ind]);
+                    messageIds[msgIndex] = ids[ind];
+                    msgIndex++;
+                    onRowInserted("messages", msgIndex, messages);
+                    sentDate += TimeUnit.MINUTES.toMillis(1 + random.nextInt(120));
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(msgStatement);
+            DbUtils.closeSilently(rootStatement);
+            DbUtils.closeSilently(msgOfUserStatement);
+        }
+    }
+
+    private String newBody(int msgIndex) {
+        StringBuilder builder = new StringBuilder();
+        int wordsCount = 5 + random.nextInt(30);
+        for (int ind = 0; ind < wordsCount; ind++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (ind > 0) {
+                builder.append(" ");
+            }
+            switch (random.nextInt(20)) {
+                case 0:
+                    builder.append("<b>" + word + "</b>");
+                    break;
+                case 1:
+                    builder.append("#" + word);
+                    break;
+                default:
+                    builder.append(word);
+                    break;
+            }
+        }
+        builder.append(" " + msgIndex);
+        if (msgIndex % 100 == 0) {
+            builder.append(" " + SEARCH_WORD);
+        }
+        if (random.nextInt(10) == 0) {
+            builder.append(" <a href=\"https://example.com/" + OID_PREFIX + "/" + msgIndex + "\">link</a>");
+        }
+        return builder.toString();
+    }
+
+    private void insertMsgOfUsers(SQLiteStatement statement, int originIndex, long msgId, long authorId) {
+        for (int ind = 0; ind < accountList.size(); ind++) {
+            MyAccount ma = accountList.get(ind);
+            if (!ma.getOrigin().equals(originList.get(originIndex))) {
+                continue;
+            }
+            boolean subscribed = friendIds.get(ind).contains(authorId);
+            boolean favorited = random.nextInt(50) == 0;
+            boolean reblogged = random.nextInt(50) == 0;
+            boolean mentioned = random.nextInt(20) == 0;
+            if (subscribed || favorited || reblogged || mentioned) {
+                statement.bindLong(1, ma.getUserId());
+                statement.bindLong(2, msgId);
+                statement.bindLong(3, subscribed ? 1 : 0);
+                statement.bindLong(4, favorited ? 1 : 0);
+                statement.bindLong(5, reblogged ? 1 : 0);
+                statement.bindLong(6, mentioned ? 1 : 0);
+                statement.executeInsert();
+            }
+        }
+    }
+
+    private void insertDownloads() {
+        if (messageIds.length == 0) {
+            return;
+        }
+        SQLiteStatement statement = db.compileStatement("INSERT INTO " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.DOWNLOAD_TYPE + ", "
+                + DownloadTable.MSG_ID + ", "
+                + DownloadTable.CONTENT_TYPE + ", "
+                + DownloadTable.VALID_FROM + ", "
+                + DownloadTable.URI + ", "
+                + DownloadTable.DOWNLOAD_STATUS + ", "
+                + DownloadTable.FILE_NAME + ", "
+                + DownloadTable.FILE_SIZE + ", "
+                + DownloadTable.LAST_ACCESSED_DATE
+                + ") VALUES (" + DownloadType.IMAGE.save() + ", ?, " + MyContentType.IMAGE.save() + ", ?, ?, "
+                + DownloadStatus.LOADED.save() + ", ?, ?, ?)");
+        File downloadsDir = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+        byte[] content = new byte[DOWNLOADED_FILE_SIZE];
+        try {
+            for (int ind = 0; ind < downloads; ind++) {
+                String filename = OID_PREFIX + "_" + ind + ".png";
+                random.nextBytes(content);
+                writeFile(new File(downloadsDir, filename), content);
+                long now = System.currentTimeMillis();
+                statement.bindLong(1, messageIds[random.nextInt(messageIds.length)]);
+                statement.bindLong(2, now);
+                statement.bindString(3, "https://example.com/" + OID_PREFIX + "/media/" + filename);
+                statement.bindString(4, filename);
+                statement.bindLong(5, content.length);
+                statement.bindLong(6, now);
+                statement.executeInsert();
+                onRowInserted("downloads", ind + 1, downloads);
+            }
+        } finally {
+            DbUtils.closeSilently(statement);
+        }
+    }
+
+    private static void writeFile(File file, byte[] content) {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, false);
+            out.write(content);
+        } catch (IOException e) {
+            MyLog.w(TAG, "Failed to write '" + file.getAbsolutePath() + "'", e);
+        } finally {
+            DbUtils.closeSilently(out);
+        }
+    }
+
+    /** Commits large transactions in parts, so the journal doesn't grow too much */
+    private void onRowInserted(String what, int count, int total) {
+        if (++rowsInTransaction >= ROWS_IN_TRANSACTION) {
+            rowsInTransaction = 0;
+            db.setTransactionSuccessful();
+            db.endTransaction();
+            db.beginTransaction();
+        }
+        if (logger != null && logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+            logger.logProgress("Inserted " + count + " of " + total + " " + what);
+        }
+    }
+
+    /** Deletes the generated data, including files of the downloads */
+    public static void delete(MyContext myContext) {
+        final String method = "delete";
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            return;
+        }
+        String msgIds = "SELECT " + BaseColumns._ID + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable.MSG_OID + " LIKE '" + OID_PREFIX + "%'";
+        String userIds = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
+                + " WHERE " + UserTable.USER_OID + " LIKE '" + OID_PREFIX + "%'";
+        File downloadsDir = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + DownloadTable.FILE_NAME + " FROM " + DownloadTable.TABLE_NAME
+                    + " WHERE " + DownloadTable.FILE_NAME + " LIKE '" + OID_PREFIX + "%'", null);
+            while (cursor.moveToNext()) {
+                File file = new File(downloadsDir, cursor.getString(0));
+                if (file.exists() && !file.delete()) {
+                    MyLog.v(TAG, method + "; couldn't delete '" + file.getAbsolutePath() + "'");
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + DownloadTable.TABLE_NAME
+                    + " WHERE " + DownloadTable.FILE_NAME + " LIKE '" + OID_PREFIX + "%'"
+                    + " OR " + DownloadTable.MSG_ID + " IN (" + msgIds + ")");
+            db.execSQL("DELETE FROM " + MsgOfUserTable.TABLE_NAME
+                    + " WHERE " + MsgOfUserTable.MSG_ID + " IN (" + msgIds + ")");
+            db.execSQL("DELETE FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable.MSG_OID + " LIKE '" + OID_PREFIX + "%'");
+            db.execSQL("DELETE FROM " + FriendshipTable.TABLE_NAME
+                    + " WHERE " + FriendshipTable.FRIEND_ID + " IN (" + userIds + ")");
+            db.execSQL("DELETE FROM " + UserTable.TABLE_NAME
+                    + " WHERE " + UserTable.USER_OID + " LIKE '" + OID_PREFIX + "%'");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        myContext.persistentAccounts().initialize();
+    }
+
+    /** @return machine readable parameters of the dataset */
+    public JSONObject toJson() {
+        JSONObject jso = new JSONObject();
+        try {
+            jso.put("seed", seed);
+            jso.put("origins", originList.size());
+            jso.put("accounts", accountList.size());
+            jso.put("users", users);
+            jso.put("friendships", friendships);
+            jso.put("messages", messages);
+            jso.put("conversations", conversations);
+            jso.put("downloads", downloads);
+            jso.put("days", days);
+        } catch (JSONException e) {
+            MyLog.e(TAG, "toJson", e);
+        }
+        return jso;
+    }
+}
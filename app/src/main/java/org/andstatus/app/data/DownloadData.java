@@ -110,7 +110,7 @@ public class DownloadData {
         }
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(sql, null);
+            cursor = db.rawQuery(sql, getWhereArgs());
             status = DownloadStatus.ABSENT;
             if (cursor.moveToNext()) {
                 status = DownloadStatus.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_STATUS));
@@ -161,11 +161,16 @@ public class DownloadData {
             builder.append(" AND " + DownloadTable.CONTENT_TYPE + "=" + contentType.save());
         }
         if (!UriUtils.isEmpty(uri)) {
-            builder.append(" AND " + DownloadTable.URI + "=" + MyQuery.quoteIfNotQuoted(uri.toString()));
+            builder.append(" AND " + DownloadTable.URI + "=?");
         }
         return builder.toString();
     }
 
+    /** @return arguments for the "?" placeholders of {@link #getWhereClause()} */
+    private String[] getWhereArgs() {
+        return UriUtils.isEmpty(uri) ? null : new String[]{uri.toString()};
+    }
+
     private void fixFieldsAfterLoad() {
         if ((userId == 0) && (msgId == 0) || UriUtils.isEmpty(uri)) {
             hardError = true;
@@ -237,6 +242,8 @@ public class DownloadData {
        values.put(DownloadTable.URI, uri.toString());
        values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
        values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
+       values.put(DownloadTable.FILE_SIZE, fileNew.getSize());
+       values.put(DownloadTable.LAST_ACCESSED_DATE, loadTimeNew);
 
        downloadId = DbUtils.addRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, values, 3);
        if (downloadId == -1) {
@@ -265,6 +272,8 @@ public class DownloadData {
         if (changeFile) {
             values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
             values.put(DownloadTable.VALID_FROM, loadTimeNew);
+            values.put(DownloadTable.FILE_SIZE, fileNew.getSize());
+            values.put(DownloadTable.LAST_ACCESSED_DATE, loadTimeNew);
         }
 
         if (DbUtils.updateRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, downloadId, values, 3) != 1) {
@@ -17,9 +17,9 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.database.sqlite.SQLiteDoneException;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.database.FriendshipTable;
@@ -100,23 +100,21 @@ public class FriendshipValues {
     }
 
     private void tryToUpdate(SQLiteDatabase db, boolean followed) {
-        // TODO: create universal dExists method...
-        String where = FriendshipTable.USER_ID + "=" + userId
-                + " AND " + FriendshipTable.FRIEND_ID + "=" + friendId;
-        String sql = "SELECT * FROM " + FriendshipTable.TABLE_NAME + " WHERE " + where;
+        String where = FriendshipTable.USER_ID + "=? AND " + FriendshipTable.FRIEND_ID + "=?";
+        String sql = "SELECT " + FriendshipTable.FOLLOWED + " FROM " + FriendshipTable.TABLE_NAME + " WHERE " + where;
 
-        Cursor cursor = null;
         boolean exists = false;
+        boolean followedBefore = false;
         try {
-            cursor = db.rawQuery(sql, null);
-            exists = cursor.moveToFirst();
-        } finally {
-            DbUtils.closeSilently(cursor);
+            followedBefore = StatementsCache.get(db, sql, userId, friendId).simpleQueryForLong() == 1;
+            exists = true;
+        } catch (SQLiteDoneException e) {
+            MyLog.ignored(this, e);
         }
 
         if (exists) {
             db.update(FriendshipTable.TABLE_NAME, contentValues, where,
-                    null);
+                    new String[]{Long.toString(userId), Long.toString(friendId)});
         } else if (followed) {
             // There was no such row
             ContentValues cv = new ContentValues(contentValues);
@@ -126,5 +124,8 @@ public class FriendshipValues {
             
             db.insert(FriendshipTable.TABLE_NAME, null, cv);
         }
+        if (followed != followedBefore) {
+            MyContextHolder.get().persistentAccounts().onFriendshipChanged(userId, friendId, followed);
+        }
     }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.graphics.CacheName;
+import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps downloaded media files (avatars and attachments) within the storage quota,
+ * set by {@link MyPreferences#KEY_MEDIA_STORAGE_QUOTA_MB}.
+ * Least recently accessed files are deleted first. Rows of evicted files are kept in the
+ * {@link DownloadTable} with {@link DownloadStatus#ABSENT} status, so the files are
+ * downloaded again when they are needed.
+ * @author yvolk@yurivolkov.com
+ */
+public class MediaStorageQuota {
+    /** Eviction stops, when usage drops below this part of the quota */
+    static final float LOW_WATERMARK = 0.9f;
+    private static final int EVICT_BATCH_SIZE = 100;
+
+    /** Accesses, not flushed to the database yet. Key is attachment's download id */
+    private static final Map<Long, Long> accessedAttachments = new ConcurrentHashMap<>();
+    /** Key is avatar's user id */
+    private static final Map<Long, Long> accessedAvatars = new ConcurrentHashMap<>();
+
+    private final MyContext myContext;
+
+    public MediaStorageQuota(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    /**
+     * Cheap enough to be called on every image cache hit: accesses are accumulated in memory
+     * and flushed to the database by {@link #flushAccessed()}
+     * @param imageId See {@link ImageFile#getId()}
+     */
+    public static void onImageAccessed(CacheName cacheName, long imageId) {
+        if (imageId == 0) {
+            return;
+        }
+        switch (cacheName) {
+            case ATTACHED_IMAGE:
+                accessedAttachments.put(imageId, System.currentTimeMillis());
+                break;
+            default:
+                accessedAvatars.put(imageId, System.currentTimeMillis());
+                break;
+        }
+    }
+
+    public static long getQuotaBytes() {
+        return MyPreferences.getMediaStorageQuotaMb() * 1024L * 1024L;
+    }
+
+    /**
+     * @return total size of all downloaded files, which are counted against the quota
+     */
+    public long getUsedBytes() {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            return 0;
+        }
+        return MyQuery.sqlToLong(db, "", "SELECT SUM(" + DownloadTable.FILE_SIZE + ")"
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save());
+    }
+
+    public String getUsageSummary() {
+        long quota = getQuotaBytes();
+        return I18n.formatBytes(getUsedBytes())
+                + (quota > 0 ? " / " + I18n.formatBytes(quota) : "");
+    }
+
+    /**
+     * Saves last access dates, accumulated in memory
+     * @return number of rows updated
+     */
+    long flushAccessed() {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(this, "flushAccessed; Database is null");
+            return 0;
+        }
+        long count = flushAccessed(db, accessedAttachments, DownloadTable._ID);
+        count += flushAccessed(db, accessedAvatars, DownloadTable.USER_ID);
+        return count;
+    }
+
+    private long flushAccessed(SQLiteDatabase db, Map<Long, Long> accessed, String idColumnName) {
+        if (accessed.isEmpty()) {
+            return 0;
+        }
+        long count = 0;
+        SQLiteStatement statement = null;
+        db.beginTransaction();
+        try {
+            statement = db.compileStatement("UPDATE " + DownloadTable.TABLE_NAME
+                    + " SET " + DownloadTable.LAST_ACCESSED_DATE + "=?"
+                    + " WHERE " + idColumnName + "=?"
+                    + " AND " + DownloadTable.LAST_ACCESSED_DATE + "<?");
+            for (Map.Entry<Long, Long> entry : accessed.entrySet()) {
+                statement.bindLong(1, entry.getValue());
+                statement.bindLong(2, entry.getKey());
+                statement.bindLong(3, entry.getValue());
+                count += statement.executeUpdateDelete();
+                accessed.remove(entry.getKey(), entry.getValue());
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            MyLog.i(this, "flushAccessed " + idColumnName, e);
+        } finally {
+            db.endTransaction();
+            DbUtils.closeSilently(statement);
+        }
+        return count;
+    }
+
+    /**
+     * Deletes least recently accessed media files until their total size fits into the quota
+     * @return number of files evicted
+     */
+    public long evictOverQuota() {
+        long quota = getQuotaBytes();
+        flushAccessed();
+        if (quota <= 0) {
+            return 0;
+        }
+        long used = getUsedBytes();
+        if (used <= quota) {
+            return 0;
+        }
+        return evict(used - Math.round(quota * LOW_WATERMARK));
+    }
+
+    /**
+     * Deletes least recently accessed media files
+     * @return number of files evicted
+     */
+    long evict(long bytesToFree) {
+        final String method = "evict";
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(this, method + "; Database is null");
+            return 0;
+        }
+        long evicted = 0;
+        long freed = 0;
+        boolean done = false;
+        while (!done && freed < bytesToFree) {
+            String sql = "SELECT " + DownloadTable._ID + ", "
+                    + DownloadTable.FILE_NAME + ", "
+                    + DownloadTable.FILE_SIZE
+                    + " FROM " + DownloadTable.TABLE_NAME
+                    + " WHERE " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                    // Local (not downloadable) files, e.g. attachments of our unsent messages, are kept
+                    + " AND " + DownloadTable.URI + " LIKE 'http%'"
+                    + " ORDER BY " + DownloadTable.LAST_ACCESSED_DATE + " ASC"
+                    + " LIMIT " + EVICT_BATCH_SIZE;
+            done = true;
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(sql, null);
+                while (freed < bytesToFree && cursor.moveToNext()) {
+                    done = false;
+                    new DownloadFile(cursor.getString(1)).delete();
+                    db.execSQL("UPDATE " + DownloadTable.TABLE_NAME
+                            + " SET " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.ABSENT.save()
+                            + ", " + DownloadTable.FILE_SIZE + "=0"
+                            + " WHERE " + DownloadTable._ID + "=" + cursor.getLong(0));
+                    freed += cursor.getLong(2);
+                    evicted++;
+                }
+            } catch (Exception e) {
+                MyLog.i(this, method + " failed", e);
+                done = true;
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+        }
+        if (evicted > 0) {
+            MyLog.v(this, method + "; Evicted " + evicted + " files, freed " + I18n.formatBytes(freed)
+                    + " of " + I18n.formatBytes(bytesToFree) + " requested");
+        }
+        return evicted;
+    }
+}
@@ -17,7 +17,6 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
-import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.provider.BaseColumns;
@@ -117,7 +116,7 @@ class MsgOfUserValues {
     
     long insert(SQLiteDatabase db) {
         if (!isEmpty()) {
-            rowId = db.insert(MsgOfUserTable.TABLE_NAME, MsgOfUserTable.MSG_ID, contentValues);
+            rowId = StatementsCache.insert(db, MsgOfUserTable.TABLE_NAME, contentValues);
             if (rowId == -1) {
                 throw new SQLException("Failed to insert row into " + MsgOfUserTable.TABLE_NAME);
             }
@@ -130,26 +129,16 @@ class MsgOfUserValues {
         if (!isValid()) {
             return count;
         }
-        String where = "(" + MsgOfUserTable.MSG_ID + "=" + msgId + " AND "
-                + MsgOfUserTable.USER_ID + "="
-                + userId + ")";
-        String sql = "SELECT * FROM " + MsgOfUserTable.TABLE_NAME + " WHERE "
-                + where;
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(sql, null);
-            boolean exists = cursor.moveToFirst();
-            DbUtils.closeSilently(cursor);
-            if (exists) {
-                count += db.update(MsgOfUserTable.TABLE_NAME, contentValues, where, null);
-            } else {
-                insert(db);
-                if (rowId != 0) {
-                    count += 1;
-                }
+        String where = MsgOfUserTable.MSG_ID + "=? AND " + MsgOfUserTable.USER_ID + "=?";
+        boolean exists = StatementsCache.get(db, "SELECT COUNT(*) FROM " + MsgOfUserTable.TABLE_NAME
+                + " WHERE " + where, msgId, userId).simpleQueryForLong() > 0;
+        if (exists) {
+            count += StatementsCache.update(db, MsgOfUserTable.TABLE_NAME, contentValues, where, msgId, userId);
+        } else {
+            insert(db);
+            if (rowId != 0) {
+                count += 1;
             }
-        } finally {
-            DbUtils.closeSilently(cursor);
         }
         return count;
     }
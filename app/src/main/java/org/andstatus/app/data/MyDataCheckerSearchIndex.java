@@ -25,8 +25,6 @@ import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 
-import static org.andstatus.app.data.MyQuery.quoteIfNotQuoted;
-
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -60,12 +58,12 @@ public class MyDataCheckerSearchIndex {
                 String bodyToSearchExpected = MyHtml.getBodyToSearch(body);
                 if (!bodyToSearchExpected.equals(bodyToSearch)) {
                     changedCount++;
-                    MyLog.i(this, "Wrong body to search for " + id + ": " + quoteIfNotQuoted(body));
+                    MyLog.i(this, "Wrong body to search for " + id + ": '" + body + "'");
                     sql = "UPDATE " + MsgTable.TABLE_NAME
                             + " SET "
-                            + MsgTable.BODY_TO_SEARCH + "=" + quoteIfNotQuoted(bodyToSearchExpected)
-                            + " WHERE " + MsgTable._ID + "=" + id;
-                    myContext.getDatabase().execSQL(sql);
+                            + MsgTable.BODY_TO_SEARCH + "=?"
+                            + " WHERE " + MsgTable._ID + "=?";
+                    myContext.getDatabase().execSQL(sql, new Object[]{bodyToSearchExpected, id});
                 }
                 if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
                     logger.logProgress("Updating search index"
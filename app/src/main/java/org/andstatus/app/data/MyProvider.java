@@ -213,7 +213,7 @@ public class MyProvider extends ContentProvider {
                     throw new IllegalArgumentException(uriParser.toString());
             }
 
-            rowId = db.insert(table, null, values);
+            rowId = StatementsCache.insert(db, table, values);
             if (rowId == -1) {
                 throw new SQLException("Failed to insert row into " + uri);
             }
@@ -278,19 +278,17 @@ public class MyProvider extends ContentProvider {
         switch (uriParser.matched()) {
             case TIMELINE:
                 qb.setDistinct(true);
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
+                TimelineSql.setTablesForTimeline(qb, uri, projection);
                 break;
 
             case TIMELINE_ITEM:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
-                qb.appendWhere(ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "=" + uriParser.getMessageId());
+                TimelineSql.setTablesForTimeline(qb, uri, projection);
+                selection = ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "=" + uriParser.getMessageId()
+                        + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ")" : "");
                 break;
 
             case TIMELINE_SEARCH:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
-                qb.setProjectionMap(ProjectionMap.MSG);
+                TimelineSql.setTablesForTimeline(qb, uri, projection);
                 String rawQuery = uriParser.getSearchQuery();
                 if (StringUtils.nonEmpty(rawQuery)) {
                     if (StringUtils.nonEmpty(selection)) {
@@ -448,9 +446,7 @@ public class MyProvider extends ContentProvider {
                 MsgOfUserValues otherUserValues = MsgOfUserValues.valuesOfOtherUser(values);
                 otherUserValues.setMsgId(rowId);
                 if (values.size() > 0) {
-                    count = db.update(MsgTable.TABLE_NAME, values, BaseColumns._ID + "=" + rowId
-                            + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
-                            selectionArgs);
+                    count = updateItem(db, MsgTable.TABLE_NAME, values, rowId, selection, selectionArgs);
                 }
                 count += msgOfUserValues.update(db);
                 otherUserValues.update(db);
@@ -465,9 +461,7 @@ public class MyProvider extends ContentProvider {
                 long selectedUserId = uriParser.getUserId();
                 FriendshipValues friendshipValues = FriendshipValues.valueOf(accountUserId, selectedUserId, values);
                 if (values.size() > 0) {
-                    count = db.update(UserTable.TABLE_NAME, values, BaseColumns._ID + "=" + selectedUserId
-                                    + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
-                            selectionArgs);
+                    count = updateItem(db, UserTable.TABLE_NAME, values, selectedUserId, selection, selectionArgs);
                 }
                 friendshipValues.update(db);
                 optionallyLoadAvatar(selectedUserId, values);
@@ -479,4 +473,13 @@ public class MyProvider extends ContentProvider {
 
         return count;
     }
+
+    private static int updateItem(SQLiteDatabase db, String table, ContentValues values, long rowId,
+                                  String selection, String[] selectionArgs) {
+        if (StringUtils.nonEmpty(selection)) {
+            return db.update(table, values, BaseColumns._ID + "=" + rowId + " AND (" + selection + ')',
+                    selectionArgs);
+        }
+        return StatementsCache.update(db, table, values, BaseColumns._ID + "=?", rowId);
+    }
 }
@@ -33,14 +33,14 @@ import org.andstatus.app.database.UserTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 public class MyQuery {
     static final String TAG = MyQuery.class.getSimpleName();
@@ -85,23 +85,25 @@ public class MyQuery {
         switch (oidEnum) {
             case MSG_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + MsgTable.TABLE_NAME
-                        + " WHERE " + MsgTable.ORIGIN_ID + "=" + originId + " AND " + MsgTable.MSG_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + MsgTable.ORIGIN_ID + "=? AND " + MsgTable.MSG_OID + "=?";
                 break;
 
             case USER_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                        + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + UserTable.USER_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + UserTable.USER_OID + "=?";
                 break;
 
             default:
                 throw new IllegalArgumentException(msgLog + "; Unknown oidEnum");
         }
-        return sqlToLong(database, msgLog, sql);
+        return sqlToLong(database, msgLog, sql, originId, oid);
     }
 
-    public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql) {
+    /**
+     * @param args If present, the sql has "?" placeholders for them, and its compiled statement is reused,
+     *             see {@link StatementsCache}
+     */
+    public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql, Object... args) {
         String msgLog = StringUtils.notNull(msgLogIn);
         SQLiteDatabase db = databaseIn == null ? MyContextHolder.get().getDatabase() : databaseIn;
         if (db == null) {
@@ -112,12 +114,17 @@ public class MyQuery {
             MyLog.v(TAG, msgLog + "; sql is empty");
             return 0;
         }
-        String msgLogSql = msgLog + (msgLog.contains(sql) ? "" : "; sql='" + sql +"'");
+        String msgLogSql = msgLog + (msgLog.contains(sql) ? "" : "; sql='" + sql +"'")
+                + (args.length == 0 ? "" : "; args=" + Arrays.toString(args));
         long value = 0;
         SQLiteStatement statement = null;
         try {
-            statement = db.compileStatement(sql);
-            value = statement.simpleQueryForLong();
+            if (args.length == 0) {
+                statement = db.compileStatement(sql);
+                value = statement.simpleQueryForLong();
+            } else {
+                value = StatementsCache.get(db, sql, args).simpleQueryForLong();
+            }
             if (value == 1 && MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, msgLogSql);
             }
@@ -126,6 +133,7 @@ public class MyQuery {
             value = 0;
         } catch (Exception e) {
             MyLog.e(TAG, msgLogSql, e);
+            StatementsCache.forget(sql);
             value = 0;
         } finally {
             DbUtils.closeSilently(statement);
@@ -137,6 +145,7 @@ public class MyQuery {
     }
 
     /**
+     * Prefer bound arguments to quoting of values in SQL
      * @return two single quotes for empty/null strings (Use single quotes!)
      */
     public static String quoteIfNotQuoted(String original) {
@@ -191,21 +200,22 @@ public class MyQuery {
     public static String idToOid(SQLiteDatabase db, OidEnum oe, long entityId, long rebloggerUserId) {
         String method = "idToOid";
         String oid = "";
-        SQLiteStatement prog = null;
         String sql = "";
     
         if (entityId > 0) {
             try {
+                SQLiteStatement prog;
                 switch (oe) {
                     case MSG_OID:
                         sql = "SELECT " + MsgTable.MSG_OID + " FROM "
-                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=" + entityId;
+                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
+                        prog = StatementsCache.get(db, sql, entityId);
                         break;
     
                     case USER_OID:
                         sql = "SELECT " + UserTable.USER_OID + " FROM "
-                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "="
-                                + entityId;
+                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
+                        prog = StatementsCache.get(db, sql, entityId);
                         break;
     
                     case REBLOG_OID:
@@ -214,14 +224,13 @@ public class MyQuery {
                         }
                         sql = "SELECT " + MsgOfUserTable.REBLOG_OID + " FROM "
                                 + MsgOfUserTable.TABLE_NAME + " WHERE "
-                                + MsgOfUserTable.MSG_ID + "=" + entityId + " AND "
-                                + MsgOfUserTable.USER_ID + "=" + rebloggerUserId;
+                                + MsgOfUserTable.MSG_ID + "=? AND " + MsgOfUserTable.USER_ID + "=?";
+                        prog = StatementsCache.get(db, sql, entityId, rebloggerUserId);
                         break;
     
                     default:
                         throw new IllegalArgumentException(method + "; Unknown parameter: " + oe);
                 }
-                prog = db.compileStatement(sql);
                 oid = prog.simpleQueryForString();
                 
                 if (TextUtils.isEmpty(oid) && oe == OidEnum.REBLOG_OID) {
@@ -234,9 +243,8 @@ public class MyQuery {
                 oid = "";
             } catch (Exception e) {
                 MyLog.e(TAG, method, e);
+                StatementsCache.forget(sql);
                 oid = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + ": " + oe + " + " + entityId + " -> " + oid);
@@ -249,7 +257,6 @@ public class MyQuery {
         final String method = "msgIdToUsername";
         String userName = "";
         if (messageId != 0) {
-            SQLiteStatement prog = null;
             String sql = "";
             try {
                 if (userIdColumnName.contentEquals(MsgTable.ACTOR_ID) ||
@@ -259,7 +266,7 @@ public class MyQuery {
                     sql = "SELECT " + userNameField(userInTimeline) + " FROM " + UserTable.TABLE_NAME
                             + " INNER JOIN " + MsgTable.TABLE_NAME + " ON "
                             + MsgTable.TABLE_NAME + "." + userIdColumnName + "=" + UserTable.TABLE_NAME + "." + BaseColumns._ID
-                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=" + messageId;
+                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=?";
                 } else {
                     throw new IllegalArgumentException( method + "; Unknown name \"" + userIdColumnName + "\"");
                 }
@@ -268,16 +275,14 @@ public class MyQuery {
                     MyLog.v(TAG, method + "; Database is null");
                     return "";
                 }
-                prog = db.compileStatement(sql);
-                userName = prog.simpleQueryForString();
+                userName = StatementsCache.get(db, sql, messageId).simpleQueryForString();
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
                 userName = "";
             } catch (Exception e) {
                 MyLog.e(TAG, method, e);
+                StatementsCache.forget(sql);
                 userName = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + "; " + userIdColumnName + ": " + messageId + " -> " + userName );
@@ -307,8 +312,12 @@ public class MyQuery {
     private static long idToLongColumnValue(String tableName, String columnName, long systemId) {
         if (systemId == 0) {
             return 0;
+        } else if (TextUtils.isEmpty(tableName) || TextUtils.isEmpty(columnName)) {
+            throw new IllegalArgumentException("tableName or columnName are empty: '" + tableName + "', '"
+                    + columnName + "'");
         } else {
-            return conditionToLongColumnValue(tableName, columnName, "t._id=" + systemId);
+            return sqlToLong(null, columnName, "SELECT " + columnName + " FROM " + tableName
+                    + " WHERE " + BaseColumns._ID + "=?", systemId);
         }
     }
 
@@ -363,27 +372,24 @@ public class MyQuery {
         if (TextUtils.isEmpty(tableName) || TextUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException(method + " tableName or columnName are empty");
         } else if (systemId != 0) {
-            SQLiteStatement prog = null;
             String sql = "";
             try {
                 sql = "SELECT " + columnName
                         + " FROM " + tableName
-                        + " WHERE _id=" + systemId;
+                        + " WHERE _id=?";
                 SQLiteDatabase db = MyContextHolder.get().getDatabase();
                 if (db == null) {
                     MyLog.v(TAG, method + "; Database is null");
                     return "";
                 }
-                prog = db.compileStatement(sql);
-                columnValue = prog.simpleQueryForString();
+                columnValue = StatementsCache.get(db, sql, systemId).simpleQueryForString();
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
             } catch (Exception e) {
                 MyLog.e(TAG, method + " table='" + tableName
                         + "', column='" + columnName + "'", e);
+                StatementsCache.forget(sql);
                 return "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + " table=" + tableName + ", column=" + columnName + ", id=" + systemId + " -> " + columnValue );
@@ -448,22 +454,18 @@ public class MyQuery {
             return 0;
         }
         long id = 0;
-        SQLiteStatement prog = null;
         String sql = "";
         try {
             sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                    + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + columnName + "='"
-                    + columnValue + "'";
-            prog = db.compileStatement(sql);
-            id = prog.simpleQueryForLong();
+                    + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + columnName + "=?";
+            id = StatementsCache.get(db, sql, originId, StringUtils.notNull(columnValue)).simpleQueryForLong();
         } catch (SQLiteDoneException e) {
             MyLog.ignored(MyQuery.TAG, e);
             id = 0;
         } catch (Exception e) {
             MyLog.e(MyQuery.TAG, method + ": SQL:'" + sql + "'", e);
+            StatementsCache.forget(sql);
             id = 0;
-        } finally {
-            DbUtils.closeSilently(prog);
         }
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(MyQuery.TAG, method + ":" + originId + "+" + columnValue + " -> " + id);
@@ -472,7 +474,7 @@ public class MyQuery {
     }
 
     @NonNull
-    public static Set<Long> getFollowersIds(long userId) {
+    public static LongSet getFollowersIds(long userId) {
         String where = FriendshipTable.FRIEND_ID + "=" + userId
                 + " AND " + FriendshipTable.FOLLOWED + "=1";
         String sql = "SELECT " + FriendshipTable.USER_ID
@@ -482,7 +484,7 @@ public class MyQuery {
     }
 
     @NonNull
-    public static Set<Long> getFriendsIds(long userId) {
+    public static LongSet getFriendsIds(long userId) {
         String where = FriendshipTable.USER_ID + "=" + userId
                 + " AND " + FriendshipTable.FOLLOWED + "=1";
         String sql = "SELECT " + FriendshipTable.FRIEND_ID
@@ -492,8 +494,8 @@ public class MyQuery {
     }
 
     @NonNull
-    private static Set<Long> getLongs(String sql) {
-        Set<Long> ids = new HashSet<>();
+    private static LongSet getLongs(String sql) {
+        LongSet ids = new LongSet();
         SQLiteDatabase db = MyContextHolder.get().getDatabase();
         if (db == null) {
             MyLog.v(TAG, "getLongs; Database is null");
@@ -515,7 +517,7 @@ public class MyQuery {
      *  MyAccounts' userIDs, who follow the specified User
      */
     @NonNull
-    public static Set<Long> getMyFollowersOf(long userId) {
+    public static LongSet getMyFollowersOf(long userId) {
         SelectedUserIds selectedAccounts = new SelectedUserIds(Timeline.EMPTY);
 
         String where = FriendshipTable.USER_ID + selectedAccounts.getSql()
@@ -592,9 +594,10 @@ public class MyQuery {
     }
 
     public static long conversationOidToId(long originId, String conversationOid) {
-        return conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.CONVERSATION_ID,
-                MsgTable.ORIGIN_ID + "=" + originId
-                + " AND " + MsgTable.CONVERSATION_OID + "=" + quoteIfNotQuoted(conversationOid));
+        return sqlToLong(null, "conversationOidToId", "SELECT " + MsgTable.CONVERSATION_ID
+                + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable.ORIGIN_ID + "=? AND " + MsgTable.CONVERSATION_OID + "=?",
+                originId, StringUtils.notNull(conversationOid));
     }
 
     @NonNull
@@ -54,6 +54,7 @@ public class ProjectionMap {
         MSG.put(MsgTable.ACTOR_ID, MsgTable.ACTOR_ID);
         MSG.put(UserTable.SENDER_NAME, UserTable.SENDER_NAME);
         MSG.put(MsgTable.BODY, MsgTable.BODY);
+        MSG.put(MsgTable.BODY_FINGERPRINT, MsgTable.BODY_FINGERPRINT);
         MSG.put(MsgTable.VIA, MsgTable.VIA);
         MSG.put(MsgTable.URL, MsgTable.URL);
         MSG.put(MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_MSG_ID);
@@ -76,6 +77,15 @@ public class ProjectionMap {
         MSG.put(FriendshipTable.SENDER_FOLLOWED, FriendshipTable.SENDER_FOLLOWED);
     }
 
+    /**
+     * Projection map for timelines, queried without sub-selects,
+     * see {@link TimelineSql#isFlattened(org.andstatus.app.timeline.TimelineType)}
+     */
+    static final Map<String, String> MSG_FLATTENED = new HashMap<>(MSG);
+    static {
+        MSG_FLATTENED.put(UserTable.LINKED_USER_ID, "mou." + MsgOfUserTable.USER_ID + " AS " + UserTable.LINKED_USER_ID);
+    }
+
     /**
      * Projection map for the {@link UserTable} table
      */
@@ -20,41 +20,56 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongSet;
 
 /**
  * Helper class to construct sql WHERE clause selecting by UserIds
  * @author yvolk@yurivolkov.com
  */
 public class SelectedUserIds {
-    private int mSize = 0;
-    private String sqlUserIds = "";
+    private final LongSet userIds;
+    private final String sqlUserIds;
 
     public SelectedUserIds(Timeline timeline) {
+        this(userIdsOf(timeline));
+    }
+
+    public SelectedUserIds(LongSet userIds) {
+        this.userIds = userIds;
+        StringBuilder sb = new StringBuilder();
+        for (long userId : userIds.toArray()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(Long.toString(userId));
+        }
+        sqlUserIds = sb.toString();
+    }
+
+    private static LongSet userIdsOf(Timeline timeline) {
+        LongSet userIds = new LongSet();
         if (timeline.getTimelineType() == TimelineType.USER) {
             if ( timeline.getUserId() != 0) {
-                mSize = 1;
-                sqlUserIds = Long.toString(timeline.getUserId());
+                userIds.add(timeline.getUserId());
             }
         } else if (timeline.isCombined() || timeline.getTimelineType().isAtOrigin()) {
-            StringBuilder sb = new StringBuilder();
             for (MyAccount ma : MyContextHolder.get().persistentAccounts().list()) {
                 if (!timeline.getOrigin().isValid() || timeline.getOrigin().equals(ma.getOrigin())) {
-                    if (sb.length() > 0) {
-                        sb.append(", ");
-                    }
-                    mSize += 1;
-                    sb.append(Long.toString(ma.getUserId()));
+                    userIds.add(ma.getUserId());
                 }
             }
-            sqlUserIds = sb.toString();
         } else if (timeline.getMyAccount().isValid()) {
-            mSize = 1;
-            sqlUserIds = Long.toString(timeline.getMyAccount().getUserId());
+            userIds.add(timeline.getMyAccount().getUserId());
         }
+        return userIds;
     }
 
     public int size() {
-        return mSize;
+        return userIds.size();
+    }
+
+    public boolean contains(long userId) {
+        return userIds.contains(userId);
     }
 
     public String getList() {
@@ -62,9 +77,9 @@ public class SelectedUserIds {
     }
 
     public String getSql() {
-        if (mSize == 1) {
+        if (size() == 1) {
             return "=" + sqlUserIds;
-        } else if (mSize > 1) {
+        } else if (size() > 1) {
             return " IN (" + sqlUserIds + ")";
         }
         return "";
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled statements of fixed-shape SQL (lookups, inserts and updates), which are reused
+ * with bound arguments instead of building and compiling a new SQL text for every call.
+ * {@link SQLiteStatement} is not synchronized, so each thread has its own cache of statements
+ * @author yvolk@yurivolkov.com
+ */
+class StatementsCache {
+    private static final String TAG = StatementsCache.class.getSimpleName();
+    static final int MAX_SIZE = 40;
+
+    private static final ThreadLocal<StatementsCache> caches = new ThreadLocal<>();
+
+    private final SQLiteDatabase db;
+    private final Map<String, SQLiteStatement> statements =
+            new LinkedHashMap<String, SQLiteStatement>(MAX_SIZE + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                    if (size() > MAX_SIZE) {
+                        DbUtils.closeSilently(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private StatementsCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /** @return the statement of this thread with the arguments bound */
+    @NonNull
+    static SQLiteStatement get(@NonNull SQLiteDatabase db, @NonNull String sql, Object... args) {
+        StatementsCache cache = caches.get();
+        if (cache == null || cache.db != db || !db.isOpen()) {
+            if (cache != null) {
+                cache.close();
+            }
+            cache = new StatementsCache(db);
+            caches.set(cache);
+        }
+        SQLiteStatement statement = cache.statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            cache.statements.put(sql, statement);
+        }
+        bind(statement, args);
+        return statement;
+    }
+
+    /** The statement failed, so it shouldn't be reused */
+    static void forget(String sql) {
+        StatementsCache cache = caches.get();
+        if (cache != null) {
+            DbUtils.closeSilently(cache.statements.remove(sql));
+        }
+    }
+
+    /** @return the row ID of the inserted row, or -1 in a case of an error */
+    static long insert(@NonNull SQLiteDatabase db, @NonNull String table, @NonNull ContentValues values) {
+        List<String> columns = sortedColumns(values);
+        StringBuilder sql = new StringBuilder("INSERT INTO " + table + " (");
+        StringBuilder placeholders = new StringBuilder();
+        for (int ind = 0; ind < columns.size(); ind++) {
+            sql.append(ind == 0 ? "" : ",").append(columns.get(ind));
+            placeholders.append(ind == 0 ? "?" : ",?");
+        }
+        sql.append(") VALUES (").append(placeholders).append(")");
+        try {
+            return get(db, sql.toString(), valuesOf(values, columns, 0)).executeInsert();
+        } catch (SQLException e) {
+            MyLog.e(TAG, "Error inserting " + values + " into " + table, e);
+            return -1;
+        }
+    }
+
+    /**
+     * @param where the condition with "?" placeholders for the whereArgs
+     * @return the number of rows updated
+     */
+    static int update(@NonNull SQLiteDatabase db, @NonNull String table, @NonNull ContentValues values,
+                      @NonNull String where, Object... whereArgs) {
+        if (values.size() == 0) {
+            return 0;
+        }
+        List<String> columns = sortedColumns(values);
+        StringBuilder sql = new StringBuilder("UPDATE " + table + " SET ");
+        for (int ind = 0; ind < columns.size(); ind++) {
+            sql.append(ind == 0 ? "" : ",").append(columns.get(ind)).append("=?");
+        }
+        sql.append(" WHERE ").append(where);
+        Object[] args = valuesOf(values, columns, whereArgs.length);
+        System.arraycopy(whereArgs, 0, args, columns.size(), whereArgs.length);
+        return get(db, sql.toString(), args).executeUpdateDelete();
+    }
+
+    private static List<String> sortedColumns(ContentValues values) {
+        List<String> columns = new ArrayList<>(values.keySet());
+        Collections.sort(columns);
+        return columns;
+    }
+
+    private static Object[] valuesOf(ContentValues values, List<String> columns, int extraSize) {
+        Object[] args = new Object[columns.size() + extraSize];
+        for (int ind = 0; ind < columns.size(); ind++) {
+            args[ind] = values.get(columns.get(ind));
+        }
+        return args;
+    }
+
+    private static void bind(SQLiteStatement statement, Object... args) {
+        statement.clearBindings();
+        for (int ind = 0; ind < args.length; ind++) {
+            Object arg = args[ind];
+            int index = ind + 1;
+            if (arg == null) {
+                statement.bindNull(index);
+            } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short
+                    || arg instanceof Byte) {
+                statement.bindLong(index, ((Number) arg).longValue());
+            } else if (arg instanceof Boolean) {
+                statement.bindLong(index, (Boolean) arg ? 1 : 0);
+            } else if (arg instanceof Double || arg instanceof Float) {
+                statement.bindDouble(index, ((Number) arg).doubleValue());
+            } else if (arg instanceof byte[]) {
+                statement.bindBlob(index, (byte[]) arg);
+            } else {
+                statement.bindString(index, arg.toString());
+            }
+        }
+    }
+
+    private void close() {
+        for (SQLiteStatement statement : statements.values()) {
+            DbUtils.closeSilently(statement);
+        }
+        statements.clear();
+    }
+}
@@ -48,19 +48,55 @@ public class TimelineSql {
     }
 
     /**
+     * Sets tables, the projection map and, for flattened queries, the "where" clause
      * @param uri the same as uri for
      *            {@link MyProvider#query(Uri, String[], String, String[], String)}
      * @param projection Projection
-     * @return String for {@link SQLiteQueryBuilder#setTables(String)}
      */
-    static String tablesForTimeline(Uri uri, String[] projection) {
+    static void setTablesForTimeline(SQLiteQueryBuilder qb, Uri uri, String[] projection) {
         Timeline timeline = Timeline.fromParsedUri(MyContextHolder.get(), ParsedUri.fromUri(uri), "");
+        boolean flattened = isFlattened(timeline.getTimelineType());
+        SqlWhere where = new SqlWhere();
+        qb.setTables(tablesForTimeline(timeline, projection, flattened, where));
+        if (flattened) {
+            qb.setProjectionMap(ProjectionMap.MSG_FLATTENED);
+            if (!TextUtils.isEmpty(where.getCondition())) {
+                qb.appendWhere(where.getCondition());
+            }
+        } else {
+            qb.setProjectionMap(ProjectionMap.MSG);
+        }
+    }
+
+    /**
+     * The most frequently used timelines are queried from the {@link MsgTable} and the {@link MsgOfUserTable}
+     * directly, without sub-selects, so that SQLite could use their indexes
+     * (and the "sent date" index for paging) on any version of Android
+     */
+    static boolean isFlattened(TimelineType timelineType) {
+        switch (timelineType) {
+            case HOME:
+            case MENTIONS:
+            case PUBLIC:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param where For a flattened query: conditions for the message table
+     * @return String for {@link SQLiteQueryBuilder#setTables(String)}
+     */
+    private static String tablesForTimeline(Timeline timeline, String[] projection, boolean flattened,
+                                            SqlWhere where) {
         SelectedUserIds selectedAccounts = new SelectedUserIds(timeline);
     
         Collection<String> columns = new java.util.HashSet<>(Arrays.asList(projection));
     
         String msgTable = MsgTable.TABLE_NAME;
-        SqlWhere where = new SqlWhere();
+        String msgPrefix = flattened ? ProjectionMap.MSG_TABLE_ALIAS + "." : "";
+        String linkedUserIdColumn = flattened ? "mou." + MsgOfUserTable.USER_ID : UserTable.LINKED_USER_ID;
 
         boolean linkedUserDefined = false;
         boolean authorNameDefined = false;
@@ -109,7 +145,7 @@ public class TimelineSql {
                 }
                 break;
             case PUBLIC:
-                where.append(MsgTable.PUBLIC + "=1");
+                where.append(msgPrefix + MsgTable.PUBLIC + "=1");
                 break;
             case DRAFTS:
                 where.append(MsgTable.MSG_STATUS + "=" + DownloadStatus.DRAFT.save());
@@ -124,18 +160,24 @@ public class TimelineSql {
         String tables = msgTable;
         if (!tables.contains(" AS " + ProjectionMap.MSG_TABLE_ALIAS)) {
             if (timeline.getTimelineType().isAtOrigin() && !timeline.isCombined()) {
-                where.append(MsgTable.ORIGIN_ID + "=" + timeline.getOrigin().getId());
+                where.append(msgPrefix + MsgTable.ORIGIN_ID + "=" + timeline.getOrigin().getId());
+            }
+            if (flattened) {
+                tables = MsgTable.TABLE_NAME + " AS " + ProjectionMap.MSG_TABLE_ALIAS;
+            } else {
+                tables = "(SELECT * FROM (" + msgTable + ")" + where.getWhere() + ") AS " + ProjectionMap.MSG_TABLE_ALIAS;
             }
-            tables = "(SELECT * FROM (" + msgTable + ")" + where.getWhere() + ") AS " + ProjectionMap.MSG_TABLE_ALIAS;
         }
 
         if (columns.contains(MsgOfUserTable.FAVORITED)
                 || (columns.contains(UserTable.LINKED_USER_ID) && !linkedUserDefined)
                 ) {
-            String tbl = "(SELECT *" 
+            String tbl = (flattened ? MsgOfUserTable.TABLE_NAME
+                    : "(SELECT *"
                     + (linkedUserDefined ? "" : ", " + MsgOfUserTable.USER_ID + " AS "
                     + UserTable.LINKED_USER_ID)
-                    + " FROM " +  MsgOfUserTable.TABLE_NAME + ") AS mou ON "
+                    + " FROM " +  MsgOfUserTable.TABLE_NAME + ")")
+                    + " AS mou ON "
                     + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "="
                     + "mou." + MsgOfUserTable.MSG_ID;
             switch (timeline.getTimelineType()) {
@@ -149,7 +191,7 @@ public class TimelineSql {
                     tables += " LEFT JOIN " + tbl;
                     break;
                 default:
-                    tbl += " AND " + UserTable.LINKED_USER_ID + selectedAccounts.getSql();
+                    tbl += " AND " + linkedUserIdColumn + selectedAccounts.getSql();
                     if (timeline.getTimelineType().isAtOrigin()) {
                         tables += " LEFT OUTER JOIN " + tbl;
                     } else {
@@ -170,16 +212,7 @@ public class TimelineSql {
             authorTableName = "author";
         }
         if (authorNameDefined && columns.contains(DownloadTable.AVATAR_FILE_NAME)) {
-            tables = "(" + tables + ") LEFT OUTER JOIN (SELECT "
-                    + DownloadTable.USER_ID + ", "
-                    + DownloadTable.DOWNLOAD_STATUS + ", "
-                    + DownloadTable.FILE_NAME
-                    + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS
-                    + " ON "
-                    + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.DOWNLOAD_STATUS
-                    + "=" + DownloadStatus.LOADED.save() + " AND " 
-                    + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.USER_ID
-                    + "=" + authorTableName + "." + BaseColumns._ID;
+            tables = avatarJoin(tables, authorTableName + "." + BaseColumns._ID);
         }
         if (columns.contains(DownloadTable.IMAGE_FILE_NAME)) {
             tables = "(" + tables + ") LEFT OUTER JOIN (SELECT "
@@ -223,7 +256,7 @@ public class TimelineSql {
                     + FriendshipTable.FOLLOWED + " AS "
                     + FriendshipTable.AUTHOR_FOLLOWED
                     + " FROM " + FriendshipTable.TABLE_NAME + ") AS followingAuthor ON ("
-                    + "followingAuthor." + FriendshipTable.USER_ID + "=" + UserTable.LINKED_USER_ID
+                    + "followingAuthor." + FriendshipTable.USER_ID + "=" + linkedUserIdColumn
                     + " AND "
                     + ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.AUTHOR_ID
                     + "=followingAuthor." + FriendshipTable.FRIEND_ID
@@ -236,7 +269,7 @@ public class TimelineSql {
                     + FriendshipTable.FOLLOWED + " AS "
                     + FriendshipTable.SENDER_FOLLOWED
                     + " FROM " + FriendshipTable.TABLE_NAME + ") AS followingSender ON ("
-                    + "followingSender." + FriendshipTable.USER_ID + "=" + UserTable.LINKED_USER_ID
+                    + "followingSender." + FriendshipTable.USER_ID + "=" + linkedUserIdColumn
                     + " AND "
                     + ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.ACTOR_ID
                     + "=followingSender." + FriendshipTable.FRIEND_ID
@@ -256,6 +289,7 @@ public class TimelineSql {
         columnNames.add(MsgTable.ACTOR_ID);
         columnNames.add(UserTable.SENDER_NAME);
         columnNames.add(MsgTable.VIA);
+        columnNames.add(MsgTable.BODY_FINGERPRINT);
         columnNames.add(MsgOfUserTable.REBLOGGED);
         return columnNames.toArray(new String[]{});
     }
@@ -297,6 +331,7 @@ public class TimelineSql {
         }
         columnNames.add(MsgTable.ACTOR_ID);
         columnNames.add(MsgTable.VIA);
+        columnNames.add(MsgTable.BODY_FINGERPRINT);
         columnNames.add(MsgOfUserTable.REBLOGGED);
         return columnNames.toArray(new String[]{});
     }
@@ -332,6 +367,24 @@ public class TimelineSql {
         return userName;
     }
 
+    /**
+     * Joins at most one avatar of a user: the loaded one, if present. An evicted avatar (ABSENT) is joined also,
+     * so a view requests its download. Both rows exist after the avatar URL changed, until the new one is loaded
+     */
+    static String avatarJoin(String tables, String userIdColumn) {
+        return "(" + tables + ") LEFT OUTER JOIN (SELECT "
+                + DownloadTable._ID + ", "
+                + DownloadTable.FILE_NAME
+                + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS
+                + " ON "
+                + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable._ID + "=(SELECT "
+                + DownloadTable._ID + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.USER_ID + "=" + userIdColumn
+                + " AND " + DownloadTable.DOWNLOAD_STATUS
+                + " IN (" + DownloadStatus.LOADED.save() + ", " + DownloadStatus.ABSENT.save() + ")"
+                + " ORDER BY " + DownloadTable.DOWNLOAD_STATUS + " LIMIT 1)";
+    }
+
     private static String userNameField() {
         UserInTimeline userInTimeline = MyPreferences.getUserInTimeline();
         return MyQuery.userNameField(userInTimeline);
@@ -46,16 +46,7 @@ public class UserListSql {
 
         String tables = UserTable.TABLE_NAME;
         if (columns.contains(DownloadTable.AVATAR_FILE_NAME)) {
-            tables = "(" + tables + ") LEFT OUTER JOIN (SELECT "
-                    + DownloadTable.USER_ID + ", "
-                    + DownloadTable.DOWNLOAD_STATUS + ", "
-                    + DownloadTable.FILE_NAME
-                    + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS
-                    + " ON "
-                    + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.DOWNLOAD_STATUS
-                    + "=" + DownloadStatus.LOADED.save() + " AND "
-                    + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.USER_ID
-                    + "=" + UserTable.TABLE_NAME + "." + BaseColumns._ID;
+            tables = TimelineSql.avatarJoin(tables, UserTable.TABLE_NAME + "." + BaseColumns._ID);
         }
         return tables;
     }
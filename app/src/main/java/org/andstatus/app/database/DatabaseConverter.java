@@ -17,15 +17,18 @@
 package org.andstatus.app.database;
 
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
+import android.text.TextUtils;
 
 import org.andstatus.app.account.MyAccountConverter;
 import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.data.ApplicationUpgradeException;
 import org.andstatus.app.data.DbUtils;
-import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.util.ContentFingerprint;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
@@ -34,6 +37,11 @@ import java.io.File;
 
 class DatabaseConverter {
     public static final int PARTIAL_INDEX_SUPPORTED = Build.VERSION_CODES.LOLLIPOP;
+    /** Number of rows, converted and committed at once, see {@link OneStep#convertInBatches} */
+    static final int BATCH_SIZE = 2000;
+    /** The last converted row of an interrupted step. The table exists only during an upgrade */
+    static final String CHECKPOINT_TABLE = "converter_checkpoint";
+    private static final long PROGRESS_REPORT_PERIOD_SECONDS = 2;
     long startTime = java.lang.System.currentTimeMillis();
     ProgressLogger progressLogger;
 
@@ -88,6 +96,10 @@ class DatabaseConverter {
                     MyLog.e(this, "Stuck at version " + prevVersion + "\n"
                             + "Error: " + lastError);
                     oneStep = null;
+                } else {
+                    // An interrupted upgrade will continue from the next step
+                    db.setVersion(currentVersion);
+                    commit(db);
                 }
             } catch (ClassNotFoundException e) {
                 converterNotFound = true;
@@ -105,6 +117,7 @@ class DatabaseConverter {
         } while (oneStep != null && currentVersion < newVersion);
 
         if (currentVersion == newVersion) {
+            DbUtils.execSQL(db, "DROP TABLE IF EXISTS " + CHECKPOINT_TABLE);
             MyLog.i(this, "Successfully upgraded database from version " + oldVersion + " to version "
                     + newVersion + ".");
         } else {
@@ -123,7 +136,27 @@ class DatabaseConverter {
         }
     }
 
-    private static abstract class OneStep {
+    /**
+     * SQLiteOpenHelper executes the whole upgrade in one transaction. We commit it and begin the next one,
+     * so the work done is not lost, if the upgrade is interrupted
+     */
+    static void commit(SQLiteDatabase db) {
+        if (db.inTransaction()) {
+            db.setTransactionSuccessful();
+            db.endTransaction();
+            db.beginTransaction();
+        }
+    }
+
+    interface RowConverter {
+        /**
+         * @param cursor Its first column is _id of the row, then requested columns follow
+         * @return true if the statement was bound and needs to be executed
+         */
+        boolean bind(Cursor cursor, SQLiteStatement statement);
+    }
+
+    static abstract class OneStep {
         SQLiteDatabase db;
         int oldVersion;
         ProgressLogger progressLogger;
@@ -131,6 +164,8 @@ class DatabaseConverter {
         String sql = "";
         protected String lastError = "?";
         protected String stepTitle = "";
+        /** _id of the last row, converted before this step was interrupted, or -1 if it wasn't */
+        long resumeAfterId = -1;
 
         int execute(SQLiteDatabase db, int oldVersion, ProgressLogger progressLogger) {
             boolean ok = false;
@@ -139,7 +174,8 @@ class DatabaseConverter {
             this.progressLogger = progressLogger;
             try {
                 stepTitle = "Database upgrading step from version " + oldVersion + " to version " + versionTo;
-                MyLog.i(this, stepTitle);
+                resumeAfterId = loadCheckpoint();
+                MyLog.i(this, stepTitle + (isResumed() ? ", resumed after row " + resumeAfterId : ""));
                 execute2();
                 ok = true;
             } catch (Exception e) {
@@ -160,6 +196,82 @@ class DatabaseConverter {
 
         protected abstract void execute2();
 
+        /** The step was interrupted, so its changes of the schema have been done already */
+        boolean isResumed() {
+            return resumeAfterId >= 0;
+        }
+
+        /**
+         * Converts rows of the table in batches, ordered by _id. Each batch is committed together with
+         * the checkpoint, so the step, which was interrupted (e.g. the app was killed), continues after the last
+         * committed batch
+         * @param where Optional condition for the rows to convert
+         * @param updateSql The statement, which is bound by the converter for each row
+         */
+        protected void convertInBatches(String table, String columns, String where, String updateSql,
+                                        RowConverter converter) {
+            String condition = TextUtils.isEmpty(where) ? "" : " AND (" + where + ")";
+            long lastId = isResumed() ? resumeAfterId : Long.MIN_VALUE;
+            long total = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + table
+                    + " WHERE 1=1" + condition, null);
+            long converted = isResumed() ? DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + table
+                    + " WHERE _id<=" + lastId + condition, null) : 0;
+            SQLiteStatement statement = db.compileStatement(updateSql);
+            try {
+                int rows;
+                do {
+                    rows = 0;
+                    Cursor cursor = null;
+                    try {
+                        cursor = db.rawQuery("SELECT _id, " + columns + " FROM " + table
+                                + " WHERE _id>" + lastId + condition
+                                + " ORDER BY _id LIMIT " + BATCH_SIZE, null);
+                        while (cursor.moveToNext()) {
+                            statement.clearBindings();
+                            if (converter.bind(cursor, statement)) {
+                                statement.executeUpdateDelete();
+                            }
+                            lastId = cursor.getLong(0);
+                            rows++;
+                        }
+                    } finally {
+                        DbUtils.closeSilently(cursor);
+                    }
+                    if (rows > 0) {
+                        converted += rows;
+                        saveCheckpoint(lastId);
+                        commit(db);
+                        if (progressLogger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                            progressLogger.logProgress(stepTitle + ": converted " + converted
+                                    + " of " + total + " rows");
+                            if (DatabaseConverterController.isUpgrading()) {
+                                DatabaseConverterController.stillUpgrading();
+                            }
+                        }
+                    }
+                } while (rows == BATCH_SIZE);
+            } finally {
+                DbUtils.closeSilently(statement);
+            }
+            deleteCheckpoint();
+        }
+
+        private long loadCheckpoint() {
+            DbUtils.execSQL(db, "CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE
+                    + " (version INTEGER PRIMARY KEY, last_id INTEGER NOT NULL)");
+            return DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(last_id), -1) FROM " + CHECKPOINT_TABLE
+                    + " WHERE version=" + oldVersion, null);
+        }
+
+        private void saveCheckpoint(long lastId) {
+            db.execSQL("INSERT OR REPLACE INTO " + CHECKPOINT_TABLE + " (version, last_id) VALUES ("
+                    + oldVersion + ", " + lastId + ")");
+        }
+
+        private void deleteCheckpoint() {
+            db.execSQL("DELETE FROM " + CHECKPOINT_TABLE + " WHERE version=" + oldVersion);
+        }
+
         public String getLastError() {
             return lastError;
         }
@@ -384,42 +496,128 @@ class DatabaseConverter {
 
         @Override
         protected void execute2() {
-            sql = "DROP INDEX idx_msg_in_reply_to_msg_id";
-            DbUtils.execSQL(db, sql);
+            if (!isResumed()) {
+                sql = "DROP INDEX idx_msg_in_reply_to_msg_id";
+                DbUtils.execSQL(db, sql);
 
-            sql = "ALTER TABLE msg ADD COLUMN conversation_id INTEGER";
-            DbUtils.execSQL(db, sql);
-            sql = "ALTER TABLE msg ADD COLUMN conversation_oid TEXT";
-            DbUtils.execSQL(db, sql);
-            sql = "ALTER TABLE msg ADD COLUMN body_to_search TEXT";
-            DbUtils.execSQL(db, sql);
-            sql = "CREATE INDEX idx_msg_in_reply_to_msg_id ON msg (" + "in_reply_to_msg_id" + ")" +
-                    (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
-                            " WHERE " + "in_reply_to_msg_id" + " IS NOT NULL" : "");
-            DbUtils.execSQL(db, sql);
-            sql = "CREATE INDEX idx_msg_conversation_id ON msg (" + "conversation_id" + ")" +
-                    (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
-                            " WHERE " + "conversation_id" + " IS NOT NULL" : "");
-            DbUtils.execSQL(db, sql);
+                sql = "ALTER TABLE msg ADD COLUMN conversation_id INTEGER";
+                DbUtils.execSQL(db, sql);
+                sql = "ALTER TABLE msg ADD COLUMN conversation_oid TEXT";
+                DbUtils.execSQL(db, sql);
+                sql = "ALTER TABLE msg ADD COLUMN body_to_search TEXT";
+                DbUtils.execSQL(db, sql);
+                sql = "CREATE INDEX idx_msg_in_reply_to_msg_id ON msg (" + "in_reply_to_msg_id" + ")" +
+                        (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
+                                " WHERE " + "in_reply_to_msg_id" + " IS NOT NULL" : "");
+                DbUtils.execSQL(db, sql);
+                sql = "CREATE INDEX idx_msg_conversation_id ON msg (" + "conversation_id" + ")" +
+                        (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
+                                " WHERE " + "conversation_id" + " IS NOT NULL" : "");
+                DbUtils.execSQL(db, sql);
+            }
 
-            String sql = "SELECT _id, body FROM msg";
-            Cursor c = null;
-            int count = 0;
-            try {
-                c = db.rawQuery(sql, null);
-                while (c.moveToNext()) {
-                    sql = "UPDATE msg SET body_to_search=" + MyQuery.quoteIfNotQuoted(MyHtml.getBodyToSearch(c.getString(1)))
-                    + " WHERE _id=" + c.getLong(0);
-                    db.execSQL(sql);
-                    count++;
-                    if (progressLogger.loggedMoreSecondsAgoThan(10)) {
-                        progressLogger.logProgress(stepTitle + ": converted " + count + " rows");
+            sql = "UPDATE msg SET body_to_search=? WHERE _id=?";
+            convertInBatches("msg", "body", "", sql, new RowConverter() {
+                @Override
+                public boolean bind(Cursor cursor, SQLiteStatement statement) {
+                    String bodyToSearch = MyHtml.getBodyToSearch(cursor.getString(1));
+                    if (bodyToSearch == null) {
+                        statement.bindNull(1);
+                    } else {
+                        statement.bindString(1, bodyToSearch);
                     }
+                    statement.bindLong(2, cursor.getLong(0));
+                    return true;
                 }
-            } finally {
-                DbUtils.closeSilently(c);
+            });
+        }
+    }
+
+    static class Convert26 extends OneStep {
+        Convert26() {
+            versionTo = 27;
+        }
+
+        @Override
+        protected void execute2() {
+            if (!isResumed()) {
+                sql = "ALTER TABLE download ADD COLUMN file_size INTEGER NOT NULL DEFAULT 0";
+                DbUtils.execSQL(db, sql);
+                sql = "ALTER TABLE download ADD COLUMN last_accessed_date INTEGER NOT NULL DEFAULT 0";
+                DbUtils.execSQL(db, sql);
+                sql = "UPDATE download SET last_accessed_date=valid_from";
+                DbUtils.execSQL(db, sql);
+                sql = "CREATE INDEX idx_download_last_accessed ON download (download_status, last_accessed_date)";
+                DbUtils.execSQL(db, sql);
+            }
+
+            final File downloadsDir = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+            sql = "UPDATE download SET file_size=? WHERE _id=?";
+            convertInBatches("download", "file_name", "download_status=2 AND file_name IS NOT NULL", sql,
+                    new RowConverter() {
+                @Override
+                public boolean bind(Cursor cursor, SQLiteStatement statement) {
+                    File file = new File(downloadsDir, cursor.getString(1));
+                    if (!file.exists()) {
+                        return false;
+                    }
+                    statement.bindLong(1, file.length());
+                    statement.bindLong(2, cursor.getLong(0));
+                    return true;
+                }
+            });
+        }
+    }
+
+    static class Convert27 extends OneStep {
+        Convert27() {
+            versionTo = 28;
+        }
+
+        @Override
+        protected void execute2() {
+            if (!isResumed()) {
+                sql = "ALTER TABLE msg ADD COLUMN body_fingerprint INTEGER NOT NULL DEFAULT 0";
+                DbUtils.execSQL(db, sql);
             }
 
+            sql = "UPDATE msg SET body_fingerprint=? WHERE _id=?";
+            convertInBatches("msg", "body", "body IS NOT NULL", sql, new RowConverter() {
+                @Override
+                public boolean bind(Cursor cursor, SQLiteStatement statement) {
+                    long fingerprint = ContentFingerprint.fromBody(cursor.getString(1));
+                    if (fingerprint == ContentFingerprint.EMPTY) {
+                        return false;
+                    }
+                    statement.bindLong(1, fingerprint);
+                    statement.bindLong(2, cursor.getLong(0));
+                    return true;
+                }
+            });
+        }
+    }
+
+    static class Convert28 extends OneStep {
+        Convert28() {
+            versionTo = 29;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE timeline ADD COLUMN sync_interval INTEGER NOT NULL DEFAULT 0";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert29 extends OneStep {
+        Convert29() {
+            versionTo = 30;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE origin ADD COLUMN upload_limit INTEGER NOT NULL DEFAULT 0";
+            DbUtils.execSQL(db, sql);
         }
     }
 
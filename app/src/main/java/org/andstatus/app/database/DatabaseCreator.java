@@ -31,6 +31,11 @@ public class DatabaseCreator {
      * This is used to check (and upgrade if necessary)
      * existing database after application update.
      *
+     * v.30 2017-07-22 app.v.36 Upload limit added to OriginTable to downscale attached images before upload
+     * v.29 2017-07-18 app.v.36 Sync interval added to TimelineTable to sync quiet timelines less frequently
+     * v.28 2017-07-16 app.v.36 Body fingerprint added to MsgTable to collapse duplicated messages faster
+     * v.27 2017-07-10 app.v.36 File size and last access date added to DownloadTable
+     *                 to keep downloaded media within a storage quota
      * v.26 2016-11-27 app.v.31 Conversation ID added to MsgTable, see https://github.com/andstatus/andstatus/issues/361
      * v.25 2016-06-07 app.v.27 TimelineTable and CommandTable added
      * v.24 2016-02-27 app.v.23 several attributes added to User, https://github.com/andstatus/andstatus/issues/320
@@ -54,7 +59,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 26;
+    public static final int DATABASE_VERSION = 30;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
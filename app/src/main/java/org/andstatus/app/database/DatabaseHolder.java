@@ -17,23 +17,41 @@
 package org.andstatus.app.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import org.andstatus.app.context.MyContextState;
 import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 
+/**
+ * The database is opened in the Write-Ahead Logging mode: a sync, which writes in the background,
+ * doesn't block reading of timelines. Android keeps one primary connection, which does all the writing
+ * (so writes of all background threads are serialized there), and a pool of connections for reading
+ */
 public final class DatabaseHolder extends SQLiteOpenHelper  {
+    private static final String TAG = DatabaseHolder.class.getSimpleName();
     private final boolean creationEnabled;
     private boolean wasNotCreated = false;
 
     public static final String DATABASE_NAME = "andstatus.sqlite";
+    /** The log is checkpointed automatically, when it grows to this number of pages (Android default is 100),
+     * so bulk inserts of a sync aren't interrupted by frequent checkpoints.
+     * The rest of the log is checkpointed after the sync, see {@link #checkpoint(SQLiteDatabase, boolean)} */
+    static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+    /** The log file is truncated to this size after a checkpoint */
+    static final long WAL_SIZE_LIMIT_BYTES = 4 * 1024 * 1024;
 
     public DatabaseHolder(Context context, boolean creationEnabled) {
         super(context, DATABASE_NAME, null, DatabaseCreator.DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
         this.creationEnabled = creationEnabled;
         File databasePath = context.getDatabasePath(DATABASE_NAME);
         if (databasePath == null || (!creationEnabled && !databasePath.exists())) {
@@ -94,4 +112,100 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
         onUpgradeTriggered.set(true);
         new DatabaseConverterController().onUpgrade(db, oldVersion, newVersion);
     }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        if (!db.isWriteAheadLoggingEnabled()) {
+            return;
+        }
+        // Settings of the primary connection, which is used for transactions
+        db.beginTransactionNonExclusive();
+        try {
+            pragma(db, "wal_autocheckpoint=" + WAL_AUTOCHECKPOINT_PAGES);
+            pragma(db, "journal_size_limit=" + WAL_SIZE_LIMIT_BYTES);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Moves content of the Write-Ahead Log to the database file
+     * @param full if true, waits for writers and ensures that the database file has all the data
+     *             (e.g. before copying the file), otherwise checkpoints as much as possible without waiting
+     */
+    public static void checkpoint(SQLiteDatabase db, boolean full) {
+        if (db == null || !db.isOpen() || !db.isWriteAheadLoggingEnabled()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        String result = pragma(db, "wal_checkpoint(" + (full ? "FULL" : "PASSIVE") + ")");
+        MyLog.v(TAG, "Checkpoint " + (full ? "full" : "passive") + " " + result + " in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Creates a consistent point-in-time copy of the database, which is used and changed meanwhile.
+     * Readers aren't blocked, and writers wait only for a local copy of the database file and of its
+     * Write-Ahead Log. The copied log is applied then, so the snapshot is a single file
+     * @param db The database, opened by the application
+     * @param databaseFile The file of the database
+     */
+    public static void snapshot(SQLiteDatabase db, File databaseFile, File snapshotFile) throws IOException {
+        if (db == null || !db.isOpen()) {
+            throw new FileNotFoundException("Database is not open: '" + databaseFile.getAbsolutePath() + "'");
+        }
+        SQLiteDatabase.deleteDatabase(snapshotFile);
+        // The shorter the log, the shorter the pause of writers
+        checkpoint(db, false);
+        File walFile = new File(databaseFile.getPath() + "-wal");
+        long startTime = System.currentTimeMillis();
+        // Other writers wait, and the log cannot be reset, while we hold the lock
+        db.beginTransactionNonExclusive();
+        try {
+            FileUtils.copyFile(databaseFile, snapshotFile);
+            if (walFile.exists()) {
+                FileUtils.copyFile(walFile, new File(snapshotFile.getPath() + "-wal"));
+            }
+        } finally {
+            db.endTransaction();
+        }
+        MyLog.v(TAG, "Snapshot copied, writers waited " + (System.currentTimeMillis() - startTime) + "ms");
+
+        // Opening the copy recovers it, just as after a crash: the committed part of the log is applied
+        SQLiteDatabase snapshot = SQLiteDatabase.openDatabase(snapshotFile.getAbsolutePath(), null,
+                SQLiteDatabase.OPEN_READWRITE);
+        try {
+            pragma(snapshot, "wal_checkpoint(TRUNCATE)");
+        } finally {
+            snapshot.close();
+        }
+        deleteIfExists(new File(snapshotFile.getPath() + "-wal"));
+        deleteIfExists(new File(snapshotFile.getPath() + "-shm"));
+    }
+
+    private static void deleteIfExists(File file) {
+        if (file.exists() && !file.delete()) {
+            MyLog.v(TAG, "Couldn't delete '" + file.getAbsolutePath() + "'");
+        }
+    }
+
+    /** @return the first row of the result */
+    private static String pragma(SQLiteDatabase db, String pragma) {
+        StringBuilder builder = new StringBuilder();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("PRAGMA " + pragma, null);
+            if (cursor.moveToFirst()) {
+                for (int ind = 0; ind < cursor.getColumnCount(); ind++) {
+                    builder.append(ind == 0 ? "" : ", ").append(cursor.getString(ind));
+                }
+            }
+        } catch (Exception e) {
+            MyLog.d(TAG, "PRAGMA " + pragma + " failed", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return builder.toString();
+    }
 }
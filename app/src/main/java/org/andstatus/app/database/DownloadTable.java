@@ -55,6 +55,13 @@ public final class DownloadTable implements BaseColumns {
      */
     public static final String DOWNLOAD_STATUS = "download_status";
     public static final String FILE_NAME = "file_name";
+    /** Size of the downloaded file in bytes, 0 if the file is absent */
+    public static final String FILE_SIZE = "file_size";
+    /**
+     * Date and time the downloaded file was shown (accessed) last time.
+     * Used to evict least recently used files, see {@link org.andstatus.app.data.MediaStorageQuota}
+     */
+    public static final String LAST_ACCESSED_DATE = "last_accessed_date";
 
     /*
      * Derived columns (they are not stored in this table but are result of joins)
@@ -78,7 +85,9 @@ public final class DownloadTable implements BaseColumns {
                 + DownloadTable.URI + " TEXT NOT NULL,"
                 + DownloadTable.LOADED_DATE + " INTEGER,"
                 + DownloadTable.DOWNLOAD_STATUS + " INTEGER NOT NULL DEFAULT 0,"
-                + DownloadTable.FILE_NAME + " TEXT"
+                + DownloadTable.FILE_NAME + " TEXT,"
+                + DownloadTable.FILE_SIZE + " INTEGER NOT NULL DEFAULT 0,"
+                + DownloadTable.LAST_ACCESSED_DATE + " INTEGER NOT NULL DEFAULT 0"
                 + ")");
 
         DbUtils.execSQL(db, "CREATE INDEX idx_download_user ON " + DownloadTable.TABLE_NAME + " ("
@@ -91,5 +100,10 @@ public final class DownloadTable implements BaseColumns {
                 + DownloadTable.CONTENT_TYPE  + ", "
                 + DownloadTable.DOWNLOAD_STATUS
                 + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_last_accessed ON " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.DOWNLOAD_STATUS + ", "
+                + DownloadTable.LAST_ACCESSED_DATE
+                + ")");
     }
 }
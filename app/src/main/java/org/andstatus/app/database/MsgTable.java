@@ -89,6 +89,11 @@ public final class MsgTable implements BaseColumns {
      * Body text, prepared for easy searching in a database
      */
     public static final String BODY_TO_SEARCH = "body_to_search";
+    /**
+     * SimHash of the cleaned body, see {@link org.andstatus.app.util.ContentFingerprint}.
+     * Used to find duplicated messages
+     */
+    public static final String BODY_FINGERPRINT = "body_fingerprint";
     /**
      * String generally describing Client's software used to post this message
      * It's like "User Agent" string in the browsers?!: "via ..."
@@ -151,6 +156,7 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.RECIPIENT_ID + " INTEGER,"
                 + MsgTable.BODY + " TEXT,"
                 + MsgTable.BODY_TO_SEARCH + " TEXT,"
+                + MsgTable.BODY_FINGERPRINT + " INTEGER NOT NULL DEFAULT 0,"
                 + MsgTable.VIA + " TEXT,"
                 + MsgTable.URL + " TEXT,"
                 + MsgTable.IN_REPLY_TO_MSG_ID + " INTEGER,"
@@ -45,6 +45,8 @@ public final class OriginTable implements BaseColumns {
     public static final String ALLOW_HTML = "allow_html";
     public static final String TEXT_LIMIT = "text_limit";
     public static final String SHORT_URL_LENGTH = "short_url_length";
+    /** Maximum size of an uploaded media file in bytes, 0 means unknown */
+    public static final String UPLOAD_LIMIT = "upload_limit";
     public static final String MENTION_AS_WEBFINGER_ID = "mention_as_webfinger_id";
     public static final String USE_LEGACY_HTTP = "use_legacy_http";
     /**
@@ -67,6 +69,7 @@ public final class OriginTable implements BaseColumns {
                 + OriginTable.ALLOW_HTML + " BOOLEAN DEFAULT 1 NOT NULL,"
                 + OriginTable.TEXT_LIMIT + " INTEGER NOT NULL,"
                 + OriginTable.SHORT_URL_LENGTH + " INTEGER NOT NULL DEFAULT 0,"
+                + OriginTable.UPLOAD_LIMIT + " INTEGER NOT NULL DEFAULT 0,"
                 + OriginTable.MENTION_AS_WEBFINGER_ID + " INTEGER DEFAULT " + TriState.UNKNOWN.getId() + " NOT NULL,"
                 + OriginTable.USE_LEGACY_HTTP + " INTEGER DEFAULT " + TriState.UNKNOWN.getId() + " NOT NULL,"
                 + OriginTable.IN_COMBINED_GLOBAL_SEARCH + " BOOLEAN DEFAULT 1 NOT NULL,"
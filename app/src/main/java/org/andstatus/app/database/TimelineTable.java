@@ -54,6 +54,8 @@ public class TimelineTable implements BaseColumns {
     public static final String SYNC_FAILED_DATE = "sync_failed_date";
     /** Error message at {@link #SYNC_FAILED_DATE} */
     public static final String ERROR_MESSAGE = "error_message";
+    /** Interval between automatic syncs of this timeline, adapted to the rate of new messages */
+    public static final String SYNC_INTERVAL = "sync_interval";
 
     /** Number of successful sync operations: "Synced {@link #SYNCED_TIMES_COUNT} times" */
     public static final String SYNCED_TIMES_COUNT = "synced_times_count";
@@ -109,6 +111,7 @@ public class TimelineTable implements BaseColumns {
                 + TimelineTable.SYNC_SUCCEEDED_DATE + " INTEGER,"
                 + TimelineTable.SYNC_FAILED_DATE + " INTEGER,"
                 + TimelineTable.ERROR_MESSAGE + " TEXT,"
+                + TimelineTable.SYNC_INTERVAL + " INTEGER DEFAULT 0 NOT NULL,"
 
                 + TimelineTable.SYNCED_TIMES_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
                 + TimelineTable.SYNC_FAILED_TIMES_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
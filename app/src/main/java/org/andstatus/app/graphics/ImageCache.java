@@ -35,6 +35,7 @@ import android.util.DisplayMetrics;
 import android.util.LruCache;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.MediaStorageQuota;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
@@ -158,6 +159,9 @@ public class ImageCache extends LruCache<String, CachedImage> {
                 }
             }
         }
+        if (image != null) {
+            MediaStorageQuota.onImageAccessed(name, imageId);
+        }
         return image;
     }
 
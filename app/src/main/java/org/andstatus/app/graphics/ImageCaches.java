@@ -56,7 +56,12 @@ public class ImageCaches {
 
     public static synchronized void initialize(Context context) {
         styledImages.clear();
-        if (attachedImagesCache != null) {
+        initializeIfNeeded(context);
+    }
+
+    /** The caches preallocate their bitmaps, so they are initialized once, on the first use */
+    private static synchronized void initializeIfNeeded(Context context) {
+        if (avatarsCache != null || context == null) {
             return;
         }
         initializeAttachedImagesCache(context);
@@ -146,6 +151,9 @@ public class ImageCaches {
     }
 
     public static ImageCache getCache(CacheName cacheName) {
+        if (avatarsCache == null) {
+            initializeIfNeeded(MyContextHolder.get().context());
+        }
         switch (cacheName) {
             case ATTACHED_IMAGE:
                 return attachedImagesCache;
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Makes an image, attached to a message, smaller before its upload: camera photos are too large
+ * for mobile links and for upload limits of many servers.
+ * Only JPEG and PNG images are re-encoded (e.g. animated GIFs are not)
+ * @author yvolk@yurivolkov.com
+ */
+public class ImageDownscaler {
+    private static final String TAG = ImageDownscaler.class.getSimpleName();
+    /** Maximum width and height of a downscaled image */
+    static final int MAX_DIMENSION = 2048;
+    /** We don't go below this while trying to fit an upload limit */
+    static final int MIN_DIMENSION = 256;
+    static final int JPEG_QUALITY = 85;
+
+    private ImageDownscaler() {
+        // Empty
+    }
+
+    /**
+     * The file is replaced with the downscaled image, if the image is larger than {@link #MAX_DIMENSION},
+     * or the file is larger than the upload limit, or the image has to be rotated.
+     * If even the image of {@link #MIN_DIMENSION} is larger than the upload limit, the file is replaced
+     * with that smallest image anyway, and this is logged
+     * @param uploadLimit in bytes, 0 if unknown
+     * @return true if the file was replaced
+     */
+    public static boolean downscale(File file, long uploadLimit) {
+        final String method = "downscale";
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), bounds);
+        Bitmap.CompressFormat format = toCompressFormat(bounds.outMimeType);
+        if (format == null || bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return false;
+        }
+        int rotation = format == Bitmap.CompressFormat.JPEG ? getRotationDegrees(file) : 0;
+        int sampleSize = 1;
+        while (Math.max(bounds.outWidth, bounds.outHeight) / sampleSize > MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+        if (sampleSize == 1 && rotation == 0 && (uploadLimit <= 0 || file.length() <= uploadLimit)) {
+            return false;
+        }
+        File fileTemp = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            int encodedSampleSize = sampleSize;
+            do {
+                if (!encode(file, fileTemp, sampleSize, rotation, format)) {
+                    return false;
+                }
+                encodedSampleSize = sampleSize;
+                if (uploadLimit <= 0 || fileTemp.length() <= uploadLimit) {
+                    break;
+                }
+                sampleSize *= 2;
+            } while (Math.max(bounds.outWidth, bounds.outHeight) / sampleSize >= MIN_DIMENSION);
+            long lengthBefore = file.length();
+            if (!file.delete() || !fileTemp.renameTo(file)) {
+                MyLog.w(TAG, method + "; couldn't replace '" + file.getAbsolutePath() + "'");
+                return false;
+            }
+            String msgLog = method + "; " + bounds.outWidth + "x" + bounds.outHeight + " scaled by "
+                    + encodedSampleSize + " times, rotated by " + rotation + "; " + lengthBefore + " -> "
+                    + file.length() + " bytes";
+            if (uploadLimit > 0 && file.length() > uploadLimit) {
+                MyLog.w(TAG, msgLog + ", still larger than the upload limit " + uploadLimit + " bytes");
+            } else {
+                MyLog.v(TAG, msgLog);
+            }
+            return true;
+        } catch (IOException | OutOfMemoryError e) {
+            MyLog.w(TAG, method + "; '" + file.getAbsolutePath() + "'", e);
+            return false;
+        } finally {
+            if (fileTemp.exists() && !fileTemp.delete()) {
+                MyLog.v(TAG, method + "; couldn't delete '" + fileTemp.getAbsolutePath() + "'");
+            }
+        }
+    }
+
+    private static Bitmap.CompressFormat toCompressFormat(String mimeType) {
+        if ("image/jpeg".equals(mimeType)) {
+            return Bitmap.CompressFormat.JPEG;
+        } else if ("image/png".equals(mimeType)) {
+            return Bitmap.CompressFormat.PNG;
+        }
+        return null;
+    }
+
+    /** Re-encoded image has no EXIF, so we apply its orientation to the pixels */
+    private static int getRotationDegrees(File file) {
+        try {
+            switch (new ExifInterface(file.getAbsolutePath()).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            MyLog.d(TAG, "getRotationDegrees; '" + file.getAbsolutePath() + "'", e);
+            return 0;
+        }
+    }
+
+    private static boolean encode(File source, File destination, int sampleSize, int rotation,
+                                  Bitmap.CompressFormat format) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Sampling by the decoder is cheap and doesn't allocate memory for the full size image
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (bitmap == null) {
+            return false;
+        }
+        if (rotation != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(rotation);
+            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            if (rotated != bitmap) {
+                bitmap.recycle();
+                bitmap = rotated;
+            }
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(destination, false);
+            return bitmap.compress(format, JPEG_QUALITY, out);
+        } finally {
+            DbUtils.closeSilently(out);
+            bitmap.recycle();
+        }
+    }
+}
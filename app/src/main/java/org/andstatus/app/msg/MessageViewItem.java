@@ -29,6 +29,7 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.util.ContentFingerprint;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.RelativeTime;
@@ -43,7 +44,6 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>, ViewItem {
-    private static final int MIN_LENGTH_TO_COMPARE = 5;
     private MyContext myContext = MyContextHolder.get();
     long updatedDate = 0;
     long sentDate = 0;
@@ -66,6 +66,7 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
 
     private String body = "";
     private String cleanedBody = "";
+    long bodyFingerprint = ContentFingerprint.EMPTY;
 
     boolean favorited = false;
     boolean isFavoritingAction = false;
@@ -158,10 +159,11 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         }
         if (link == DuplicationLink.NONE) {
             if (Math.abs(updatedDate - other.updatedDate) < TimeUnit.HOURS.toMillis(24)) {
-                if (cleanedBody.length() < MIN_LENGTH_TO_COMPARE ||
-                        other.cleanedBody.length() < MIN_LENGTH_TO_COMPARE) {
+                if (cleanedBody.length() < ContentFingerprint.MIN_LENGTH_TO_COMPARE ||
+                        other.cleanedBody.length() < ContentFingerprint.MIN_LENGTH_TO_COMPARE) {
                     // Too short to compare
-                } else if (cleanedBody.equals(other.cleanedBody)) {
+                } else if (ContentFingerprint.areSimilar(getBodyFingerprint(), other.getBodyFingerprint())
+                        || cleanedBody.equals(other.cleanedBody)) {
                     if (updatedDate == other.updatedDate) {
                         link = duplicatesByFavoritedAndReblogged(other);
                     } else if (updatedDate < other.updatedDate) {
@@ -261,6 +263,15 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         return body;
     }
 
+    /** Stored fingerprint or, if it wasn't stored, calculated from the body */
+    public long getBodyFingerprint() {
+        if (bodyFingerprint == ContentFingerprint.EMPTY
+                && cleanedBody.length() >= ContentFingerprint.MIN_LENGTH_TO_COMPARE) {
+            bodyFingerprint = ContentFingerprint.fromCleanedBody(cleanedBody);
+        }
+        return bodyFingerprint;
+    }
+
     @Override
     public long getId() {
         return getMsgId();
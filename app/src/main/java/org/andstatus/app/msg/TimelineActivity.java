@@ -50,6 +50,7 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MySettingsActivity;
+import org.andstatus.app.context.StartupMetrics;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.service.CommandData;
@@ -729,12 +730,18 @@ public class TimelineActivity extends MessageEditorListActivity implements
         listData = dataNew;
         TimelineAdapter listAdapter = getListAdapter();
         if (listAdapter != null) {
-            // Old value of listData is modified also
-            listAdapter.notifyDataSetChanged();
+            // Old value of listData is modified also. Views of unchanged messages are reused
+            listAdapter.setListData(dataNew);
         }
         return dataNew;
     }
 
+    @Override
+    protected boolean isListAdapterUpdated() {
+        TimelineAdapter listAdapter = getListAdapter();
+        return listAdapter != null && listAdapter.getListData() == getListData();
+    }
+
     @Override
     public void showList(WhichPage whichPage) {
         showList(whichPage, TriState.FALSE);
@@ -823,6 +830,8 @@ public class TimelineActivity extends MessageEditorListActivity implements
     public void onLoadFinished(boolean keepCurrentPosition_in) {
         final String method = "onLoadFinished";
         verboseListPositionLog(method, "started");
+        // The adapter shows the new data right after it's set
+        saveListPosition();
         TimelineData dataLoaded = setAndGetListData(((TimelineLoader) getLoaded()).getPage());
         MyLog.v(this, method + "; " + dataLoaded.params.toSummary());
 
@@ -858,6 +867,7 @@ public class TimelineActivity extends MessageEditorListActivity implements
         }
         hideLoading(method);
         updateScreen();
+        StartupMetrics.onTimelineFrame();
         clearNotifications();
         if (isParamsChanged) {
             MyLog.v(this, method + "; Parameters changed, requesting " + otherParams.toSummary());
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.msg;
 
+import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -28,7 +29,7 @@ import org.andstatus.app.util.MyUrlSpan;
  * @author yvolk@yurivolkov.com
  */
 public class TimelineAdapter extends MessageListAdapter<TimelineViewItem> {
-    private final TimelineData listData;
+    private volatile TimelineData listData;
     private int positionPrev = -1;
     private int messageNumberShownCounter = 0;
     private final String TOP_TEXT;
@@ -49,6 +50,45 @@ public class TimelineAdapter extends MessageListAdapter<TimelineViewItem> {
         return listData.getItem(position);
     }
 
+    /** Show new data, keeping views of the messages, which didn't change */
+    public void setListData(TimelineData listData) {
+        this.listData = listData;
+        notifyDataSetChanged();
+    }
+
+    public TimelineData getListData() {
+        return listData;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TimelineViewItem item = getItem(position);
+        if (convertView != null && isShownIn(convertView, item)) {
+            // The same message with the same content is already shown in this view
+            setPosition(convertView, position);
+            MyUrlSpan.showText(convertView, R.id.message_details,
+                    item.getDetails(contextMenu.getActivity()).toString(), false, false);
+            showMessageNumberEtc((ViewGroup) convertView, item, position);
+            return convertView;
+        }
+        View view = super.getView(position, convertView, parent);
+        view.setTag(item);
+        return view;
+    }
+
+    private static boolean isShownIn(@NonNull View view, @NonNull TimelineViewItem item) {
+        if (!(view.getTag() instanceof TimelineViewItem)) {
+            return false;
+        }
+        TimelineViewItem shown = (TimelineViewItem) view.getTag();
+        return shown.getMsgId() == item.getMsgId() && shown.getViewVersion() == item.getViewVersion();
+    }
+
     @Override
     protected void showAvatarEtc(ViewGroup view, TimelineViewItem item) {
         if (showAvatars) {
@@ -123,19 +163,6 @@ public class TimelineAdapter extends MessageListAdapter<TimelineViewItem> {
 
     @Override
     public int getPositionById(long itemId) {
-        int position = super.getPositionById(itemId);
-        if (position < 0 && listData.isCollapseDuplicates()) {
-            for (int position2 = 0; position2 < getCount(); position2++) {
-                TimelineViewItem item = getItem(position2);
-                if (item.isCollapsed()) {
-                    for (TimelineViewItem child : item.getChildren()) {
-                        if (child.getMsgId() == itemId) {
-                            return position2;
-                        }
-                    }
-                }
-            }
-        }
-        return position;
+        return listData.getPositionById(itemId);
     }
 }
@@ -21,12 +21,17 @@ import android.support.v4.util.Pair;
 
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.list.ListData;
+import org.andstatus.app.util.ContentFingerprint;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.widget.DuplicationLink;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -38,6 +43,37 @@ public class TimelineData extends ListData {
     final long updatedAt = MyLog.uniqueCurrentTimeMS();
     final TimelineListParameters params;
     final boolean isSameTimeline;
+    /** Position of the first item of each page, the last element is the total number of items */
+    private volatile int[] pageOffsets = new int[]{0};
+    /** Indexes of the pages, in the same order as the pages */
+    private volatile PageIndex[] pageIndexes = new PageIndex[0];
+
+    /** Positions of items within one page. Kept, till the page changes, so lookups don't scan the pages */
+    private static class PageIndex {
+        final TimelinePage page;
+        final int size;
+        /** Positions of shown items by their msgIds */
+        final Map<Long, Integer> positions = new HashMap<>();
+        /** Positions of parents of collapsed items by msgIds of the collapsed items */
+        final Map<Long, Integer> collapsedPositions = new HashMap<>();
+
+        PageIndex(TimelinePage page) {
+            this.page = page;
+            int position = 0;
+            for (TimelineViewItem item : page.items) {
+                if (!positions.containsKey(item.getMsgId())) {
+                    positions.put(item.getMsgId(), position);
+                }
+                for (TimelineViewItem child : item.getChildren()) {
+                    if (!collapsedPositions.containsKey(child.getMsgId())) {
+                        collapsedPositions.put(child.getMsgId(), position);
+                    }
+                }
+                position++;
+            }
+            size = position;
+        }
+    }
 
     public TimelineData(TimelineData oldData, @NonNull TimelinePage thisPage) {
         super(oldData);
@@ -45,9 +81,43 @@ public class TimelineData extends ListData {
         isSameTimeline = oldData != null &&
                 params.getContentUri().equals(oldData.params.getContentUri());
         this.pages = isSameTimeline ? copyPages(oldData.pages) : new ArrayList<TimelinePage>();
+        if (isSameTimeline) {
+            pageIndexes = oldData.pageIndexes;
+        }
         addThisPage(thisPage);
-        collapseDuplicates(isCollapseDuplicates(), 0);
+        Set<TimelinePage> changedPages = collapseOrShowDuplicates(isCollapseDuplicates(), 0);
         dropExcessivePage(thisPage);
+        reindex(changedPages);
+    }
+
+    /**
+     * Called once after each change of the pages. Indexes of added and changed pages are built,
+     * indexes of the unchanged pages are reused, and only offsets of the pages are recalculated
+     */
+    private void reindex(@NonNull Set<TimelinePage> changedPages) {
+        PageIndex[] oldIndexes = pageIndexes;
+        PageIndex[] indexes = new PageIndex[pages.size()];
+        int[] offsets = new int[pages.size() + 1];
+        int position = 0;
+        for (int pageIndex = 0; pageIndex < pages.size(); pageIndex++) {
+            TimelinePage page = pages.get(pageIndex);
+            PageIndex index = changedPages.contains(page) ? null : findIndex(oldIndexes, page);
+            indexes[pageIndex] = index == null ? new PageIndex(page) : index;
+            offsets[pageIndex] = position;
+            position += indexes[pageIndex].size;
+        }
+        offsets[pages.size()] = position;
+        pageIndexes = indexes;
+        pageOffsets = offsets;
+    }
+
+    private static PageIndex findIndex(PageIndex[] indexes, TimelinePage page) {
+        for (PageIndex index : indexes) {
+            if (index.page == page) {
+                return index;
+            }
+        }
+        return null;
     }
 
     private List<TimelinePage> copyPages(List<TimelinePage> pages) {
@@ -133,6 +203,7 @@ public class TimelineData extends ListData {
         }
         long edgeDate =  ePage.params.minSentDateLoaded;
         List<TimelineViewItem> toRemove = new ArrayList<>();
+        Map<Long, TimelineViewItem> edgeItems = null;
         for (int ind = 0; ind < page.items.size(); ind++) {
             TimelineViewItem item = page.items.get(ind);
             if (item.sentDate < edgeDate) {
@@ -141,22 +212,32 @@ public class TimelineData extends ListData {
                 MyLog.e(this, "This page has an item younger than on a younger page: " + item);
                 toRemove.add(item);
             } else {
-                for (int eInd = ePage.items.size() - 1; eInd >= 0; eInd--) {
-                    TimelineViewItem eItem = ePage.items.get(eInd);
-                    if (eItem.sentDate > item.sentDate) {
-                        break;
-                    }
-                    if (eItem.getMsgId() == item.getMsgId()) {
-                        mergeWithExisting(item, eItem);
-                        toRemove.add(item);
-                        break;
-                    }
+                if (edgeItems == null) {
+                    edgeItems = itemsSentAt(ePage, edgeDate, false);
+                }
+                TimelineViewItem eItem = edgeItems.get(item.getMsgId());
+                if (eItem != null) {
+                    mergeWithExisting(item, eItem);
+                    toRemove.add(item);
                 }
             }
         }
         page.items.removeAll(toRemove);
     }
 
+    /** Items of the page at its younger or older edge, all having the same sent date, by msgId */
+    private static Map<Long, TimelineViewItem> itemsSentAt(TimelinePage page, long sentDate, boolean youngerEdge) {
+        Map<Long, TimelineViewItem> items = new HashMap<>();
+        for (int ind = 0; ind < page.items.size(); ind++) {
+            TimelineViewItem item = page.items.get(youngerEdge ? ind : page.items.size() - 1 - ind);
+            if (item.sentDate != sentDate) {
+                break;
+            }
+            items.put(item.getMsgId(), item);
+        }
+        return items;
+    }
+
     private void mergeWithExisting(TimelineViewItem newItem, TimelineViewItem existingItem) {
         // TODO: Merge something...
     }
@@ -174,6 +255,7 @@ public class TimelineData extends ListData {
         }
         long edgeDate = ePage.params.maxSentDateLoaded;
         List<TimelineViewItem> toRemove = new ArrayList<>();
+        Map<Long, TimelineViewItem> edgeItems = null;
         for (int ind = page.items.size() - 1; ind >= 0; ind--) {
             TimelineViewItem item = page.items.get(ind);
             if ( item.sentDate > edgeDate) {
@@ -182,16 +264,13 @@ public class TimelineData extends ListData {
                 MyLog.e(this, "This page has an item older than on an older page: " + item);
                 toRemove.add(item);
             } else {
-                for (int eInd = 0; eInd < ePage.items.size(); eInd++) {
-                    TimelineViewItem eItem = ePage.items.get(eInd);
-                    if (eItem.sentDate < item.sentDate) {
-                        break;
-                    }
-                    if (eItem.getMsgId() == item.getMsgId()) {
-                        mergeWithExisting(item, eItem);
-                        toRemove.add(item);
-                        break;
-                    }
+                if (edgeItems == null) {
+                    edgeItems = itemsSentAt(ePage, edgeDate, true);
+                }
+                TimelineViewItem eItem = edgeItems.get(item.getMsgId());
+                if (eItem != null) {
+                    mergeWithExisting(item, eItem);
+                    toRemove.add(item);
                 }
             }
         }
@@ -200,37 +279,50 @@ public class TimelineData extends ListData {
 
     @Override
     public int size() {
-        int count = 0;
-        for (TimelinePage page : pages) {
-            count += page.items.size();
-        }
-        return count;
+        int[] offsets = pageOffsets;
+        return offsets[offsets.length - 1];
     }
 
     @Override
     public TimelineViewItem getItem(int position) {
-        int firstPosition = 0;
-        for (TimelinePage page : pages) {
-            if (position < firstPosition) {
-                break;
-            }
-            if (position < firstPosition + page.items.size()) {
-                return page.items.get(position - firstPosition);
+        int[] offsets = pageOffsets;
+        if (position < 0 || position >= offsets[offsets.length - 1]) {
+            return TimelineViewItem.getEmpty();
+        }
+        int pageIndex = Arrays.binarySearch(offsets, position);
+        if (pageIndex < 0) {
+            pageIndex = -pageIndex - 2;
+        } else {
+            // Skip empty pages
+            while (pageIndex < offsets.length - 2 && offsets[pageIndex + 1] == position) {
+                pageIndex++;
             }
-            firstPosition += page.items.size();
         }
-        return TimelineViewItem.getEmpty();
+        return pages.get(pageIndex).items.get(position - offsets[pageIndex]);
     }
 
     public TimelineViewItem getById(long itemId) {
-        for (TimelinePage page : pages) {
-            for (TimelineViewItem item : page.items) {
-                if (item.getMsgId() == itemId) {
-                    return item;
-                }
+        int position = findPosition(itemId, false);
+        return position < 0 ? TimelineViewItem.getEmpty() : getItem(position);
+    }
+
+    /** @return position of the item or, if it is collapsed, of the item it is collapsed into. -1 if not found */
+    public int getPositionById(long itemId) {
+        int position = findPosition(itemId, false);
+        return position < 0 ? findPosition(itemId, true) : position;
+    }
+
+    private int findPosition(long itemId, boolean collapsed) {
+        PageIndex[] indexes = pageIndexes;
+        int[] offsets = pageOffsets;
+        for (int pageIndex = 0; pageIndex < indexes.length; pageIndex++) {
+            Integer position = (collapsed ? indexes[pageIndex].collapsedPositions : indexes[pageIndex].positions)
+                    .get(itemId);
+            if (position != null) {
+                return offsets[pageIndex] + position;
             }
         }
-        return TimelineViewItem.getEmpty();
+        return -1;
     }
 
     public boolean mayHaveYoungerPage() {
@@ -254,48 +346,110 @@ public class TimelineData extends ListData {
     @Override
     public void collapseDuplicates(boolean collapse, long itemId) {
         super.collapseDuplicates(collapse, itemId);
+        reindex(collapseOrShowDuplicates(collapse, itemId));
+    }
+
+    /** @return pages, which were changed */
+    private Set<TimelinePage> collapseOrShowDuplicates(boolean collapse, long itemId) {
+        Set<TimelinePage> changedPages = new HashSet<>();
         if (collapse) {
-            collapseDuplicates(itemId);
+            collapseDuplicates(itemId, changedPages);
         } else {
-            showDuplicates(itemId);
+            showDuplicates(itemId, changedPages);
         }
+        return changedPages;
     }
 
-    private void collapseDuplicates(long itemId) {
+    private void collapseDuplicates(long itemId, Set<TimelinePage> changedPages) {
         Set<Pair<TimelinePage, TimelineViewItem>> toCollapse = new HashSet<>();
-        innerCollapseDuplicates(itemId, toCollapse);
+        innerCollapseDuplicates(itemId, toCollapse, changedPages);
+        Map<TimelinePage, Set<TimelineViewItem>> toRemove = new HashMap<>();
         for (Pair<TimelinePage, TimelineViewItem> pair : toCollapse) {
-            pair.first.items.remove(pair.second);
+            Set<TimelineViewItem> items = toRemove.get(pair.first);
+            if (items == null) {
+                items = new HashSet<>();
+                toRemove.put(pair.first, items);
+            }
+            items.add(pair.second);
+        }
+        for (Map.Entry<TimelinePage, Set<TimelineViewItem>> entry : toRemove.entrySet()) {
+            entry.getKey().items.removeAll(entry.getValue());
+            changedPages.add(entry.getKey());
+        }
+    }
+
+    private static class DuplicatesGroup {
+        Pair<TimelinePage, TimelineViewItem> parent;
+        final List<Pair<TimelinePage, TimelineViewItem>> members = new ArrayList<>();
+
+        DuplicatesGroup(Pair<TimelinePage, TimelineViewItem> parent) {
+            this.parent = parent;
         }
     }
 
-    private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
-        Pair<TimelinePage, TimelineViewItem> parent = new Pair<>(null, null);
-        Set<Pair<TimelinePage, TimelineViewItem>> group = new HashSet<>();
+    /**
+     * Single pass through all loaded pages. An item is compared with the group of the previous item
+     * and with groups, which contain the same message or a message with a similar body fingerprint
+     * (at least one equal fingerprint band), so non-adjacent duplicates are found also
+     */
+    private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse,
+                                         Set<TimelinePage> changedPages) {
+        List<DuplicatesGroup> groups = new ArrayList<>();
+        Map<Long, DuplicatesGroup> groupsByMsgId = new HashMap<>();
+        Map<Long, DuplicatesGroup> groupsByBand = new HashMap<>();
+        DuplicatesGroup previous = null;
         for (TimelinePage page : pages) {
             for (TimelineViewItem item : page.items) {
-                Pair<TimelinePage, TimelineViewItem> itemPair =new Pair<>(page, item);
-                switch (item.duplicates(parent.second)) {
+                Pair<TimelinePage, TimelineViewItem> itemPair = new Pair<>(page, item);
+                long fingerprint = item.getBodyFingerprint();
+                DuplicationLink link = DuplicationLink.NONE;
+                DuplicatesGroup group = previous;
+                if (group != null) {
+                    link = item.duplicates(group.parent.second);
+                }
+                if (link == DuplicationLink.NONE) {
+                    group = groupsByMsgId.get(item.getMsgId());
+                    if (group != null && group != previous) {
+                        link = item.duplicates(group.parent.second);
+                    }
+                }
+                for (int band = 0; link == DuplicationLink.NONE && fingerprint != ContentFingerprint.EMPTY
+                        && band < ContentFingerprint.BANDS_COUNT; band++) {
+                    group = groupsByBand.get(ContentFingerprint.bandKey(fingerprint, band));
+                    if (group != null && group != previous) {
+                        link = item.duplicates(group.parent.second);
+                    }
+                }
+                switch (link) {
                     case DUPLICATES:
                         break;
                     case IS_DUPLICATED:
-                        parent = itemPair;
+                        group.parent = itemPair;
                         break;
                     default:
-                        if (collapseThisGroup(itemId, parent, group, toCollapse)) {
-                            return;
-                        }
-                        group.clear();
-                        parent = itemPair;
+                        group = new DuplicatesGroup(itemPair);
+                        groups.add(group);
                         break;
                 }
-                group.add(itemPair);
+                group.members.add(itemPair);
+                groupsByMsgId.put(item.getMsgId(), group);
+                if (fingerprint != ContentFingerprint.EMPTY) {
+                    for (int band = 0; band < ContentFingerprint.BANDS_COUNT; band++) {
+                        groupsByBand.put(ContentFingerprint.bandKey(fingerprint, band), group);
+                    }
+                }
+                previous = group;
+            }
+        }
+        for (DuplicatesGroup group : groups) {
+            if (collapseThisGroup(itemId, group.parent, group.members, toCollapse, changedPages)) {
+                return;
             }
         }
-        collapseThisGroup(itemId, parent, group, toCollapse);
     }
 
-    private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent, Set<Pair<TimelinePage, TimelineViewItem>> group, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
+    private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent, Collection<Pair<TimelinePage, TimelineViewItem>> group, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse,
+                                      Set<TimelinePage> changedPages) {
         if (group.isEmpty()) {
             return false;
         }
@@ -329,17 +483,18 @@ public class TimelineData extends ListData {
                 if (!parent.equals(itemPair)) {
                     parent.second.collapse(itemPair.second);
                     toCollapse.add(itemPair);
+                    changedPages.add(parent.first);
                 }
             }
         }
         return groupOfSelectedItem;
     }
 
-    private void showDuplicates(long itemId) {
+    private void showDuplicates(long itemId, Set<TimelinePage> changedPages) {
         for (TimelinePage page : pages) {
             for (int ind = page.items.size() - 1; ind >= 0; ind--) {
                 if (page.items.get(ind).isCollapsed()) {
-                    if (showDuplicatesOfOneItem(itemId, page, ind)) {
+                    if (showDuplicatesOfOneItem(itemId, page, ind, changedPages)) {
                         return;
                     }
                 }
@@ -347,7 +502,7 @@ public class TimelineData extends ListData {
         }
     }
 
-    private boolean showDuplicatesOfOneItem(long itemId, TimelinePage page, int ind) {
+    private boolean showDuplicatesOfOneItem(long itemId, TimelinePage page, int ind, Set<TimelinePage> changedPages) {
         TimelineViewItem item = page.items.get(ind);
         boolean groupOfSelectedItem = itemId == item.getMsgId();
         if (itemId != 0 && !groupOfSelectedItem) {
@@ -380,6 +535,7 @@ public class TimelineData extends ListData {
                 page.items.add(ind2++, child);
             }
             item.getChildren().clear();
+            changedPages.add(page);
         }
         return groupOfSelectedItem;
     }
@@ -20,6 +20,7 @@ import android.app.LoaderManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
@@ -53,15 +54,25 @@ public class TimelineListParameters {
      * are being loaded in a case User scrolls down to the end of list.
      */
     static final int PAGE_SIZE = 200;
+    private static final String SENT_DATE_COLUMN = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE;
+    private static final String MSG_ID_COLUMN = ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID;
+    /** Messages with the same sent date are ordered by their ids, so that pages don't overlap */
+    static final String DESC_SORT_ORDER = SENT_DATE_COLUMN + " DESC, " + MSG_ID_COLUMN + " DESC";
+    static final String ASC_SORT_ORDER = SENT_DATE_COLUMN + " ASC, " + MSG_ID_COLUMN + " ASC";
     Timeline timeline = Timeline.EMPTY;
 
     WhichPage whichPage = WhichPage.EMPTY;
     String[] mProjection;
 
     long maxSentDate = 0;
+    /** If not 0, the page ends before the message with this id, sent at {@link #maxSentDate}
+     * (the keyset is the sent date and the message id) */
+    long maxSentDateMsgId = 0;
 
     // These params are updated just before page loading
     volatile long minSentDate = 0;
+    /** If not 0, the page starts after the message with this id, sent at {@link #minSentDate} */
+    volatile long minSentDateMsgId = 0;
     volatile SelectionAndArgs selectionAndArgs = new SelectionAndArgs();
     volatile String sortOrderAndLimit = "";
 
@@ -72,6 +83,10 @@ public class TimelineListParameters {
     volatile int rowsLoaded = 0;
     volatile long minSentDateLoaded = 0;
     volatile long maxSentDateLoaded = 0;
+    /** The smallest message id among the messages, sent at {@link #minSentDateLoaded} */
+    volatile long minSentDateLoadedMsgId = 0;
+    /** The largest message id among the messages, sent at {@link #maxSentDateLoaded} */
+    volatile long maxSentDateLoadedMsgId = 0;
 
     public static TimelineListParameters clone(TimelineListParameters prev, WhichPage whichPage) {
         TimelineListParameters params = new TimelineListParameters(prev.myContext);
@@ -91,15 +106,19 @@ public class TimelineListParameters {
             case OLDER:
                 if (prev.mayHaveOlderPage()) {
                     params.maxSentDate = prev.minSentDateLoaded;
+                    params.maxSentDateMsgId = prev.minSentDateLoadedMsgId;
                 } else {
                     params.maxSentDate = prev.maxSentDate;
+                    params.maxSentDateMsgId = prev.maxSentDateMsgId;
                 }
                 break;
             case YOUNGER:
                 if (prev.mayHaveYoungerPage()) {
                     params.minSentDate = prev.maxSentDateLoaded;
+                    params.minSentDateMsgId = prev.maxSentDateLoadedMsgId;
                 } else {
                     params.minSentDate = prev.minSentDate;
+                    params.minSentDateMsgId = prev.minSentDateMsgId;
                 }
                 break;
             default:
@@ -192,8 +211,9 @@ public class TimelineListParameters {
         if (!timeline.equals(that.timeline)) return false;
         if (!whichPage.equals(WhichPage.CURRENT) && !that.whichPage.equals(WhichPage.CURRENT)) {
             if (minSentDate != that.minSentDate) return false;
+            if (minSentDateMsgId != that.minSentDateMsgId) return false;
         }
-        return maxSentDate == that.maxSentDate;
+        return maxSentDate == that.maxSentDate && maxSentDateMsgId == that.maxSentDateMsgId;
     }
 
     @Override
@@ -205,13 +225,16 @@ public class TimelineListParameters {
             result = 31 * result + (int) (minSentDate ^ (minSentDate >>> 32));
         }
         result = 31 * result + (int) (maxSentDate ^ (maxSentDate >>> 32));
+        result = 31 * result + (int) (maxSentDateMsgId ^ (maxSentDateMsgId >>> 32));
         return result;
     }
 
     boolean restoreState(@NonNull Bundle savedInstanceState) {
         whichPage = WhichPage.CURRENT;
         minSentDate = 0;
+        minSentDateMsgId = 0;
         maxSentDate = 0;
+        maxSentDateMsgId = 0;
         return parseUri(Uri.parse(savedInstanceState.getString(IntentExtra.MATCHED_URI.key,"")), "");
     }
     
@@ -232,12 +255,18 @@ public class TimelineListParameters {
         return timeline.getMyAccount();
     }
 
-    public void rememberSentDateLoaded(long sentDate) {
+    public void rememberSentDateLoaded(long sentDate, long msgId) {
         if (minSentDateLoaded == 0 || minSentDateLoaded > sentDate) {
             minSentDateLoaded = sentDate;
+            minSentDateLoadedMsgId = msgId;
+        } else if (minSentDateLoaded == sentDate && minSentDateLoadedMsgId > msgId) {
+            minSentDateLoadedMsgId = msgId;
         }
         if (maxSentDateLoaded == 0 || maxSentDateLoaded < sentDate) {
             maxSentDateLoaded = sentDate;
+            maxSentDateLoadedMsgId = msgId;
+        } else if (maxSentDateLoaded == sentDate && maxSentDateLoadedMsgId < msgId) {
+            maxSentDateLoadedMsgId = msgId;
         }
     }
 
@@ -245,6 +274,7 @@ public class TimelineListParameters {
         switch (whichPage) {
             case CURRENT:
                 minSentDate = (new TimelineListPositionStorage(null, null, this)).getTLPosition().minSentDate;
+                minSentDateMsgId = 0;
                 break;
             default:
                 break;
@@ -254,7 +284,7 @@ public class TimelineListParameters {
     }
 
     private String buildSortOrderAndLimit() {
-        return (isSortOrderAscending() ? MsgTable.ASC_SORT_ORDER : MsgTable.DESC_SORT_ORDER)
+        return (isSortOrderAscending() ? ASC_SORT_ORDER : DESC_SORT_ORDER)
                 + (minSentDate > 0 && maxSentDate > 0 ? "" : " LIMIT " + PAGE_SIZE);
     }
 
@@ -302,14 +332,23 @@ public class TimelineListParameters {
                 break;
         }
 
-        sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE
-                        + " >= ?",
-                new String[]{
-                        String.valueOf(minSentDate > 0 ? minSentDate : 1)
-                });
+        // The first condition of each pair limits the range of the sent date index,
+        // the second one skips messages of the previous page, which were sent at the same time
+        if (minSentDate > 0 && minSentDateMsgId != 0) {
+            sa.addSelection(SENT_DATE_COLUMN + " >= ? AND (" + SENT_DATE_COLUMN + " > ? OR " + MSG_ID_COLUMN + " > ?)",
+                    new String[]{String.valueOf(minSentDate), String.valueOf(minSentDate),
+                            String.valueOf(minSentDateMsgId)});
+        } else {
+            sa.addSelection(SENT_DATE_COLUMN + " >= ?", String.valueOf(minSentDate > 0 ? minSentDate : 1));
+        }
         if (maxSentDate > 0) {
-            sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE + " <= ?",
-                    String.valueOf(maxSentDate));
+            if (maxSentDateMsgId != 0) {
+                sa.addSelection(SENT_DATE_COLUMN + " <= ? AND (" + SENT_DATE_COLUMN + " < ? OR " + MSG_ID_COLUMN + " < ?)",
+                        new String[]{String.valueOf(maxSentDate), String.valueOf(maxSentDate),
+                                String.valueOf(maxSentDateMsgId)});
+            } else {
+                sa.addSelection(SENT_DATE_COLUMN + " <= ?", String.valueOf(maxSentDate));
+            }
         }
         return sa;
     }
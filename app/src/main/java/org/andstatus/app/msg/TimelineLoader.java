@@ -105,7 +105,7 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
                     do {
                         rowsCount++;
                         TimelineViewItem item = TimelineViewItem.fromCursorRow(params.getMyContext(), cursor);
-                        getParams().rememberSentDateLoaded(item.sentDate);
+                        getParams().rememberSentDateLoaded(item.sentDate, item.getMsgId());
                         String body = MyHtml.getBodyToSearch(item.getBody());
                         boolean skip = keywordsFilter.matchedAny(body);
                         if (!skip && !searchQuery.isEmpty()) {
@@ -34,11 +34,14 @@ import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 
+import java.util.Arrays;
+
 /**
  * @author yvolk@yurivolkov.com
  */
 public class TimelineViewItem extends MessageViewItem {
     private final static TimelineViewItem EMPTY = new TimelineViewItem();
+    private int contentVersion = 0;
 
     public static TimelineViewItem getEmpty() {
         return EMPTY;
@@ -54,6 +57,7 @@ public class TimelineViewItem extends MessageViewItem {
         item.authorName = TimelineSql.userColumnIndexToNameAtTimeline(cursor,
                 cursor.getColumnIndex(UserTable.AUTHOR_NAME), MyPreferences.getShowOrigin());
         item.setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
+        item.bodyFingerprint = DbUtils.getLong(cursor, MsgTable.BODY_FINGERPRINT);
         item.inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
         item.inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
         item.inReplyToName = DbUtils.getString(cursor, UserTable.IN_REPLY_TO_NAME);
@@ -92,9 +96,22 @@ public class TimelineViewItem extends MessageViewItem {
                     DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
                     DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
         }
+        item.contentVersion = item.calcContentVersion();
         return item;
     }
 
+    /** Changes when anything, shown for this message (except relative time), is changed */
+    private int calcContentVersion() {
+        return Arrays.hashCode(new Object[]{getMsgId(), getLinkedUserId(), getBody(), authorName, inReplyToName,
+                recipientName, favorited, reblogged, rebloggers.keySet(), msgStatus, messageSource,
+                avatarFile.toString(), attachedImageFile.toString()});
+    }
+
+    /** Identifies the message and its shown content, including collapsed duplicates */
+    long getViewVersion() {
+        return ((long) contentVersion << 32) | getChildren().size();
+    }
+
     private void addReblogger(long userId, String userName) {
         rebloggers.put(userId, userName);
     }
@@ -30,6 +30,8 @@ public class ConnectionException extends IOException {
     public enum StatusCode {
         UNKNOWN,
         OK,
+        /** The response to a conditional request: the resource didn't change since the previous request */
+        NOT_MODIFIED,
         UNSUPPORTED_API,
         NOT_FOUND,
         BAD_REQUEST,
@@ -40,14 +42,17 @@ public class ConnectionException extends IOException {
         FORBIDDEN, INTERNAL_SERVER_ERROR, BAD_GATEWAY, SERVICE_UNAVAILABLE, MOVED,
         REQUEST_ENTITY_TOO_LARGE,
         LENGTH_REQUIRED,
+        /** Rate limit of the server was exceeded, the request may be repeated later, see {@link RateLimiter} */
+        TOO_MANY_REQUESTS,
         CLIENT_ERROR,
         SERVER_ERROR;
         
         public static StatusCode fromResponseCode(int responseCode) {
             switch (responseCode) {
 	            case 200:
-	            case 304:
 	            	return OK;
+                case 304:
+                    return NOT_MODIFIED;
                 case 301:
                 case 302:
                 case 303:
@@ -65,6 +70,8 @@ public class ConnectionException extends IOException {
                     return LENGTH_REQUIRED;
                 case 413:
                     return REQUEST_ENTITY_TOO_LARGE;
+                case 429:
+                    return TOO_MANY_REQUESTS;
                 case 500:
                     return INTERNAL_SERVER_ERROR;
                 case 502:
@@ -152,7 +159,8 @@ public class ConnectionException extends IOException {
     }
 
     private static boolean isHardFromStatusCode(boolean isHardIn, StatusCode statusCode) {
-        return isHardIn || (statusCode != StatusCode.UNKNOWN && statusCode != StatusCode.OK);
+        return isHardIn || (statusCode != StatusCode.UNKNOWN && statusCode != StatusCode.OK
+                && statusCode != StatusCode.TOO_MANY_REQUESTS);
     }
 
     public StatusCode getStatusCode() {
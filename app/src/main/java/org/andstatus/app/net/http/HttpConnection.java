@@ -87,7 +87,10 @@ public abstract class HttpConnection {
         if( result.hasFormParams()) {
             MyLog.logNetworkLevelMessage("post_form", data.getLogName(), result.getFormParams());
         }
+        RateLimiter[] rateLimiters = getRateLimiters(result);
+        beforeRequest(rateLimiters, result);
         postRequest(result);
+        onResponse(rateLimiters, result);
         MyLog.logNetworkLevelMessage("post_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
         return result.getJsonObject();
@@ -96,31 +99,75 @@ public abstract class HttpConnection {
     protected abstract void postRequest(HttpReadResult result) throws ConnectionException;
     
     public final JSONObject getRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonObject();
+        return getRequestCommon(path, true, false).getJsonObject();
     }
 
     public final JSONObject getUnauthenticatedRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, false).getJsonObject();
+        return getRequestCommon(path, false, false).getJsonObject();
     }
-    
-    private HttpReadResult getRequestCommon(String path, boolean authenticated) throws ConnectionException {
+
+    /**
+     * @param conditional If true, validators of the previous response to the same URL are sent,
+     *                    see {@link HttpValidatorsCache}
+     */
+    private HttpReadResult getRequestCommon(String path, boolean authenticated, boolean conditional)
+            throws ConnectionException {
         if (TextUtils.isEmpty(path)) {
             throw new IllegalArgumentException("path is empty");
         }
         HttpReadResult result = new HttpReadResult(pathToUrlString(path));
         result.authenticate = authenticated;
+        String validatorsKey = data.getLogName() + " " + result.getUrl();
+        if (conditional) {
+            HttpValidatorsCache.applyTo(validatorsKey, result);
+        }
+        RateLimiter[] rateLimiters = getRateLimiters(result);
+        beforeRequest(rateLimiters, result);
         getRequest(result);
+        onResponse(rateLimiters, result);
         MyLog.logNetworkLevelMessage("get_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
+        if (conditional) {
+            HttpValidatorsCache.onResponse(validatorsKey, result);
+        }
         return result;
     }
 
+    /** Limiters of the whole host and of the endpoint of this account, see {@link RateLimiter} */
+    private RateLimiter[] getRateLimiters(HttpReadResult result) {
+        return new RateLimiter[]{RateLimiter.of(data.originUrl),
+                RateLimiter.ofEndpoint(data.originUrl, data.getLogName(), result.getUrl())};
+    }
+
+    private static void beforeRequest(RateLimiter[] rateLimiters, HttpReadResult result) throws ConnectionException {
+        for (RateLimiter rateLimiter : rateLimiters) {
+            rateLimiter.beforeRequest(result.getUrl());
+        }
+    }
+
+    private static void onResponse(RateLimiter[] rateLimiters, HttpReadResult result) {
+        for (RateLimiter rateLimiter : rateLimiters) {
+            rateLimiter.onResponse(result);
+        }
+    }
+
     public final JSONArray getRequestAsArray(String path) throws ConnectionException {
         return getRequestAsArray(path, "items");
     }
 
     public final JSONArray getRequestAsArray(String path, String parentKey) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonArray(parentKey);
+        return getRequestCommon(path, true, false).getJsonArray(parentKey);
+    }
+
+    /**
+     * The same as {@link #getRequestAsArray(String)}, but if the response didn't change since the previous
+     * request to the same URL, nothing is downloaded and {@link ConnectionException}
+     * with {@link StatusCode#NOT_MODIFIED} is thrown.
+     * For timelines: the unchanged response has already been processed.
+     * The caller should call {@link HttpValidatorsCache#commit()} after it has processed the response
+     */
+    public final JSONArray getConditionalRequestAsArray(String path) throws ConnectionException {
+        return getRequestCommon(path, true, true).getJsonArray("items");
     }
 
     public final void downloadFile(String url, File file) throws ConnectionException {
@@ -28,7 +28,6 @@ import org.andstatus.app.util.UriUtils;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -48,6 +47,7 @@ import cz.msebera.android.httpclient.entity.ContentType;
 import cz.msebera.android.httpclient.entity.mime.MultipartEntityBuilder;
 import cz.msebera.android.httpclient.message.BasicNameValuePair;
 import cz.msebera.android.httpclient.protocol.HTTP;
+import cz.msebera.android.httpclient.util.EntityUtils;
 
 public class HttpConnectionApacheCommon {
     private HttpConnectionApacheSpecific specific;
@@ -95,15 +95,12 @@ public class HttpConnectionApacheCommon {
             }
         }
         if (!TextUtils.isEmpty(mediaPartName) && !UriUtils.isEmpty(mediaUri)) {
-            InputStream ins = null;
             try {
-                ins = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
                 ContentType mediaContentType = ContentType.create(MyContentType.uri2MimeType(mediaUri, null));
-                builder.addBinaryBody(mediaPartName, FileUtils.getBytes(ins), mediaContentType, mediaUri.getPath());
-            } catch (SecurityException | IOException e) {
+                builder.addPart(mediaPartName, new UriContentBody(MyContextHolder.get().context().getContentResolver(),
+                        mediaUri, mediaContentType, mediaUri.getPath()));
+            } catch (SecurityException e) {
                 throw ConnectionException.hardConnectionException("mediaUri='" + mediaUri + "'", e);
-            } finally {
-                DbUtils.closeSilently(ins);
             }
         }
         return builder.build();
@@ -135,9 +132,7 @@ public class HttpConnectionApacheCommon {
     }
 
     public static HttpClient getHttpClient(SslModeEnum sslMode) {
-        return sslMode == SslModeEnum.MISCONFIGURED ?
-                MisconfiguredSslHttpClientFactory.getHttpClient() :
-                    MyHttpClientFactory.getHttpClient(sslMode) ;
+        return MyHttpClientFactory.getHttpClient(sslMode);
     }
 
     protected void getRequest(HttpReadResult result) {
@@ -151,13 +146,22 @@ public class HttpConnectionApacheCommon {
                 if (result.authenticate) {
                     specific.httpApacheSetAuthorization(httpGet);
                 }
+                if (!TextUtils.isEmpty(result.ifNoneMatch)) {
+                    httpGet.setHeader("If-None-Match", result.ifNoneMatch);
+                }
+                if (!TextUtils.isEmpty(result.ifModifiedSince)) {
+                    httpGet.setHeader("If-Modified-Since", result.ifModifiedSince);
+                }
                 httpResponse = specific.httpApacheGetResponse(httpGet);
                 StatusLine statusLine = httpResponse.getStatusLine();
                 result.statusLine = statusLine.toString();
                 result.setStatusCode(statusLine.getStatusCode());
+                readHeaders(httpResponse, result);
                 switch (result.getStatusCode()) {
                     case OK:
                     case UNKNOWN:
+                        result.setValidators(getHeaderValue(httpResponse, "ETag"),
+                                getHeaderValue(httpResponse, "Last-Modified"));
                         HttpEntity entity = httpResponse.getEntity();
                         if (entity != null) {
                             if (result.fileResult != null) {
@@ -181,6 +185,8 @@ public class HttpConnectionApacheCommon {
                             }
                             MyLog.v(this, message.toString());
                         }
+                        // Releases the connection to the pool to be reused
+                        EntityUtils.consumeQuietly(httpResponse.getEntity());
                         break;
                     default:
                         result.appendToLog( "statusLine:'" + statusLine + "'");
@@ -207,6 +213,17 @@ public class HttpConnectionApacheCommon {
         }
     }
     
+    static void readHeaders(HttpResponse httpResponse, HttpReadResult result) {
+        for (Header header : httpResponse.getAllHeaders()) {
+            result.onHeader(header.getName(), header.getValue());
+        }
+    }
+
+    private static String getHeaderValue(HttpResponse httpResponse, String name) {
+        Header header = httpResponse.getFirstHeader(name);
+        return header == null ? "" : header.getValue();
+    }
+
     private HttpGet newHttpGet(String url) {
         HttpGet httpGet = new HttpGet(url);
         httpGet.setHeader("User-Agent", HttpConnection.USER_AGENT);
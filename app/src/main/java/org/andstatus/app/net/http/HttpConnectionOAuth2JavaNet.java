@@ -16,6 +16,8 @@
 
 package org.andstatus.app.net.http;
 
+import android.text.TextUtils;
+
 import com.github.scribejava.core.builder.ServiceBuilder;
 import com.github.scribejava.core.exceptions.OAuthException;
 import com.github.scribejava.core.httpclient.jdk.JDKHttpClientConfig;
@@ -80,6 +82,7 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
 
     @Override
     protected void postRequest(HttpReadResult result) throws ConnectionException {
+        MyHttpClientFactory.configureJavaNet();
         if (data.areOAuthClientKeysPresent()) {
             postRequestOauth(result);
         } else {
@@ -105,6 +108,7 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
             signRequest(request, service, false);
             final Response response = service.execute(request);
             result.setStatusCode(response.getCode());
+            readHeaders(response, result);
             switch(result.getStatusCode()) {
                 case OK:
                     result.strResponse = HttpConnectionUtils.readStreamToString(response.getStream());
@@ -121,6 +125,12 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
         }
     }
 
+    private static void readHeaders(Response response, HttpReadResult result) {
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            result.onHeader(header.getKey(), header.getValue());
+        }
+    }
+
     byte[] httpEntityToBytes(HttpEntity httpEntity) throws IOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         httpEntity.writeTo(out);
@@ -132,6 +142,7 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
     protected void getRequest(HttpReadResult result) throws ConnectionException {
         String method = "getRequest; ";
         StringBuilder logBuilder = new StringBuilder(method);
+        MyHttpClientFactory.configureJavaNet();
         try {
             logBuilder.append("URL='" + result.getUrl() + "';");
             OAuth20Service service = getService(false);
@@ -143,10 +154,18 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
                 if (result.authenticate) {
                     signRequest(request, service, redirected);
                 }
+                if (!TextUtils.isEmpty(result.ifNoneMatch)) {
+                    request.addHeader("If-None-Match", result.ifNoneMatch);
+                }
+                if (!TextUtils.isEmpty(result.ifModifiedSince)) {
+                    request.addHeader("If-Modified-Since", result.ifModifiedSince);
+                }
                 Response response = service.execute(request);
                 result.setStatusCode(response.getCode());
+                readHeaders(response, result);
                 switch(result.getStatusCode()) {
                     case OK:
+                        result.setValidators(response.getHeader("ETag"), response.getHeader("Last-Modified"));
                         if (result.fileResult != null) {
                             FileUtils.readStreamToFile(response.getStream(), result.fileResult);
                         } else {
@@ -16,7 +16,9 @@
 
 package org.andstatus.app.net.http;
 
+import android.content.ContentResolver;
 import android.net.Uri;
+import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
@@ -118,6 +120,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
     
     @Override
     protected void postRequest(HttpReadResult result) throws ConnectionException {
+        MyHttpClientFactory.configureJavaNet();
         try {
             HttpURLConnection conn = (HttpURLConnection) result.getUrlObj().openConnection();
             conn.setDoOutput(true);
@@ -133,6 +136,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             }
                         
             result.setStatusCode(conn.getResponseCode());
+            readHeaders(conn, result);
             switch(result.getStatusCode()) {
                 case OK:
                     result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
@@ -146,6 +150,14 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         }
     }
 
+    static void readHeaders(HttpURLConnection conn, HttpReadResult result) {
+        for (Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+            for (String value : header.getValue()) {
+                result.onHeader(header.getKey(), value);
+            }
+        }
+    }
+
     /** This method is not legacy HTTP */
     void writeMedia(HttpURLConnection conn, JSONObject formParams)
             throws IOException, JSONException {
@@ -154,15 +166,12 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         conn.setRequestProperty("Content-Type", MyContentType.uri2MimeType(mediaUri, null));
         signConnection(conn, getConsumer(), false);
                 
-        InputStream in = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
+        ContentResolver contentResolver = MyContextHolder.get().context().getContentResolver();
+        InputStream in = contentResolver.openInputStream(mediaUri);
         try {
-            byte[] buffer = new byte[16384];
-            int length;
-            OutputStream out = new BufferedOutputStream(conn.getOutputStream());
+            OutputStream out = new BufferedOutputStream(conn.getOutputStream(), UploadProgress.BUFFER_SIZE);
             try {
-                while ((length = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, length);
-                }
+                UploadProgress.copy(in, out, UriContentBody.lengthOf(contentResolver, mediaUri));
             } finally {
                 DbUtils.closeSilently(out);
             }
@@ -199,6 +208,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
     protected void getRequest(HttpReadResult result) throws ConnectionException {
         String method = "getRequest; ";
         StringBuilder logBuilder = new StringBuilder(method);
+        MyHttpClientFactory.configureJavaNet();
         try {
             OAuthConsumer consumer = getConsumer();
             logBuilder.append("URL='" + result.getUrl() + "';");
@@ -211,10 +221,18 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                 if (result.authenticate) {
                     signConnection(conn, consumer, redirected);
                 }
+                if (!TextUtils.isEmpty(result.ifNoneMatch)) {
+                    conn.setRequestProperty("If-None-Match", result.ifNoneMatch);
+                }
+                if (!TextUtils.isEmpty(result.ifModifiedSince)) {
+                    conn.setRequestProperty("If-Modified-Since", result.ifModifiedSince);
+                }
                 conn.connect();
                 result.setStatusCode(conn.getResponseCode());
+                readHeaders(conn, result);
                 switch(result.getStatusCode()) {
                     case OK:
+                        result.setValidators(conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"));
                         if (result.fileResult != null) {
                             FileUtils.readStreamToFile(conn.getInputStream(), result.fileResult);
                         } else {
@@ -238,7 +256,12 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                             }
                             MyLog.v(this, message.toString());
                         }
-                        conn.disconnect();
+                        // Read the response out, so the connection may be reused for the next request
+                        try {
+                            HttpConnectionUtils.readStreamToString(conn.getInputStream());
+                        } catch (IOException e) {
+                            conn.disconnect();
+                        }
                         break;
                     default:
                         result.strResponse = HttpConnectionUtils.readStreamToString(conn.getErrorStream());
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide counters of requests, sent via the shared connection pools of {@link MyHttpClientFactory},
+ * of connections opened for them and of TLS handshakes
+ * @author yvolk@yurivolkov.com
+ */
+public class HttpConnectionStats {
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+    private static final AtomicLong handshakes = new AtomicLong();
+    private static final AtomicLong handshakesTimeMs = new AtomicLong();
+
+    private HttpConnectionStats() {
+        // Empty
+    }
+
+    static void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    static void onConnectionOpened() {
+        connectionsOpened.incrementAndGet();
+    }
+
+    static void onHandshake(long timeMs) {
+        handshakes.incrementAndGet();
+        handshakesTimeMs.addAndGet(timeMs);
+    }
+
+    public static long getRequests() {
+        return requests.get();
+    }
+
+    public static long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /** @return Share of requests, which were sent via already opened connections, 0 ... 1 */
+    public static float getReuseRate() {
+        long requestsCount = requests.get();
+        if (requestsCount == 0) {
+            return 0;
+        }
+        return Math.max(0, requestsCount - connectionsOpened.get()) / (float) requestsCount;
+    }
+
+    public static long getAverageHandshakeTimeMs() {
+        long count = handshakes.get();
+        return count == 0 ? 0 : handshakesTimeMs.get() / count;
+    }
+
+    public static String getSummary() {
+        return "requests:" + requests.get()
+                + ", connections:" + connectionsOpened.get()
+                + ", reused:" + Math.round(getReuseRate() * 100) + "%"
+                + ", handshakes:" + handshakes.get()
+                + ", avg handshake:" + getAverageHandshakeTimeMs() + "ms";
+    }
+
+    static void forget() {
+        requests.set(0);
+        connectionsOpened.set(0);
+        handshakes.set(0);
+        handshakesTimeMs.set(0);
+    }
+}
@@ -30,6 +30,7 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Iterator;
+import java.util.Locale;
 
 public class HttpReadResult {
     private final String urlInitial;
@@ -49,6 +50,19 @@ public class HttpReadResult {
 
     boolean redirected = false;
 
+    /** Validators of the previous response to the same request, sent to make the request conditional */
+    String ifNoneMatch = "";
+    String ifModifiedSince = "";
+    /** Validators of this response */
+    String eTag = "";
+    String lastModified = "";
+
+    /** Rate limit of the server, see {@link RateLimiter}. Negative values and zero dates mean unknown */
+    int rateLimitLimit = -1;
+    int rateLimitRemaining = -1;
+    long rateLimitResetAt = 0;
+    long retryAfterAt = 0;
+
     public HttpReadResult(String urlIn) throws ConnectionException {
         this (urlIn, null);
     }
@@ -111,6 +125,7 @@ public class HttpReadResult {
                 + "; url:'" + urlString + "'"
                 + (isLegacyHttpProtocol() ? "; legacy HTTP" : "")
                 + (authenticate ? "; authenticated" : "")
+                + (isConditional() ? "; conditional" : "")
                 + (redirected ? "; redirected from:'" + urlInitial + "'" : "")
                 + ( hasFormParams() ? "; posted:'" + formParams.toString() + "'" : "")
                 + (TextUtils.isEmpty(strResponse) ? "" : "; response:'" + I18n.trimTextAt(strResponse, 40) + "'")
@@ -246,6 +261,39 @@ public class HttpReadResult {
         return this;
     }
 
+    public boolean isConditional() {
+        return !TextUtils.isEmpty(ifNoneMatch) || !TextUtils.isEmpty(ifModifiedSince);
+    }
+
+    void setValidators(String eTag, String lastModified) {
+        this.eTag = eTag == null ? "" : eTag;
+        this.lastModified = lastModified == null ? "" : lastModified;
+    }
+
+    /** Picks up rate limit headers: "X-RateLimit-*" (and Twitter's "X-Rate-Limit-*"), "Retry-After" */
+    void onHeader(String name, String value) {
+        if (TextUtils.isEmpty(name) || TextUtils.isEmpty(value)) {
+            return;
+        }
+        String key = name.toLowerCase(Locale.US).replace("rate-limit", "ratelimit");
+        switch (key) {
+            case "x-ratelimit-limit":
+                rateLimitLimit = RateLimiter.parseInt(value);
+                break;
+            case "x-ratelimit-remaining":
+                rateLimitRemaining = RateLimiter.parseInt(value);
+                break;
+            case "x-ratelimit-reset":
+                rateLimitResetAt = RateLimiter.parseDate(value, System.currentTimeMillis());
+                break;
+            case "retry-after":
+                retryAfterAt = RateLimiter.parseDate(value, System.currentTimeMillis());
+                break;
+            default:
+                break;
+        }
+    }
+
     public void resetError() {
         e1 = null;
         statusCode = StatusCode.UNKNOWN;
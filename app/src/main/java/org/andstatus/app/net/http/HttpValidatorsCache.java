@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.text.TextUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Validators (ETag and Last-Modified) of the latest responses, by account and URL,
+ * used to make the next requests to the same URLs conditional (If-None-Match and If-Modified-Since).
+ * Kept in memory only: the first request after a restart is not conditional.
+ * Validators of a response are stored only after the response has been processed, see {@link #commit()},
+ * so the response, which failed to be processed, is downloaded again
+ * @author yvolk@yurivolkov.com
+ */
+public class HttpValidatorsCache {
+    static final int MAX_SIZE = 200;
+
+    private static class Validators {
+        final String eTag;
+        final String lastModified;
+
+        Validators(String eTag, String lastModified) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /** The latest response, received in the current thread, which is not processed yet */
+    private static class Uncommitted {
+        final String key;
+        final Validators validators;
+
+        Uncommitted(String key, Validators validators) {
+            this.key = key;
+            this.validators = validators;
+        }
+    }
+
+    private static final Map<String, Validators> cache = new LinkedHashMap<String, Validators>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Validators> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private static final ThreadLocal<Uncommitted> uncommitted = new ThreadLocal<>();
+
+    private HttpValidatorsCache() {
+        // Empty
+    }
+
+    static void applyTo(String key, HttpReadResult result) {
+        Validators validators;
+        synchronized (cache) {
+            validators = cache.get(key);
+        }
+        if (validators != null) {
+            result.ifNoneMatch = validators.eTag;
+            result.ifModifiedSince = validators.lastModified;
+        }
+    }
+
+    /** The validators are kept till the response is processed by the current thread, see {@link #commit()} */
+    static void onResponse(String key, HttpReadResult result) {
+        uncommitted.set(new Uncommitted(key,
+                TextUtils.isEmpty(result.eTag) && TextUtils.isEmpty(result.lastModified) ? null
+                        : new Validators(result.eTag, result.lastModified)));
+    }
+
+    /** The latest response, received by the current thread, has been processed successfully */
+    public static void commit() {
+        Uncommitted response = uncommitted.get();
+        if (response == null) {
+            return;
+        }
+        uncommitted.remove();
+        synchronized (cache) {
+            if (response.validators == null) {
+                cache.remove(response.key);
+            } else {
+                cache.put(response.key, response.validators);
+            }
+        }
+    }
+
+    /** Forgets the response, which was not processed, so it will be requested unconditionally */
+    public static void rollback() {
+        uncommitted.remove();
+    }
+
+    static void forget() {
+        uncommitted.remove();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
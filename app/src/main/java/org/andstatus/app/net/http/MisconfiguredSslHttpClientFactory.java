@@ -19,7 +19,9 @@ package org.andstatus.app.net.http;
 import org.andstatus.app.context.MyPreferences;
 import cz.msebera.android.httpclient.HttpVersion;
 import cz.msebera.android.httpclient.client.HttpClient;
-import cz.msebera.android.httpclient.conn.ClientConnectionManager;
+import cz.msebera.android.httpclient.client.params.ClientPNames;
+import cz.msebera.android.httpclient.client.protocol.RequestAcceptEncoding;
+import cz.msebera.android.httpclient.client.protocol.ResponseContentEncoding;
 import cz.msebera.android.httpclient.conn.scheme.PlainSocketFactory;
 import cz.msebera.android.httpclient.conn.scheme.Scheme;
 import cz.msebera.android.httpclient.conn.scheme.SchemeRegistry;
@@ -49,12 +51,21 @@ public class MisconfiguredSslHttpClientFactory {
         schemeRegistry.register(new Scheme("https", socketFactory, 443));
 
         HttpParams params = getHttpParams();        
-        ClientConnectionManager clientConnectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
-        HttpClient client = new DefaultHttpClient(clientConnectionManager, params);
+        ThreadSafeClientConnManager clientConnectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
+        int maxPerHost = MyPreferences.getMaxConnectionsPerHost();
+        clientConnectionManager.setMaxTotal(maxPerHost);
+        clientConnectionManager.setDefaultMaxPerRoute(maxPerHost);
+        DefaultHttpClient client = new DefaultHttpClient(clientConnectionManager, params);
+        // Transparent gzip, like in clients, built by HttpClientBuilder
+        client.addRequestInterceptor(new RequestAcceptEncoding());
+        client.addResponseInterceptor(new ResponseContentEncoding());
         client.getParams()
                 .setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT,
                         MyPreferences.getConnectionTimeoutMs())
                 .setIntParameter(CoreConnectionPNames.SO_TIMEOUT,
+                        MyPreferences.getConnectionTimeoutMs())
+                // Don't wait for a free connection of the pool longer than for a new connection
+                .setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT,
                         MyPreferences.getConnectionTimeoutMs());
         return client;
     }
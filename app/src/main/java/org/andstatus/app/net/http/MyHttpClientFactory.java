@@ -17,39 +17,102 @@
 package org.andstatus.app.net.http;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+
+import cz.msebera.android.httpclient.HttpHost;
+import cz.msebera.android.httpclient.HttpRequest;
+import cz.msebera.android.httpclient.HttpRequestInterceptor;
 import cz.msebera.android.httpclient.client.HttpClient;
 import cz.msebera.android.httpclient.client.config.RequestConfig;
 import cz.msebera.android.httpclient.config.Registry;
 import cz.msebera.android.httpclient.config.RegistryBuilder;
+import cz.msebera.android.httpclient.conn.ClientConnectionManager;
 import cz.msebera.android.httpclient.conn.socket.ConnectionSocketFactory;
 import cz.msebera.android.httpclient.conn.socket.PlainConnectionSocketFactory;
 import cz.msebera.android.httpclient.impl.client.HttpClientBuilder;
 import cz.msebera.android.httpclient.impl.client.HttpClients;
 import cz.msebera.android.httpclient.impl.conn.PoolingHttpClientConnectionManager;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * HTTP clients with connection pools, shared by all accounts: one client per {@link SslModeEnum},
+ * so connections (and their TLS sessions) to the same host are reused across accounts
+ */
 public class MyHttpClientFactory {
+    /** Idle connections are closed after this time */
+    static final long IDLE_CONNECTION_SECONDS = 30;
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+    private static final long EVICTION_PERIOD_MS = TimeUnit.SECONDS.toMillis(10);
+    /** Total number of connections is limited to this number of hosts, multiplied by connections per host */
+    private static final int MAX_HOSTS = 5;
+    /** Replaced clients are shut down after this time, so their requests may complete */
+    static final long RETIRED_CLIENT_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+    private static final Map<SslModeEnum, HttpClient> clients = new ConcurrentHashMap<>();
+    /** Clients, replaced after a change of connection preferences, and when they were replaced */
+    private static final Map<HttpClient, Long> retiredClients = new ConcurrentHashMap<>();
+    private static volatile long evictedAt = System.currentTimeMillis();
+    private static volatile boolean javaNetConfigured = false;
 
     /** Based on: https://github.com/rfc2822/davdroid/blob/master/src/at/bitfire/davdroid/webdav/DavHttpClient.java */
 
     private MyHttpClientFactory() {
         // Empty
     }
-    
+
     public static HttpClient getHttpClient(SslModeEnum sslMode) {
+        evictIdleConnections();
+        HttpClient client = clients.get(sslMode);
+        if (client == null) {
+            synchronized (clients) {
+                client = clients.get(sslMode);
+                if (client == null) {
+                    client = sslMode == SslModeEnum.MISCONFIGURED ?
+                            MisconfiguredSslHttpClientFactory.getHttpClient() :
+                            newHttpClient(sslMode);
+                    clients.put(sslMode, client);
+                    MyLog.v(MyHttpClientFactory.class, "New HTTP client for " + sslMode
+                            + ", max connections per host:" + MyPreferences.getMaxConnectionsPerHost());
+                }
+            }
+        }
+        return client;
+    }
+
+    private static HttpClient newHttpClient(SslModeEnum sslMode) {
         Registry<ConnectionSocketFactory> registry = 
                 RegistryBuilder.<ConnectionSocketFactory> create()
-                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("http", new PlainConnectionSocketFactory() {
+                        @Override
+                        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+                                                    InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                                    HttpContext context) throws IOException {
+                            HttpConnectionStats.onConnectionOpened();
+                            return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress,
+                                    context);
+                        }
+                    })
                     .register("https", TlsSniSocketFactory.getInstance(sslMode))
                     .build();
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
-        // max.  3 connections in total
-        connectionManager.setMaxTotal(3);
-        // max.  2 connections per host
-        connectionManager.setDefaultMaxPerRoute(2);
+        int maxPerHost = MyPreferences.getMaxConnectionsPerHost();
+        connectionManager.setMaxTotal(maxPerHost * MAX_HOSTS);
+        connectionManager.setDefaultMaxPerRoute(maxPerHost);
+        // A server may close a connection, while it's idle in the pool
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
 
         // use request defaults from AndroidHttpClient
         RequestConfig requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
                 .setConnectTimeout(MyPreferences.getConnectionTimeoutMs())
+                // Don't wait for a free connection of the pool longer than for a new connection
+                .setConnectionRequestTimeout(MyPreferences.getConnectionTimeoutMs())
                 .setSocketTimeout(2*MyPreferences.getConnectionTimeoutMs())
                 .setStaleConnectionCheckEnabled(false)
                 .build();
@@ -64,9 +127,85 @@ public class MyHttpClientFactory {
                 */
                 .disableRedirectHandling()
                 .setUserAgent(HttpConnection.USER_AGENT)
-                .disableCookieManagement();
+                .disableCookieManagement()
+                .addInterceptorFirst(new HttpRequestInterceptor() {
+                    @Override
+                    public void process(HttpRequest request, HttpContext context) {
+                        HttpConnectionStats.onRequest();
+                    }
+                });
 
         return builder.build();
     }
-    
+
+    /**
+     * Connections of {@link java.net.HttpURLConnection} are kept alive in the pool of the platform,
+     * which is shared by the whole process. We only limit its size
+     */
+    static void configureJavaNet() {
+        if (javaNetConfigured) {
+            return;
+        }
+        javaNetConfigured = true;
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", Integer.toString(MyPreferences.getMaxConnectionsPerHost()));
+    }
+
+    @SuppressWarnings("deprecation")
+    static void evictIdleConnections() {
+        if (System.currentTimeMillis() - evictedAt < EVICTION_PERIOD_MS) {
+            return;
+        }
+        evictedAt = System.currentTimeMillis();
+        for (HttpClient client : clients.values()) {
+            ClientConnectionManager connectionManager = client.getConnectionManager();
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS);
+        }
+        for (Map.Entry<HttpClient, Long> entry : retiredClients.entrySet()) {
+            ClientConnectionManager connectionManager = entry.getKey().getConnectionManager();
+            if (System.currentTimeMillis() - entry.getValue() > TimeUnit.SECONDS.toMillis(RETIRED_CLIENT_SECONDS)) {
+                retiredClients.remove(entry.getKey());
+                connectionManager.shutdown();
+            } else {
+                // Connections, released by completed requests, are not reused
+                connectionManager.closeIdleConnections(0, TimeUnit.SECONDS);
+            }
+        }
+        MyLog.v(MyHttpClientFactory.class, "Idle connections evicted; " + HttpConnectionStats.getSummary());
+    }
+
+    /**
+     * New requests will use new clients with current settings. Old clients are not shut down at once,
+     * so requests, which are using their connections, complete, see {@link #RETIRED_CLIENT_SECONDS}
+     */
+    public static void onConnectionPreferencesChanged() {
+        synchronized (clients) {
+            for (HttpClient client : clients.values()) {
+                retiredClients.put(client, System.currentTimeMillis());
+            }
+            clients.clear();
+        }
+        javaNetConfigured = false;
+        MyLog.v(MyHttpClientFactory.class, "Connection preferences changed, " + retiredClients.size()
+                + " clients retired");
+    }
+
+    /** Closes all pooled connections, so new clients will be created with current settings */
+    @SuppressWarnings("deprecation")
+    public static void forget() {
+        synchronized (clients) {
+            for (HttpClient client : clients.values()) {
+                client.getConnectionManager().shutdown();
+            }
+            clients.clear();
+            for (HttpClient client : retiredClients.keySet()) {
+                client.getConnectionManager().shutdown();
+            }
+            retiredClients.clear();
+        }
+        javaNetConfigured = false;
+        HttpValidatorsCache.forget();
+        RateLimiter.forget();
+    }
 }
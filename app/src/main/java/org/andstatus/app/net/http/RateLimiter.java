@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.util.MyLog;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Request budget of one endpoint of an account: a token bucket, which is refilled by the server at its reset time.
+ * The budget is learned from rate limit headers of responses ("X-RateLimit-*")
+ * and from the {@link StatusCode#TOO_MANY_REQUESTS} responses.
+ * Servers (e.g. Twitter) limit each endpoint for each user separately, so an exhausted budget
+ * of one endpoint doesn't delay requests to other endpoints.
+ * The limiter of the whole host (see {@link #of(URL)}) is blocked only by the "Retry-After" header
+ * of the {@link StatusCode#TOO_MANY_REQUESTS} response.
+ * Requests are delayed until the budget is available, or (for long delays) fail with a soft error,
+ * so the command is retried later
+ * @author yvolk@yurivolkov.com
+ */
+public class RateLimiter {
+    private static final String TAG = RateLimiter.class.getSimpleName();
+    /** A request may wait in place for so long. Longer delays are done by retrying the command later */
+    public static final long MAX_WAIT_MS = 10000;
+    /** For the {@link StatusCode#TOO_MANY_REQUESTS} response without a reset date */
+    static final long DEFAULT_BLOCK_MS = 60000;
+    /** Unix time in seconds is larger than this, other numbers are seconds from now */
+    private static final long MIN_UNIX_TIME_SECONDS = 1000000000L;
+    private static final String[] DATE_FORMATS = {"yyyy-MM-dd'T'HH:mm:ss.SSSZ", "yyyy-MM-dd'T'HH:mm:ssZ",
+            "EEE, dd MMM yyyy HH:mm:ss zzz"};
+    /** "SSS" pattern reads any number of digits as milliseconds, so we keep exactly three of them */
+    private static final Pattern FRACTION_OF_SECOND = Pattern.compile("\\.(\\d+)");
+    private static final Pattern TIME_ZONE_WITH_COLON = Pattern.compile("([+-]\\d\\d):(\\d\\d)$");
+
+    private static final ConcurrentHashMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    /** Host or, for the limiter of an endpoint, host, account and path of the endpoint */
+    private final String name;
+    private final boolean isHost;
+    private int limit = -1;
+    /** Tokens left in the bucket till its reset, -1 if unknown */
+    private int remaining = -1;
+    private long resetAt = 0;
+    private long blockedUntil = 0;
+
+    private RateLimiter(String name, boolean isHost) {
+        this.name = name;
+        this.isHost = isHost;
+    }
+
+    /** @return the limiter of the whole host */
+    @NonNull
+    public static RateLimiter of(URL url) {
+        return of(url == null ? "" : url.getHost());
+    }
+
+    /** @return the limiter of the whole host */
+    @NonNull
+    public static RateLimiter of(String host) {
+        return getOrCreate(host == null ? "" : host.toLowerCase(Locale.US), true);
+    }
+
+    /**
+     * @return the limiter of the endpoint of the url for the account.
+     * Numbers in the path (e.g. message ids) are ignored, so requests to one resource share the budget
+     */
+    @NonNull
+    public static RateLimiter ofEndpoint(URL originUrl, String accountName, String url) {
+        String path = url;
+        try {
+            path = new URL(url).getPath();
+        } catch (MalformedURLException e) {
+            MyLog.ignored(TAG, e);
+        }
+        return getOrCreate(of(originUrl).name + " " + accountName + " "
+                + (path == null ? "" : path.replaceAll("\\d+", "#")), false);
+    }
+
+    @NonNull
+    private static RateLimiter getOrCreate(String key, boolean isHost) {
+        RateLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = new RateLimiter(key, isHost);
+            RateLimiter existing = limiters.putIfAbsent(key, limiter);
+            if (existing != null) {
+                limiter = existing;
+            }
+        }
+        return limiter;
+    }
+
+    /** @return limiters, which know anything about their budgets */
+    @NonNull
+    public static List<RateLimiter> getKnown() {
+        List<RateLimiter> known = new ArrayList<>();
+        for (RateLimiter limiter : limiters.values()) {
+            if (limiter.isKnown()) {
+                known.add(limiter);
+            }
+        }
+        return known;
+    }
+
+    public static void forget() {
+        limiters.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized boolean isKnown() {
+        return limit >= 0 || remaining >= 0 || blockedUntil > 0;
+    }
+
+    /** @return How long to wait before the next request. 0 - the request may be sent now */
+    public synchronized long getDelayMs() {
+        long now = System.currentTimeMillis();
+        refill(now);
+        long delay = blockedUntil > now ? blockedUntil - now : 0;
+        if (remaining == 0 && resetAt > now) {
+            delay = Math.max(delay, resetAt - now);
+        }
+        return delay;
+    }
+
+    /** Waits for the budget and takes a token from it */
+    void beforeRequest(String url) throws ConnectionException {
+        long delay = getDelayMs();
+        if (delay > MAX_WAIT_MS) {
+            throw new ConnectionException(StatusCode.TOO_MANY_REQUESTS, "Rate limit of '" + name
+                    + "' exceeded, next request in " + (delay / 1000) + " seconds; url:'" + url + "'");
+        }
+        if (delay > 0) {
+            MyLog.v(TAG, "Waiting " + delay + "ms for the rate limit of '" + name + "'");
+            if (DbUtils.waitMs(TAG, delay)) {
+                throw new ConnectionException(StatusCode.TOO_MANY_REQUESTS, "Interrupted waiting for the rate limit of '"
+                        + name + "'; url:'" + url + "'");
+            }
+        }
+        onRequest();
+    }
+
+    synchronized void onRequest() {
+        if (remaining > 0) {
+            remaining--;
+        }
+    }
+
+    synchronized void onResponse(HttpReadResult result) {
+        long now = System.currentTimeMillis();
+        if (isHost) {
+            if (result.getStatusCode() == StatusCode.TOO_MANY_REQUESTS && result.retryAfterAt > now) {
+                blockedUntil = Math.max(blockedUntil, result.retryAfterAt);
+            }
+            return;
+        }
+        if (result.rateLimitRemaining >= 0) {
+            remaining = result.rateLimitRemaining;
+            if (result.rateLimitLimit >= 0) {
+                limit = result.rateLimitLimit;
+            }
+            if (result.rateLimitResetAt > now) {
+                resetAt = result.rateLimitResetAt;
+            }
+        }
+        if (result.retryAfterAt > now) {
+            blockedUntil = Math.max(blockedUntil, result.retryAfterAt);
+        } else if (result.getStatusCode() == StatusCode.TOO_MANY_REQUESTS) {
+            remaining = 0;
+            blockedUntil = Math.max(blockedUntil, resetAt > now ? resetAt : now + DEFAULT_BLOCK_MS);
+        }
+    }
+
+    /**
+     * The status, requested explicitly, see {@link org.andstatus.app.net.social.MbRateLimitStatus}.
+     * It is shown to a user only, because the status doesn't tell, which endpoint it belongs to
+     */
+    public synchronized void setStatus(int limit, int remaining) {
+        this.limit = limit;
+        this.remaining = remaining;
+    }
+
+    private void refill(long now) {
+        if (resetAt > 0 && resetAt <= now) {
+            remaining = limit;
+            resetAt = 0;
+        }
+    }
+
+    /** @return the current budget in a form, suitable for a user */
+    public synchronized String getBudget() {
+        long now = System.currentTimeMillis();
+        refill(now);
+        StringBuilder builder = new StringBuilder(name);
+        if (remaining >= 0) {
+            builder.append(": " + remaining + (limit >= 0 ? "/" + limit : ""));
+        }
+        if (resetAt > now) {
+            builder.append(", reset in " + ((resetAt - now + 999) / 1000) + "s");
+        }
+        if (blockedUntil > now) {
+            builder.append(", blocked for " + ((blockedUntil - now + 999) / 1000) + "s");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return TAG + "{" + getBudget() + "}";
+    }
+
+    /** @return Unix time in milliseconds, 0 if the value is empty or failed to parse */
+    static long parseDate(String value, long now) {
+        if (TextUtils.isEmpty(value)) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            long number = Long.parseLong(trimmed);
+            return number > MIN_UNIX_TIME_SECONDS ? number * 1000 : now + number * 1000;
+        } catch (NumberFormatException e) {
+            MyLog.ignored(TAG, e);
+        }
+        String prepared = trimmed.endsWith("Z") ? trimmed.substring(0, trimmed.length() - 1) + "+0000" : trimmed;
+        prepared = TIME_ZONE_WITH_COLON.matcher(prepared).replaceFirst("$1$2");
+        Matcher matcher = FRACTION_OF_SECOND.matcher(prepared);
+        if (matcher.find()) {
+            String millis = (matcher.group(1) + "00").substring(0, 3);
+            prepared = prepared.substring(0, matcher.start()) + "." + millis + prepared.substring(matcher.end());
+        }
+        for (String format : DATE_FORMATS) {
+            DateFormat dateFormat = new SimpleDateFormat(format, Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+            try {
+                return dateFormat.parse(prepared).getTime();
+            } catch (ParseException e) {
+                MyLog.ignored(TAG, e);
+            }
+        }
+        MyLog.d(TAG, "Failed to parse the date: '" + value + "'");
+        return 0;
+    }
+
+    static int parseInt(String value) {
+        if (!TextUtils.isEmpty(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                MyLog.ignored(TAG, e);
+            }
+        }
+        return -1;
+    }
+}
@@ -92,6 +92,7 @@ public class TlsSniSocketFactory implements LayeredConnectionSocketFactory {
         
         // create a plain SSL socket, but don't do hostname/certificate verification yet
         SSLSocket ssl = (SSLSocket)sslSocketFactory.createSocket(remoteAddr.getAddress(), host.getPort());
+        HttpConnectionStats.onConnectionOpened();
         
         // connect, set SNI, shake hands, verify, print connection info
         connectWithSNI(ssl, host.getHostName());
@@ -135,7 +136,9 @@ public class TlsSniSocketFactory implements LayeredConnectionSocketFactory {
         }
         
         // verify hostname and certificate
+        long handshakeStartedAt = System.currentTimeMillis();
         SSLSession session = ssl.getSession();
+        HttpConnectionStats.onHandshake(System.currentTimeMillis() - handshakeStartedAt);
         if (!session.isValid()) {
             MyLog.i(this, "Invalid session to host:'" + host + "'");
         }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Progress of the media upload, performed by a command in the current thread.
+ * The listener is set by the command executor, so Connections don't need to know about it
+ * @author yvolk@yurivolkov.com
+ */
+public class UploadProgress {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface Listener {
+        /** @param total Size of the media in bytes, or -1 if unknown */
+        void onProgress(long written, long total);
+    }
+
+    private static final ThreadLocal<Listener> listener = new ThreadLocal<>();
+
+    private UploadProgress() {
+        // Empty
+    }
+
+    public static void setListener(Listener listenerIn) {
+        listener.set(listenerIn);
+    }
+
+    public static void clearListener() {
+        listener.remove();
+    }
+
+    /** Copies the media, streaming it without loading into memory, and reports progress to the listener
+     * @return number of bytes copied */
+    static long copy(InputStream in, OutputStream out, long total) throws IOException {
+        Listener progressListener = listener.get();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+            written += length;
+            if (progressListener != null) {
+                progressListener.onProgress(written, total);
+            }
+        }
+        return written;
+    }
+}
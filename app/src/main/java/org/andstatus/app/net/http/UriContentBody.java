@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import cz.msebera.android.httpclient.entity.ContentType;
+import cz.msebera.android.httpclient.entity.mime.MIME;
+import cz.msebera.android.httpclient.entity.mime.content.AbstractContentBody;
+
+/**
+ * Media part of a multipart request, which is read from the content Uri while being sent,
+ * so the whole (maybe large) file is not held in memory
+ * @author yvolk@yurivolkov.com
+ */
+class UriContentBody extends AbstractContentBody {
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final String filename;
+    private final long contentLength;
+
+    UriContentBody(ContentResolver contentResolver, Uri uri, ContentType contentType, String filename) {
+        super(contentType);
+        this.contentResolver = contentResolver;
+        this.uri = uri;
+        this.filename = filename;
+        this.contentLength = lengthOf(contentResolver, uri);
+    }
+
+    static long lengthOf(ContentResolver contentResolver, Uri uri) {
+        AssetFileDescriptor descriptor = null;
+        try {
+            descriptor = contentResolver.openAssetFileDescriptor(uri, "r");
+            return descriptor == null ? -1 : descriptor.getLength();
+        } catch (FileNotFoundException | SecurityException e) {
+            MyLog.d(UriContentBody.class.getSimpleName(), "uri='" + uri + "'", e);
+            return -1;
+        } finally {
+            DbUtils.closeSilently(descriptor);
+        }
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("No content for uri='" + uri + "'");
+        }
+        try {
+            UploadProgress.copy(in, out, contentLength);
+            out.flush();
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    /** @return -1 if unknown, so the request is sent chunked */
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+}
@@ -347,6 +347,9 @@ public abstract class Connection {
     /**
      * Universal method for several Timeline Types...
      * @param userId For the {@link ApiRoutineEnum#USER_TIMELINE}, null for the other timelines
+     * @throws ConnectionException with {@link org.andstatus.app.net.http.ConnectionException.StatusCode#NOT_MODIFIED}
+     *  if the timeline didn't change since the previous identical request.
+     *  Call {@link org.andstatus.app.net.http.HttpValidatorsCache#commit()} after the timeline is processed
      */
     @NonNull
     public abstract List<MbActivity> getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition youngestPosition,
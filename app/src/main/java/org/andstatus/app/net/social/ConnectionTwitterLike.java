@@ -217,7 +217,7 @@ public abstract class ConnectionTwitterLike extends Connection {
             throws ConnectionException {
         Uri.Builder builder = getTimelineUriBuilder(apiRoutine, limit, userId);
         appendPositionParameters(builder, youngestPosition, oldestPosition);
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
+        JSONArray jArr = http.getConditionalRequestAsArray(builder.build().toString());
         return jArrToTimeline(jArr, apiRoutine, builder.build().toString());
     }
 
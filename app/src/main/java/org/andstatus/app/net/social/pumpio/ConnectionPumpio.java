@@ -331,7 +331,7 @@ public class ConnectionPumpio extends Connection {
         }
         builder.appendQueryParameter("count", strFixedDownloadLimit(limit, apiRoutine));
         String url = builder.build().toString();
-        JSONArray jArr = conu.httpConnection.getRequestAsArray(url);
+        JSONArray jArr = conu.httpConnection.getConditionalRequestAsArray(url);
         List<MbActivity> activities = new ArrayList<>();
         if (jArr != null) {
             // Read the activities in the chronological order
@@ -20,16 +20,19 @@ import android.os.Bundle;
 import android.view.MenuItem;
 
 import org.andstatus.app.R;
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceEvent;
 import org.andstatus.app.service.MyServiceEventsListener;
 import org.andstatus.app.service.MyServiceEventsReceiver;
 import org.andstatus.app.service.MyServiceManager;
+import org.andstatus.app.util.TriState;
+
+import java.util.Comparator;
+import java.util.Map;
 
 public class DiscoveredOriginList extends OriginList implements MyServiceEventsListener {
-    MyServiceEventsReceiver mServiceConnector = new MyServiceEventsReceiver(MyContextHolder.get(), this);
+    MyServiceEventsReceiver mServiceConnector = new MyServiceEventsReceiver(this);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +52,35 @@ public class DiscoveredOriginList extends OriginList implements MyServiceEventsL
         return DiscoveredOrigins.get();
     }
 
+    /** The fastest available origins first */
+    @Override
+    protected Comparator<Map<String, String>> getComparator() {
+        final Comparator<Map<String, String>> byName = super.getComparator();
+        return new Comparator<Map<String, String>>() {
+            @Override
+            public int compare(Map<String, String> lhs, Map<String, String> rhs) {
+                int result = getProbe(lhs).compareTo(getProbe(rhs));
+                return result == 0 ? byName.compare(lhs, rhs) : result;
+            }
+
+            private OriginProbe getProbe(Map<String, String> item) {
+                return DiscoveredOrigins.getProbe(DiscoveredOrigins.fromName(item.get(KEY_NAME)));
+            }
+        };
+    }
+
+    @Override
+    protected String getVisibleName(Origin origin) {
+        OriginProbe probe = DiscoveredOrigins.getProbe(origin);
+        if (probe == OriginProbe.EMPTY) {
+            return origin.getName();
+        }
+        return origin.getName() + " ("
+                + (probe.isAvailable() ? probe.latency + " ms" : getText(R.string.dialog_title_service_unavailable))
+                + (probe.tlsValid == TriState.FALSE ? ", " + getText(R.string.preference_ssl_mode_insecure) : "")
+                + ")";
+    }
+
     private void manualSync() {
         MyServiceManager.setServiceAvailable();
         MyServiceManager.sendForegroundCommand(
@@ -61,13 +93,13 @@ public class DiscoveredOriginList extends OriginList implements MyServiceEventsL
     protected void onResume() {
         super.onResume();
         MyServiceManager.setServiceAvailable();
-        mServiceConnector.registerReceiver(this);
+        mServiceConnector.registerReceiver();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        mServiceConnector.unregisterReceiver(this);
+        mServiceConnector.unregisterReceiver();
     }
     
     @Override
@@ -1,9 +1,11 @@
 package org.andstatus.app.origin;
 
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +13,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class DiscoveredOrigins {
     private static final Map<String,Origin> mOrigins = new ConcurrentHashMap<String, Origin>();
+    /** Results of probing by origin name. They outlive the list of origins, see {@link OriginProbe#TTL_SECONDS} */
+    private static final Map<String, OriginProbe> probes = new ConcurrentHashMap<>();
 
     private DiscoveredOrigins() {
         // Empty
@@ -36,6 +40,30 @@ public class DiscoveredOrigins {
 
     public static void clear() {
         mOrigins.clear();
+        probes.clear();
+    }
+
+    /** @return {@link OriginProbe#EMPTY} if the origin was not probed */
+    @NonNull
+    public static OriginProbe getProbe(@NonNull Origin origin) {
+        OriginProbe probe = probes.get(origin.getName());
+        return probe == null ? OriginProbe.EMPTY : probe;
+    }
+
+    public static void putProbe(@NonNull OriginProbe probe) {
+        probes.put(probe.originName, probe);
+    }
+
+    /** @return the origins, which were not probed recently */
+    @NonNull
+    public static List<Origin> toProbe(@NonNull Collection<Origin> origins) {
+        List<Origin> list = new ArrayList<>();
+        for (Origin origin : origins) {
+            if (getProbe(origin).isExpired()) {
+                list.add(origin);
+            }
+        }
+        return list;
     }
     
     public static Collection<Origin> get() {
@@ -81,6 +81,9 @@ public class Origin {
      */
     private int textLimit = OriginType.TEXT_LIMIT_MAXIMUM;
 
+    /** See {@link OriginType#uploadLimitDefault} */
+    private long uploadLimit = 0;
+
     
     /** Include this system in Global Search while in Combined Timeline */
     private boolean inCombinedGlobalSearch = false;
@@ -341,6 +344,7 @@ public class Origin {
         origin.allowHtml = origin.originType.allowHtmlDefault;
         origin.shortUrlLength = origin.originType.shortUrlLengthDefault;
         origin.textLimit = origin.originType.textLimitDefault;
+        origin.uploadLimit = origin.originType.uploadLimitDefault;
         origin.setInCombinedGlobalSearch(true);
         origin.setInCombinedPublicReload(true);
         return origin;
@@ -360,6 +364,11 @@ public class Origin {
         return textLimit;
     }
 
+    /** @return Maximum size of an uploaded media file in bytes, 0 if unknown */
+    public long getUploadLimit() {
+        return uploadLimit;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -420,6 +429,9 @@ public class Origin {
             if (originType1.textLimitDefault == 0) {
                 setTextLimit(DbUtils.getInt(cursor, OriginTable.TEXT_LIMIT));
             }
+            if (originType1.uploadLimitDefault == 0) {
+                origin.uploadLimit = DbUtils.getLong(cursor, OriginTable.UPLOAD_LIMIT);
+            }
             origin.setInCombinedGlobalSearch(DbUtils.getBoolean(cursor,
                     OriginTable.IN_COMBINED_GLOBAL_SEARCH));
             origin.setInCombinedPublicReload(DbUtils.getBoolean(cursor,
@@ -448,6 +460,7 @@ public class Origin {
             setHtmlContentAllowed(original.allowHtml);
             origin.shortUrlLength = original.shortUrlLength;
             setTextLimit(original.getTextLimit());
+            origin.uploadLimit = original.uploadLimit;
             setInCombinedGlobalSearch(original.inCombinedGlobalSearch);
             setInCombinedPublicReload(original.inCombinedPublicReload);
             setMentionAsWebFingerId(original.mMentionAsWebFingerId);
@@ -537,6 +550,9 @@ public class Origin {
         public Builder save(MbConfig config) {
             origin.shortUrlLength = config.shortUrlLength;
             setTextLimit(config.textLimit);
+            if (config.uploadLimit > 0) {
+                origin.uploadLimit = config.uploadLimit;
+            }
             save();
             return this;
         }
@@ -566,6 +582,7 @@ public class Origin {
             values.put(OriginTable.ALLOW_HTML, origin.allowHtml);
             values.put(OriginTable.SHORT_URL_LENGTH, origin.shortUrlLength);
             values.put(OriginTable.TEXT_LIMIT, origin.getTextLimit());
+            values.put(OriginTable.UPLOAD_LIMIT, origin.uploadLimit);
             values.put(OriginTable.IN_COMBINED_GLOBAL_SEARCH, origin.inCombinedGlobalSearch);
             values.put(OriginTable.IN_COMBINED_PUBLIC_RELOAD, origin.inCombinedPublicReload);
             values.put(OriginTable.MENTION_AS_WEBFINGER_ID, origin.mMentionAsWebFingerId.getId());
@@ -95,21 +95,29 @@ public abstract class OriginList extends MyListActivity {
     protected void fillList() {
         data.clear();
         fillData(data);
-        java.util.Collections.sort(data, new Comparator<Map<String, String>>() {
+        java.util.Collections.sort(data, getComparator());
+        MyLog.v(this, "fillList, " + data.size() + " items");
+        ((BaseAdapter) getListAdapter()).notifyDataSetChanged();
+    }
+
+    protected Comparator<Map<String, String>> getComparator() {
+        return new Comparator<Map<String, String>>() {
             @Override
             public int compare(Map<String, String> lhs, Map<String, String> rhs) {
                 return lhs.get(KEY_VISIBLE_NAME).compareToIgnoreCase(rhs.get(KEY_VISIBLE_NAME));
             }
-        });
-        MyLog.v(this, "fillList, " + data.size() + " items");
-        ((BaseAdapter) getListAdapter()).notifyDataSetChanged();
+        };
+    }
+
+    protected String getVisibleName(Origin origin) {
+        return origin.getName();
     }
 
     protected final void fillData(List<Map<String, String>> data) {
         for (Origin origin : getOrigins()) {
             if (originType.equals(OriginType.UNKNOWN) || originType.equals(origin.getOriginType())) {
                 Map<String, String> map = new HashMap<>();
-                String visibleName = origin.getName();
+                String visibleName = getVisibleName(origin);
                 map.put(KEY_VISIBLE_NAME, visibleName);
                 map.put(KEY_NAME, origin.getName());
                 map.put(BaseColumns._ID, Long.toString(origin.getId()));
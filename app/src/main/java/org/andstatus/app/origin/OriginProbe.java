@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.origin;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.account.AccountName;
+import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.social.MbConfig;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.RelativeTime;
+import org.andstatus.app.util.TriState;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Result of probing of a discovered origin: availability of its API (config request),
+ * validity of its TLS certificate and latency of the request
+ * @author yvolk@yurivolkov.com
+ */
+public class OriginProbe implements Comparable<OriginProbe> {
+    /** Probe results are reused during this period, see {@link DiscoveredOrigins#getProbe(Origin)} */
+    static final long TTL_SECONDS = TimeUnit.HOURS.toSeconds(6);
+    /** A failed origin may become available soon */
+    static final long TTL_FAILED_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+    public static final long LATENCY_UNKNOWN = Long.MAX_VALUE;
+    public static final OriginProbe EMPTY = new OriginProbe("", 0, LATENCY_UNKNOWN, TriState.UNKNOWN);
+
+    final String originName;
+    public final long probedAt;
+    /** Milliseconds, {@link #LATENCY_UNKNOWN} if the API is not available */
+    public final long latency;
+    /** FALSE if the secure connection failed because of the TLS (certificate) problem */
+    public final TriState tlsValid;
+
+    private OriginProbe(String originName, long probedAt, long latency, TriState tlsValid) {
+        this.originName = originName;
+        this.probedAt = probedAt;
+        this.latency = latency;
+        this.tlsValid = tlsValid;
+    }
+
+    /** Probes the origin in the current thread */
+    @NonNull
+    public static OriginProbe probe(@NonNull Origin origin) {
+        long startedAt = System.currentTimeMillis();
+        long latency = LATENCY_UNKNOWN;
+        TriState tlsValid = TriState.UNKNOWN;
+        try {
+            MbConfig config = OriginConnectionData.fromAccountName(
+                    AccountName.fromOriginAndUserName(origin, ""), TriState.UNKNOWN)
+                    .newConnection().getConfig();
+            if (!config.isEmpty()) {
+                latency = System.currentTimeMillis() - startedAt;
+            }
+            if (origin.isSsl()) {
+                tlsValid = TriState.TRUE;
+            }
+        } catch (ConnectionException e) {
+            if (isCausedBySslException(e)) {
+                tlsValid = TriState.FALSE;
+            }
+            MyLog.v(OriginProbe.class, "Failed to probe " + origin.getName() + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            // E.g. malformed data of a discovered origin: the probe simply fails
+            latency = LATENCY_UNKNOWN;
+            MyLog.d(OriginProbe.class, "Failed to probe " + origin.getName(), e);
+        }
+        return new OriginProbe(origin.getName(), startedAt, latency, tlsValid);
+    }
+
+    @NonNull
+    public static Callable<OriginProbe> toCallable(@NonNull final Origin origin) {
+        return new Callable<OriginProbe>() {
+            @Override
+            public OriginProbe call() throws Exception {
+                return probe(origin);
+            }
+        };
+    }
+
+    private static boolean isCausedBySslException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SSLException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isAvailable() {
+        return latency != LATENCY_UNKNOWN;
+    }
+
+    boolean isExpired() {
+        return this == EMPTY || RelativeTime.moreSecondsAgoThan(probedAt,
+                isAvailable() ? TTL_SECONDS : TTL_FAILED_SECONDS);
+    }
+
+    /** Available origins first, ordered by their latency */
+    @Override
+    public int compareTo(@NonNull OriginProbe another) {
+        return latency < another.latency ? -1 : (latency == another.latency ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.formatKeyValue(this, originName
+                + (isAvailable() ? ", latency:" + latency + "ms" : ", not available")
+                + (tlsValid == TriState.FALSE ? ", invalid TLS" : ""));
+    }
+}
@@ -116,6 +116,8 @@ public enum OriginType implements SelectableEnum {
     protected boolean allowHtmlDefault = true;
     /** Maximum number of characters in the message */
     protected int textLimitDefault = 0;
+    /** Maximum size of an uploaded media file in bytes, 0 means unknown, so it may be read from config */
+    protected long uploadLimitDefault = 0;
     private URL urlDefault = null;
     private String basicPath = BASIC_PATH_DEFAULT;
     private String oauthPath = OAUTH_PATH_DEFAULT;
@@ -144,6 +146,8 @@ public enum OriginType implements SelectableEnum {
                 usernameRegEx = USERNAME_REGEX_SIMPLE;
                 validUsernameExamples = USERNAME_EXAMPLES_SIMPLE;
                 textLimitDefault = 140;
+                // https://dev.twitter.com/rest/media/uploading-media
+                uploadLimitDefault = 5 * 1024 * 1024;
                 urlDefault = UrlUtils.fromString("https://api.twitter.com");
                 basicPath = "1.1";
                 oauthPath = OAUTH_PATH_DEFAULT;
@@ -210,6 +214,7 @@ public enum OriginType implements SelectableEnum {
                 usernameRegEx = USERNAME_REGEX_SIMPLE;
                 validUsernameExamples = USERNAME_EXAMPLES_SIMPLE;
                 textLimitDefault = 500;
+                uploadLimitDefault = 8 * 1024 * 1024;
                 basicPath = "api/v1";
                 oauthPath = "oauth";
                 originClass = OriginMastodon.class;
@@ -56,7 +56,8 @@ public abstract class MyAsyncTask<Params, Progress, Result> extends AsyncTask<Pa
     private volatile String firstError = "";
 
     public enum PoolEnum {
-        SYNC(2, MAX_COMMAND_EXECUTION_SECONDS),
+        /** The heartbeat, the queue executor and the executor, sending messages */
+        SYNC(3, MAX_COMMAND_EXECUTION_SECONDS),
         FILE_DOWNLOAD(1, MAX_COMMAND_EXECUTION_SECONDS),
         QUICK_UI(1, 20),
         LONG_UI(1, MAX_COMMAND_EXECUTION_SECONDS),
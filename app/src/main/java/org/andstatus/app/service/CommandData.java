@@ -48,6 +48,8 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 
 /**
@@ -223,6 +225,14 @@ public class CommandData implements Comparable<CommandData> {
         return bundle;
     }
 
+    /** The same data, as a receiver of the {@link #toIntent(Intent)} gets it, but without marshalling */
+    @NonNull
+    CommandData copy(MyContext myContext) {
+        CommandData copy = fromBundle(myContext, toBundle());
+        copy.commandResult = commandResult.copy();
+        return copy;
+    }
+
     public void toContentValues(ContentValues values) {
         ContentValuesUtils.putNotZero(values, CommandTable._ID, commandId);
         ContentValuesUtils.putNotZero(values, CommandTable.CREATED_DATE, createdDate);
@@ -493,16 +503,20 @@ public class CommandData implements Comparable<CommandData> {
         return builder.toString();
     }
 
-    void deleteCommandInTheQueue(Queue<CommandData> queue) {
+    /** @return the deleted commands */
+    List<CommandData> deleteCommandInTheQueue(Queue<CommandData> queue) {
         String method = "deleteCommandInTheQueue: ";
+        List<CommandData> deleted = new ArrayList<>();
         for (CommandData cd : queue) {
             if (cd.getCommandId() == itemId) {
                 queue.remove(cd);
+                deleted.add(cd);
                 getResult().incrementDownloadedCount();
                 MyLog.v(this, method + "deleted: " + cd);
             }
         }
         MyLog.v(this, method + "id=" + itemId + ", processed queue: " + queue.size());
+        return deleted;
     }
 
     public boolean isInForeground() {
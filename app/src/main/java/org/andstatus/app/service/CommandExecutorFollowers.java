@@ -33,12 +33,12 @@ import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.timeline.TimelineSyncTracker;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -122,7 +122,7 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
                     + " and " + Connection.ApiRoutineEnum.GET_FOLLOWERS_IDS);
         }
 
-        Set<Long> userIdsOld = MyQuery.getFollowersIds(userId);
+        LongSet userIdsOld = MyQuery.getFollowersIds(userId);
         execContext.getResult().incrementDownloadedCount();
         broadcastProgress(execContext.getContext().getText(R.string.followers).toString()
                 + ": " + userIdsOld.size() + " -> " + usersNew.size(), false);
@@ -133,7 +133,7 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
             userIdsOld.remove(mbUser.userId);
             FriendshipValues.setFollowed(mbUser.userId, userId);
         }
-        for (long userIdOld : userIdsOld) {
+        for (long userIdOld : userIdsOld.toArray()) {
             FriendshipValues.setNotFollowed(userIdOld, userId);
         }
     }
@@ -153,7 +153,7 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
                             + " and " + Connection.ApiRoutineEnum.GET_FRIENDS_IDS);
         }
 
-        Set<Long> userIdsOld = MyQuery.getFriendsIds(userId);
+        LongSet userIdsOld = MyQuery.getFriendsIds(userId);
         execContext.getResult().incrementDownloadedCount();
         broadcastProgress(execContext.getContext().getText(R.string.friends).toString()
                 + ": " + userIdsOld.size() + " -> " + usersNew.size(), false);
@@ -164,7 +164,7 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
             userIdsOld.remove(mbUser.userId);
             FriendshipValues.setFollowed(userId, mbUser.userId);
         }
-        for (long userIdOld : userIdsOld) {
+        for (long userIdOld : userIdsOld.toArray()) {
             FriendshipValues.setNotFollowed(userId, userIdOld);
         }
     }
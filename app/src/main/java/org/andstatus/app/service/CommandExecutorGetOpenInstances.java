@@ -23,14 +23,24 @@ import org.andstatus.app.net.social.MbOrigin;
 import org.andstatus.app.origin.DiscoveredOrigins;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.origin.OriginConnectionData;
+import org.andstatus.app.origin.OriginProbe;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class CommandExecutorGetOpenInstances extends CommandExecutorStrategy {
+    private static final int PROBING_THREADS = 8;
+    private static final long MAX_PROBING_SECONDS = 20;
 
     @Override
     void execute() {
@@ -62,10 +72,50 @@ public class CommandExecutorGetOpenInstances extends CommandExecutorStrategy {
                     MyLog.d(this, "Origin is not valid: " + origin.toString());
                 }
             }
+            probe(newOrigins);
             DiscoveredOrigins.addAll(newOrigins);
         }
     }
 
+    /**
+     * Probes origins concurrently, so the user could choose the fastest available one.
+     * Origins, which weren't probed in time, are shown unsorted
+     */
+    private void probe(List<Origin> origins) {
+        List<Origin> toProbe = DiscoveredOrigins.toProbe(origins);
+        if (toProbe.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PROBING_THREADS, toProbe.size()));
+        CompletionService<OriginProbe> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            for (Origin origin : toProbe) {
+                completionService.submit(OriginProbe.toCallable(origin));
+            }
+            long stopAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(MAX_PROBING_SECONDS);
+            for (int count = 1; count <= toProbe.size(); count++) {
+                Future<OriginProbe> future = completionService.poll(stopAt - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    MyLog.v(this, "Probing timed out, " + (count - 1) + " of " + toProbe.size() + " probed");
+                    break;
+                }
+                try {
+                    OriginProbe probe = future.get();
+                    DiscoveredOrigins.putProbe(probe);
+                    MyLog.v(this, probe.toString());
+                } catch (ExecutionException e) {
+                    MyLog.d(this, "Probing", e);
+                }
+                broadcastProgress(count + " of " + toProbe.size() + " probed", true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private boolean haveOriginsWithThisHostName(URL url) {
         if (url == null) {
             return true;
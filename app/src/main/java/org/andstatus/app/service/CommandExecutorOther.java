@@ -33,11 +33,14 @@ import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.RateLimiter;
+import org.andstatus.app.net.http.UploadProgress;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbActivityType;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
@@ -399,6 +402,16 @@ class CommandExecutorOther extends CommandExecutorStrategy{
                 throw ConnectionException.hardConnectionException(
                         "Wrong message status: " + statusStored, null);
             }
+            if (!mediaUri.equals(Uri.EMPTY)) {
+                UploadProgress.setListener(new UploadProgress.Listener() {
+                    @Override
+                    public void onProgress(long written, long total) {
+                        broadcastProgress("Uploading " + (total > 0
+                                ? (written * 100 / total) + "% of " + I18n.formatBytes(total)
+                                : I18n.formatBytes(written)), true);
+                    }
+                });
+            }
             if (recipientUserId == 0) {
                 long replyToMsgId = MyQuery.msgIdToLongColumnValue(
                         MsgTable.IN_REPLY_TO_MSG_ID, msgId);
@@ -414,12 +427,13 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             logIfEmptyMessage(method, msgId, activity.getMessage());
         } catch (ConnectionException e) {
             logConnectionException(e, method + "; " + msgLog);
+        } finally {
+            UploadProgress.clearListener();
         }
         if (noErrors() && activity != null) {
             // The message was sent successfully, so now update unsent message
             // New User's message should be put into the user's Home timeline.
-            activity.getMessage().msgId = msgId;
-            new DataUpdater(execContext).onActivity(activity);
+            new DataUpdater(execContext).onSentActivity(activity, msgId);
             execContext.getResult().setItemId(msgId);
         }
         MyLog.d(this, method + (noErrors() ? " succeeded" : " failed"));
@@ -458,6 +472,8 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             if (ok) {
                 execContext.getResult().setRemainingHits(rateLimitStatus.remaining); 
                 execContext.getResult().setHourlyLimit(rateLimitStatus.limit);
+                RateLimiter.of(execContext.getMyAccount().getOrigin().getUrl())
+                        .setStatus(rateLimitStatus.limit, rateLimitStatus.remaining);
              }
             logOk(ok);
         } catch (ConnectionException e) {
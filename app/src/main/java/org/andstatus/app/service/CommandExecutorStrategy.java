@@ -18,6 +18,7 @@ package org.andstatus.app.service;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -152,6 +153,9 @@ class CommandExecutorStrategy implements CommandExecutorParent {
 
     void logConnectionException(ConnectionException e, String detailedMessage) {
         boolean isHard = e != null && e.isHardError();
+        if (e != null && e.getStatusCode() == StatusCode.TOO_MANY_REQUESTS) {
+            execContext.getResult().setRateLimited();
+        }
         StringBuilder builder = new StringBuilder(100);
         I18n.appendAtNewLine(builder, detailedMessage);
         if (e != null) {
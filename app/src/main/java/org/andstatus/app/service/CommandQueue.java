@@ -23,33 +23,95 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDiskIOException;
 import android.support.annotation.NonNull;
 
+import net.jcip.annotations.GuardedBy;
+
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.CommandTable;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
 
 /**
+ * Command queues, persisted in the {@link CommandTable}.
+ * Changes of the queues are written to the database as they happen (a journal of upserts and deletions
+ * by {@link CommandData#getCommandId()}), so the queues don't need to be rewritten on each stop
+ * of {@link MyService} and no commands are lost in a case of a crash.
+ * A command, taken for execution, stays in the database until its execution ends.
  * @author yvolk@yurivolkov.com
  */
 public class CommandQueue {
+    /** Number of pending journal records, after which they are written to the database */
+    static final int JOURNAL_BATCH_SIZE = 10;
+    /** Pending journal records are written to the database, when the oldest of them is this old */
+    static final long JOURNAL_MAX_AGE_MS = 5000;
+
     private final Context context;
     private static class OneQueue {
-        Queue<CommandData> queue = new PriorityBlockingQueue<>(100);
+        final Queue<CommandData> queue = new PriorityBlockingQueue<>(100);
+        /** The same commands as in the {@link #queue}, for constant time lookup of an equal command */
+        final Map<CommandData, CommandData> index = new ConcurrentHashMap<>();
         volatile int savedCount = 0;
         volatile boolean savedForegroundTasks = false;
 
         public void clear() {
-            queue.clear();
+            clearInMemory();
             savedCount = 0;
             savedForegroundTasks = false;
         }
 
+        synchronized void clearInMemory() {
+            queue.clear();
+            index.clear();
+        }
+
+        CommandData find(CommandData commandData) {
+            return index.get(commandData);
+        }
+
+        synchronized boolean offer(CommandData commandData) {
+            if (queue.offer(commandData)) {
+                index.put(commandData, commandData);
+                return true;
+            }
+            return false;
+        }
+
+        synchronized CommandData poll() {
+            CommandData commandData = queue.poll();
+            if (commandData != null) {
+                index.remove(commandData);
+            }
+            return commandData;
+        }
+
+        /** Polls the head of the queue only if it is this command */
+        synchronized CommandData pollIf(CommandEnum command) {
+            CommandData commandData = queue.peek();
+            return commandData != null && commandData.getCommand() == command ? poll() : null;
+        }
+
+        synchronized boolean remove(CommandData commandData) {
+            index.remove(commandData);
+            return queue.remove(commandData);
+        }
+
+        synchronized List<CommandData> deleteCommand(CommandData commandData) {
+            List<CommandData> deleted = commandData.deleteCommandInTheQueue(queue);
+            for (CommandData cd : deleted) {
+                index.remove(cd);
+            }
+            return deleted;
+        }
+
         public boolean isEmpty() {
             return queue.isEmpty() && savedCount == 0;
         }
@@ -76,6 +138,25 @@ public class CommandQueue {
     private volatile boolean loaded = false;
     private volatile boolean saved = false;
 
+    /** Not yet persisted changes: the latest {@link QueueType} of a command by its ID.
+     * {@link QueueType#UNKNOWN} means that the command should be deleted.
+     * Several changes of the same command are coalesced into one database write */
+    @GuardedBy("journal")
+    private final Map<Long, JournalRecord> journal = new LinkedHashMap<>();
+    /** When the oldest of the pending journal records was appended */
+    @GuardedBy("journal")
+    private long journalStartedAt = 0;
+
+    private static class JournalRecord {
+        final QueueType queueType;
+        final CommandData commandData;
+
+        JournalRecord(QueueType queueType, CommandData commandData) {
+            this.queueType = queueType;
+            this.commandData = commandData;
+        }
+    }
+
     public CommandQueue() {
         this(MyContextHolder.get().context());
     }
@@ -87,6 +168,7 @@ public class CommandQueue {
         }
     }
 
+    /** The queue is for reading. Please use methods of this class to change it */
     public Queue<CommandData> get(QueueType queueType) {
         return queues.get(queueType).queue;
     }
@@ -95,6 +177,7 @@ public class CommandQueue {
         if (loaded) {
             MyLog.d(this, "Already loaded");
         } else {
+            flushJournal();
             int count = load(QueueType.CURRENT) + load(QueueType.RETRY);
             int countError = load(QueueType.ERROR);
             MyLog.d(this, "State restored, " + (count > 0 ? Integer.toString(count) : "no ")
@@ -125,10 +208,10 @@ public class CommandQueue {
                 CommandData cd = CommandData.fromCursor(MyContextHolder.get(), c);
                 if (CommandEnum.EMPTY.equals(cd.getCommand())) {
                     MyLog.e(context, method + "; empty skipped " + cd);
-                } else if (queue.contains(cd)) {
-                    MyLog.e(context, method + "; duplicate skipped " + cd);
+                } else if (oneQueue.find(cd) != null) {
+                    MyLog.v(context, method + "; duplicate skipped " + cd);
                 } else {
-                    if (queue.offer(cd)) {
+                    if (oneQueue.offer(cd)) {
                         count++;
                         if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_STATUS )) {
                             MyLog.v(context, method + "; " + count + ": " + cd.toString());
@@ -147,64 +230,93 @@ public class CommandQueue {
         return count;
     }
 
+    /**
+     * Writes pending changes to the database and frees memory. The queues are not rewritten:
+     * the database already has everything, except for the pending journal records
+     */
     public synchronized void save() {
-        if (loaded) {
-            clearQueuesInDatabase();
-        }
-        int count = save(QueueType.CURRENT) + save(QueueType.RETRY);
-        int countError = save(QueueType.ERROR);
+        int count = flushJournal();
+        int size = unload(QueueType.CURRENT) + unload(QueueType.RETRY);
+        int sizeError = unload(QueueType.ERROR);
         MyLog.d(this, (loaded ? "Queues saved" : "Saved new queued commands only") + ", "
-                + (count > 0 ? Integer.toString(count) : "no") + " commands"
-                + (countError > 0 ? ", including " + Integer.toString(countError) + " in Error queue" : "")
+                + (count > 0 ? Integer.toString(count) : "no") + " changes"
+                + ", " + size + " commands"
+                + (sizeError > 0 ? ", including " + Integer.toString(sizeError) + " in Error queue" : "")
         );
         saved |= loaded;
         loaded = false;
     }
 
-    /** @return Number of items persisted */
+    private int unload(@NonNull QueueType queueType) {
+        OneQueue oneQueue = queues.get(queueType);
+        if (loaded) {
+            oneQueue.savedCount = 0;
+            oneQueue.savedForegroundTasks = false;
+        }
+        oneQueue.savedForegroundTasks |= oneQueue.hasForegroundTasks();
+        int size = oneQueue.queue.size();
+        oneQueue.savedCount += size;
+        oneQueue.clearInMemory();
+        return size;
+    }
+
+    /**
+     * Persists all commands of this queue (not only changed ones) and frees memory
+     * @return Number of items persisted */
     public int save(@NonNull QueueType queueType) {
         final String method = "saveQueue-" + queueType.save();
-        OneQueue oneQueue = queues.get(queueType);
-        Queue<CommandData> queue = oneQueue.queue;
-        int count = 0;
-        try {
-            SQLiteDatabase db = MyContextHolder.get().getDatabase();
-            if (db == null) {
-                MyLog.d(context, method + "; Database is unavailable");
+        Queue<CommandData> queue = get(queueType);
+        for (CommandData cd : queue) {
+            appendToJournal(queueType, cd);
+        }
+        flushJournal();
+        int count = unload(queueType);
+        MyLog.d(context, method + "; " + count + " saved");
+        return count;
+    }
+
+    /** @return Number of journal records written */
+    public int flushJournal() {
+        final String method = "flushJournal";
+        List<JournalRecord> records;
+        long startedAt;
+        synchronized (journal) {
+            if (journal.isEmpty()) {
                 return 0;
             }
-            if (loaded) {
-                oneQueue.savedCount = 0;
-                oneQueue.savedForegroundTasks = false;
-                String sql = "DELETE FROM " + CommandTable.TABLE_NAME + " WHERE " + CommandTable.QUEUE_TYPE + "='" + queueType.save() + "'";
-                DbUtils.execSQL(db, sql);
-            }
-
-            if (!queue.isEmpty()) {
-                while (!queue.isEmpty() && count < 300) {
-                    CommandData cd = queue.poll();
-                    oneQueue.savedForegroundTasks |= cd.isInForeground();
-                    ContentValues values = new ContentValues();
-                    cd.toContentValues(values);
-                    values.put(CommandTable.QUEUE_TYPE, queueType.save());
-                    db.insert(CommandTable.TABLE_NAME, null, values);
-                    count++;
-                    if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_STATUS )) {
-                        MyLog.v(context, method + "; " + count + ": " + cd.toString());
-                    }
-                    if (MyContextHolder.get().isTestRun() && queue.contains(cd)) {
-                        MyLog.e(context, method + "; Duplicated command in a queue:" + count + " " + cd.toString());
+            records = new ArrayList<>(journal.values());
+            startedAt = journalStartedAt;
+            journal.clear();
+        }
+        int count = 0;
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.d(context, method + "; Database is unavailable, " + records.size() + " records kept");
+            returnToJournal(records, startedAt);
+            return 0;
+        }
+        try {
+            db.beginTransaction();
+            try {
+                for (JournalRecord record : records) {
+                    if (record.queueType == QueueType.UNKNOWN) {
+                        db.delete(CommandTable.TABLE_NAME,
+                                CommandTable._ID + "=" + record.commandData.getCommandId(), null);
+                    } else {
+                        ContentValues values = new ContentValues();
+                        record.commandData.toContentValues(values);
+                        values.put(CommandTable.QUEUE_TYPE, record.queueType.save());
+                        db.replace(CommandTable.TABLE_NAME, null, values);
                     }
+                    count++;
                 }
-                if (queue.isEmpty()) {
-                    MyLog.d(context, method + "; " + count + " saved");
-                } else {
-                    MyLog.e(context, method + "; " + count + " saved" +
-                            (queue.isEmpty() ? "" : ", " + queue.size() + " left"));
-                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
             }
         } catch (Exception e) {
-            String msgLog = method + "; " + count + " saved, " + queue.size() + " left.\n"
+            returnToJournal(records, startedAt);
+            String msgLog = method + "; " + records.size() + " records kept.\n"
                     + MyContextHolder.getSystemInfo(context, true);
             MyLog.e(context, msgLog, e);
             if (SQLiteDiskIOException.class.isAssignableFrom(e.getClass())) {
@@ -213,12 +325,50 @@ public class CommandQueue {
                 throw new IllegalStateException(msgLog, e);
             }
         }
-        oneQueue.savedCount += count;
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(context, method + "; " + count + " records written");
+        }
         return count;
     }
 
+    /** Newer records, appended while we were writing, win */
+    private void returnToJournal(List<JournalRecord> records, long startedAt) {
+        synchronized (journal) {
+            if (journal.isEmpty() || startedAt < journalStartedAt) {
+                journalStartedAt = startedAt;
+            }
+            for (JournalRecord record : records) {
+                long commandId = record.commandData.getCommandId();
+                if (!journal.containsKey(commandId)) {
+                    journal.put(commandId, record);
+                }
+            }
+        }
+    }
+
+    /** @param queueType {@link QueueType#UNKNOWN} to delete the command */
+    private void appendToJournal(@NonNull QueueType queueType, @NonNull CommandData commandData) {
+        boolean flush;
+        synchronized (journal) {
+            long now = System.currentTimeMillis();
+            if (journal.isEmpty()) {
+                journalStartedAt = now;
+            }
+            // Re-insert to keep the order of changes
+            journal.remove(commandData.getCommandId());
+            journal.put(commandData.getCommandId(), new JournalRecord(queueType, commandData));
+            flush = journal.size() >= JOURNAL_BATCH_SIZE || now - journalStartedAt >= JOURNAL_MAX_AGE_MS;
+        }
+        if (flush) {
+            flushJournal();
+        }
+    }
+
     public synchronized void clearQueuesInDatabase() {
         final String method = "clearQueuesInDatabase";
+        synchronized (journal) {
+            journal.clear();
+        }
         try {
             SQLiteDatabase db = MyContextHolder.get().getDatabase();
             if (db == null) {
@@ -250,7 +400,9 @@ public class CommandQueue {
     public void deleteCommand(CommandData commandData) {
         if (!loaded) load();
         for (OneQueue oneQueue : queues.values()) {
-            commandData.deleteCommandInTheQueue(oneQueue.queue);
+            for (CommandData deleted : oneQueue.deleteCommand(commandData)) {
+                appendToJournal(QueueType.UNKNOWN, deleted);
+            }
         }
     }
 
@@ -278,10 +430,89 @@ public class CommandQueue {
         return size;
     }
 
-    public void addToQueue(QueueType queueType, CommandData commandData) {
-        if (!get(queueType).contains(commandData)
-                && !get(queueType).offer(commandData)) {
+    public boolean contains(QueueType queueType, CommandData commandData) {
+        return find(queueType, commandData) != null;
+    }
+
+    /**
+     * Adds the command to the queue and persists this change.
+     * The change is written to the database at once, if the command is {@link CommandData#isInForeground()}
+     * If an equal command is in the queue already, this one is discarded
+     * @return false if the command couldn't be added
+     */
+    public boolean addToQueue(QueueType queueType, CommandData commandData) {
+        OneQueue oneQueue = queues.get(queueType);
+        CommandData found;
+        boolean added = false;
+        synchronized (oneQueue) {
+            found = oneQueue.find(commandData);
+            if (found == null) {
+                added = oneQueue.offer(commandData);
+            }
+        }
+        if (found != null) {
+            if (found.getCommandId() != commandData.getCommandId()) {
+                appendToJournal(QueueType.UNKNOWN, commandData);
+            }
+            return true;
+        }
+        if (!added) {
             MyLog.e(this, queueType.name() + " is full?");
+            return false;
+        }
+        appendToJournal(queueType, commandData);
+        if (commandData.isInForeground()) {
+            // Commands, launched by a user, are persisted at once
+            flushJournal();
         }
+        return true;
+    }
+
+    /**
+     * Returns to the queue the command, which was polled from it.
+     * The database is not changed as the command is still there
+     */
+    boolean returnToQueue(QueueType queueType, CommandData commandData) {
+        return queues.get(queueType).offer(commandData);
+    }
+
+    /**
+     * Retrieves and removes the head of the queue in memory.
+     * The command stays in the database until it's added to another queue or deleted,
+     * see {@link #addToQueue(QueueType, CommandData)} and {@link #delete(CommandData)}
+     */
+    public CommandData poll(QueueType queueType) {
+        return queues.get(queueType).poll();
+    }
+
+    /**
+     * Messages to send are polled for the separate executor, so they don't wait for commands being executed.
+     * The sending command has the highest priority, so it's at the head of the queue
+     * @return null if there is no message to send
+     */
+    public CommandData pollSending(QueueType queueType) {
+        return queues.get(queueType).pollIf(CommandEnum.UPDATE_STATUS);
+    }
+
+    public boolean isSendingNext(QueueType queueType) {
+        CommandData commandData = get(queueType).peek();
+        return commandData != null && commandData.getCommand() == CommandEnum.UPDATE_STATUS;
+    }
+
+    /**
+     * Removes the command from the queue in memory. See {@link #poll(QueueType)}
+     */
+    public boolean remove(QueueType queueType, CommandData commandData) {
+        return queues.get(queueType).remove(commandData);
+    }
+
+    /** Deletes the command, which is not in any queue, from the database, e.g. after successful execution */
+    public void delete(CommandData commandData) {
+        appendToJournal(QueueType.UNKNOWN, commandData);
+    }
+
+    /** @return The command in the queue, equal to the supplied one, or null */
+    public CommandData find(QueueType queueType, CommandData commandData) {
+        return queues.get(queueType).find(commandData);
     }
 }
@@ -20,6 +20,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
@@ -35,6 +36,8 @@ import org.andstatus.app.util.RelativeTime;
  */
 public final class CommandResult implements Parcelable {
     static final int INITIAL_NUMBER_OF_RETRIES = 10;
+    /** Rate limited attempts don't spend retries, but they are limited separately */
+    static final int MAX_RATE_LIMITED_ATTEMPTS = 30;
     
     private long lastExecutedDate = 0;
     private int executionCount = 0;
@@ -46,6 +49,10 @@ public final class CommandResult implements Parcelable {
     private long numParseExceptions = 0;
     private String mMessage = "";
     private String progress = "";
+    /** The server's rate limit was exceeded, so the command is delayed without spending its retries */
+    private boolean rateLimited = false;
+    /** Not persisted, so it is counted anew after the application restart */
+    private int rateLimitedAttempts = 0;
 
     private long itemId = 0;
     
@@ -71,10 +78,21 @@ public final class CommandResult implements Parcelable {
         return oneStepResult;
     }
     
+    @NonNull
+    CommandResult copy() {
+        Parcel parcel = Parcel.obtain();
+        writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        CommandResult copy = new CommandResult(parcel);
+        parcel.recycle();
+        return copy;
+    }
+
     void accumulateOneStep(CommandResult oneStepResult) {
         numAuthExceptions += oneStepResult.numAuthExceptions;
         numIoExceptions += oneStepResult.numIoExceptions;
         numParseExceptions += oneStepResult.numParseExceptions;
+        rateLimited |= oneStepResult.rateLimited;
         if (!TextUtils.isEmpty(oneStepResult.mMessage)) {
             if (TextUtils.isEmpty(mMessage)) {
                 mMessage = oneStepResult.mMessage;
@@ -119,6 +137,7 @@ public final class CommandResult implements Parcelable {
         dest.writeInt(remainingHits);
         dest.writeInt(downloadedCount);
         dest.writeString(progress);
+        dest.writeInt(rateLimitedAttempts);
     }
     
     public CommandResult(Parcel parcel) {
@@ -134,6 +153,7 @@ public final class CommandResult implements Parcelable {
         remainingHits = parcel.readInt();
         downloadedCount = parcel.readInt();
         progress = parcel.readString();
+        rateLimitedAttempts = parcel.readInt();
     }
 
     public void toContentValues(ContentValues values) {
@@ -217,6 +237,9 @@ public final class CommandResult implements Parcelable {
         if (hasError()) {
             message.append("error:" + (hasHardError() ? "Hard" : "Soft") + ", ");
         }
+        if (rateLimited) {
+            message.append("rateLimited, ");
+        }
         if (downloadedCount > 0) {
             message.append("downloaded:" + downloadedCount + ", ");
         }
@@ -313,6 +336,7 @@ public final class CommandResult implements Parcelable {
     
     void resetRetries(CommandEnum command) {
         retriesLeft = INITIAL_NUMBER_OF_RETRIES;
+        rateLimitedAttempts = 0;
         switch (command) {
             case GET_TIMELINE:
             case GET_OLDER_TIMELINE:
@@ -332,6 +356,7 @@ public final class CommandResult implements Parcelable {
         numIoExceptions = 0;
         numParseExceptions = 0;
         mMessage = "";
+        rateLimited = false;
         
         itemId = 0;
         
@@ -349,14 +374,34 @@ public final class CommandResult implements Parcelable {
     void afterExecutionEnded() {
         executed = true;
         executionCount++;
-        if (retriesLeft > 0) {
+        if (rateLimited) {
+            rateLimitedAttempts++;
+        } else if (retriesLeft > 0) {
             retriesLeft -= 1;
         }
         lastExecutedDate = System.currentTimeMillis();
     }
-    
+
+    /** The command wasn't launched, because the rate limit of its server hasn't been reset yet */
+    void onRateLimited(String message) {
+        prepareForLaunch();
+        rateLimited = true;
+        rateLimitedAttempts++;
+        mMessage = message;
+        lastExecutedDate = System.currentTimeMillis();
+    }
+
+    void setRateLimited() {
+        rateLimited = true;
+    }
+
+    public boolean isRateLimited() {
+        return rateLimited;
+    }
+
     boolean shouldWeRetry() {
-        return (!executed || hasError()) && !hasHardError() && (retriesLeft > 0);
+        return (!executed || hasError()) && !hasHardError()
+                && (retriesLeft > 0 || (rateLimited && rateLimitedAttempts < MAX_RATE_LIMITED_ATTEMPTS));
     }
 
     long getItemId() {
@@ -22,6 +22,7 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.graphics.ImageDownscaler;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.util.MyLog;
@@ -83,10 +84,11 @@ public abstract class FileDownloader {
     private void downloadFile() {
         final String method = "downloadFile";
         DownloadFile fileTemp = new DownloadFile("temp_" + data.getFilenameNew());
+        MyAccount ma = MyAccount.EMPTY;
         try {
             String uriString = data.getUri().toString();
             File file = fileTemp.getFile();
-            MyAccount ma = findBestAccountForDownload();
+            ma = findBestAccountForDownload();
             MyLog.v(this, "About to download " + data.toString() + "; account:" + ma.getAccountName());
             if (ma.isValidAndSucceeded()) {
                 ((connectionMock != null) ? connectionMock : getConnection(ma, data.getUri())).downloadFile(uriString, file);
@@ -102,6 +104,10 @@ public abstract class FileDownloader {
         }
         if (data.isError()) {
             fileTemp.delete();
+        } else if (data.userId == 0 && !UriUtils.isDownloadable(data.getUri())) {
+            // A local image, attached to a message to be sent: its downscaled copy is uploaded
+            // (and reused on retries) instead of the original
+            ImageDownscaler.downscale(fileTemp.getFile(), ma.getOrigin().getUploadLimit());
         }
         DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
         fileNew.delete();
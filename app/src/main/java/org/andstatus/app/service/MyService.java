@@ -32,6 +32,8 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.DatabaseHolder;
+import org.andstatus.app.net.http.RateLimiter;
 import org.andstatus.app.notification.CommandsQueueNotifier;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
@@ -75,6 +77,9 @@ public class MyService extends Service {
     private final Object executorLock = new Object();
     @GuardedBy("executorLock")
     private QueueExecutor mExecutor = null;
+    /** Sends messages only, so a message doesn't wait for the (long) synchronization of timelines */
+    @GuardedBy("executorLock")
+    private QueueExecutor mSendingExecutor = null;
 
     private final Object heartBeatLock = new Object();
     @GuardedBy("heartBeatLock")
@@ -203,15 +208,15 @@ public class MyService extends Service {
                 break;
 
         }
-        if (queues.get(QueueType.CURRENT).contains(commandData)) {
+        if (queues.contains(QueueType.CURRENT, commandData)) {
             MyLog.v(this, "Didn't add to Main queue. Already found " + commandData);
         } else {
             commandData.getResult().prepareForLaunch();
             MyLog.v(this, "Adding to Main queue " + commandData);
-            if (!queues.get(QueueType.CURRENT).offer(commandData)) {
-                MyLog.e(this, "Couldn't add to the main queue, size=" + queues.get(QueueType.CURRENT).size());
-                return commandData;
-            }
+        }
+        if (!queues.addToQueue(QueueType.CURRENT, commandData)) {
+            MyLog.e(this, "Couldn't add to the main queue, size=" + queues.get(QueueType.CURRENT).size());
+            return commandData;
         }
 
         return null;
@@ -363,45 +368,64 @@ public class MyService extends Service {
         final String method = "ensureExecutorStarted";
         StringBuilder logMessageBuilder = new StringBuilder();
         synchronized(executorLock) {
-            if ( mExecutor != null && mExecutor.completedBackgroundWork()) {
-                logMessageBuilder.append(" Removing completed Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
-            }
-            if ( mExecutor != null && !isExecutorReallyWorkingNow()) {
-                logMessageBuilder.append(" Cancelling stalled Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
-            }
-            if (mExecutor != null) {
-                logMessageBuilder.append(" There is an Executor already " + mExecutor);
-            } else {
-                // For now let's have only ONE working thread 
-                // (it seems there is some problem in parallel execution...)
-                QueueExecutor newExecutor = new QueueExecutor();
-                logMessageBuilder.append(" Adding and starting new Executor " + newExecutor);
-                if (AsyncTaskLauncher.execute(this, false, newExecutor)) {
-                    mExecutor = newExecutor;
-                } else {
-                    logMessageBuilder.append(" New executor was not added");
-                }
+            // Only ONE thread synchronizes timelines etc.
+            // (it seems there is some problem in parallel execution...)
+            mExecutor = ensureExecutorStarted(mExecutor, false, logMessageBuilder);
+            if (queues.isSendingNext(QueueType.CURRENT)) {
+                mSendingExecutor = ensureExecutorStarted(mSendingExecutor, true, logMessageBuilder);
+            } else if (mSendingExecutor != null && mSendingExecutor.completedBackgroundWork()) {
+                mSendingExecutor = removeExecutor(mSendingExecutor, logMessageBuilder);
             }
         }
         if (logMessageBuilder.length() > 0) {
             MyLog.v(this, method + "; " + logMessageBuilder);
         }
     }
-    
-    private void removeExecutor(StringBuilder logMessageBuilder) {
-        synchronized(executorLock) {
-            if (mExecutor == null) {
-                return;
+
+    /** @return the working executor or null if it couldn't be started */
+    @GuardedBy("executorLock")
+    private QueueExecutor ensureExecutorStarted(QueueExecutor executorIn, boolean sending,
+                                                StringBuilder logMessageBuilder) {
+        QueueExecutor executor = executorIn;
+        if ( executor != null && executor.completedBackgroundWork()) {
+            logMessageBuilder.append(" Removing completed Executor " + executor);
+            executor = removeExecutor(executor, logMessageBuilder);
+        }
+        if ( executor != null && !executor.isReallyWorking()) {
+            logMessageBuilder.append(" Cancelling stalled Executor " + executor);
+            executor = removeExecutor(executor, logMessageBuilder);
+        }
+        if (executor != null) {
+            logMessageBuilder.append(" There is an Executor already " + executor);
+        } else {
+            QueueExecutor newExecutor = new QueueExecutor(sending);
+            logMessageBuilder.append(" Adding and starting new Executor " + newExecutor);
+            if (AsyncTaskLauncher.execute(this, false, newExecutor)) {
+                executor = newExecutor;
+            } else {
+                logMessageBuilder.append(" New executor was not added");
             }
-            if (mExecutor.needsBackgroundWork()) {
+        }
+        return executor;
+    }
+
+    private void removeExecutors(StringBuilder logMessageBuilder) {
+        synchronized(executorLock) {
+            mExecutor = removeExecutor(mExecutor, logMessageBuilder);
+            mSendingExecutor = removeExecutor(mSendingExecutor, logMessageBuilder);
+        }
+    }
+
+    /** @return null */
+    private static QueueExecutor removeExecutor(QueueExecutor executor, StringBuilder logMessageBuilder) {
+        if (executor != null) {
+            if (executor.needsBackgroundWork()) {
                 logMessageBuilder.append(" Cancelling and");
-                mExecutor.cancelLogged(true);
+                executor.cancelLogged(true);
             }
-            logMessageBuilder.append(" Removing Executor " + mExecutor);
-            mExecutor = null;
+            logMessageBuilder.append(" Removing Executor " + executor);
         }
+        return null;
     }
 
     private void acquireWakeLock() {
@@ -430,7 +454,8 @@ public class MyService extends Service {
     
     private boolean isExecutorReallyWorkingNow() {
         synchronized(executorLock) {
-          return mExecutor != null && mExecutor.isReallyWorking();
+          return (mExecutor != null && mExecutor.isReallyWorking())
+                  || (mSendingExecutor != null && mSendingExecutor.isReallyWorking());
         }        
     }
     
@@ -504,16 +529,18 @@ public class MyService extends Service {
         StringBuilder logMessageBuilder = new StringBuilder();
         boolean could = true;
         synchronized(executorLock) {
-            if (mExecutor != null && mExecutor.needsBackgroundWork() && mExecutor.isReallyWorking() ) {
-                if (forceNow) {
-                    logMessageBuilder.append(" Cancelling working Executor;");
-                } else {
-                    logMessageBuilder.append(" Cannot stop now Executor " + mExecutor);
-                    could = false;
+            for (QueueExecutor executor : new QueueExecutor[]{mExecutor, mSendingExecutor}) {
+                if (executor != null && executor.needsBackgroundWork() && executor.isReallyWorking() ) {
+                    if (forceNow) {
+                        logMessageBuilder.append(" Cancelling working Executor;");
+                    } else {
+                        logMessageBuilder.append(" Cannot stop now Executor " + executor);
+                        could = false;
+                    }
                 }
             }
             if (could) {
-                removeExecutor(logMessageBuilder);
+                removeExecutors(logMessageBuilder);
             }
         }
         if (logMessageBuilder.length() > 0) {
@@ -535,14 +562,18 @@ public class MyService extends Service {
     private class QueueExecutor extends MyAsyncTask<Void, Void, Boolean> implements CommandExecutorParent {
         private volatile CommandData currentlyExecuting = null;
         private static final long MAX_EXECUTION_TIME_SECONDS = 60;
+        /** Executes only commands, sending messages, see {@link CommandQueue#pollSending(QueueType)} */
+        private final boolean sending;
 
-        QueueExecutor() {
+        QueueExecutor(boolean sending) {
             super(PoolEnum.SYNC);
+            this.sending = sending;
         }
 
         @Override
         protected Boolean doInBackground2(Void... arg0) {
             queues.load();
+            removeOldFromErrorQueue();
             MyLog.d(this, "Started, " + queues.get(QueueType.CURRENT).size() + " commands to process");
             String breakReason = "";
             do {
@@ -559,7 +590,7 @@ public class MyService extends Service {
                     break;
                 }
                 synchronized (executorLock) {
-                    if (mExecutor != this) {
+                    if ((sending ? mSendingExecutor : mExecutor) != this) {
                         breakReason = "Other executor";
                         break;
                     }
@@ -572,39 +603,52 @@ public class MyService extends Service {
                     break;
                 }
                 ConnectionState connectionState = myContext.getConnectionState();
-                if (commandData.getCommand().getConnectionRequired()
+                RateLimiter rateLimiter = getRateLimiter(commandData);
+                if (!commandData.getCommand().getConnectionRequired()
                         .isConnectionStateOk(connectionState)) {
-                    MyServiceEventsBroadcaster.newInstance(myContext, getServiceState())
-                            .setCommandData(commandData)
-                            .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
-                    CommandExecutorStrategy.executeCommand(commandData, this);
-                } else {
                     commandData.getResult().incrementNumIoExceptions();
                     commandData.getResult().setMessage("Expected '"
                             + commandData.getCommand().getConnectionRequired()
                             + "', but was '" + connectionState + "' connection");
+                } else if (rateLimiter.getDelayMs() > RateLimiter.MAX_WAIT_MS) {
+                    commandData.getResult().onRateLimited("Delayed by the rate limit: " + rateLimiter.getBudget());
+                } else {
+                    MyServiceEventsBroadcaster.newInstance(myContext, getServiceState())
+                            .setCommandData(commandData)
+                            .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
+                    CommandExecutorStrategy.executeCommand(commandData, this);
                 }
                 if (commandData.getResult().shouldWeRetry()) {
                     queues.addToQueue(QueueType.RETRY, commandData);
                 } else if (commandData.getResult().hasError()) {
                     queues.addToQueue(QueueType.ERROR, commandData);
+                } else {
+                    queues.delete(commandData);
                 }
                 broadcastAfterExecutingCommand(commandData);
                 addSyncOfThisToQueue(commandData);
             } while (true);
             MyLog.d(this, "Ended, " + breakReason + ", " + queues.totalSizeToExecute() + " commands left");
-            queues.save();
+            queues.flushJournal();
+            DatabaseHolder.checkpoint(myContext.getDatabase(), false);
             return true;
         }
 
+        private RateLimiter getRateLimiter(CommandData commandData) {
+            if (commandData.getCommand().getConnectionRequired() != ConnectionRequired.SYNC) {
+                return RateLimiter.of("");
+            }
+            return RateLimiter.of(new CommandExecutionContext(myContext, commandData).getMyAccount().getOrigin().getUrl());
+        }
+
         private CommandData pollQueue() {
             Queue<CommandData> tempQueue = new PriorityBlockingQueue<>(queues.get(QueueType.CURRENT).size()+1);
             CommandData commandData;
             do {
-                commandData = queues.get(QueueType.CURRENT).poll();
-                if (commandData == null && isAnythingToRetryNow()) {
+                commandData = sending ? queues.pollSending(QueueType.CURRENT) : queues.poll(QueueType.CURRENT);
+                if (commandData == null && !sending && isAnythingToRetryNow()) {
                     moveCommandsFromRetryToMainQueue();
-                    commandData = queues.get(QueueType.CURRENT).poll();
+                    commandData = queues.poll(QueueType.CURRENT);
                 }
                 if (commandData == null) {
                     break;
@@ -622,13 +666,13 @@ public class MyService extends Service {
             } while (commandData == null);
             while (!tempQueue.isEmpty()) {
                 CommandData cd = tempQueue.poll();
-                if (!queues.get(QueueType.CURRENT).add(cd)) {
+                if (!queues.returnToQueue(QueueType.CURRENT, cd)) {
                     MyLog.e(this, "Couldn't return to main Queue, size=" + queues.get(QueueType.CURRENT).size()
                             + " command=" + cd);
                     break;
                 }
             }
-            MyLog.v(this, "Polled in "
+            MyLog.v(this, "Polled" + (sending ? " for sending" : "") + " in "
                     + (myContext.isInForeground() ? "foreground"
                             + " "
                             + (MyPreferences.isSyncWhileUsingApplicationEnabled() ? "enabled"
@@ -645,8 +689,8 @@ public class MyService extends Service {
         private void moveCommandsFromRetryToMainQueue() {
             for (CommandData cd : queues.get(QueueType.RETRY)) {
                 if (cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                    queues.remove(QueueType.RETRY, cd);
                     addToMainQueue(cd);
-                    queues.get(QueueType.RETRY).remove(cd);
                     MyLog.v(this, "Moved from Retry to Main queue: " + cd);
                 }
             }
@@ -655,20 +699,19 @@ public class MyService extends Service {
         
         private CommandData findInRetryQueue(CommandData cdIn) {
             CommandData cdOut = cdIn;
-            if (queues.get(QueueType.RETRY).contains(cdIn)) {
-                for (CommandData cd : queues.get(QueueType.RETRY)) {
-                    if (cd.equals(cdIn)) {
-                        cd.resetRetries();
-                        if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
-                            cdOut = cd;
-                            queues.get(QueueType.RETRY).remove(cd);
-                            MyLog.v(this, "Returned from Retry queue: " + cd);
-                        } else {
-                            cdOut = null;
-                            MyLog.v(this, "Found in Retry queue: " + cd);
-                        }
-                        break;
-                    }
+            CommandData cd = queues.find(QueueType.RETRY, cdIn);
+            if (cd != null) {
+                cd.resetRetries();
+                if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                    cdOut = cd;
+                    queues.remove(QueueType.RETRY, cd);
+                    MyLog.v(this, "Returned from Retry queue: " + cd);
+                } else {
+                    cdOut = null;
+                    MyLog.v(this, "Found in Retry queue: " + cd);
+                }
+                if (cd.getCommandId() != cdIn.getCommandId()) {
+                    queues.delete(cdIn);
                 }
             }
             return cdOut;
@@ -677,30 +720,35 @@ public class MyService extends Service {
         private static final long MAX_DAYS_IN_ERROR_QUEUE = 10; 
         private CommandData findInErrorQueue(CommandData cdIn) {
             CommandData cdOut = cdIn;
-            if (queues.get(QueueType.ERROR).contains(cdIn)) {
-                for (CommandData cd : queues.get(QueueType.ERROR)) {
-                    if (cd.equals(cdIn)) {
-                        cd.resetRetries();
-                        if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
-                            cdOut = cd;
-                            queues.get(QueueType.ERROR).remove(cd);
-                            MyLog.v(this, "Returned from Error queue: " + cd);
-                        } else {
-                            cdOut = null;
-                            MyLog.v(this, "Found in Error queue: " + cd);
-                        }
+            CommandData cd = queues.find(QueueType.ERROR, cdIn);
+            if (cd != null) {
+                cd.resetRetries();
+                if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                    cdOut = cd;
+                    queues.remove(QueueType.ERROR, cd);
+                    MyLog.v(this, "Returned from Error queue: " + cd);
+                } else {
+                    cdOut = null;
+                    MyLog.v(this, "Found in Error queue: " + cd);
+                }
+                if (cd.getCommandId() != cdIn.getCommandId()) {
+                    queues.delete(cdIn);
+                }
+            }
+            return cdOut;
+        }
+
+        private void removeOldFromErrorQueue() {
+            for (CommandData cd : queues.get(QueueType.ERROR)) {
+                if (cd.executedMoreSecondsAgoThan(TimeUnit.DAYS.toSeconds(MAX_DAYS_IN_ERROR_QUEUE))) {
+                    if (queues.remove(QueueType.ERROR, cd)) {
+                        queues.delete(cd);
+                        MyLog.i(this, "Removed old from Error queue: " + cd);
                     } else {
-                        if (cd.executedMoreSecondsAgoThan(TimeUnit.DAYS.toSeconds(MAX_DAYS_IN_ERROR_QUEUE))) {
-                            if (queues.get(QueueType.ERROR).remove(cd)) {
-                                MyLog.i(this, "Removed old from Error queue: " + cd);
-                            } else {
-                                MyLog.i(this, "Failed to Remove old from Error queue: " + cd);
-                            }
-                        }
+                        MyLog.i(this, "Failed to Remove old from Error queue: " + cd);
                     }
                 }
             }
-            return cdOut;
         }
 
         private void addSyncOfThisToQueue(CommandData commandDataExecuted) {
@@ -745,6 +793,9 @@ public class MyService extends Service {
                 sb.append("currentlyExecuting: " + currentlyExecuting + ", ");
                 sb.append("since: " + RelativeTime.getDifference(getBaseContext(), currentlyExecutingSince) + ", ");
             }
+            if (sending) {
+                sb.append("sending, ");
+            }
             if (isStopping()) {
                 sb.append("stopping, ");
             }
@@ -40,7 +40,7 @@ public class MyServiceCommandsRunner implements MyServiceEventsListener {
 
     public MyServiceCommandsRunner(MyContext myContext) {
         this.myContext = myContext;
-        eventsReceiver = new MyServiceEventsReceiver(myContext, this);
+        eventsReceiver = new MyServiceEventsReceiver(this);
     }
 
     public void autoSyncAccount(String accountName, SyncResult syncResult) {
@@ -96,7 +96,7 @@ public class MyServiceCommandsRunner implements MyServiceEventsListener {
                 commands.put(commandData, false);
             }
         }
-        eventsReceiver.registerReceiver(myContext.context());
+        eventsReceiver.registerReceiver();
         for (CommandData commandData : commands.keySet()) {
             if (ignoreServiceAvailability) {
                 MyServiceManager.sendCommandEvenForUnavailable(commandData);
@@ -151,7 +151,7 @@ public class MyServiceCommandsRunner implements MyServiceEventsListener {
     }
 
     private void unregisterReceiver() {
-        eventsReceiver.unregisterReceiver(myContext.context());
+        eventsReceiver.unregisterReceiver();
     }
 
     private int getCompletedCount() {
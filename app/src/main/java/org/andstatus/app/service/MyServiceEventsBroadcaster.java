@@ -26,6 +26,7 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.util.MyLog;
 
 public class MyServiceEventsBroadcaster {
+    private static volatile MyServiceState stateBroadcasted = MyServiceState.UNKNOWN;
     private final MyContext mMyContext;
     private final MyServiceState mState;
     private CommandData mCommandData = null;
@@ -56,19 +57,38 @@ public class MyServiceEventsBroadcaster {
         return this;
     }
 
+    /**
+     * Delivers the event to receivers of this process via {@link MyServiceEventsBus}.
+     * A system broadcast (for {@link MyServiceManager} and other processes) is sent
+     * for events without a command, as a reply to {@link CommandEnum#BROADCAST_SERVICE_STATE}
+     * and on changes of the service state.
+     * Receivers get a copy of the command, because executors continue to change it
+     */
     public void broadcast() {
-        Intent intent = MyAction.SERVICE_STATE.getIntent();
         if (mCommandData != null) {
             mCommandData.getResult().setProgress(progress);
-            intent = mCommandData.toIntent(intent);
         }
-        intent.putExtra(IntentExtra.SERVICE_STATE.key, mState.save());
-        intent.putExtra(IntentExtra.SERVICE_EVENT.key, mEvent.save());
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(this, "state:" + mState + ", event:" + mEvent
             + (mCommandData == null ? "" : ", " + mCommandData.toCommandSummary(MyContextHolder.get()))
             + (TextUtils.isEmpty(progress) ? "" : ", progress:" + progress) );
         }
+        MyServiceEventsBus.post(mCommandData == null ? CommandData.getEmpty() : mCommandData.copy(mMyContext),
+                mEvent);
+        if (mCommandData == null || mCommandData.getCommand() == CommandEnum.BROADCAST_SERVICE_STATE
+                || stateBroadcasted != mState) {
+            stateBroadcasted = mState;
+            sendBroadcast();
+        }
+    }
+
+    private void sendBroadcast() {
+        Intent intent = MyAction.SERVICE_STATE.getIntent();
+        if (mCommandData != null) {
+            intent = mCommandData.toIntent(intent);
+        }
+        intent.putExtra(IntentExtra.SERVICE_STATE.key, mState.save());
+        intent.putExtra(IntentExtra.SERVICE_EVENT.key, mEvent.save());
         mMyContext.context().sendBroadcast(intent);
     }
 }
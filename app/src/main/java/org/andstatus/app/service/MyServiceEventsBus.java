@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers {@link MyServiceEvent}s to the {@link MyServiceEventsReceiver}s of this process
+ * on the Main thread, without system broadcasts.
+ * Progress events are coalesced: only the latest progress of each command is delivered,
+ * and not more frequently than {@link #MAX_PROGRESS_EVENTS_PER_SECOND}. Other events are delivered in order
+ * @author yvolk@yurivolkov.com
+ */
+public class MyServiceEventsBus {
+    static final int MAX_PROGRESS_EVENTS_PER_SECOND = 4;
+    private static final long MIN_PROGRESS_INTERVAL_MS = 1000 / MAX_PROGRESS_EVENTS_PER_SECOND;
+
+    private static final List<MyServiceEventsReceiver> receivers = new CopyOnWriteArrayList<>();
+    private static final Object lock = new Object();
+    private static final List<Event> queue = new ArrayList<>();
+    /** The latest progress by command id */
+    private static final Map<Long, Event> progress = new LinkedHashMap<>();
+    private static long progressDeliveredAt = 0;
+    private static boolean dispatchScheduled = false;
+    private static volatile Handler handler = null;
+
+    private static class Event {
+        final CommandData commandData;
+        final MyServiceEvent event;
+
+        Event(@NonNull CommandData commandData, @NonNull MyServiceEvent event) {
+            this.commandData = commandData;
+            this.event = event;
+        }
+    }
+
+    private static final Runnable dispatcher = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private MyServiceEventsBus() {
+        // Empty
+    }
+
+    static void register(@NonNull MyServiceEventsReceiver receiver) {
+        if (!receivers.contains(receiver)) {
+            receivers.add(receiver);
+        }
+    }
+
+    static void unregister(@NonNull MyServiceEventsReceiver receiver) {
+        receivers.remove(receiver);
+    }
+
+    static void post(@NonNull CommandData commandData, @NonNull MyServiceEvent event) {
+        if (event == MyServiceEvent.UNKNOWN || receivers.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            if (event == MyServiceEvent.PROGRESS_EXECUTING_COMMAND) {
+                progress.put(commandData.getCommandId(), new Event(commandData, event));
+            } else {
+                if (event == MyServiceEvent.AFTER_EXECUTING_COMMAND) {
+                    progress.remove(commandData.getCommandId());
+                }
+                queue.add(new Event(commandData, event));
+            }
+            scheduleDispatch();
+        }
+    }
+
+    /** Should be called under the lock */
+    private static void scheduleDispatch() {
+        if (dispatchScheduled || (queue.isEmpty() && progress.isEmpty())) {
+            return;
+        }
+        long delay = queue.isEmpty()
+                ? Math.max(0, progressDeliveredAt + MIN_PROGRESS_INTERVAL_MS - System.currentTimeMillis())
+                : 0;
+        dispatchScheduled = true;
+        getHandler().postDelayed(dispatcher, delay);
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    private static void dispatch() {
+        List<Event> events;
+        synchronized (lock) {
+            dispatchScheduled = false;
+            events = new ArrayList<>(queue);
+            queue.clear();
+            long now = System.currentTimeMillis();
+            if (!progress.isEmpty() && now >= progressDeliveredAt + MIN_PROGRESS_INTERVAL_MS) {
+                events.addAll(progress.values());
+                progress.clear();
+                progressDeliveredAt = now;
+            }
+            scheduleDispatch();
+        }
+        for (Event event : events) {
+            for (MyServiceEventsReceiver receiver : receivers) {
+                try {
+                    receiver.onReceive(event.commandData, event.event);
+                } catch (Exception e) {
+                    MyLog.e(MyServiceEventsBus.class, "Delivering " + event.event + " to " + receiver, e);
+                }
+            }
+        }
+    }
+}
@@ -16,53 +16,37 @@
 
 package org.andstatus.app.service;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-
-import org.andstatus.app.IntentExtra;
-import org.andstatus.app.MyAction;
-import org.andstatus.app.context.MyContext;
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
 
 /**
+ * Receives events of {@link MyService} via {@link MyServiceEventsBus}
  * @author yvolk@yurivolkov.com
  */
-public final class MyServiceEventsReceiver extends BroadcastReceiver {
+public final class MyServiceEventsReceiver {
     private final long mInstanceId = InstanceId.next();
     private final MyServiceEventsListener listener;
-    private final MyContext myContext;
 
-    public MyServiceEventsReceiver(MyContext myContext, MyServiceEventsListener listener) {
+    public MyServiceEventsReceiver(MyServiceEventsListener listener) {
         super();
-        this.myContext = myContext;
         this.listener = listener;
         MyLog.v(this, "Created, instanceId=" + mInstanceId
                 + (listener == null ? "" : "; listener=" + MyLog.objToTag(listener)));
     }
     
-    public void registerReceiver(Context context) {
-        context.registerReceiver(this, new IntentFilter(MyAction.SERVICE_STATE.getAction()));
+    public void registerReceiver() {
+        MyServiceEventsBus.register(this);
     }
 
-    public void unregisterReceiver(Context context) {
-        try {
-            context.unregisterReceiver(this);
-        } catch (IllegalArgumentException e) {
-            // Thrown when the "Receiver not registered: org.andstatus.app.service.MyServiceReceiver@..."
-            MyLog.ignored(this, e);
-        }
+    public void unregisterReceiver() {
+        MyServiceEventsBus.unregister(this);
     }
-    
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        MyServiceEvent event = MyServiceEvent.load(intent.getStringExtra(IntentExtra.SERVICE_EVENT.key));
+
+    void onReceive(CommandData commandData, MyServiceEvent event) {
         if (event == MyServiceEvent.UNKNOWN) {
             return;
         }
         MyLog.v(this, "onReceive " + event + " for " + MyLog.objToTag(listener) + ", instanceId:" + mInstanceId);
-        listener.onReceive(CommandData.fromIntent(myContext, intent), event);
+        listener.onReceive(commandData, event);
     }
-}
\ No newline at end of file
+}
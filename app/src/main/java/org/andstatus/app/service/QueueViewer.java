@@ -28,6 +28,7 @@ import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.R;
 import org.andstatus.app.SyncLoader;
 import org.andstatus.app.WhichPage;
+import org.andstatus.app.net.http.RateLimiter;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.widget.MyBaseAdapter;
 
@@ -60,6 +61,22 @@ public class QueueViewer extends LoadableListActivity {
         };
     }
 
+    @Override
+    public void onLoadFinished(boolean keepCurrentPosition) {
+        mSubtitle = getRateLimitsText();
+        super.onLoadFinished(keepCurrentPosition);
+    }
+
+    /** Current request budgets of the servers, see {@link RateLimiter} */
+    private String getRateLimitsText() {
+        StringBuilder builder = new StringBuilder();
+        for (RateLimiter rateLimiter : RateLimiter.getKnown()) {
+            builder.append(builder.length() == 0 ? getText(R.string.rate_limits) + ": " : "; ")
+                    .append(rateLimiter.getBudget());
+        }
+        return builder.toString();
+    }
+
     @Override
     protected MyBaseAdapter newListAdapter() {
         return new QueueViewerListAdapter(this, getLoaded().getList());
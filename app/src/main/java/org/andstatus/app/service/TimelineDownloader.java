@@ -67,6 +67,10 @@ abstract class TimelineDownloader extends CommandExecutorStrategy {
     }
 
     public void onSyncEnded() {
+        if (execContext.getCommandData().getCommand() == CommandEnum.GET_TIMELINE
+                && !execContext.getResult().hasError()) {
+            getTimeline().adaptSyncInterval(execContext.getResult().getMessagesAdded());
+        }
         getTimeline().onSyncEnded(execContext.getCommandData().getResult());
         getTimeline().save(execContext.getMyContext());
         if (!execContext.getResult().hasError() && !isStopping()) {
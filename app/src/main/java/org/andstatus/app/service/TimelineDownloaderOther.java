@@ -24,6 +24,7 @@ import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.HttpValidatorsCache;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.timeline.TimelineSyncTracker;
@@ -76,6 +77,8 @@ class TimelineDownloaderOther extends TimelineDownloader {
         syncTracker.onTimelineDownloaded();
 
         DataUpdater di = new DataUpdater(execContext);
+        // Validators of a response, which failed to be processed by this thread before, are not kept
+        HttpValidatorsCache.rollback();
         for (int loopCounter=0; loopCounter < 100; loopCounter++ ) {
             try {
                 int limit = execContext.getMyAccount().getConnection().fixedDownloadLimit(
@@ -101,11 +104,16 @@ class TimelineDownloaderOther extends TimelineDownloader {
                     syncTracker.onNewMsg(activity.getTimelinePosition(), activity.getTimelineDate());
                     di.onActivity(activity, false);
                 }
+                HttpValidatorsCache.commit();
                 if (toDownload <= 0 || activities.isEmpty() || previousPosition.equals(syncTracker.getPreviousPosition())) {
                     break;
                 }
                 previousPosition = syncTracker.getPreviousPosition();
             } catch (ConnectionException e) {
+                if (e.getStatusCode() == StatusCode.NOT_MODIFIED) {
+                    MyLog.d(this, "The timeline was not modified, last position='" + previousPosition +"'");
+                    break;
+                }
                 if (e.getStatusCode() != StatusCode.NOT_FOUND) {
                     throw e;
                 }
@@ -23,6 +23,7 @@ import android.support.annotation.NonNull;
 
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.StartupMetrics;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.TimelineTable;
 import org.andstatus.app.origin.Origin;
@@ -41,6 +42,7 @@ import java.util.concurrent.ConcurrentMap;
 public class PersistentTimelines {
     private final ConcurrentMap<Long, Timeline> timelines = new ConcurrentHashMap<>();
     private final MyContext myContext;
+    private volatile boolean toLoad = false;
 
     public static PersistentTimelines newEmpty(MyContext myContext) {
         return new PersistentTimelines(myContext);
@@ -50,8 +52,32 @@ public class PersistentTimelines {
         this.myContext = myContext;
     }
 
-    public PersistentTimelines initialize() {
-        final String method = "initialize";
+    public synchronized PersistentTimelines initialize() {
+        load();
+        return this;
+    }
+
+    /** The timelines will be loaded on the first use, or by {@link #ensureLoaded()} */
+    public synchronized PersistentTimelines initializeLazily() {
+        timelines.clear();
+        toLoad = true;
+        return this;
+    }
+
+    public void ensureLoaded() {
+        if (toLoad) {
+            synchronized (this) {
+                if (toLoad) {
+                    long startedAt = System.currentTimeMillis();
+                    load();
+                    StartupMetrics.onPhaseEnded(StartupMetrics.Phase.TIMELINES, startedAt);
+                }
+            }
+        }
+    }
+
+    private void load() {
+        final String method = "load";
         Context context = myContext.context();
         timelines.clear();
         SQLiteDatabase db = myContext.getDatabase();
@@ -78,11 +104,12 @@ public class PersistentTimelines {
             }
             MyLog.v(this, "Timelines initialized, " + timelines.size() + " timelines");
         }
-        return this;
+        toLoad = false;
     }
 
     @NonNull
     public Timeline fromId(long id) {
+        ensureLoaded();
         Timeline timeline = timelines.get(id);
         return timeline == null ? Timeline.EMPTY : timeline;
     }
@@ -123,6 +150,7 @@ public class PersistentTimelines {
     }
 
     public Collection<Timeline> values() {
+        ensureLoaded();
         return timelines.values();
     }
 
@@ -190,6 +218,7 @@ public class PersistentTimelines {
 
     public void delete(Timeline timeline) {
         if (myContext.isReady()) {
+            ensureLoaded();
             timeline.delete();
             timelines.remove(timeline.getId());
         }
@@ -201,6 +230,7 @@ public class PersistentTimelines {
 
     public void addNew(Timeline timeline) {
         if (timeline.getId() != 0) {
+            ensureLoaded();
             timelines.putIfAbsent(timeline.getId(), timeline);
         }
     }
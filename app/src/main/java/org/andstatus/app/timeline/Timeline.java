@@ -52,6 +52,12 @@ import java.util.concurrent.TimeUnit;
 public class Timeline implements Comparable<Timeline> {
     public static final Timeline EMPTY = new Timeline(MyAccount.EMPTY);
     private static final long MIN_RETRY_PERIOD_MS = TimeUnit.SECONDS.toMillis(30);
+    /** The sync interval is adjusted to get about this number of new messages per sync */
+    static final long TARGET_NEW_ITEMS_PER_SYNC = 10;
+    /** The sync interval may grow up to this number of the account's sync periods... */
+    static final long MAX_SYNC_INTERVAL_FACTOR = 16;
+    /** ...but not above this, unless the account's sync period is longer */
+    static final long MAX_SYNC_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
     private volatile long id;
 
     private final TimelineType timelineType;
@@ -101,6 +107,8 @@ public class Timeline implements Comparable<Timeline> {
     private volatile long syncFailedDate = 0;
     /** Error message at {@link #syncFailedDate} */
     private volatile String errorMessage = "";
+    /** Interval between automatic syncs, learnt from arrival of new messages. 0 - not learnt yet */
+    private volatile long syncIntervalMs = 0;
 
     /** Number of successful sync operations: "Synced {@link #syncedTimesCount} times" */
     private volatile long syncedTimesCount = 0;
@@ -246,6 +254,7 @@ public class Timeline implements Comparable<Timeline> {
         timeline.syncSucceededDate = DbUtils.getLong(cursor, TimelineTable.SYNC_SUCCEEDED_DATE);
         timeline.syncFailedDate = DbUtils.getLong(cursor, TimelineTable.SYNC_FAILED_DATE);
         timeline.errorMessage = DbUtils.getString(cursor, TimelineTable.ERROR_MESSAGE);
+        timeline.syncIntervalMs = DbUtils.getLong(cursor, TimelineTable.SYNC_INTERVAL);
 
         timeline.syncedTimesCount = DbUtils.getLong(cursor, TimelineTable.SYNCED_TIMES_COUNT);
         timeline.syncFailedTimesCount = DbUtils.getLong(cursor, TimelineTable.SYNC_FAILED_TIMES_COUNT);
@@ -456,6 +465,7 @@ public class Timeline implements Comparable<Timeline> {
         values.put(TimelineTable.SYNC_SUCCEEDED_DATE, syncSucceededDate);
         values.put(TimelineTable.SYNC_FAILED_DATE, syncFailedDate);
         values.put(TimelineTable.ERROR_MESSAGE, errorMessage);
+        values.put(TimelineTable.SYNC_INTERVAL, syncIntervalMs);
 
         values.put(TimelineTable.SYNCED_TIMES_COUNT, syncedTimesCount);
         values.put(TimelineTable.SYNC_FAILED_TIMES_COUNT, syncFailedTimesCount);
@@ -776,25 +786,67 @@ public class Timeline implements Comparable<Timeline> {
      * @return true if it's time to auto update this timeline
      */
     public boolean isTimeToAutoSync() {
-        if (System.currentTimeMillis() - Math.max(getSyncSucceededDate(), getSyncFailedDate()) < MIN_RETRY_PERIOD_MS) {
-            return false;
-        }
-        long syncFrequencyMs = myAccount.getEffectiveSyncFrequencySeconds() * 1000;
-        // This correction is needed to take into account that we remembered time, when sync ended,
-        // and not time, when Android initiated it.
-        long correctionForExecutionTime = syncFrequencyMs / 10;
-        long passedMs = System.currentTimeMillis() - getSyncSucceededDate();
-        boolean blnOut = passedMs > syncFrequencyMs - correctionForExecutionTime;
-
+        boolean blnOut = System.currentTimeMillis() >= getNextSyncDate();
         if (blnOut && MyLog.isVerboseEnabled()) {
             MyLog.v(this, "It's time to auto update " + this +
                     ". " +
-                    java.util.concurrent.TimeUnit.MILLISECONDS.toMinutes(passedMs) +
-                    " minutes passed.");
+                    java.util.concurrent.TimeUnit.MILLISECONDS.toMinutes(
+                            System.currentTimeMillis() - getSyncSucceededDate()) +
+                    " minutes passed, sync interval " +
+                    java.util.concurrent.TimeUnit.MILLISECONDS.toMinutes(getSyncIntervalMs()) + " minutes");
         }
         return blnOut;
     }
 
+    /**
+     * @return when this timeline should be synced next time, if it's synced automatically
+     */
+    public long getNextSyncDate() {
+        long syncIntervalMs = getSyncIntervalMs();
+        // This correction is needed to take into account that we remembered time, when sync ended,
+        // and not time, when Android initiated it.
+        long correctionForExecutionTime = syncIntervalMs / 10;
+        return Math.max(getSyncSucceededDate() + syncIntervalMs - correctionForExecutionTime,
+                Math.max(getSyncSucceededDate(), getSyncFailedDate()) + MIN_RETRY_PERIOD_MS);
+    }
+
+    /**
+     * Learnt interval between automatic syncs of this timeline. It cannot be shorter than sync period
+     * of the account, because Android doesn't start the sync more frequently
+     */
+    public long getSyncIntervalMs() {
+        long minIntervalMs = TimeUnit.SECONDS.toMillis(myAccount.getEffectiveSyncFrequencySeconds());
+        long maxIntervalMs = Math.max(minIntervalMs,
+                Math.min(minIntervalMs * MAX_SYNC_INTERVAL_FACTOR, MAX_SYNC_INTERVAL_MS));
+        return Math.max(minIntervalMs, Math.min(syncIntervalMs, maxIntervalMs));
+    }
+
+    /**
+     * Adjusts the sync interval to the observed rate of new messages: a timeline,
+     * where there were no new messages, is synced less frequently next time
+     * @param newItemsCount Number of new messages, downloaded by a successful sync of the youngest messages
+     */
+    public void adaptSyncInterval(long newItemsCount) {
+        long intervalMs = getSyncIntervalMs();
+        long passedMs = getSyncSucceededDate() == 0 ? 0 : System.currentTimeMillis() - getSyncSucceededDate();
+        long intervalNew;
+        if (newItemsCount == 0) {
+            intervalNew = intervalMs * 2;
+        } else if (passedMs > 0) {
+            // Smoothed to avoid jumps on bursts of messages
+            intervalNew = (intervalMs + passedMs * TARGET_NEW_ITEMS_PER_SYNC / newItemsCount) / 2;
+        } else {
+            return;
+        }
+        if (this.syncIntervalMs != intervalNew) {
+            this.syncIntervalMs = intervalNew;
+            changed = true;
+            MyLog.v(this, "Sync interval " + TimeUnit.MILLISECONDS.toMinutes(getSyncIntervalMs())
+                    + " minutes after " + newItemsCount + " new messages in "
+                    + TimeUnit.MILLISECONDS.toMinutes(passedMs) + " minutes");
+        }
+    }
+
     public void forgetPositionsAndDates() {
         if (!TextUtils.isEmpty(youngestPosition)) {
             youngestPosition = "";
@@ -823,6 +875,10 @@ public class Timeline implements Comparable<Timeline> {
         }
 
         setSyncSucceededDate(0);
+        if (syncIntervalMs > 0) {
+            syncIntervalMs = 0;
+            changed = true;
+        }
         if (syncFailedDate > 0) {
             syncFailedDate = 0;
             changed = true;
@@ -19,6 +19,7 @@ package org.andstatus.app.timeline;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.text.format.DateUtils;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -239,6 +240,7 @@ public class TimelineList extends LoadableListActivity {
                 MyUrlSpan.showText(view, R.id.syncSucceededDate,
                         RelativeTime.getDifference(TimelineList.this, item.timeline.getSyncSucceededDate()),
                         false, true);
+                MyUrlSpan.showText(view, R.id.nextSyncDate, getNextSyncDateText(item.timeline), false, true);
                 MyUrlSpan.showText(view, R.id.syncFailedTimesCount,
                         I18n.notZero(item.timeline.getSyncFailedTimesCount(isTotal)), false, true);
                 MyUrlSpan.showText(view, R.id.syncFailedDate,
@@ -248,6 +250,16 @@ public class TimelineList extends LoadableListActivity {
                 return view;
             }
 
+            private String getNextSyncDateText(Timeline timeline) {
+                if (!timeline.isSyncedAutomatically()) {
+                    return "";
+                }
+                long nextSyncDate = timeline.getNextSyncDate();
+                long now = System.currentTimeMillis();
+                return nextSyncDate <= now ? getText(R.string.reltime_just_now).toString()
+                        : DateUtils.getRelativeTimeSpanString(nextSyncDate, now, DateUtils.MINUTE_IN_MILLIS).toString();
+            }
+
             protected void showDisplayedInSelector(View parentView, final TimelineListViewItem item) {
                 CheckBox view = (CheckBox) parentView.findViewById(R.id.displayedInSelector);
                 MyCheckBox.set(parentView, R.id.displayedInSelector, item.timeline.isDisplayedInSelector() != DisplayedInSelector.NEVER,
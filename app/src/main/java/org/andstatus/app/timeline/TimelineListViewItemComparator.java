@@ -97,6 +97,12 @@ class TimelineListViewItemComparator implements Comparator<TimelineListViewItem>
                     return compareSynced(lhs, rhs);
                 }
                 break;
+            case R.id.nextSyncDate:
+                result = compareAny(getNextSyncDate(lhs), getNextSyncDate(rhs));
+                if (result == 0) {
+                    return compareSynced(lhs, rhs);
+                }
+                break;
             case R.id.syncFailedDate:
             case R.id.syncFailedTimesCount:
                 result = compareLongDescending(lhs.timeline.getSyncFailedDate(),
@@ -121,6 +127,11 @@ class TimelineListViewItemComparator implements Comparator<TimelineListViewItem>
         return result == 0 ? 0 : sortDefault ? result : 0 - result;
     }
 
+    /** Timelines, which are not synced automatically, are the last */
+    private static Long getNextSyncDate(TimelineListViewItem item) {
+        return item.timeline.isSyncedAutomatically() ? item.timeline.getNextSyncDate() : Long.MAX_VALUE;
+    }
+
     private int compareSynced(TimelineListViewItem lhs, TimelineListViewItem rhs) {
         int result = compareLongDescending(lhs.timeline.getLastSyncedDate(),
                 rhs.timeline.getLastSyncedDate());
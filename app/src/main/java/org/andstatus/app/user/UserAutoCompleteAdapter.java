@@ -43,6 +43,7 @@ import java.util.Collections;
 import java.util.List;
 
 public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
+    static final int MAX_SUGGESTIONS = 20;
     private final Origin origin;
     private final MyActivity myActivity;
     private final LayoutInflater mInflater;
@@ -54,6 +55,9 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
         this.origin = origin;
         this.myActivity =myActivity;
         mInflater = LayoutInflater.from(myActivity);
+        if (origin.isValid()) {
+            UserNamesIndex.preload(origin.getId());
+        }
     }
 
     public Origin getOrigin() {
@@ -120,8 +124,13 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
             List<UserListViewItem> filteredValues = new ArrayList<>();
             if (!TextUtils.isEmpty(prefix)) {
                 final String prefixString = prefix.toString().toLowerCase();
-                filteredValues = loadFiltered(prefixString);
-                CollectionsUtil.sort(filteredValues);
+                UserNamesIndex index = origin.isValid() ? UserNamesIndex.get(origin.getId()) : null;
+                if (index != null && index.isLoaded()) {
+                    filteredValues = loadRanked(index.find(prefixString, MAX_SUGGESTIONS));
+                } else {
+                    filteredValues = loadFiltered(prefixString);
+                    CollectionsUtil.sort(filteredValues);
+                }
             }
             final FilterResults results = new FilterResults();
             results.values = filteredValues;
@@ -129,6 +138,36 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
             return results;
         }
 
+        /** Loads the users, found in the index, keeping the order of their ranks */
+        private List<UserListViewItem> loadRanked(final List<Long> userIds) {
+            if (userIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (Long userId : userIds) {
+                sb.append(sb.length() == 0 ? "" : ", ").append(userId);
+            }
+            UserListLoader loader = new UserListLoader(UserListType.USERS,
+                    MyContextHolder.get().persistentAccounts().getFirstSucceededForOrigin(origin), origin, 0, "") {
+                @NonNull
+                @Override
+                protected String getSelection() {
+                    return UserTable.TABLE_NAME + "." + UserTable._ID + " IN (" + sb + ")";
+                }
+            };
+            loader.load(null);
+            List<UserListViewItem> ranked = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                for (UserListViewItem viewItem : loader.getList()) {
+                    if (viewItem.getUserId() == userId) {
+                        ranked.add(viewItem);
+                        break;
+                    }
+                }
+            }
+            return ranked;
+        }
+
         private List<UserListViewItem> loadFiltered(final String prefixString) {
             if (!origin.isValid()) {
                 return Collections.emptyList();
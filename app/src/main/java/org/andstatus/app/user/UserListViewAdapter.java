@@ -114,7 +114,7 @@ class UserListViewAdapter extends MyBaseAdapter {
         if (!item.myFollowers.isEmpty()) {
             int count = 0;
             builder.append(contextMenu.getActivity().getText(R.string.followed_by));
-            for (long userId : item.myFollowers) {
+            for (long userId : item.myFollowers.toArray()) {
                 if (count == 0) {
                     builder.append(" ");
                 } else {
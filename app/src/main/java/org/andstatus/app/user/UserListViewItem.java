@@ -29,16 +29,14 @@ import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.graphics.AvatarView;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.origin.Origin;
-
-import java.util.HashSet;
-import java.util.Set;
+import org.andstatus.app.util.LongSet;
 
 public class UserListViewItem implements ViewItem, Comparable<UserListViewItem> {
     boolean populated = false;
     @NonNull
     final MbUser mbUser;
     private AvatarFile avatarFile = null;
-    Set<Long> myFollowers = new HashSet<>();
+    LongSet myFollowers = new LongSet();
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.FriendshipTable;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of user names and WebFinger IDs of one origin, used to suggest users
+ * to mention. Users are ranked by interactions: messages, replies, mentions of my accounts and following.
+ * The index is loaded from the database once and then is updated by {@link org.andstatus.app.data.DataUpdater}
+ * @author yvolk@yurivolkov.com
+ */
+public class UserNamesIndex {
+    private static final String TAG = UserNamesIndex.class.getSimpleName();
+    public static final int MESSAGE_WEIGHT = 1;
+    public static final int REPLY_WEIGHT = 3;
+    public static final int MENTION_WEIGHT = 5;
+    public static final int FOLLOW_WEIGHT = 10;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final Map<Long, UserNamesIndex> indexes = new ConcurrentHashMap<>();
+
+    private final long originId;
+    /** Replaced at once, when the index is loaded */
+    private Names names = new Names();
+    private volatile boolean loaded = false;
+    private boolean loading = false;
+    /** Changes, made while the index was being loaded, to be applied to the loaded one */
+    private final List<Change> changesWhileLoading = new ArrayList<>();
+
+    private static class Entry {
+        final long userId;
+        String userName = "";
+        String webFingerId = "";
+        int rank = 0;
+
+        Entry(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static class Names {
+        /** Lower case names with a user id suffix (to keep users with the same names) */
+        final TreeMap<String, Entry> byName = new TreeMap<>();
+        final Map<Long, Entry> byUserId = new HashMap<>();
+
+        void update(long userId, String userName, String webFingerId) {
+            Entry entry = byUserId.get(userId);
+            if (entry == null) {
+                entry = new Entry(userId);
+                byUserId.put(userId, entry);
+            }
+            if (!TextUtils.isEmpty(userName) && !userName.equals(entry.userName)) {
+                byName.remove(toKey(entry.userName, userId));
+                entry.userName = userName;
+                byName.put(toKey(userName, userId), entry);
+            }
+            if (!TextUtils.isEmpty(webFingerId) && !webFingerId.equals(entry.webFingerId)) {
+                byName.remove(toKey(entry.webFingerId, userId));
+                entry.webFingerId = webFingerId;
+                byName.put(toKey(webFingerId, userId), entry);
+            }
+        }
+
+        void addRank(long userId, int weight) {
+            Entry entry = byUserId.get(userId);
+            if (entry != null) {
+                entry.rank += weight;
+            }
+        }
+    }
+
+    private static class Change {
+        final long userId;
+        final String userName;
+        final String webFingerId;
+        final int weight;
+
+        Change(long userId, String userName, String webFingerId, int weight) {
+            this.userId = userId;
+            this.userName = userName;
+            this.webFingerId = webFingerId;
+            this.weight = weight;
+        }
+
+        void applyTo(Names names) {
+            if (weight == 0) {
+                names.update(userId, userName, webFingerId);
+            } else {
+                names.addRank(userId, weight);
+            }
+        }
+    }
+
+    private static final Comparator<Entry> BY_RANK = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+            if (lhs.rank != rhs.rank) {
+                return lhs.rank < rhs.rank ? -1 : 1;
+            }
+            return rhs.userName.compareToIgnoreCase(lhs.userName);
+        }
+    };
+
+    private UserNamesIndex(long originId) {
+        this.originId = originId;
+    }
+
+    @NonNull
+    static UserNamesIndex get(long originId) {
+        UserNamesIndex index = indexes.get(originId);
+        if (index == null) {
+            index = new UserNamesIndex(originId);
+            UserNamesIndex existing = indexes.putIfAbsent(originId, index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+        return index;
+    }
+
+    /** Starts loading of the index in the background, if it's not loaded yet */
+    static void preload(final long originId) {
+        final UserNamesIndex index = get(originId);
+        if (index.isLoaded()) {
+            return;
+        }
+        AsyncTaskLauncher.execute(TAG, false,
+                new MyAsyncTask<Void, Void, Void>(TAG + originId, MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        index.load();
+                        return null;
+                    }
+                });
+    }
+
+    public static void onUserUpdated(long originId, long userId, String userName, String webFingerId) {
+        UserNamesIndex index = indexes.get(originId);
+        if (index != null && userId != 0) {
+            index.update(userId, userName, webFingerId);
+        }
+    }
+
+    public static void onInteraction(long originId, long userId, int weight) {
+        UserNamesIndex index = indexes.get(originId);
+        if (index != null && userId != 0) {
+            index.addRank(userId, weight);
+        }
+    }
+
+    public static void forget() {
+        indexes.clear();
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /** @return ids of the users, whose names or WebFinger IDs start with the prefix, highly ranked first */
+    @NonNull
+    List<Long> find(String prefix, int maxCount) {
+        if (TextUtils.isEmpty(prefix) || maxCount < 1) {
+            return Collections.emptyList();
+        }
+        String from = prefix.toLowerCase();
+        PriorityQueue<Entry> top = new PriorityQueue<>(maxCount + 1, BY_RANK);
+        Set<Long> found = new HashSet<>();
+        synchronized (this) {
+            for (Entry entry : names.byName.subMap(from, from + Character.MAX_VALUE).values()) {
+                if (!found.add(entry.userId)) {
+                    continue;
+                }
+                top.offer(entry);
+                if (top.size() > maxCount) {
+                    top.poll();
+                }
+            }
+        }
+        List<Long> userIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            userIds.add(top.poll().userId);
+        }
+        Collections.reverse(userIds);
+        return userIds;
+    }
+
+    /** The index is built without the lock, so updates from {@link org.andstatus.app.data.DataUpdater}
+     * don't wait for loading */
+    void load() {
+        synchronized (this) {
+            if (loaded || loading) {
+                return;
+            }
+            loading = true;
+        }
+        Names loadedNames = null;
+        try {
+            loadedNames = loadNames();
+        } finally {
+            synchronized (this) {
+                if (loadedNames != null) {
+                    for (Change change : changesWhileLoading) {
+                        change.applyTo(loadedNames);
+                    }
+                    names = loadedNames;
+                    loaded = true;
+                }
+                changesWhileLoading.clear();
+                loading = false;
+            }
+        }
+    }
+
+    private Names loadNames() {
+        long startTime = System.currentTimeMillis();
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "Database is not available");
+            return null;
+        }
+        Names names = new Names();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + UserTable._ID + ", " + UserTable.USERNAME + ", "
+                    + UserTable.WEBFINGER_ID + " FROM " + UserTable.TABLE_NAME
+                    + " WHERE " + UserTable.ORIGIN_ID + "=" + originId, null);
+            while (cursor.moveToNext()) {
+                names.update(cursor.getLong(0), cursor.getString(1), cursor.getString(2));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        String msgWhere = " WHERE " + MsgTable.ORIGIN_ID + "=" + originId;
+        addRanks(names, db, "SELECT " + MsgTable.AUTHOR_ID + ", COUNT(*) FROM " + MsgTable.TABLE_NAME + msgWhere
+                + " GROUP BY " + MsgTable.AUTHOR_ID, MESSAGE_WEIGHT);
+        addRanks(names, db, "SELECT " + MsgTable.IN_REPLY_TO_USER_ID + ", COUNT(*) FROM " + MsgTable.TABLE_NAME + msgWhere
+                + " GROUP BY " + MsgTable.IN_REPLY_TO_USER_ID, REPLY_WEIGHT);
+        addRanks(names, db, "SELECT " + MsgTable.RECIPIENT_ID + ", COUNT(*) FROM " + MsgTable.TABLE_NAME + msgWhere
+                + " GROUP BY " + MsgTable.RECIPIENT_ID, REPLY_WEIGHT);
+        addRanks(names, db, "SELECT msg." + MsgTable.AUTHOR_ID + ", COUNT(*) FROM " + MsgTable.TABLE_NAME + " AS msg"
+                + " INNER JOIN " + MsgOfUserTable.TABLE_NAME + " AS mou"
+                + " ON msg." + MsgTable._ID + "=mou." + MsgOfUserTable.MSG_ID
+                + " WHERE msg." + MsgTable.ORIGIN_ID + "=" + originId
+                + " AND mou." + MsgOfUserTable.MENTIONED + "=1"
+                + " GROUP BY msg." + MsgTable.AUTHOR_ID, MENTION_WEIGHT);
+        StringBuilder myUserIds = new StringBuilder();
+        for (MyAccount ma : MyContextHolder.get().persistentAccounts().list()) {
+            if (ma.getOriginId() == originId) {
+                myUserIds.append(myUserIds.length() == 0 ? "" : ", ").append(ma.getUserId());
+            }
+        }
+        if (myUserIds.length() > 0) {
+            addRanks(names, db, "SELECT " + FriendshipTable.FRIEND_ID + ", COUNT(*) FROM " + FriendshipTable.TABLE_NAME
+                    + " WHERE " + FriendshipTable.FOLLOWED + "=1"
+                    + " AND " + FriendshipTable.USER_ID + " IN (" + myUserIds + ")"
+                    + " GROUP BY " + FriendshipTable.FRIEND_ID, FOLLOW_WEIGHT);
+        }
+        MyLog.v(TAG, "Loaded " + names.byUserId.size() + " users of origin " + originId + " in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return names;
+    }
+
+    private static void addRanks(Names names, SQLiteDatabase db, String sql, int weight) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                names.addRank(cursor.getLong(0), cursor.getInt(1) * weight);
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    synchronized void update(long userId, String userName, String webFingerId) {
+        names.update(userId, userName, webFingerId);
+        if (loading) {
+            changesWhileLoading.add(new Change(userId, userName, webFingerId, 0));
+        }
+    }
+
+    synchronized void addRank(long userId, int weight) {
+        names.addRank(userId, weight);
+        if (loading && weight != 0) {
+            changesWhileLoading.add(new Change(userId, null, null, weight));
+        }
+    }
+
+    private static String toKey(String name, long userId) {
+        return name.toLowerCase() + KEY_SEPARATOR + userId;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.text.TextUtils;
+
+/**
+ * 64-bit SimHash of a normalized message body: bodies, which differ only slightly,
+ * have fingerprints, which differ in a few bits only.
+ * See <a href="https://en.wikipedia.org/wiki/SimHash">SimHash</a>
+ * @author yvolk@yurivolkov.com
+ */
+public class ContentFingerprint {
+    /** For bodies, too short to compare */
+    public static final long EMPTY = 0;
+    public static final int MIN_LENGTH_TO_COMPARE = 5;
+    /** Maximum number of different bits in fingerprints of similar bodies */
+    public static final int MAX_DISTANCE = 3;
+    /** Fingerprints, which differ in not more than {@link #MAX_DISTANCE} bits, have at least one equal band */
+    public static final int BANDS_COUNT = MAX_DISTANCE + 1;
+    private static final int BAND_BITS = 64 / BANDS_COUNT;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ContentFingerprint() {
+        // Empty
+    }
+
+    public static long fromBody(String body) {
+        return fromCleanedBody(MyHtml.getCleanedBody(body));
+    }
+
+    /** @param cleanedBody See {@link MyHtml#getCleanedBody(String)} */
+    public static long fromCleanedBody(String cleanedBody) {
+        if (TextUtils.isEmpty(cleanedBody) || cleanedBody.trim().length() < MIN_LENGTH_TO_COMPARE) {
+            return EMPTY;
+        }
+        int[] weights = new int[64];
+        String[] words = cleanedBody.trim().split(" ");
+        long previousHash = 0;
+        for (int ind = 0; ind < words.length; ind++) {
+            long hash = hash(words[ind], FNV_OFFSET_BASIS);
+            addFeature(weights, hash);
+            if (ind > 0) {
+                // Word pairs make the fingerprint sensitive to the order of words
+                addFeature(weights, hash(words[ind], previousHash));
+            }
+            previousHash = hash;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    private static void addFeature(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1L) == 1L ? 1 : -1;
+        }
+    }
+
+    /** FNV-1a */
+    private static long hash(String word, long seed) {
+        long hash = seed;
+        for (int ind = 0; ind < word.length(); ind++) {
+            hash ^= word.charAt(ind);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public static int distance(long fingerprint1, long fingerprint2) {
+        return Long.bitCount(fingerprint1 ^ fingerprint2);
+    }
+
+    public static boolean areSimilar(long fingerprint1, long fingerprint2) {
+        return fingerprint1 != EMPTY && fingerprint2 != EMPTY
+                && distance(fingerprint1, fingerprint2) <= MAX_DISTANCE;
+    }
+
+    /** A key of a bucket for the band of the fingerprint, unique across the bands */
+    public static long bandKey(long fingerprint, int band) {
+        return ((long) band << BAND_BITS) | ((fingerprint >>> (band * BAND_BITS)) & ((1L << BAND_BITS) - 1));
+    }
+}
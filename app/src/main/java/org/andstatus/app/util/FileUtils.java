@@ -32,6 +32,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -210,4 +211,39 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Copies the file through channels, without buffers of the application
+     * @return number of bytes copied
+     */
+    public static long copyFile(File source, File destination) throws IOException {
+        FileInputStream inputStream = null;
+        FileOutputStream outputStream = null;
+        FileChannel inChannel = null;
+        FileChannel outChannel = null;
+        try {
+            inputStream = new FileInputStream(source);
+            outputStream = new FileOutputStream(destination, false);
+            inChannel = inputStream.getChannel();
+            outChannel = outputStream.getChannel();
+            long size = inChannel.size();
+            long position = 0;
+            while (position < size) {
+                long count = inChannel.transferTo(position, size - position, outChannel);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+            }
+            if (position != size) {
+                throw new FileNotFoundException("Copied " + position + " of " + size + " bytes of '"
+                        + source.getAbsolutePath() + "'");
+            }
+            return position;
+        } finally {
+            DbUtils.closeSilently(inChannel);
+            DbUtils.closeSilently(outChannel);
+            DbUtils.closeSilently(inputStream);
+            DbUtils.closeSilently(outputStream);
+        }
+    }
 }
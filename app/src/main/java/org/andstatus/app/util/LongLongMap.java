@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Map of primitive longs to primitive longs without boxing, see {@link LongSet}.
+ * Not synchronized
+ * @author yvolk@yurivolkov.com
+ */
+public class LongLongMap {
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int threshold;
+    private boolean hasZeroKey = false;
+    private long zeroKeyValue = 0;
+    private int size = 0;
+
+    public LongLongMap() {
+        this(0);
+    }
+
+    public LongLongMap(int expectedSize) {
+        allocate(LongSet.capacityFor(expectedSize));
+    }
+
+    public boolean containsKey(long key) {
+        return key == FREE ? hasZeroKey : find(key) >= 0;
+    }
+
+    /** @return the value or the defaultValue, if there is no such key */
+    public long get(long key, long defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+        int pos = find(key);
+        return pos < 0 ? defaultValue : values[pos];
+    }
+
+    public void put(long key, long value) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroKeyValue = value;
+            return;
+        }
+        int pos = LongSet.hash(key, mask);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Adds the delta to the value of the key (absent key has 0 value). The key with the resulting 0 value is removed
+     * @return the new value
+     */
+    public long addTo(long key, long delta) {
+        long value = get(key, 0) + delta;
+        if (value == 0) {
+            remove(key);
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /** @return true if the map contained the key */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            zeroKeyValue = 0;
+            size--;
+            return true;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return false;
+        }
+        LongSet.shiftKeys(keys, values, pos, mask);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        allocate(LongSet.MIN_CAPACITY);
+        hasZeroKey = false;
+        zeroKeyValue = 0;
+        size = 0;
+    }
+
+    /** @return the keys in no particular order */
+    @NonNull
+    public long[] keys() {
+        long[] array = new long[size];
+        int ind = 0;
+        if (hasZeroKey) {
+            array[ind++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                array[ind++] = key;
+            }
+        }
+        return array;
+    }
+
+    private int find(long key) {
+        int pos = LongSet.hash(key, mask);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        threshold = LongSet.thresholdOf(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int ind = 0; ind < oldKeys.length; ind++) {
+            if (oldKeys[ind] != FREE) {
+                int pos = LongSet.hash(oldKeys[ind], mask);
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[ind];
+                values[pos] = oldValues[ind];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongMap{size=" + size + "}";
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Set of primitive longs (e.g. row ids) without boxing: open addressing with linear probing.
+ * Not synchronized
+ * @author yvolk@yurivolkov.com
+ */
+public class LongSet {
+    static final int MIN_CAPACITY = 8;
+    /** Marks a free slot, so zero key is kept separately */
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private int mask;
+    private int threshold;
+    private boolean hasZero = false;
+    private int size = 0;
+
+    public LongSet() {
+        this(0);
+    }
+
+    public LongSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    @NonNull
+    public static LongSet of(long... values) {
+        LongSet set = new LongSet(values.length);
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /** @return true if the set didn't contain the value */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int pos = hash(value, mask);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == value) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return hasZero;
+        }
+        return find(value) >= 0;
+    }
+
+    /** @return true if the set contained the value */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int pos = find(value);
+        if (pos < 0) {
+            return false;
+        }
+        shiftKeys(keys, null, pos, mask);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        hasZero = false;
+        size = 0;
+    }
+
+    /** @return the values in no particular order */
+    @NonNull
+    public long[] toArray() {
+        long[] array = new long[size];
+        int ind = 0;
+        if (hasZero) {
+            array[ind++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                array[ind++] = key;
+            }
+        }
+        return array;
+    }
+
+    private int find(long value) {
+        int pos = hash(value, mask);
+        while (keys[pos] != FREE) {
+            if (keys[pos] == value) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = thresholdOf(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key != FREE) {
+                int pos = hash(key, mask);
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+
+    /** The smallest power of two, which holds so many values without exceeding the load factor */
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (thresholdOf(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /** The load factor is 3/4 */
+    static int thresholdOf(int capacity) {
+        return capacity / 4 * 3;
+    }
+
+    static int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Removes the key at the position, shifting back the following keys of the same cluster,
+     * so no "deleted" markers are needed
+     * @param values Values of the map, parallel to keys, or null for a set
+     */
+    static void shiftKeys(long[] keys, long[] values, int posIn, int mask) {
+        int pos = posIn;
+        int last;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            long key;
+            while (true) {
+                key = keys[pos];
+                if (key == FREE) {
+                    keys[last] = FREE;
+                    return;
+                }
+                int slot = hash(key, mask);
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = key;
+            if (values != null) {
+                values[last] = values[pos];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LongSet{size=" + size + "}";
+    }
+}